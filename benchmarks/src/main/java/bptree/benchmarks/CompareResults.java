@@ -0,0 +1,108 @@
+package bptree.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code CompareResults} class compares two JMH result files in CSV format ({@code -rf csv}) and reports the
+ * benchmarks whose scores regressed by more than a threshold. It exits with status 1 if there is any regression, so it
+ * can gate performance changes against a baseline run.
+ */
+public class CompareResults {
+
+	/**
+	 * The main program.
+	 * 
+	 * @param args
+	 *            the baseline CSV file, the current CSV file and optionally the threshold (default: 0.10).
+	 * @throws IOException
+	 *             if an error occurs while reading the files.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: CompareResults <baseline.csv> <current.csv> [threshold]");
+			System.exit(2);
+		}
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+		Map<String, double[]> baseline = read(args[0]);
+		Map<String, double[]> current = read(args[1]);
+		int regressions = 0;
+		for (Map.Entry<String, double[]> e : current.entrySet()) {
+			double[] b = baseline.get(e.getKey());
+			if (b == null)
+				continue;
+			double[] c = e.getValue();
+			// scores are times (lower is better) unless the mode is throughput (c[1] == 1)
+			double change = c[1] == 1 ? (b[0] - c[0]) / b[0] : (c[0] - b[0]) / b[0];
+			String verdict = change > threshold ? "REGRESSION" : change < -threshold ? "improvement" : "ok";
+			if (change > threshold)
+				regressions++;
+			System.out.printf("%-12s %+7.1f%%  %s (%.3f -> %.3f)%n", verdict, 100 * change, e.getKey(), b[0], c[0]);
+		}
+		System.out.println(regressions + " regression(s) beyond " + (int) (100 * threshold) + "%");
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Reads the scores in the specified JMH CSV file.
+	 * 
+	 * @param fileName
+	 *            the name of a JMH CSV file.
+	 * @return a map from each benchmark (with its parameters) to its score and whether higher scores are better (1)
+	 *         or not (0).
+	 * @throws IOException
+	 *             if an error occurs while reading the file.
+	 */
+	protected static Map<String, double[]> read(String fileName) throws IOException {
+		Map<String, double[]> scores = new LinkedHashMap<String, double[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try {
+			List<String> header = parse(reader.readLine());
+			String line;
+			while ((line = reader.readLine()) != null) {
+				List<String> fields = parse(line);
+				StringBuilder key = new StringBuilder(fields.get(0));
+				for (int i = 7; i < fields.size(); i++)
+					if (!fields.get(i).isEmpty())
+						key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(fields.get(i));
+				String mode = fields.get(1);
+				scores.put(key.toString(), new double[] { Double.parseDouble(fields.get(4)),
+						mode.equals("thrpt") ? 1 : 0 });
+			}
+		} finally {
+			reader.close();
+		}
+		return scores;
+	}
+
+	/**
+	 * Splits the specified CSV line into fields.
+	 * 
+	 * @param line
+	 *            a CSV line.
+	 * @return the fields of the line.
+	 */
+	protected static List<String> parse(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"')
+				quoted = !quoted;
+			else if (c == ',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else
+				field.append(c);
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+}
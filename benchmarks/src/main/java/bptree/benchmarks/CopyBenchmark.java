@@ -0,0 +1,48 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * The {@code CopyBenchmark} class measures deep copies of loaded indexes (the {@code BPlusTree} copy constructor,
+ * {@code new TreeMap(map)} and {@code new ConcurrentSkipListMap(map)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CopyBenchmark extends IndexBenchmark {
+
+	/**
+	 * The index.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected OrderedIndex index;
+
+	/**
+	 * Loads the index.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = Workload.keys(keyType, size);
+		index = Workload.load(implementation, keys, Workload.permutation("uniform", size, 1));
+	}
+
+	/**
+	 * Copies the index.
+	 * 
+	 * @return the copy.
+	 */
+	@Benchmark
+	public Object copy() {
+		return index.copy();
+	}
+
+}
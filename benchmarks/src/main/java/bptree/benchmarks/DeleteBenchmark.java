@@ -0,0 +1,75 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code DeleteBenchmark} class measures the time to delete all keys from a loaded index in increasing
+ * ({@code sequential}) or random ({@code uniform}) order. The index is reloaded before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DeleteBenchmark extends IndexBenchmark {
+
+	/**
+	 * The order in which keys are deleted.
+	 */
+	@Param({ "sequential", "uniform" })
+	public String distribution;
+
+	/**
+	 * The order in which keys are deleted.
+	 */
+	protected int[] order;
+
+	/**
+	 * The index.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected OrderedIndex index;
+
+	/**
+	 * Creates the keys.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = Workload.keys(keyType, size);
+		order = Workload.permutation(distribution, size, 3);
+	}
+
+	/**
+	 * Loads the index.
+	 */
+	@Setup(Level.Invocation)
+	public void load() {
+		index = Workload.load(implementation, keys, Workload.permutation("uniform", size, 1));
+	}
+
+	/**
+	 * Deletes all keys.
+	 * 
+	 * @return the emptied index.
+	 */
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Object delete() {
+		for (int i : order)
+			index.remove(keys[i]);
+		return index;
+	}
+
+}
@@ -0,0 +1,111 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bptree.BPlusTree;
+import bptree.FrozenBPlusTree;
+
+/**
+ * The {@code FrozenBenchmark} class measures uniformly distributed point lookups in {@code BPlusTree}s of various
+ * degrees and in a {@code FrozenBPlusTree} (frozen from a {@code BPlusTree} of degree 64). Sizes up to
+ * {@code FrozenBPlusTree.MAXIMUM_SIZE} (about 1 billion keys) can be requested with {@code -p size=1000000000} given a
+ * large enough heap (e.g., {@code -jvmArgs -Xmx200g}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = { "-Xms3g", "-Xmx3g" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FrozenBenchmark {
+
+	/**
+	 * The implementation of the index ({@code BPlusTree-<degree>} or {@code Frozen}).
+	 */
+	@Param({ "BPlusTree-16", "BPlusTree-64", "BPlusTree-256", "Frozen" })
+	public String implementation;
+
+	/**
+	 * The type of keys.
+	 */
+	@Param({ "Long", "String" })
+	public String keyType;
+
+	/**
+	 * The number of keys.
+	 */
+	@Param({ "1000000", "10000000" })
+	public int size;
+
+	/**
+	 * The keys in increasing order.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected Comparable[] keys;
+
+	/**
+	 * The {@code BPlusTree}; {@code null} if the {@code FrozenBPlusTree} is measured.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected BPlusTree tree;
+
+	/**
+	 * The {@code FrozenBPlusTree}; {@code null} if a {@code BPlusTree} is measured.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected FrozenBPlusTree frozen;
+
+	/**
+	 * The indices of the keys looked up.
+	 */
+	protected int[] accesses;
+
+	/**
+	 * The position in the access sequence.
+	 */
+	protected int position;
+
+	/**
+	 * Loads the index.
+	 */
+	@Setup(Level.Trial)
+	@SuppressWarnings("rawtypes")
+	public void setUp() {
+		keys = Workload.keys(keyType, size);
+		boolean freeze = implementation.equals("Frozen");
+		OrderedIndex index = Workload.load(freeze ? "BPlusTree-64" : implementation, keys,
+				Workload.permutation("uniform", size, 1));
+		tree = ((Indexes.Tree) index).tree();
+		if (freeze) {
+			frozen = tree.freeze();
+			tree = null;
+		}
+		accesses = Workload.accesses("uniform", size, Workload.ACCESSES, 2);
+	}
+
+	/**
+	 * Looks up the next key.
+	 * 
+	 * @return the value found.
+	 */
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Object get() {
+		Comparable<?> key = keys[accesses[position++ & (Workload.ACCESSES - 1)]];
+		return frozen != null ? frozen.get(key) : tree.get(key);
+	}
+
+}
@@ -0,0 +1,63 @@
+package bptree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * The {@code GetBenchmark} class measures point lookups (i.e., {@code BPlusTree.find} followed by a search in the
+ * {@code LeafNode}) of keys drawn from the specified distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+public class GetBenchmark extends IndexBenchmark {
+
+	/**
+	 * The distribution of the keys looked up.
+	 */
+	@Param({ "sequential", "uniform", "zipfian" })
+	public String distribution;
+
+	/**
+	 * The index.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected OrderedIndex index;
+
+	/**
+	 * The indices of the keys looked up.
+	 */
+	protected int[] accesses;
+
+	/**
+	 * The position in the access sequence.
+	 */
+	protected int position;
+
+	/**
+	 * Loads the index.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = Workload.keys(keyType, size);
+		index = Workload.load(implementation, keys, Workload.permutation("uniform", size, 1));
+		accesses = Workload.accesses(distribution, size, Workload.ACCESSES, 2);
+	}
+
+	/**
+	 * Looks up the next key.
+	 * 
+	 * @return the value found.
+	 */
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public Object get() {
+		return index.get(keys[accesses[position++ & (Workload.ACCESSES - 1)]]);
+	}
+
+}
@@ -0,0 +1,49 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code IndexBenchmark} class is the base of the benchmarks that compare {@code BPlusTree}s of various degrees
+ * against {@code TreeMap} and {@code ConcurrentSkipListMap}. Sizes up to 100M keys can be requested with
+ * {@code -p size=100000000} given a large enough heap (e.g., {@code -jvmArgs -Xmx64g}).
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public abstract class IndexBenchmark {
+
+	/**
+	 * The implementation of the index.
+	 */
+	@Param({ "BPlusTree-4", "BPlusTree-16", "BPlusTree-64", "BPlusTree-256", "TreeMap", "ConcurrentSkipListMap" })
+	public String implementation;
+
+	/**
+	 * The type of keys.
+	 */
+	@Param({ "Integer", "Long", "String" })
+	public String keyType;
+
+	/**
+	 * The number of keys.
+	 */
+	@Param({ "1000", "1000000" })
+	public int size;
+
+	/**
+	 * The keys in increasing order.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected Comparable[] keys;
+
+}
@@ -0,0 +1,160 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import bptree.BPlusTree;
+
+/**
+ * The {@code Indexes} class creates the {@code OrderedIndex}es compared in the benchmarks.
+ */
+public class Indexes {
+
+	/**
+	 * Creates an empty {@code OrderedIndex}.
+	 * 
+	 * @param implementation
+	 *            {@code BPlusTree-<degree>}, {@code BPlusTree-<degree>-blocked} (with {@code BlockedKeys}, searched
+	 *            with the Vector API kernel if the JVM runs with {@code --add-modules jdk.incubator.vector}),
+	 *            {@code BPlusTree-<degree>-learned} (with a {@code LearnedIndex} of 64 {@code LeafNode}s per segment),
+	 *            {@code TreeMap} or {@code ConcurrentSkipListMap}.
+	 * @return an empty {@code OrderedIndex}.
+	 */
+	public static <K extends Comparable<K>> OrderedIndex<K> create(String implementation) {
+		if (implementation.startsWith("BPlusTree-") && implementation.endsWith("-blocked")) {
+			String degree = implementation.substring(10, implementation.length() - 8);
+			BPlusTree<K, Object> tree = new BPlusTree<K, Object>(Integer.parseInt(degree));
+			tree.enableBlockedKeys();
+			return new Tree<K>(tree);
+		} else if (implementation.startsWith("BPlusTree-") && implementation.endsWith("-learned")) {
+			String degree = implementation.substring(10, implementation.length() - 8);
+			BPlusTree<K, Object> tree = new BPlusTree<K, Object>(Integer.parseInt(degree));
+			tree.enableLearnedIndex(64);
+			return new Tree<K>(tree);
+		} else if (implementation.startsWith("BPlusTree-"))
+			return new Tree<K>(new BPlusTree<K, Object>(Integer.parseInt(implementation.substring(10))));
+		else if (implementation.equals("TreeMap"))
+			return new Map<K>(new TreeMap<K, Object>());
+		else if (implementation.equals("ConcurrentSkipListMap"))
+			return new Map<K>(new ConcurrentSkipListMap<K, Object>());
+		throw new IllegalArgumentException("unknown implementation: " + implementation);
+	}
+
+	/**
+	 * The {@code Tree} class adapts {@code BPlusTree}s.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 */
+	public static class Tree<K extends Comparable<K>> implements OrderedIndex<K> {
+
+		/**
+		 * The {@code BPlusTree}.
+		 */
+		protected BPlusTree<K, Object> tree;
+
+		/**
+		 * Constructs a {@code Tree}.
+		 * 
+		 * @param tree
+		 *            the {@code BPlusTree} to adapt.
+		 */
+		public Tree(BPlusTree<K, Object> tree) {
+			this.tree = tree;
+		}
+
+		/**
+		 * Returns the adapted {@code BPlusTree}.
+		 * 
+		 * @return the adapted {@code BPlusTree}.
+		 */
+		public BPlusTree<K, Object> tree() {
+			return tree;
+		}
+
+		@Override
+		public void put(K key, Object value) {
+			tree.insert(key, value);
+		}
+
+		@Override
+		public Object get(K key) {
+			return tree.get(key);
+		}
+
+		@Override
+		public void remove(K key) {
+			tree.delete(key, null);
+		}
+
+		@Override
+		public long scan(K fromKey, K toKey) {
+			return tree.scan(fromKey, toKey, (k, v) -> {
+			});
+		}
+
+		@Override
+		public OrderedIndex<K> copy() {
+			return new Tree<K>(new BPlusTree<K, Object>(tree));
+		}
+
+	}
+
+	/**
+	 * The {@code Map} class adapts {@code NavigableMap}s.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 */
+	public static class Map<K extends Comparable<K>> implements OrderedIndex<K> {
+
+		/**
+		 * The {@code NavigableMap}.
+		 */
+		protected NavigableMap<K, Object> map;
+
+		/**
+		 * Constructs a {@code Map}.
+		 * 
+		 * @param map
+		 *            the {@code NavigableMap} to adapt.
+		 */
+		public Map(NavigableMap<K, Object> map) {
+			this.map = map;
+		}
+
+		@Override
+		public void put(K key, Object value) {
+			map.put(key, value);
+		}
+
+		@Override
+		public Object get(K key) {
+			return map.get(key);
+		}
+
+		@Override
+		public void remove(K key) {
+			map.remove(key);
+		}
+
+		@Override
+		public long scan(K fromKey, K toKey) {
+			long count = 0;
+			for (Object value : map.subMap(fromKey, true, toKey, false).values())
+				if (value != null)
+					count++;
+			return count;
+		}
+
+		@Override
+		public OrderedIndex<K> copy() {
+			if (map instanceof ConcurrentSkipListMap)
+				return new Map<K>(new ConcurrentSkipListMap<K, Object>(map));
+			return new Map<K>(new TreeMap<K, Object>(map));
+		}
+
+	}
+
+}
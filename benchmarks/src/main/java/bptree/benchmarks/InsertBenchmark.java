@@ -0,0 +1,54 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * The {@code InsertBenchmark} class measures the time to load all keys into an empty index in increasing
+ * ({@code sequential}) or random ({@code uniform}) order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InsertBenchmark extends IndexBenchmark {
+
+	/**
+	 * The order in which keys are inserted.
+	 */
+	@Param({ "sequential", "uniform" })
+	public String distribution;
+
+	/**
+	 * The order in which keys are inserted.
+	 */
+	protected int[] order;
+
+	/**
+	 * Creates the keys.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = Workload.keys(keyType, size);
+		order = Workload.permutation(distribution, size, 1);
+	}
+
+	/**
+	 * Loads all keys into an empty index.
+	 * 
+	 * @return the loaded index.
+	 */
+	@Benchmark
+	public Object insert() {
+		return Workload.load(implementation, keys, order);
+	}
+
+}
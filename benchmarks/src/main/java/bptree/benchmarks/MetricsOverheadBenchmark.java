@@ -0,0 +1,101 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bptree.BPlusTree;
+
+/**
+ * The {@code MetricsOverheadBenchmark} class measures the overhead of {@code TreeMetrics} on lookups and updates of a
+ * {@code BPlusTree}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 3, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsOverheadBenchmark {
+
+	/**
+	 * Whether or not the {@code BPlusTree} is instrumented.
+	 */
+	@Param({ "off", "on" })
+	public String metrics;
+
+	/**
+	 * The degree of the {@code BPlusTree}.
+	 */
+	@Param({ "64" })
+	public int degree;
+
+	/**
+	 * The number of keys.
+	 */
+	@Param({ "1000000" })
+	public int size;
+
+	/**
+	 * The {@code BPlusTree}.
+	 */
+	protected BPlusTree<Integer, Object> tree;
+
+	/**
+	 * The indices of the keys accessed.
+	 */
+	protected int[] accesses;
+
+	/**
+	 * The position in the access sequence.
+	 */
+	protected int position;
+
+	/**
+	 * Loads the {@code BPlusTree}.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		tree = new BPlusTree<Integer, Object>(degree);
+		if (metrics.equals("on"))
+			tree.enableMetrics();
+		for (int i : Workload.permutation("uniform", size, 1))
+			tree.insert(2 * i, Boolean.TRUE);
+		accesses = Workload.accesses("uniform", size, Workload.ACCESSES, 2);
+	}
+
+	/**
+	 * Looks up the next key.
+	 * 
+	 * @return the value found.
+	 */
+	@Benchmark
+	public Object get() {
+		return tree.get(2 * accesses[position++ & (Workload.ACCESSES - 1)]);
+	}
+
+	/**
+	 * Inserts and deletes a key that is not in the {@code BPlusTree}.
+	 * 
+	 * @return the {@code BPlusTree}.
+	 */
+	@Benchmark
+	public Object insertDelete() {
+		Integer key = 2 * accesses[position++ & (Workload.ACCESSES - 1)] + 1;
+		tree.insert(key, Boolean.TRUE);
+		tree.delete(key, null);
+		return tree;
+	}
+
+}
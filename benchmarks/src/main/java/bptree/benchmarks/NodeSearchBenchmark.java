@@ -0,0 +1,166 @@
+package bptree.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Warmup;
+
+import bptree.BlockedKeys;
+import bptree.KeySearch;
+import bptree.ScalarKeySearch;
+
+/**
+ * The {@code NodeSearchBenchmark} class measures the search for a {@code Long} key within a single full
+ * {@code NonLeafNode} of various degrees: the comparison loop of {@code Node.findIndexGE}, a scalar binary search over
+ * the keys as {@code long}s, and {@code BlockedKeys} searched with the scalar and the Vector API kernels. The forked
+ * JVMs load {@code jdk.incubator.vector}; {@link #blockedVector()} fails if the Vector API is nevertheless unavailable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g", "--add-modules", "jdk.incubator.vector" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NodeSearchBenchmark {
+
+	/**
+	 * The number of probes (a power of 2).
+	 */
+	public static final int PROBES = 1 << 12;
+
+	/**
+	 * The degree of the {@code NonLeafNode} (which holds degree - 1 keys).
+	 */
+	@Param({ "8", "16", "32", "64", "128", "256", "1024" })
+	public int degree;
+
+	/**
+	 * The keys (0, 2, 4, ...).
+	 */
+	protected Long[] keys;
+
+	/**
+	 * The keys as {@code long}s.
+	 */
+	protected long[] values;
+
+	/**
+	 * The keys in {@code BlockedKeys} searched with the scalar kernel.
+	 */
+	protected BlockedKeys scalar;
+
+	/**
+	 * The keys in {@code BlockedKeys} searched with the Vector API kernel.
+	 */
+	protected BlockedKeys vector;
+
+	/**
+	 * The probes, which hit a key or fall between two keys equally often.
+	 */
+	protected long[] probes;
+
+	/**
+	 * The probes as {@code Long}s.
+	 */
+	protected Long[] boxedProbes;
+
+	/**
+	 * The position in the probe sequence.
+	 */
+	protected int position;
+
+	/**
+	 * Builds the keys and probes.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		int n = degree - 1;
+		keys = new Long[n];
+		values = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = 2L * i;
+			values[i] = 2L * i;
+		}
+		scalar = new BlockedKeys(n, new ScalarKeySearch());
+		scalar.update(keys, n);
+		KeySearch search = KeySearch.vector();
+		if (search != null) {
+			vector = new BlockedKeys(n, search);
+			vector.update(keys, n);
+		}
+		java.util.Random random = new java.util.Random(1);
+		probes = new long[PROBES];
+		boxedProbes = new Long[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			probes[i] = random.nextInt(2 * n + 1) - 1;
+			boxedProbes[i] = probes[i];
+		}
+	}
+
+	/**
+	 * Returns the next probe.
+	 * 
+	 * @return the next probe.
+	 */
+	protected long probe() {
+		return probes[position++ & (PROBES - 1)];
+	}
+
+	/**
+	 * Searches the keys one by one as {@code Node.findIndexGE} does.
+	 * 
+	 * @return the index of the first key that is greater than or equal to the probe; -1 if there is no such key.
+	 */
+	@Benchmark
+	public int comparableScan() {
+		Long key = boxedProbes[position++ & (PROBES - 1)];
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i].compareTo(key) >= 0)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Searches the keys as {@code long}s by binary search.
+	 * 
+	 * @return the index of the probe, or (-(insertion point) - 1) if it is missing.
+	 */
+	@Benchmark
+	public int binarySearch() {
+		return java.util.Arrays.binarySearch(values, probe());
+	}
+
+	/**
+	 * Searches the {@code BlockedKeys} with the scalar kernel.
+	 * 
+	 * @return the number of keys smaller than the probe.
+	 */
+	@Benchmark
+	public int blockedScalar() {
+		return scalar.countLess(probe());
+	}
+
+	/**
+	 * Searches the {@code BlockedKeys} with the Vector API kernel.
+	 * 
+	 * @return the number of keys smaller than the probe.
+	 */
+	@Benchmark
+	public int blockedVector() {
+		if (vector == null)
+			throw new IllegalStateException("the Vector API is not available");
+		return vector.countLess(probe());
+	}
+
+}
@@ -0,0 +1,57 @@
+package bptree.benchmarks;
+
+/**
+ * The {@code OrderedIndex} interface adapts the ordered maps compared in the benchmarks ({@code BPlusTree},
+ * {@code TreeMap} and {@code ConcurrentSkipListMap}) to a common set of operations.
+ * 
+ * @param <K>
+ *            the type of keys
+ */
+public interface OrderedIndex<K extends Comparable<K>> {
+
+	/**
+	 * Inserts the specified key and value.
+	 * 
+	 * @param key
+	 *            the key to insert.
+	 * @param value
+	 *            the value to insert.
+	 */
+	void put(K key, Object value);
+
+	/**
+	 * Returns the value associated with the specified key.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	Object get(K key);
+
+	/**
+	 * Removes the specified key.
+	 * 
+	 * @param key
+	 *            the key to remove.
+	 */
+	void remove(K key);
+
+	/**
+	 * Visits the entries whose keys are in the specified range.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive).
+	 * @param toKey
+	 *            the highest key of the range (exclusive).
+	 * @return the number of entries visited.
+	 */
+	long scan(K fromKey, K toKey);
+
+	/**
+	 * Returns a deep copy of this {@code OrderedIndex}.
+	 * 
+	 * @return a deep copy of this {@code OrderedIndex}.
+	 */
+	OrderedIndex<K> copy();
+
+}
@@ -0,0 +1,69 @@
+package bptree.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+
+/**
+ * The {@code ScanBenchmark} class measures range scans that start at keys drawn from the specified distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+public class ScanBenchmark extends IndexBenchmark {
+
+	/**
+	 * The distribution of the first keys of the ranges.
+	 */
+	@Param({ "sequential", "uniform", "zipfian" })
+	public String distribution;
+
+	/**
+	 * The number of keys in each range.
+	 */
+	@Param({ "10", "1000" })
+	public int length;
+
+	/**
+	 * The index.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected OrderedIndex index;
+
+	/**
+	 * The indices of the first keys of the ranges.
+	 */
+	protected int[] accesses;
+
+	/**
+	 * The position in the access sequence.
+	 */
+	protected int position;
+
+	/**
+	 * Loads the index.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		keys = Workload.keys(keyType, size);
+		index = Workload.load(implementation, keys, Workload.permutation("uniform", size, 1));
+		accesses = Workload.accesses(distribution, size, Workload.ACCESSES, 2);
+	}
+
+	/**
+	 * Scans the next range.
+	 * 
+	 * @return the number of entries visited.
+	 */
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public long scan() {
+		int i = accesses[position++ & (Workload.ACCESSES - 1)];
+		return index.scan(keys[i], keys[Math.min(i + length, size - 1)]);
+	}
+
+}
@@ -0,0 +1,118 @@
+package bptree.benchmarks;
+
+/**
+ * The {@code Workload} class generates the keys and the access sequences used in the benchmarks.
+ */
+public class Workload {
+
+	/**
+	 * The number of precomputed accesses (a power of two).
+	 */
+	public static final int ACCESSES = 1 << 20;
+
+	/**
+	 * Creates the specified number of distinct keys in increasing order.
+	 * 
+	 * @param keyType
+	 *            {@code Integer}, {@code Long} or {@code String}.
+	 * @param size
+	 *            the number of keys.
+	 * @return the keys in increasing order.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static Comparable[] keys(String keyType, int size) {
+		Comparable[] keys = new Comparable[size];
+		for (int i = 0; i < size; i++) {
+			long k = 2L * i; // leave gaps so that absent keys can be probed
+			if (keyType.equals("Integer"))
+				keys[i] = Integer.valueOf((int) k);
+			else if (keyType.equals("Long"))
+				keys[i] = Long.valueOf(k << 20);
+			else if (keyType.equals("String"))
+				keys[i] = String.format("key%012d", k);
+			else
+				throw new IllegalArgumentException("unknown key type: " + keyType);
+		}
+		return keys;
+	}
+
+	/**
+	 * Creates a sequence of key indices.
+	 * 
+	 * @param distribution
+	 *            {@code sequential}, {@code uniform} or {@code zipfian}.
+	 * @param size
+	 *            the number of keys.
+	 * @param length
+	 *            the length of the sequence.
+	 * @param seed
+	 *            the seed of the random number generator.
+	 * @return a sequence of key indices.
+	 */
+	public static int[] accesses(String distribution, int size, int length, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		int[] accesses = new int[length];
+		if (distribution.equals("sequential")) {
+			for (int i = 0; i < length; i++)
+				accesses[i] = i % size;
+		} else if (distribution.equals("uniform")) {
+			for (int i = 0; i < length; i++)
+				accesses[i] = random.nextInt(size);
+		} else if (distribution.equals("zipfian")) {
+			ZipfianGenerator zipf = new ZipfianGenerator(size, 0.99, random);
+			for (int i = 0; i < length; i++)
+				accesses[i] = (int) zipf.next();
+		} else {
+			throw new IllegalArgumentException("unknown distribution: " + distribution);
+		}
+		return accesses;
+	}
+
+	/**
+	 * Returns the order in which keys are inserted or deleted: increasing for the sequential distribution and a random
+	 * permutation otherwise.
+	 * 
+	 * @param distribution
+	 *            {@code sequential}, {@code uniform} or {@code zipfian}.
+	 * @param size
+	 *            the number of keys.
+	 * @param seed
+	 *            the seed of the random number generator.
+	 * @return a permutation of the key indices.
+	 */
+	public static int[] permutation(String distribution, int size, long seed) {
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		if (!distribution.equals("sequential")) {
+			java.util.Random random = new java.util.Random(seed);
+			for (int i = size - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int t = order[i];
+				order[i] = order[j];
+				order[j] = t;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Creates an {@code OrderedIndex} that contains the specified keys.
+	 * 
+	 * @param implementation
+	 *            the implementation of the {@code OrderedIndex}.
+	 * @param keys
+	 *            the keys.
+	 * @param order
+	 *            the order in which the keys are inserted.
+	 * @return an {@code OrderedIndex} that contains the specified keys.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static OrderedIndex load(String implementation, Comparable[] keys, int[] order) {
+		OrderedIndex index = Indexes.create(implementation);
+		for (int i : order)
+			index.put(keys[i], keys[i]);
+		return index;
+	}
+
+}
@@ -0,0 +1,97 @@
+package bptree.benchmarks;
+
+/**
+ * The {@code ZipfianGenerator} class generates item indices that follow a Zipfian distribution (the algorithm of Gray
+ * et al., "Quickly Generating Billion-Record Synthetic Databases", as used in YCSB). The popular items are scattered
+ * over the key space by hashing so that they do not all fall into the same {@code LeafNode}.
+ */
+public class ZipfianGenerator {
+
+	/**
+	 * The number of items.
+	 */
+	protected long items;
+
+	/**
+	 * The skew of the distribution.
+	 */
+	protected double theta;
+
+	/**
+	 * Precomputed constants of the distribution.
+	 */
+	protected double zetan, alpha, eta;
+
+	/**
+	 * The random number generator.
+	 */
+	protected java.util.Random random;
+
+	/**
+	 * Constructs a {@code ZipfianGenerator}.
+	 * 
+	 * @param items
+	 *            the number of items.
+	 * @param theta
+	 *            the skew of the distribution (e.g., 0.99).
+	 * @param random
+	 *            the random number generator.
+	 */
+	public ZipfianGenerator(long items, double theta, java.util.Random random) {
+		this.items = items;
+		this.theta = theta;
+		this.random = random;
+		this.zetan = zeta(items, theta);
+		double zeta2 = zeta(2, theta);
+		this.alpha = 1.0 / (1.0 - theta);
+		this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+	}
+
+	/**
+	 * Returns the next item index.
+	 * 
+	 * @return the next item index (between 0 and the number of items - 1).
+	 */
+	public long next() {
+		double u = random.nextDouble();
+		double uz = u * zetan;
+		long rank;
+		if (uz < 1.0)
+			rank = 0;
+		else if (uz < 1.0 + Math.pow(0.5, theta))
+			rank = 1;
+		else
+			rank = (long) (items * Math.pow(eta * u - eta + 1, alpha));
+		return scramble(Math.min(rank, items - 1));
+	}
+
+	/**
+	 * Maps the specified rank to an item index using a hash function.
+	 * 
+	 * @param rank
+	 *            a rank.
+	 * @return the item index for the specified rank.
+	 */
+	protected long scramble(long rank) {
+		long h = rank * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return Math.floorMod(h, items);
+	}
+
+	/**
+	 * Computes the generalized harmonic number of order theta.
+	 * 
+	 * @param n
+	 *            the number of terms.
+	 * @param theta
+	 *            the order.
+	 * @return the sum of 1 / i^theta for i = 1, ..., n.
+	 */
+	protected static double zeta(long n, double theta) {
+		double sum = 0;
+		for (long i = 1; i <= n; i++)
+			sum += 1 / Math.pow(i, theta);
+		return sum;
+	}
+
+}
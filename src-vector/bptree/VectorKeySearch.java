@@ -0,0 +1,45 @@
+package bptree;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@code VectorKeySearch} class implements the {@code KeySearch} kernel with the Vector API: a block is loaded into
+ * one (or, on CPUs with narrower registers, a few) vector registers, compared against the broadcast probe in a single
+ * instruction per register, and the resulting mask is counted. This class is compiled separately with
+ * {@code --add-modules jdk.incubator.vector} and is only loaded through {@link KeySearch#vector()}.
+ */
+public class VectorKeySearch implements KeySearch {
+
+	/**
+	 * The widest vector shape the CPU supports, limited to one block.
+	 */
+	protected static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED.length() > BLOCK
+			? LongVector.SPECIES_512
+			: LongVector.SPECIES_PREFERRED;
+
+	/**
+	 * Constructs a {@code VectorKeySearch}.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if the CPU cannot compare two or more {@code long}s per instruction.
+	 */
+	public VectorKeySearch() {
+		if (SPECIES.length() < 2)
+			throw new UnsupportedOperationException("vector length: " + SPECIES.length());
+	}
+
+	@Override
+	public int countLess(long[] keys, int from, long key) {
+		int count = 0;
+		for (int i = from; i < from + BLOCK; i += SPECIES.length())
+			count += LongVector.fromArray(SPECIES, keys, i).lt(key).trueCount();
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "vector (" + SPECIES.vectorBitSize() + " bits)";
+	}
+
+}
@@ -0,0 +1,72 @@
+package bptree;
+
+/**
+ * The {@code AdaptiveSplitPolicy} class implements a {@code SplitPolicy} that chooses split points based on where
+ * insertions have recently occurred in each {@code Node}. Each {@code Node} keeps an exponentially weighted moving
+ * average of the relative positions (0 for the front and 1 for the back) of the keys inserted into it, and the
+ * average is inherited by the new sibling when the {@code Node} is split. When insertions concentrate near the back
+ * (e.g., increasing keys), the split point moves to the back so that the left {@code Node}, which will rarely receive
+ * new keys, stays full and the right {@code Node} has room for the upcoming keys; the opposite holds for insertions
+ * near the front. The shift grows with the cube of the bias so that the noisy averages of uniformly distributed
+ * insertions keep the split point near the midpoint.
+ */
+public class AdaptiveSplitPolicy implements SplitPolicy {
+
+	/**
+	 * The weight of the latest insertion in the moving average.
+	 */
+	protected float alpha;
+
+	/**
+	 * Constructs an {@code AdaptiveSplitPolicy} that gives a weight of 0.25 to the latest insertion.
+	 */
+	public AdaptiveSplitPolicy() {
+		this(0.25f);
+	}
+
+	/**
+	 * Constructs an {@code AdaptiveSplitPolicy}.
+	 * 
+	 * @param alpha
+	 *            the weight (between 0 and 1) of the latest insertion in the moving average of insert positions.
+	 */
+	public AdaptiveSplitPolicy(float alpha) {
+		if (alpha <= 0 || alpha > 1)
+			throw new IllegalArgumentException("alpha: " + alpha);
+		this.alpha = alpha;
+	}
+
+	@Override
+	public void inserted(Node<?> node, int position) {
+		record(node, position, node.numberOfKeys - 1);
+	}
+
+	@Override
+	public int splitPoint(Node<?> node, int position, boolean rightEdge, int degree) {
+		record(node, position, degree - 1);
+		float bias = 2 * node.insertPosition - 1; // between -1 (front) and 1 (back)
+		int m = (int) Math.ceil(degree / 2.0);
+		return m + Math.round(bias * bias * bias * degree / 2); // ignore weak (noisy) biases
+	}
+
+	@Override
+	public void split(Node<?> node, Node<?> sibling) {
+		sibling.insertPosition = node.insertPosition;
+	}
+
+	/**
+	 * Updates the moving average of the insert positions of the specified {@code Node}.
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @param position
+	 *            the index of the new key.
+	 * @param last
+	 *            the largest index at which the new key could have been inserted.
+	 */
+	protected void record(Node<?> node, int position, int last) {
+		if (last > 0)
+			node.insertPosition += alpha * ((float) position / last - node.insertPosition);
+	}
+
+}
@@ -0,0 +1,554 @@
+package bptree;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code AsyncBPlusTree} class implements a non-blocking facade of a {@code BPlusTree}. Callers enqueue operations
+ * on a lock-free queue and receive {@code CompletableFuture}s (or, for range scans, a {@code Flow.Publisher}), so they
+ * never wait on a lock or a monitor and virtual threads stay unpinned. A single event loop thread owns the
+ * {@code BPlusTree}: it takes the queued operations in batches and applies each batch in key order (see
+ * {@code KeyOrder}), which keeps the operations on the same key in the order in which they were enqueued. A scan
+ * request splits a batch so that the operations enqueued before it are applied first.
+ * <p>
+ * The {@code CompletableFuture}s of each batch are completed by a single task on the {@code Executor}, in the order in
+ * which their operations were enqueued, so dependent stages never run on (or hold up) the event loop thread.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class AsyncBPlusTree<K extends Comparable<K>, V> implements java.io.Closeable {
+
+	/**
+	 * The default maximum number of operations per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	/**
+	 * The number of entries that a scan reads from the {@code BPlusTree} at a time.
+	 */
+	protected static final int SCAN_CHUNK_SIZE = 256;
+
+	/**
+	 * The kinds of operations.
+	 */
+	protected enum Kind {
+
+		/**
+		 * A lookup.
+		 */
+		GET,
+
+		/**
+		 * An insertion or replacement.
+		 */
+		PUT,
+
+		/**
+		 * A deletion.
+		 */
+		DELETE,
+
+		/**
+		 * The next part of a range scan.
+		 */
+		SCAN
+	}
+
+	/**
+	 * The {@code Operation} class implements the operations queued for the event loop.
+	 */
+	protected class Operation {
+
+		/**
+		 * The kind of this {@code Operation}.
+		 */
+		protected Kind kind;
+
+		/**
+		 * The key of this {@code Operation}.
+		 */
+		protected K key;
+
+		/**
+		 * The value of this {@code Operation}.
+		 */
+		protected V value;
+
+		/**
+		 * The {@code CompletableFuture} to complete with the result of this {@code Operation}.
+		 */
+		protected CompletableFuture<V> result;
+
+		/**
+		 * The {@code Scan} to continue; {@code null} if this {@code Operation} is not a scan.
+		 */
+		protected Scan scan;
+
+		/**
+		 * The value with which to complete the {@code CompletableFuture} of this {@code Operation}.
+		 */
+		protected V output;
+
+		/**
+		 * The {@code Throwable} with which to complete the {@code CompletableFuture} of this {@code Operation};
+		 * {@code null} if this {@code Operation} succeeded.
+		 */
+		protected Throwable failure;
+
+		/**
+		 * Constructs an {@code Operation}.
+		 * 
+		 * @param kind
+		 *            the kind of the {@code Operation}.
+		 * @param key
+		 *            the key of the {@code Operation}.
+		 * @param value
+		 *            the value of the {@code Operation}.
+		 * @param scan
+		 *            the {@code Scan} to continue; {@code null} if the {@code Operation} is not a scan.
+		 */
+		protected Operation(Kind kind, K key, V value, Scan scan) {
+			this.kind = kind;
+			this.key = key;
+			this.value = value;
+			this.scan = scan;
+			this.result = scan == null ? new CompletableFuture<V>() : null;
+		}
+
+	}
+
+	/**
+	 * The {@code Scan} class implements the subscriptions of range scans. The event loop reads the entries in chunks
+	 * as the {@code Flow.Subscriber} requests them, and the entries are delivered on the {@code Executor} so that a
+	 * slow {@code Flow.Subscriber} does not hold up the event loop. Since other operations may be applied between
+	 * chunks, a scan reflects each update made while it is in progress either fully or not at all, but is not a
+	 * snapshot.
+	 */
+	protected class Scan implements Flow.Subscription {
+
+		/**
+		 * The {@code Flow.Subscriber} of this {@code Scan}.
+		 */
+		protected Flow.Subscriber<? super java.util.Map.Entry<K, V>> subscriber;
+
+		/**
+		 * The highest key of the range (exclusive); {@code null} if the range has no upper bound.
+		 */
+		protected K toKey;
+
+		/**
+		 * The key from which the next chunk is read; {@code null} to start from the first entry.
+		 */
+		protected K resumeKey;
+
+		/**
+		 * The number of entries with {@code resumeKey} that have already been delivered.
+		 */
+		protected int resumeSkip;
+
+		/**
+		 * The number of entries requested but not delivered yet.
+		 */
+		protected AtomicLong demand = new AtomicLong();
+
+		/**
+		 * A flag indicating whether or not a chunk is being read or delivered.
+		 */
+		protected AtomicBoolean active = new AtomicBoolean();
+
+		/**
+		 * A flag indicating whether or not this {@code Scan} has been cancelled or has finished.
+		 */
+		protected volatile boolean done;
+
+		/**
+		 * Constructs a {@code Scan}.
+		 * 
+		 * @param subscriber
+		 *            the {@code Flow.Subscriber} of the {@code Scan}.
+		 * @param fromKey
+		 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+		 * @param toKey
+		 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+		 */
+		protected Scan(Flow.Subscriber<? super java.util.Map.Entry<K, V>> subscriber, K fromKey, K toKey) {
+			this.subscriber = subscriber;
+			this.resumeKey = fromKey;
+			this.toKey = toKey;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				cancel();
+				executor.execute(() -> subscriber.onError(new IllegalArgumentException("non-positive request: " + n)));
+				return;
+			}
+			demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+			next();
+		}
+
+		@Override
+		public void cancel() {
+			done = true;
+		}
+
+		/**
+		 * Has the next chunk read unless a chunk is in progress, the {@code Flow.Subscriber} has no demand, or this
+		 * {@code Scan} is done.
+		 */
+		protected void next() {
+			if (!done && demand.get() > 0 && active.compareAndSet(false, true))
+				if (!enqueue(new Operation(Kind.SCAN, null, null, this))) {
+					done = true;
+					executor.execute(() -> subscriber.onError(new IllegalStateException("closed")));
+				}
+		}
+
+		/**
+		 * Reads the next chunk from the {@code BPlusTree} (on the event loop) and hands it over for delivery. The
+		 * {@code BPlusTree} is flushed first, since the {@code LeafNode}s of a {@code BufferedBPlusTree} do not hold
+		 * its pending messages.
+		 */
+		protected void read() {
+			if (done)
+				return;
+			tree.flush();
+			int limit = (int) Math.min(demand.get(), SCAN_CHUNK_SIZE);
+			java.util.ArrayList<java.util.Map.Entry<K, V>> chunk = new java.util.ArrayList<java.util.Map.Entry<K, V>>();
+			LeafNode<K, V> leaf = resumeKey == null ? tree.firstLeaf() : tree.find(resumeKey);
+			int i = leaf == null || resumeKey == null ? 0 : leaf.findIndexGE(resumeKey);
+			if (i < 0) { // if all keys in the leaf node are smaller than resumeKey
+				leaf = leaf.successor();
+				i = 0;
+			}
+			int skip = resumeSkip;
+			boolean end = true;
+			scan: for (; leaf != null; leaf = leaf.successor(), i = 0)
+				for (; i < leaf.numberOfKeys(); i++) {
+					K key = leaf.key(i);
+					if (toKey != null && key.compareTo(toKey) >= 0)
+						break scan;
+					if (resumeKey != null && skip > 0 && key.compareTo(resumeKey) == 0) { // if delivered before
+						skip--;
+						continue;
+					}
+					if (chunk.size() == limit) {
+						end = false;
+						break scan;
+					}
+					chunk.add(new java.util.AbstractMap.SimpleImmutableEntry<K, V>(key, leaf.value(i)));
+					if (resumeKey != null && key.compareTo(resumeKey) == 0)
+						resumeSkip++;
+					else {
+						resumeKey = key;
+						resumeSkip = 1;
+					}
+				}
+			boolean finished = end;
+			executor.execute(() -> deliver(chunk, finished));
+		}
+
+		/**
+		 * Delivers the specified chunk to the {@code Flow.Subscriber} (on the {@code Executor}).
+		 * 
+		 * @param chunk
+		 *            a chunk of entries.
+		 * @param finished
+		 *            a flag indicating whether or not the chunk ends the range.
+		 */
+		protected void deliver(java.util.List<java.util.Map.Entry<K, V>> chunk, boolean finished) {
+			try {
+				for (java.util.Map.Entry<K, V> e : chunk) {
+					if (done)
+						return;
+					demand.decrementAndGet();
+					subscriber.onNext(e);
+				}
+				if (finished) {
+					if (!done) {
+						done = true;
+						subscriber.onComplete();
+					}
+					return;
+				}
+			} catch (Throwable t) {
+				done = true;
+				subscriber.onError(t);
+				return;
+			}
+			active.set(false);
+			next();
+		}
+
+	}
+
+	/**
+	 * The {@code BPlusTree} (accessed only by the event loop thread).
+	 */
+	protected BPlusTree<K, V> tree;
+
+	/**
+	 * The {@code Executor} on which scans deliver entries and {@code CompletableFuture}s are completed.
+	 */
+	protected java.util.concurrent.Executor executor;
+
+	/**
+	 * The maximum number of operations per batch.
+	 */
+	protected int batchSize;
+
+	/**
+	 * The queue of operations.
+	 */
+	protected ConcurrentLinkedQueue<Operation> queue = new ConcurrentLinkedQueue<Operation>();
+
+	/**
+	 * The event loop thread.
+	 */
+	protected Thread loop;
+
+	/**
+	 * A flag indicating whether or not the event loop thread is (about to be) parked.
+	 */
+	protected volatile boolean sleeping;
+
+	/**
+	 * A flag indicating whether or not this {@code AsyncBPlusTree} has been closed.
+	 */
+	protected volatile boolean closed;
+
+	/**
+	 * A flag indicating whether or not the event loop is (about to be) finished.
+	 */
+	protected volatile boolean exiting;
+
+	/**
+	 * Constructs an {@code AsyncBPlusTree} that delivers scanned entries and completes {@code CompletableFuture}s on
+	 * the common {@code ForkJoinPool}.
+	 * 
+	 * @param tree
+	 *            the {@code BPlusTree}, which must not be accessed directly afterwards.
+	 */
+	public AsyncBPlusTree(BPlusTree<K, V> tree) {
+		this(tree, java.util.concurrent.ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Constructs an {@code AsyncBPlusTree}.
+	 * 
+	 * @param tree
+	 *            the {@code BPlusTree}, which must not be accessed directly afterwards.
+	 * @param executor
+	 *            the {@code Executor} on which scans deliver entries and {@code CompletableFuture}s are completed.
+	 * @param batchSize
+	 *            the maximum number of operations per batch.
+	 */
+	public AsyncBPlusTree(BPlusTree<K, V> tree, java.util.concurrent.Executor executor, int batchSize) {
+		this.tree = tree;
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.loop = new Thread(this::run, "AsyncBPlusTree event loop");
+		loop.setDaemon(true);
+		loop.start();
+	}
+
+	/**
+	 * Looks up the specified key.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return a {@code CompletableFuture} that completes with the value associated with the key ({@code null} if the
+	 *         key is not found).
+	 */
+	public CompletableFuture<V> getAsync(K key) {
+		return submit(new Operation(Kind.GET, key, null, null));
+	}
+
+	/**
+	 * Associates the specified value with the specified key (see {@link BPlusTree#put(Comparable, Object)}).
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value to associate with the key.
+	 * @return a {@code CompletableFuture} that completes with the previous value associated with the key ({@code null}
+	 *         if the key was not found).
+	 */
+	public CompletableFuture<V> putAsync(K key, V value) {
+		return submit(new Operation(Kind.PUT, key, value, null));
+	}
+
+	/**
+	 * Deletes the first entry with the specified key.
+	 * 
+	 * @param key
+	 *            the key to delete.
+	 * @return a {@code CompletableFuture} that completes with the value of the deleted entry ({@code null} if the key
+	 *         was not found).
+	 */
+	public CompletableFuture<V> deleteAsync(K key) {
+		return submit(new Operation(Kind.DELETE, key, null, null));
+	}
+
+	/**
+	 * Returns a {@code Flow.Publisher} of the entries whose keys are in the specified range in key order. Each
+	 * subscription scans the range anew, reading entries only as they are requested.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return a {@code Flow.Publisher} of the entries whose keys are in the specified range.
+	 */
+	public Flow.Publisher<java.util.Map.Entry<K, V>> scanAsync(K fromKey, K toKey) {
+		return subscriber -> {
+			Scan scan = new Scan(subscriber, fromKey, toKey);
+			subscriber.onSubscribe(scan);
+		};
+	}
+
+	/**
+	 * Enqueues the specified {@code Operation}.
+	 * 
+	 * @param operation
+	 *            an {@code Operation}.
+	 * @return the {@code CompletableFuture} of the {@code Operation}.
+	 */
+	protected CompletableFuture<V> submit(Operation operation) {
+		if (!enqueue(operation))
+			operation.result.completeExceptionally(new IllegalStateException("closed"));
+		return operation.result;
+	}
+
+	/**
+	 * Enqueues the specified {@code Operation} and wakes up the event loop if it is parked.
+	 * 
+	 * @param operation
+	 *            an {@code Operation}.
+	 * @return {@code true} if the {@code Operation} has been enqueued; {@code false} if this {@code AsyncBPlusTree}
+	 *         has been closed.
+	 */
+	protected boolean enqueue(Operation operation) {
+		if (closed)
+			return false;
+		queue.add(operation);
+		if (sleeping)
+			LockSupport.unpark(loop);
+		if (exiting && queue.remove(operation)) // if closed meanwhile and the event loop may not see the operation
+			return false;
+		return true;
+	}
+
+	/**
+	 * Runs the event loop until this {@code AsyncBPlusTree} is closed and its queue is empty.
+	 */
+	protected void run() {
+		KeyOrder keyOrder = new KeyOrder();
+		java.util.ArrayList<Operation> batch = new java.util.ArrayList<Operation>(batchSize);
+		Object[] keys = new Object[batchSize];
+		while (true) {
+			Operation o;
+			while (batch.size() < batchSize && (o = queue.peek()) != null && (o.kind != Kind.SCAN || batch.isEmpty())) {
+				queue.poll();
+				batch.add(o);
+				if (o.kind == Kind.SCAN) // a scan forms a batch by itself
+					break;
+			}
+			int n = batch.size();
+			if (n == 0) {
+				if (closed) {
+					exiting = true;
+					if (queue.isEmpty())
+						return;
+					exiting = false;
+					continue;
+				}
+				sleeping = true;
+				if (queue.isEmpty())
+					LockSupport.park(this);
+				sleeping = false;
+				continue;
+			}
+			if (batch.get(0).kind == Kind.SCAN) {
+				batch.get(0).scan.read();
+			} else {
+				for (int i = 0; i < n; i++)
+					keys[i] = batch.get(i).key;
+				int[] order = keyOrder.sort(keys, n);
+				for (int j = 0; j < n; j++)
+					apply(batch.get(order[j]));
+				complete(new java.util.ArrayList<Operation>(batch));
+			}
+			batch.clear();
+			java.util.Arrays.fill(keys, 0, n, null);
+		}
+	}
+
+	/**
+	 * Applies the specified {@code Operation} to the {@code BPlusTree} and records its result.
+	 * 
+	 * @param o
+	 *            an {@code Operation}.
+	 */
+	protected void apply(Operation o) {
+		try {
+			switch (o.kind) {
+			case GET:
+				o.output = tree.get(o.key);
+				break;
+			case PUT:
+				o.output = tree.put(o.key, o.value);
+				break;
+			case DELETE: { // the first entry with the key is the one that lookup returns and delete removes
+				o.output = tree.lookup(o.key);
+				tree.delete(o.key, null);
+				break;
+			}
+			default:
+				break;
+			}
+		} catch (Throwable t) {
+			o.failure = t;
+		}
+	}
+
+	/**
+	 * Completes the {@code CompletableFuture}s of the specified applied {@code Operation}s on the {@code Executor}
+	 * (on the event loop thread only if the {@code Executor} rejects the task).
+	 * 
+	 * @param operations
+	 *            the applied {@code Operation}s in the order in which they were enqueued.
+	 */
+	protected void complete(java.util.List<Operation> operations) {
+		Runnable task = () -> {
+			for (Operation o : operations)
+				if (o.failure != null)
+					o.result.completeExceptionally(o.failure);
+				else
+					o.result.complete(o.output);
+		};
+		try {
+			executor.execute(task);
+		} catch (java.util.concurrent.RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Stops accepting operations and has the event loop exit once the queued operations are applied.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(loop);
+	}
+
+}
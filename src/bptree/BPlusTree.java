@@ -23,51 +23,1062 @@ public class BPlusTree<K extends Comparable<K>, V> {
 	 */
 	protected Node<K> root;
 
+	/**
+	 * The {@code LookupCache} placed in front of this {@code BPlusTree}; {@code null} if lookups are not cached.
+	 */
+	protected LookupCache<K, V> cache;
+
+	/**
+	 * A flag indicating whether or not this {@code BPlusTree} optimizes insertions for keys that arrive in increasing
+	 * order.
+	 */
+	protected boolean appendOptimized = false;
+
+	/**
+	 * The {@code SplitPolicy} that decides how the entries of an overflowing {@code Node} are divided.
+	 */
+	protected SplitPolicy splitPolicy = new MidpointSplitPolicy();
+
+	/**
+	 * The rightmost {@code LeafNode} of this {@code BPlusTree}; {@code null} if not known.
+	 */
+	protected LeafNode<K, V> lastLeaf;
+
+	/**
+	 * The {@code TreeMetrics} of this {@code BPlusTree}; {@code null} if this {@code BPlusTree} is not instrumented.
+	 */
+	protected TreeMetrics metrics;
+
+	/**
+	 * The number of {@code LeafNode}s allocated by this {@code BPlusTree}.
+	 */
+	protected long leafAllocations;
+
+	/**
+	 * The {@code TreeEventRing} that delivers the changes of this {@code BPlusTree} to {@code TreeListener}s;
+	 * {@code null} if there is no {@code TreeListener}.
+	 */
+	protected TreeEventRing<K, V> events;
+
+	/**
+	 * A flag indicating whether or not the {@code NonLeafNode}s of this {@code BPlusTree} maintain the number of
+	 * entries in the subtree of each child.
+	 */
+	protected boolean counted = false;
+
+	/**
+	 * The {@code Monoid} whose aggregates the {@code NonLeafNode}s of this {@code BPlusTree} maintain for each child;
+	 * {@code null} if aggregates are not maintained.
+	 */
+	protected Monoid<Object, Object> monoid;
+
+	/**
+	 * The {@code LeafFilters} that define the Bloom filters of the {@code LeafNode}s of this {@code BPlusTree};
+	 * {@code null} if the {@code LeafNode}s have no filters.
+	 */
+	protected LeafFilters<K> filters;
+
+	/**
+	 * The kernel with which the {@code NonLeafNode}s of this {@code BPlusTree} search their {@code BlockedKeys};
+	 * {@code null} if the keys are not kept in {@code BlockedKeys}.
+	 */
+	protected KeySearch keySearch;
+
+	/**
+	 * The {@code LearnedIndex} that predicts the {@code LeafNode} of a key; {@code null} if lookups always descend.
+	 */
+	protected LearnedIndex<K, V> learned;
+
 	/**
 	 * Constructs a {@code BPlusTree}.
 	 * 
-	 * @param degree
-	 *            the maximum number of pointers that each {@code Node} of this {@code BPlusTree} can have.
+	 * @param degree
+	 *            the maximum number of pointers that each {@code Node} of this {@code BPlusTree} can have.
+	 */
+	public BPlusTree(int degree) {
+		this.degree = degree;
+	}
+
+	/**
+	 * Copy-constructs a {@code BPlusTree}. The pending changes of the other {@code BPlusTree}, if any, are applied
+	 * first.
+	 * 
+	 * @param tree
+	 *            another {@code BPlusTree} to copy from.
+	 */
+	@SuppressWarnings("unchecked")
+	public BPlusTree(BPlusTree<K, V> tree) {
+		tree.flush();
+		this.degree = tree.degree;
+		this.leafAllocations = tree.leafAllocations;
+		this.counted = tree.counted;
+		this.monoid = tree.monoid;
+		if (tree.root instanceof LeafNode)
+			this.root = new LeafNode<K, V>((LeafNode<K, V>) tree.root);
+		else if (tree.root != null) {
+			this.root = new NonLeafNode<K>((NonLeafNode<K>) tree.root);
+			linkLeaves(root, null);
+		}
+		if (tree.filters != null) // the filters of the copied leaf nodes are rebuilt
+			enableLeafFilters(tree.filters.bitsPerKey());
+		if (tree.keySearch != null)
+			enableBlockedKeys(tree.keySearch);
+		if (tree.learned != null) // the model is retrained on the copied leaf nodes
+			enableLearnedIndex(tree.learned.leavesPerSegment());
+	}
+
+	/**
+	 * Links the copied {@code LeafNode}s in the specified subtree to their successors.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 * @param previous
+	 *            the {@code LeafNode} that precedes the subtree; {@code null} if there is no such {@code LeafNode}.
+	 * @return the last {@code LeafNode} in the subtree.
+	 */
+	@SuppressWarnings("unchecked")
+	protected LeafNode<K, V> linkLeaves(Node<K> node, LeafNode<K, V> previous) {
+		if (node instanceof LeafNode) {
+			if (previous != null)
+				previous.setSuccessor((LeafNode<K, V>) node);
+			return (LeafNode<K, V>) node;
+		}
+		NonLeafNode<K> n = (NonLeafNode<K>) node;
+		for (int i = 0; i <= n.numberOfKeys(); i++)
+			previous = linkLeaves(n.child(i), previous);
+		return previous;
+	}
+
+	/**
+	 * Returns the degree of this {@code BPlusTree}.
+	 * 
+	 * @return the degree of this {@code BPlusTree}.
+	 */
+	public int degree() {
+		return degree;
+	}
+
+	/**
+	 * Returns the root {@code Node} of this {@code BPlusTree}.
+	 * 
+	 * @return the root {@code Node} of this {@code BPlusTree}.
+	 */
+	public Node<K> root() {
+		return root;
+	}
+
+	/**
+	 * Places a {@code LookupCache} of the specified size in front of this {@code BPlusTree} so that lookups of
+	 * frequently accessed keys do not need to descend the tree.
+	 * <p>
+	 * The {@code LookupCache} finds keys with {@code equals} and {@code hashCode}, whereas this {@code BPlusTree}
+	 * finds (and invalidates cached) keys with {@code compareTo}. The keys must therefore have {@code equals} and
+	 * {@code hashCode} consistent with {@code compareTo} (as {@code Integer}, {@code Long}, {@code String} and
+	 * {@code ByteKey} do, but {@code BigDecimal} does not); otherwise lookups may return stale values. Since every
+	 * lookup also updates the {@code LookupCache}, even {@code get} must not be invoked concurrently with any other
+	 * operation on this {@code BPlusTree} while the {@code LookupCache} is in place.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of entries in the {@code LookupCache}.
+	 */
+	public void enableLookupCache(int maximumSize) {
+		cache = new LookupCache<K, V>(maximumSize);
+	}
+
+	/**
+	 * Removes the {@code LookupCache} from this {@code BPlusTree}.
+	 */
+	public void disableLookupCache() {
+		cache = null;
+	}
+
+	/**
+	 * Returns the {@code SplitPolicy} of this {@code BPlusTree}.
+	 * 
+	 * @return the {@code SplitPolicy} of this {@code BPlusTree}.
+	 */
+	public SplitPolicy splitPolicy() {
+		return splitPolicy;
+	}
+
+	/**
+	 * Sets the {@code SplitPolicy} of this {@code BPlusTree}.
+	 * 
+	 * @param splitPolicy
+	 *            the {@code SplitPolicy} that decides how the entries of an overflowing {@code Node} are divided.
+	 */
+	public void setSplitPolicy(SplitPolicy splitPolicy) {
+		if (splitPolicy == null)
+			throw new NullPointerException("splitPolicy");
+		this.splitPolicy = splitPolicy;
+	}
+
+	/**
+	 * Enables the append-optimized insertion path. A key that is greater than or equal to the last key of the rightmost
+	 * {@code LeafNode} is then inserted into that {@code LeafNode} without descending the tree, and a
+	 * {@code RightBiasedSplitPolicy} makes a {@code Node} on the right edge that overflows because of such an append
+	 * keep the specified fraction of entries instead of half of them.
+	 * 
+	 * @param fillFactor
+	 *            the fraction of entries (between 0.5 and 1.0) that stay in the left {@code Node} when a {@code Node}
+	 *            on the right edge is split by an append.
+	 */
+	public void enableAppendOptimization(double fillFactor) {
+		setSplitPolicy(new RightBiasedSplitPolicy(fillFactor));
+		appendOptimized = true;
+		lastLeaf = null;
+	}
+
+	/**
+	 * Disables the append-optimized insertion path and restores the {@code MidpointSplitPolicy}.
+	 */
+	public void disableAppendOptimization() {
+		setSplitPolicy(new MidpointSplitPolicy());
+		appendOptimized = false;
+		lastLeaf = null;
+	}
+
+	/**
+	 * Returns the average fill factor of the {@code LeafNode}s of this {@code BPlusTree}, i.e., the number of keys
+	 * divided by the number of keys that the {@code LeafNode}s can hold.
+	 * 
+	 * @return the average fill factor of the {@code LeafNode}s of this {@code BPlusTree}; 0 if this
+	 *         {@code BPlusTree} is empty.
+	 */
+	public double leafFillFactor() {
+		flush();
+		if (root == null)
+			return 0;
+		long leaves = 0;
+		long keys = 0;
+		for (LeafNode<K, V> l = firstLeaf(); l != null; l = l.successor()) {
+			leaves++;
+			keys += l.numberOfKeys();
+		}
+		return (double) keys / (leaves * (degree - 1));
+	}
+
+	/**
+	 * Computes the exact statistics of this {@code BPlusTree} by visiting all of its {@code Node}s (in parallel if this
+	 * {@code BPlusTree} is large).
+	 * 
+	 * @return the exact statistics of this {@code BPlusTree}.
+	 */
+	public TreeStats stats() {
+		flush();
+		return TreeStats.of(this);
+	}
+
+	/**
+	 * Estimates the statistics of this {@code BPlusTree} by visiting the {@code Node}s on the specified number of
+	 * random root-to-leaf paths. The cost is proportional to the number of paths times the height of this
+	 * {@code BPlusTree}, and estimates from successive calls can be accumulated with {@link TreeStats#add(TreeStats)}.
+	 * 
+	 * @param paths
+	 *            the number of paths to sample.
+	 * @return the estimated statistics of this {@code BPlusTree}.
+	 */
+	public TreeStats stats(int paths) {
+		flush();
+		return TreeStats.sample(this, paths, new java.util.Random());
+	}
+
+	/**
+	 * Instruments this {@code BPlusTree} with a new {@code TreeMetrics} that times one in every 16 operations.
+	 * 
+	 * @return the new {@code TreeMetrics}.
+	 */
+	public TreeMetrics enableMetrics() {
+		return enableMetrics(new TreeMetrics());
+	}
+
+	/**
+	 * Instruments this {@code BPlusTree} with the specified {@code TreeMetrics}.
+	 * 
+	 * @param metrics
+	 *            a {@code TreeMetrics}.
+	 * @return the specified {@code TreeMetrics}.
+	 */
+	public TreeMetrics enableMetrics(TreeMetrics metrics) {
+		this.metrics = metrics;
+		return metrics;
+	}
+
+	/**
+	 * Removes the instrumentation from this {@code BPlusTree}.
+	 */
+	public void disableMetrics() {
+		metrics = null;
+	}
+
+	/**
+	 * Returns the {@code TreeMetrics} of this {@code BPlusTree}.
+	 * 
+	 * @return the {@code TreeMetrics} of this {@code BPlusTree}; {@code null} if this {@code BPlusTree} is not
+	 *         instrumented.
+	 */
+	public TreeMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Adds the specified {@code TreeListener}, which will receive the changes made to this {@code BPlusTree} from now
+	 * on on its own thread. The first {@code TreeListener} creates a {@code TreeEventRing} of the default capacity
+	 * unless {@link #enableEvents(int)} has been invoked.
+	 * 
+	 * @param listener
+	 *            a {@code TreeListener}.
+	 */
+	public void addListener(TreeListener<K, V> listener) {
+		if (events == null)
+			enableEvents(TreeEventRing.DEFAULT_CAPACITY);
+		events.add(listener);
+	}
+
+	/**
+	 * Removes the specified {@code TreeListener} after it has received the changes made so far. The
+	 * {@code TreeEventRing} is discarded when no {@code TreeListener} remains.
+	 * 
+	 * @param listener
+	 *            a {@code TreeListener}.
+	 */
+	public void removeListener(TreeListener<K, V> listener) {
+		if (events != null && events.remove(listener) == 0)
+			events = null;
+	}
+
+	/**
+	 * Has the changes of this {@code BPlusTree} published to a new {@code TreeEventRing} of the specified capacity
+	 * (after removing the current {@code TreeListener}s, if any).
+	 * 
+	 * @param capacity
+	 *            the number of slots (a power of two).
+	 * @return the new {@code TreeEventRing}.
+	 */
+	public TreeEventRing<K, V> enableEvents(int capacity) {
+		disableEvents();
+		events = new TreeEventRing<K, V>(capacity);
+		return events;
+	}
+
+	/**
+	 * Removes all {@code TreeListener}s after they have received the changes made so far.
+	 */
+	public void disableEvents() {
+		if (events != null)
+			events.close();
+		events = null;
+	}
+
+	/**
+	 * Returns the {@code TreeEventRing} of this {@code BPlusTree}.
+	 * 
+	 * @return the {@code TreeEventRing} of this {@code BPlusTree}; {@code null} if there is no {@code TreeListener}.
+	 */
+	public TreeEventRing<K, V> events() {
+		return events;
+	}
+
+	/**
+	 * Publishes a root change to the {@code TreeEventRing}.
+	 */
+	protected void publishRootChange() {
+		events.publish(TreeEvent.Type.ROOT_CHANGE, null, null, false, TreeStats.heightOf(root));
+	}
+
+	/**
+	 * Has the {@code NonLeafNode}s of this {@code BPlusTree} maintain the number of entries in the subtree of each
+	 * child, which {@link #rank(Comparable)}, {@link #select(long)}, {@link #count(Comparable, Comparable)} and
+	 * {@link #page(long, int, java.util.function.BiConsumer)} require. The counts of the existing {@code Node}s are
+	 * computed in time proportional to the number of {@code NonLeafNode}s, and are then updated along the path of each
+	 * insertion or deletion.
+	 */
+	public void enableCounts() {
+		if (root instanceof NonLeafNode)
+			recountAll((NonLeafNode<K>) root);
+		counted = true;
+	}
+
+	/**
+	 * Stops maintaining subtree counts and discards them.
+	 */
+	public void disableCounts() {
+		counted = false;
+		if (root instanceof NonLeafNode)
+			discardCounts((NonLeafNode<K>) root);
+	}
+
+	/**
+	 * Determines whether or not this {@code BPlusTree} maintains subtree counts.
+	 * 
+	 * @return {@code true} if this {@code BPlusTree} maintains subtree counts; {@code false} otherwise.
+	 */
+	public boolean hasCounts() {
+		return counted;
+	}
+
+	/**
+	 * Recomputes the subtree counts of all {@code NonLeafNode}s in the specified subtree.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void recountAll(NonLeafNode<K> node) {
+		for (int i = 0; i <= node.numberOfKeys(); i++) {
+			if (node.child(i) instanceof NonLeafNode)
+				recountAll((NonLeafNode<K>) node.child(i));
+		}
+		node.recount();
+	}
+
+	/**
+	 * Discards the subtree counts of all {@code NonLeafNode}s in the specified subtree.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void discardCounts(NonLeafNode<K> node) {
+		node.counts = null;
+		for (int i = 0; i <= node.numberOfKeys(); i++) {
+			if (node.child(i) instanceof NonLeafNode)
+				discardCounts((NonLeafNode<K>) node.child(i));
+		}
+	}
+
+	/**
+	 * Adds the specified number to the subtree counts on the path from the root to the {@code LeafNode} that is
+	 * responsible for the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @param delta
+	 *            the number of entries added to (or, if negative, removed from) that {@code LeafNode}.
+	 */
+	protected void addToCounts(K key, int delta) {
+		Node<K> c = root;
+		while (c instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) c;
+			int i = n.childIndex(key);
+			n.counts[i] += delta;
+			c = n.child(i);
+		}
+	}
+
+	/**
+	 * Adds the specified number to the subtree counts on the specified path.
+	 * 
+	 * @param path
+	 *            the ancestors of the specified {@code Node} from the root; the parent of the {@code Node} is the last
+	 *            element.
+	 * @param node
+	 *            a {@code Node}.
+	 * @param delta
+	 *            the number of entries added to (or, if negative, removed from) that {@code Node}.
+	 */
+	protected void addToCounts(java.util.List<NonLeafNode<K>> path, Node<K> node, int delta) {
+		for (int j = path.size() - 1; j >= 0; node = path.get(j--))
+			path.get(j).counts[path.get(j).indexOf(node)] += delta;
+	}
+
+	/**
+	 * Recomputes the subtree counts, aggregates, {@code LeafNode} filters and {@code BlockedKeys} (if maintained) of
+	 * the specified {@code NonLeafNode} after its keys or children have changed.
+	 * 
+	 * @param node
+	 *            a {@code NonLeafNode}.
+	 */
+	protected void refresh(NonLeafNode<K> node) {
+		if (counted)
+			node.recount();
+		if (monoid != null)
+			node.reaggregate(monoid);
+		if (filters != null && node.child(0) instanceof LeafNode)
+			node.refilter(filters);
+		if (keySearch != null)
+			node.reblock(keySearch);
+	}
+
+	/**
+	 * Has the {@code NonLeafNode}s of this {@code BPlusTree} maintain the aggregate of the values in the subtree of
+	 * each child under the specified {@code Monoid} (replacing the current one, if any), so that
+	 * {@link #aggregate(Comparable, Comparable)} combines whole subtrees instead of reading every value in a range.
+	 * The aggregates of the existing {@code Node}s are computed in time proportional to the number of entries, and are
+	 * then recomputed along the path of each insertion, deletion or replacement and for each {@code Node} that is
+	 * split, merged or redistributed.
+	 * 
+	 * @param <A>
+	 *            the type of aggregates
+	 * @param monoid
+	 *            the {@code Monoid} that aggregates values.
+	 */
+	@SuppressWarnings("unchecked")
+	public <A> void enableAggregates(Monoid<? super V, A> monoid) {
+		this.monoid = (Monoid<Object, Object>) monoid;
+		if (root instanceof NonLeafNode)
+			reaggregateAll((NonLeafNode<K>) root);
+	}
+
+	/**
+	 * Stops maintaining aggregates and discards them.
+	 */
+	public void disableAggregates() {
+		monoid = null;
+		if (root instanceof NonLeafNode)
+			discardAggregates((NonLeafNode<K>) root);
+	}
+
+	/**
+	 * Recomputes the aggregates of all {@code NonLeafNode}s in the specified subtree.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void reaggregateAll(NonLeafNode<K> node) {
+		for (int i = 0; i <= node.numberOfKeys(); i++) {
+			if (node.child(i) instanceof NonLeafNode)
+				reaggregateAll((NonLeafNode<K>) node.child(i));
+		}
+		node.reaggregate(monoid);
+	}
+
+	/**
+	 * Discards the aggregates of all {@code NonLeafNode}s in the specified subtree.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void discardAggregates(NonLeafNode<K> node) {
+		node.aggregates = null;
+		for (int i = 0; i <= node.numberOfKeys(); i++) {
+			if (node.child(i) instanceof NonLeafNode)
+				discardAggregates((NonLeafNode<K>) node.child(i));
+		}
+	}
+
+	/**
+	 * Recomputes the aggregates on the paths from the specified {@code Node} to the {@code LeafNode}s that may hold the
+	 * specified key, bottom up. There are several such paths when the entries with the key span {@code LeafNode}s.
+	 * 
+	 * @param node
+	 *            a {@code Node} on the path.
+	 * @param key
+	 *            a key.
+	 */
+	protected void reaggregate(Node<K> node, K key) {
+		if (node instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) node;
+			for (int i = n.childIndex(key);; i++) { // child i + 1 may also hold the key if key(i) equals it
+				reaggregate(n.child(i), key);
+				n.aggregates[i] = NonLeafNode.aggregateOf(n.child(i), monoid);
+				if (i == n.numberOfKeys() || n.key(i).compareTo(key) != 0)
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the aggregate of the values whose keys are in the specified range. Only the {@code Node}s on the paths
+	 * to the two ends of the range are read since the subtrees between them contribute their maintained aggregates.
+	 * 
+	 * @param <A>
+	 *            the type of aggregates of the {@code Monoid} given to {@link #enableAggregates(Monoid)}
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return the aggregate of the values whose keys are in the specified range.
+	 */
+	@SuppressWarnings("unchecked")
+	public <A> A aggregate(K fromKey, K toKey) {
+		if (monoid == null)
+			throw new IllegalStateException("aggregates are not enabled");
+		flush();
+		return (A) (root == null ? monoid.identity() : aggregate(root, fromKey, toKey));
+	}
+
+	/**
+	 * Returns the aggregate of the values in the specified subtree whose keys are in the specified range.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return the aggregate of the values in the specified subtree whose keys are in the specified range.
+	 */
+	protected Object aggregate(Node<K> node, K fromKey, K toKey) {
+		Object a = monoid.identity();
+		if (node instanceof LeafNode) {
+			@SuppressWarnings("unchecked")
+			LeafNode<K, V> leaf = (LeafNode<K, V>) node;
+			for (int i = 0; i < leaf.numberOfKeys(); i++) {
+				K key = leaf.key(i);
+				if (toKey != null && key.compareTo(toKey) >= 0)
+					break;
+				if (fromKey == null || key.compareTo(fromKey) >= 0)
+					a = monoid.combine(a, monoid.lift(leaf.value(i)));
+			}
+			return a;
+		}
+		NonLeafNode<K> n = (NonLeafNode<K>) node; // child i has keys between key(i - 1) and key(i), both inclusive
+		int first = fromKey == null ? -1 : n.findIndexGE(fromKey);
+		int last = toKey == null ? -1 : n.findIndexGE(toKey);
+		first = fromKey == null ? 0 : first < 0 ? n.numberOfKeys() : first;
+		last = last < 0 ? n.numberOfKeys() : last;
+		for (int i = first; i <= last; i++) {
+			boolean whole = (fromKey == null || i > 0 && n.key(i - 1).compareTo(fromKey) >= 0)
+					&& (toKey == null || i < n.numberOfKeys() && n.key(i).compareTo(toKey) < 0);
+			a = monoid.combine(a, whole ? n.aggregates[i] : aggregate(n.child(i), fromKey, toKey));
+		}
+		return a;
+	}
+
+	/**
+	 * Throws an {@code IllegalStateException} unless this {@code BPlusTree} maintains subtree counts.
+	 */
+	protected void requireCounts() {
+		if (!counted)
+			throw new IllegalStateException("subtree counts are not enabled");
+	}
+
+	/**
+	 * Returns the number of entries in this {@code BPlusTree}. This takes time proportional to the degree if subtree
+	 * counts are maintained, and to the number of {@code LeafNode}s otherwise.
+	 * 
+	 * @return the number of entries in this {@code BPlusTree}.
+	 */
+	public long size() {
+		flush();
+		if (root == null)
+			return 0;
+		if (counted)
+			return NonLeafNode.sizeOf(root);
+		long size = 0;
+		for (LeafNode<K, V> l = firstLeaf(); l != null; l = l.successor())
+			size += l.numberOfKeys();
+		return size;
+	}
+
+	/**
+	 * Returns the number of entries whose keys are smaller than the specified key, in time proportional to the height
+	 * of this {@code BPlusTree} (subtree counts must be enabled).
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the number of entries whose keys are smaller than the specified key.
+	 */
+	public long rank(K key) {
+		requireCounts();
+		flush();
+		long rank = 0;
+		Node<K> c = root;
+		while (c instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) c;
+			int i = n.findIndexGE(key); // all keys in children before i are smaller, and none after i
+			if (i < 0)
+				i = n.numberOfKeys();
+			for (int j = 0; j < i; j++)
+				rank += n.counts[j];
+			c = n.child(i);
+		}
+		if (c != null) {
+			int i = c.findIndexGE(key);
+			rank += i < 0 ? c.numberOfKeys() : i;
+		}
+		return rank;
+	}
+
+	/**
+	 * Returns the number of entries whose keys are in the specified range, in time proportional to the height of this
+	 * {@code BPlusTree} (subtree counts must be enabled).
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return the number of entries whose keys are in the specified range.
+	 */
+	public long count(K fromKey, K toKey) {
+		requireCounts();
+		long count = (toKey == null ? size() : rank(toKey)) - (fromKey == null ? 0 : rank(fromKey));
+		return Math.max(0, count);
+	}
+
+	/**
+	 * Returns the key of the entry at the specified position in key order, in time proportional to the height of this
+	 * {@code BPlusTree} (subtree counts must be enabled).
+	 * 
+	 * @param k
+	 *            the position of the entry (0 for the entry with the smallest key).
+	 * @return the key of the entry at the specified position.
+	 * @throws IndexOutOfBoundsException
+	 *             if the position is negative or not smaller than the number of entries.
+	 */
+	public K select(long k) {
+		long[] position = { k };
+		LeafNode<K, V> leaf = leafAt(position);
+		if (leaf == null)
+			throw new IndexOutOfBoundsException("k: " + k);
+		return leaf.key((int) position[0]);
+	}
+
+	/**
+	 * Passes up to the specified number of entries, starting from the entry at the specified position in key order,
+	 * to the specified action. The first entry is located in time proportional to the height of this
+	 * {@code BPlusTree} (subtree counts must be enabled) and the others are read along the {@code LeafNode}s.
+	 * 
+	 * @param offset
+	 *            the position of the first entry (0 for the entry with the smallest key).
+	 * @param limit
+	 *            the maximum number of entries.
+	 * @param action
+	 *            the action to perform on each key and value.
+	 * @return the number of entries passed to the action.
+	 */
+	public int page(long offset, int limit, java.util.function.BiConsumer<? super K, ? super V> action) {
+		long[] position = { offset };
+		LeafNode<K, V> leaf = leafAt(position);
+		int count = 0;
+		for (int i = (int) position[0]; leaf != null && count < limit; leaf = leaf.successor(), i = 0) {
+			for (; i < leaf.numberOfKeys() && count < limit; i++, count++)
+				action.accept(leaf.key(i), leaf.value(i));
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the {@code LeafNode} that holds the entry at the specified position in key order.
+	 * 
+	 * @param position
+	 *            an array whose first element is the position of an entry; it is replaced with the index of the entry
+	 *            in the returned {@code LeafNode}.
+	 * @return the {@code LeafNode} that holds the entry; {@code null} if there is no entry at the position.
+	 */
+	@SuppressWarnings("unchecked")
+	protected LeafNode<K, V> leafAt(long[] position) {
+		requireCounts();
+		flush();
+		long k = position[0];
+		if (k < 0 || root == null)
+			return null;
+		Node<K> c = root;
+		while (c instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) c;
+			int i = 0;
+			while (i < n.numberOfKeys() && k >= n.counts[i])
+				k -= n.counts[i++];
+			c = n.child(i);
+		}
+		if (k >= c.numberOfKeys())
+			return null;
+		position[0] = k;
+		return (LeafNode<K, V>) c;
+	}
+
+	/**
+	 * Gives each {@code LeafNode} of this {@code BPlusTree} a Bloom filter, kept in its parent, so that most lookups
+	 * of missing keys return without reading a {@code LeafNode} (replacing the current filters, if any). Each filter
+	 * takes {@code (degree - 1) * bitsPerKey} bits, rounded up to a multiple of 64.
+	 * <p>
+	 * The filters hash keys with {@code hashCode}, whereas this {@code BPlusTree} compares them with
+	 * {@code compareTo}. The keys must therefore have {@code hashCode} (and {@code equals}) consistent with
+	 * {@code compareTo}, as {@code Integer}, {@code Long}, {@code String} and {@code ByteKey} do. Otherwise (e.g., for
+	 * {@code BigDecimal}, where 1.0 and 1.00 are equal by {@code compareTo} but hash differently, or for keys that
+	 * inherit the identity hash code), a filter can reject a key that is present and {@code get} returns {@code null}.
+	 * 
+	 * @param bitsPerKey
+	 *            the number of bits per key (e.g., 10 for a false positive rate of about 1% in full
+	 *            {@code LeafNode}s).
+	 * @return the new {@code LeafFilters}, which report the observed false positive rate.
+	 */
+	public LeafFilters<K> enableLeafFilters(int bitsPerKey) {
+		filters = new LeafFilters<K>(degree, bitsPerKey);
+		if (root instanceof NonLeafNode)
+			refilterAll((NonLeafNode<K>) root);
+		return filters;
+	}
+
+	/**
+	 * Removes the Bloom filters of the {@code LeafNode}s.
+	 */
+	public void disableLeafFilters() {
+		filters = null;
+		if (root instanceof NonLeafNode)
+			refilterAll((NonLeafNode<K>) root);
+	}
+
+	/**
+	 * Returns the {@code LeafFilters} of this {@code BPlusTree}.
+	 * 
+	 * @return the {@code LeafFilters} of this {@code BPlusTree}; {@code null} if the {@code LeafNode}s have no
+	 *         filters.
+	 */
+	public LeafFilters<K> leafFilters() {
+		return filters;
+	}
+
+	/**
+	 * Rebuilds (or, if there are no {@code LeafFilters}, discards) the {@code LeafNode} filters in the specified
+	 * subtree.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void refilterAll(NonLeafNode<K> node) {
+		if (node.child(0) instanceof LeafNode) {
+			node.filters = null;
+			if (filters != null)
+				node.refilter(filters);
+			return;
+		}
+		for (int i = 0; i <= node.numberOfKeys(); i++)
+			refilterAll((NonLeafNode<K>) node.child(i));
+	}
+
+	/**
+	 * Returns the filter of the specified {@code LeafNode}, which must be responsible for the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @param leaf
+	 *            the {@code LeafNode} that is responsible for the key.
+	 * @return the filter of the specified {@code LeafNode}; {@code null} if it has none (e.g., it is the root).
+	 */
+	protected LeafFilters.Filter filterOf(K key, LeafNode<K, V> leaf) {
+		Node<K> c = root;
+		while (c instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) c;
+			int i = n.childIndex(key);
+			c = n.child(i);
+			if (c == leaf)
+				return n.filters != null && n.filters[i] != null && n.filters[i].leaf == leaf ? n.filters[i] : null;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the filter of the specified {@code LeafNode}.
+	 * 
+	 * @param path
+	 *            the ancestors of the {@code LeafNode} from the root; the parent of the {@code LeafNode} is the last
+	 *            element.
+	 * @param leaf
+	 *            a {@code LeafNode}.
+	 * @return the filter of the specified {@code LeafNode}; {@code null} if it has none (e.g., it is the root).
+	 */
+	protected LeafFilters.Filter filterOf(java.util.List<NonLeafNode<K>> path, LeafNode<K, V> leaf) {
+		NonLeafNode<K> n = path.isEmpty() ? null : path.get(path.size() - 1);
+		int i = n == null || n.filters == null ? -1 : n.indexOf(leaf);
+		return i >= 0 && n.filters[i] != null && n.filters[i].leaf == leaf ? n.filters[i] : null;
+	}
+
+	/**
+	 * Finds the {@code LeafNode} that is responsible for the specified key unless its filter shows that the key is
+	 * missing. The filter is read from the parent, so a rejected key costs no access to the {@code LeafNode}. A
+	 * {@code LeafNode} whose filter rejects the key is still returned if the key is the separator that follows it,
+	 * since the entries with the key may then start at the beginning of its successor.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the {@code LeafNode} that is responsible for the specified key; {@code null} if the key is definitely
+	 *         missing.
+	 */
+	@SuppressWarnings("unchecked")
+	protected LeafNode<K, V> findUnlessFiltered(K key) {
+		if (filters == null)
+			return find(key);
+		Node<K> c = root;
+		K upper = null; // the separator that follows the subtree of c
+		int visited = 1;
+		while (c instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) c;
+			int i = n.childIndex(key);
+			c = n.child(i);
+			if (i < n.numberOfKeys())
+				upper = n.key(i);
+			if (n.filters != null && n.filters[i] != null && n.filters[i].leaf == c
+					&& !filters.mightContain(n.filters[i], key) && (upper == null || upper.compareTo(key) != 0)) {
+				c = null; // the leaf node is not read
+				break;
+			}
+			visited++;
+		}
+		if (metrics != null)
+			metrics.nodesVisited.add(visited);
+		return (LeafNode<K, V>) c;
+	}
+
+	/**
+	 * Records a false positive if the specified {@code LeafNode} was reached through a filter that passed a missing
+	 * key.
+	 * 
+	 * @param leaf
+	 *            the {@code LeafNode} returned by {@link #findUnlessFiltered(Comparable)}.
+	 * @param index
+	 *            the index of the key in the {@code LeafNode}; -1 if the key is missing.
+	 */
+	protected void recordFiltered(LeafNode<K, V> leaf, int index) {
+		if (filters != null && leaf != null && leaf != root && index < 0)
+			filters.recordFalsePositive();
+	}
+
+	/**
+	 * Has each {@code NonLeafNode} of this {@code BPlusTree} keep a copy of its keys in {@code BlockedKeys}, which are
+	 * searched with the fastest available {@code KeySearch} (see {@link KeySearch#best()}). This only affects
+	 * {@code BPlusTree}s whose keys are {@code Long}s or {@code Integer}s; the {@code NonLeafNode}s of other
+	 * {@code BPlusTree}s keep comparing keys one by one.
+	 * 
+	 * @return the {@code KeySearch} in use.
+	 */
+	public KeySearch enableBlockedKeys() {
+		return enableBlockedKeys(KeySearch.best());
+	}
+
+	/**
+	 * Has each {@code NonLeafNode} of this {@code BPlusTree} keep a copy of its keys in {@code BlockedKeys}, which are
+	 * searched with the specified {@code KeySearch}. The {@code BlockedKeys} of the existing {@code NonLeafNode}s are
+	 * built in time proportional to the number of {@code NonLeafNode}s, and are then rebuilt for each
+	 * {@code NonLeafNode} that changes.
+	 * 
+	 * @param search
+	 *            the kernel that searches a block of keys.
+	 * @return the {@code KeySearch} in use.
+	 */
+	public KeySearch enableBlockedKeys(KeySearch search) {
+		keySearch = search;
+		if (root instanceof NonLeafNode)
+			reblockAll((NonLeafNode<K>) root);
+		return search;
+	}
+
+	/**
+	 * Discards the {@code BlockedKeys} of the {@code NonLeafNode}s, which then compare keys one by one.
+	 */
+	public void disableBlockedKeys() {
+		keySearch = null;
+		if (root instanceof NonLeafNode)
+			reblockAll((NonLeafNode<K>) root);
+	}
+
+	/**
+	 * Returns the kernel with which the {@code NonLeafNode}s of this {@code BPlusTree} search their
+	 * {@code BlockedKeys}.
+	 * 
+	 * @return the kernel with which the {@code NonLeafNode}s search their {@code BlockedKeys}; {@code null} if the
+	 *         keys are not kept in {@code BlockedKeys}.
+	 */
+	public KeySearch keySearch() {
+		return keySearch;
+	}
+
+	/**
+	 * Rebuilds (or, if no {@code KeySearch} is set, discards) the {@code BlockedKeys} in the specified subtree.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void reblockAll(NonLeafNode<K> node) {
+		node.blocked = null;
+		if (keySearch != null)
+			node.reblock(keySearch);
+		if (node.child(0) instanceof NonLeafNode) {
+			for (int i = 0; i <= node.numberOfKeys(); i++)
+				reblockAll((NonLeafNode<K>) node.child(i));
+		}
+	}
+
+	/**
+	 * Has lookups in this {@code BPlusTree} jump to the {@code LeafNode} predicted by a {@code LearnedIndex} trained on
+	 * the current {@code LeafNode}s, descending only when the prediction cannot be confirmed. This only affects
+	 * {@code BPlusTree}s whose keys are {@code Long}s or {@code Integer}s. The {@code LearnedIndex} is retrained
+	 * incrementally as {@code LeafNode}s are split and merged.
+	 * 
+	 * @param leavesPerSegment
+	 *            the number of {@code LeafNode}s per linear piece of the model (e.g., 64).
+	 * @return the new {@code LearnedIndex}, which reports how often its predictions were used.
+	 */
+	public LearnedIndex<K, V> enableLearnedIndex(int leavesPerSegment) {
+		learned = new LearnedIndex<K, V>(this, leavesPerSegment);
+		return learned;
+	}
+
+	/**
+	 * Discards the {@code LearnedIndex}, so lookups always descend.
+	 */
+	public void disableLearnedIndex() {
+		learned = null;
+	}
+
+	/**
+	 * Returns the {@code LearnedIndex} of this {@code BPlusTree}.
+	 * 
+	 * @return the {@code LearnedIndex} of this {@code BPlusTree}; {@code null} if lookups always descend.
 	 */
-	public BPlusTree(int degree) {
-		this.degree = degree;
+	public LearnedIndex<K, V> learnedIndex() {
+		return learned;
+	}
+
+	/**
+	 * Applies the changes that this {@code BPlusTree} has accepted but not yet applied to its {@code LeafNode}s. The
+	 * operations that read many {@code LeafNode}s invoke this first. A {@code BPlusTree} applies every change at once,
+	 * so this does nothing; a {@code BufferedBPlusTree} applies its buffered messages.
+	 */
+	public void flush() {
 	}
 
 	/**
-	 * Copy-constructs a {@code BPlusTree}.
+	 * Invoked after the children of two sibling {@code NonLeafNode}s have been split between them, redistributed or
+	 * merged. This does nothing in a {@code BPlusTree}; a {@code BufferedBPlusTree} moves the pending messages of the
+	 * {@code NonLeafNode}s along with their children.
 	 * 
-	 * @param tree
-	 *            another {@code BPlusTree} to copy from.
+	 * @param left
+	 *            a {@code NonLeafNode}.
+	 * @param separator
+	 *            the key that now separates the two {@code NonLeafNode}s; {@code null} if the right one has been
+	 *            merged into the left one.
+	 * @param right
+	 *            the next sibling of the left {@code NonLeafNode}.
 	 */
-	@SuppressWarnings("unchecked")
-	public BPlusTree(BPlusTree<K, V> tree) {
-		this.degree = tree.degree;
-		if (tree.root instanceof LeafNode)
-			this.root = new LeafNode<K, V>((LeafNode<K, V>) tree.root);
-		else
-			this.root = new NonLeafNode<K>((NonLeafNode<K>) tree.root);
+	protected void childrenMoved(NonLeafNode<K> left, K separator, NonLeafNode<K> right) {
 	}
 
 	/**
-	 * Returns the degree of this {@code BPlusTree}.
+	 * Invoked after the root {@code NonLeafNode}, which had a single child, has been replaced by that child. This does
+	 * nothing in a {@code BPlusTree}; a {@code BufferedBPlusTree} passes the pending messages of the former root on.
 	 * 
-	 * @return the degree of this {@code BPlusTree}.
+	 * @param node
+	 *            the former root.
 	 */
-	public int degree() {
-		return degree;
+	protected void rootReplaced(NonLeafNode<K> node) {
 	}
 
 	/**
-	 * Returns the root {@code Node} of this {@code BPlusTree}.
+	 * Determines whether or not lookups change the state of this {@code BPlusTree}: the {@code LookupCache} reorders
+	 * its entries and the {@code LeafFilters} and the {@code LearnedIndex} update their statistics on every lookup.
+	 * Lookups must then not be invoked concurrently even with each other.
 	 * 
-	 * @return the root {@code Node} of this {@code BPlusTree}.
+	 * @return {@code true} if this {@code BPlusTree} has a {@code LookupCache}, {@code LeafFilters} or a
+	 *         {@code LearnedIndex}; {@code false} otherwise.
 	 */
-	public Node<K> root() {
-		return root;
+	public boolean hasMutatingLookups() {
+		return cache != null || filters != null || learned != null;
+	}
+
+	/**
+	 * Returns the {@code LookupCache} of this {@code BPlusTree}.
+	 * 
+	 * @return the {@code LookupCache} of this {@code BPlusTree}; {@code null} if lookups are not cached.
+	 */
+	public LookupCache<K, V> lookupCache() {
+		return cache;
 	}
 
 	/**
-	 * Finds the {@code LeafNode} in this {@code BPlusTree} that must be responsible for the specified key.
+	 * Finds the {@code LeafNode} in this {@code BPlusTree} that must be responsible for the specified key. When
+	 * duplicate keys span splits, this is the first {@code LeafNode} that may hold the key, and the entries with the
+	 * key may continue into its successors (or, if all of its keys are smaller, start at the beginning of its
+	 * successor; see {@link #startOfRun(LeafNode, Comparable)}).
 	 * 
 	 * @param key
 	 *            the search key.
@@ -76,12 +1087,379 @@ public class BPlusTree<K extends Comparable<K>, V> {
 	@SuppressWarnings("unchecked")
 	public LeafNode<K, V> find(K key) {
 		Node<K> c = root;
+		int visited = 1;
 		while (c instanceof NonLeafNode) {
 			c = ((NonLeafNode<K>) c).child(key);
+			visited++;
 		}
+		if (metrics != null)
+			metrics.nodesVisited.add(visited);
+		return (LeafNode<K, V>) c;
+	}
+
+	/**
+	 * Returns the first {@code LeafNode} of this {@code BPlusTree}.
+	 * 
+	 * @return the first {@code LeafNode} of this {@code BPlusTree}; {@code null} if this {@code BPlusTree} is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public LeafNode<K, V> firstLeaf() {
+		Node<K> c = root;
+		while (c instanceof NonLeafNode)
+			c = ((NonLeafNode<K>) c).child(0);
 		return (LeafNode<K, V>) c;
 	}
 
+	/**
+	 * Returns the successor of the specified {@code LeafNode} if the entries with the specified key start at its
+	 * beginning. This is where the first entry with a key is when the key is a separator and the {@code LeafNode}
+	 * returned by {@link #find(Comparable)} for it does not hold the key.
+	 * 
+	 * @param leaf
+	 *            the {@code LeafNode} returned by {@link #find(Comparable)} for the specified key, which does not hold
+	 *            the key.
+	 * @param key
+	 *            the search key.
+	 * @return the successor of the specified {@code LeafNode} if its first key is the specified key; {@code null}
+	 *         otherwise.
+	 */
+	protected LeafNode<K, V> startOfRun(LeafNode<K, V> leaf, K key) {
+		LeafNode<K, V> next = leaf.successor();
+		return next != null && next.firstKey().compareTo(key) == 0 ? next : null;
+	}
+
+	/**
+	 * Returns the value associated with the specified key in this {@code BPlusTree}.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	public V get(K key) {
+		if (metrics == null)
+			return lookup(key);
+		long start = metrics.startTimer();
+		V value = lookup(key);
+		metrics.stopTimer(metrics.getLatency, start);
+		return value;
+	}
+
+	/**
+	 * Returns the value associated with the specified key in this {@code BPlusTree} without recording its latency.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	protected V lookup(K key) {
+		if (cache != null)
+			return getCached(key);
+		LeafNode<K, V> leaf = learned == null ? null : learned.find(key);
+		if (leaf != null) { // if the predicted leaf node is confirmed, skip the descent
+			int i = leaf.findIndex(key);
+			return i < 0 ? null : leaf.value(i);
+		}
+		leaf = findUnlessFiltered(key);
+		int i = leaf == null ? -1 : leaf.findIndex(key);
+		if (i < 0 && leaf != null && startOfRun(leaf, key) != null)
+			return leaf.successor().value(0);
+		recordFiltered(leaf, i);
+		return i < 0 ? null : leaf.value(i);
+	}
+
+	/**
+	 * Returns the value associated with the specified key by first consulting the {@code LookupCache}.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	protected V getCached(K key) {
+		long start = System.nanoTime();
+		LookupCache.Entry<K, V> e = cache.getEntry(key);
+		if (e != null) { // if the key is cached, skip the descent
+			V value = e.value();
+			cache.recordHit(System.nanoTime() - start);
+			return value;
+		}
+		LeafNode<K, V> leaf = learned == null ? null : learned.find(key);
+		int i;
+		if (leaf != null)
+			i = leaf.findIndex(key);
+		else {
+			leaf = findUnlessFiltered(key);
+			i = leaf == null ? -1 : leaf.findIndex(key);
+			if (i < 0 && leaf != null && startOfRun(leaf, key) != null) {
+				leaf = leaf.successor();
+				i = 0;
+			} else
+				recordFiltered(leaf, i);
+		}
+		V value = null;
+		if (i >= 0) {
+			value = leaf.value(i);
+			cache.put(key, value);
+		}
+		cache.recordMiss(System.nanoTime() - start);
+		return value;
+	}
+
+	/**
+	 * Passes the entries of this {@code BPlusTree} whose keys are in the specified range to the specified action in
+	 * key order.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @param action
+	 *            the action to perform on each key and value.
+	 * @return the number of entries passed to the action.
+	 */
+	public long scan(K fromKey, K toKey, java.util.function.BiConsumer<? super K, ? super V> action) {
+		flush();
+		long start = metrics == null ? 0 : metrics.startTimer();
+		long count = 0;
+		LeafNode<K, V> leaf = fromKey == null ? firstLeaf() : find(fromKey);
+		int i = leaf == null || fromKey == null ? 0 : leaf.findIndexGE(fromKey);
+		if (i < 0) { // if all keys in the leaf node are smaller than fromKey
+			leaf = leaf.successor();
+			i = 0;
+		}
+		scan: for (; leaf != null; leaf = leaf.successor(), i = 0) {
+			for (; i < leaf.numberOfKeys(); i++) {
+				K key = leaf.key(i);
+				if (toKey != null && key.compareTo(toKey) >= 0)
+					break scan;
+				action.accept(key, leaf.value(i));
+				count++;
+			}
+		}
+		if (metrics != null)
+			metrics.stopTimer(metrics.scanLatency, start);
+		return count;
+	}
+
+	/**
+	 * Returns a {@code Spliterator} over the entries of this {@code BPlusTree} whose keys are in the specified range.
+	 * It splits along the children of {@code NonLeafNode}s, so the range can be traversed in parallel.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return a {@code Spliterator} over the entries whose keys are in the specified range.
+	 */
+	public EntrySpliterator<K, V> spliterator(K fromKey, K toKey) {
+		flush();
+		return new EntrySpliterator<K, V>(this, fromKey, toKey);
+	}
+
+	/**
+	 * Returns a sequential {@code Stream} of the entries of this {@code BPlusTree} whose keys are in the specified
+	 * range, in key order. Call {@code parallel()} on it to traverse disjoint subtrees in the common
+	 * {@code ForkJoinPool}. This {@code BPlusTree} must not be modified while the {@code Stream} is in use.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return a {@code Stream} of the entries whose keys are in the specified range.
+	 */
+	public java.util.stream.Stream<java.util.Map.Entry<K, V>> entryStream(K fromKey, K toKey) {
+		return java.util.stream.StreamSupport.stream(spliterator(fromKey, toKey), false);
+	}
+
+	/**
+	 * Returns a {@code FrozenBPlusTree} that holds the current entries of this {@code BPlusTree} in one contiguous
+	 * array laid out for lookups. This {@code BPlusTree} is not changed, and later changes to it are not reflected in
+	 * the {@code FrozenBPlusTree}.
+	 * 
+	 * @return a {@code FrozenBPlusTree} that holds the current entries of this {@code BPlusTree}.
+	 * @throws IllegalStateException
+	 *             if this {@code BPlusTree} has more than {@code FrozenBPlusTree.MAXIMUM_SIZE} entries.
+	 */
+	@SuppressWarnings("unchecked")
+	public FrozenBPlusTree<K, V> freeze() {
+		long size = size();
+		if (size > FrozenBPlusTree.MAXIMUM_SIZE)
+			throw new IllegalStateException("too many entries to freeze: " + size);
+		K[] keys = (K[]) new Comparable[(int) size];
+		V[] values = (V[]) new Object[(int) size];
+		int i = 0;
+		for (LeafNode<K, V> leaf = root == null ? null : firstLeaf(); leaf != null; leaf = leaf.successor()) {
+			System.arraycopy(leaf.keys, 0, keys, i, leaf.numberOfKeys());
+			System.arraycopy(leaf.values, 0, values, i, leaf.numberOfKeys());
+			i += leaf.numberOfKeys();
+		}
+		return new FrozenBPlusTree<K, V>(keys, values);
+	}
+
+	/**
+	 * Moves the entries whose keys are greater than or equal to the specified key into a new {@code BPlusTree} of the
+	 * same degree (without the optional features of this {@code BPlusTree}). The {@code LeafNode}s are moved as they
+	 * are, except for the one in which the key falls, which is split, and the {@code NonLeafNode}s of both
+	 * {@code BPlusTree}s are rebuilt on top of their {@code LeafNode}s, so this takes time proportional to the number
+	 * of {@code LeafNode}s rather than the number of entries.
+	 * 
+	 * @param key
+	 *            the smallest key to move.
+	 * @return a new {@code BPlusTree} with the entries whose keys are greater than or equal to the specified key.
+	 */
+	public BPlusTree<K, V> splitOff(K key) {
+		flush();
+		java.util.List<LeafNode<K, V>> low = new java.util.ArrayList<LeafNode<K, V>>();
+		java.util.List<LeafNode<K, V>> high = new java.util.ArrayList<LeafNode<K, V>>();
+		for (LeafNode<K, V> leaf = firstLeaf(); leaf != null; leaf = leaf.successor()) {
+			if (!high.isEmpty() || leaf.firstKey().compareTo(key) >= 0)
+				high.add(leaf);
+			else if (leaf.lastKey().compareTo(key) < 0)
+				low.add(leaf);
+			else { // the leaf node in which the key falls keeps the smaller keys
+				int i = leaf.findIndexGE(key);
+				LeafNode<K, V> tail = newLeafNode();
+				tail.copy(leaf, i, leaf.numberOfKeys());
+				while (leaf.numberOfKeys() > i)
+					leaf.remove(leaf.numberOfKeys() - 1);
+				low.add(leaf);
+				high.add(tail);
+			}
+		}
+		BPlusTree<K, V> tree = new BPlusTree<K, V>(degree);
+		if (events != null)
+			publishEntries(high, TreeEvent.Type.DELETED);
+		rebuild(low);
+		tree.rebuild(high);
+		return tree;
+	}
+
+	/**
+	 * Moves all entries of the specified {@code BPlusTree}, whose keys must all be greater than or equal to (or all
+	 * smaller than or equal to) those of this {@code BPlusTree}, into this {@code BPlusTree}. The {@code LeafNode}s of
+	 * the specified {@code BPlusTree} are chained after (or before) those of this {@code BPlusTree} and the
+	 * {@code NonLeafNode}s are rebuilt on top of them, so this takes time proportional to the number of
+	 * {@code LeafNode}s rather than the number of entries. The specified {@code BPlusTree} is left empty.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree} of the same degree.
+	 * @throws IllegalArgumentException
+	 *             if the specified {@code BPlusTree} is this {@code BPlusTree} or has a different degree, or if the
+	 *             keys of the two {@code BPlusTree}s interleave.
+	 */
+	public void join(BPlusTree<K, V> tree) {
+		if (tree == this || tree.degree != degree)
+			throw new IllegalArgumentException("cannot join a tree of degree " + tree.degree + " to this tree");
+		flush();
+		tree.flush();
+		java.util.List<LeafNode<K, V>> leaves = leaves();
+		java.util.List<LeafNode<K, V>> moved = tree.leaves();
+		if (moved.isEmpty())
+			return;
+		if (leaves.isEmpty() || leaves.get(leaves.size() - 1).lastKey().compareTo(moved.get(0).firstKey()) <= 0)
+			leaves.addAll(moved);
+		else if (moved.get(moved.size() - 1).lastKey().compareTo(leaves.get(0).firstKey()) <= 0)
+			leaves.addAll(0, moved);
+		else
+			throw new IllegalArgumentException("the keys of the trees interleave");
+		if (tree.events != null)
+			tree.publishEntries(moved, TreeEvent.Type.DELETED);
+		tree.rebuild(new java.util.ArrayList<LeafNode<K, V>>());
+		rebuild(leaves);
+		if (events != null)
+			publishEntries(moved, TreeEvent.Type.INSERTED);
+	}
+
+	/**
+	 * Returns the {@code LeafNode}s of this {@code BPlusTree} in key order.
+	 * 
+	 * @return a new list of the {@code LeafNode}s of this {@code BPlusTree}.
+	 */
+	protected java.util.List<LeafNode<K, V>> leaves() {
+		java.util.List<LeafNode<K, V>> leaves = new java.util.ArrayList<LeafNode<K, V>>();
+		for (LeafNode<K, V> leaf = firstLeaf(); leaf != null; leaf = leaf.successor())
+			leaves.add(leaf);
+		return leaves;
+	}
+
+	/**
+	 * Publishes an event of the specified type for each entry in the specified {@code LeafNode}s.
+	 * 
+	 * @param leaves
+	 *            {@code LeafNode}s.
+	 * @param type
+	 *            the type of the events.
+	 */
+	protected void publishEntries(java.util.List<LeafNode<K, V>> leaves, TreeEvent.Type type) {
+		for (LeafNode<K, V> leaf : leaves)
+			for (int i = 0; i < leaf.numberOfKeys(); i++)
+				events.publish(type, leaf.key(i), leaf.value(i), true, 0);
+	}
+
+	/**
+	 * Replaces the {@code Node}s of this {@code BPlusTree} with new {@code NonLeafNode}s built on top of the specified
+	 * {@code LeafNode}s, whose keys must be in order. Empty {@code LeafNode}s are dropped and those with too few
+	 * entries are merged with, or take entries from, a neighbor; each level of {@code NonLeafNode}s is then built by
+	 * dividing the {@code Node}s below evenly among as few {@code NonLeafNode}s as possible.
+	 * 
+	 * @param leaves
+	 *            the {@code LeafNode}s in key order, which this method may modify.
+	 */
+	protected void rebuild(java.util.List<LeafNode<K, V>> leaves) {
+		leaves.removeIf(leaf -> leaf.numberOfKeys() == 0);
+		for (int i = 0; i < leaves.size() && leaves.size() > 1; i++) {
+			if (!tooFewEntries(leaves.get(i)))
+				continue;
+			int j = i > 0 ? i - 1 : i; // the left one of the leaf node and a neighbor
+			LeafNode<K, V> l = leaves.get(j), r = leaves.get(j + 1);
+			if (l.numberOfKeys() + r.numberOfKeys() <= degree - 1) {
+				l.merge(r);
+				leaves.remove(j + 1);
+				i = j - 1; // the merged leaf node may still have too few entries
+			} else { // divide the entries of both leaf nodes evenly
+				LeafNode<K, V> t = new LeafNode<K, V>(2 * degree);
+				t.copy(l, 0, l.numberOfKeys());
+				t.merge(r);
+				l.clear();
+				l.copy(t, 0, t.numberOfKeys() / 2);
+				r.clear();
+				r.copy(t, t.numberOfKeys() / 2, t.numberOfKeys());
+			}
+		}
+		java.util.List<Node<K>> level = new java.util.ArrayList<Node<K>>();
+		java.util.List<K> lows = new java.util.ArrayList<K>(); // the smallest key in the subtree of each node
+		for (int i = 0; i < leaves.size(); i++) {
+			leaves.get(i).setSuccessor(i + 1 < leaves.size() ? leaves.get(i + 1) : null);
+			level.add(leaves.get(i));
+			lows.add(leaves.get(i).firstKey());
+		}
+		while (level.size() > 1) {
+			java.util.List<Node<K>> parents = new java.util.ArrayList<Node<K>>();
+			java.util.List<K> parentLows = new java.util.ArrayList<K>();
+			int count = (level.size() + degree - 1) / degree;
+			for (int p = 0, begin = 0; p < count; p++) {
+				int end = begin + (level.size() - begin) / (count - p);
+				NonLeafNode<K> n = new NonLeafNode<K>(degree);
+				n.children[0] = level.get(begin);
+				for (int c = begin + 1; c < end; c++)
+					n.append(lows.get(c), level.get(c));
+				refresh(n);
+				parents.add(n);
+				parentLows.add(lows.get(begin));
+				begin = end;
+			}
+			level = parents;
+			lows = parentLows;
+		}
+		root = level.isEmpty() ? null : level.get(0);
+		lastLeaf = null;
+		if (cache != null)
+			cache.clear();
+		if (learned != null)
+			learned.train();
+		if (events != null)
+			publishRootChange();
+	}
+
 	/**
 	 * Finds the parent {@code Node} of the specified {@code Node}.
 	 * 
@@ -90,14 +1468,41 @@ public class BPlusTree<K extends Comparable<K>, V> {
 	 * @return the parent {@code Node} of the specified {@code Node}; {@code null} if the parent cannot be found.
 	 */
 	public NonLeafNode<K> findParent(Node<K> node) {
-		Node<K> p = root;
-		while (p != null) {
-			K key = node.firstKey();
-			Node<K> c = ((NonLeafNode<K>) p).child(key);
-			if (c == node) { // if found the parent of the node.
-				return (NonLeafNode<K>) p;
-			}
-			p = c;
+		if (metrics != null)
+			metrics.findParentWalks.increment();
+		return node == root ? null : findParent(root, node, node.firstKey());
+	}
+
+	/**
+	 * Finds the parent {@code Node} of the specified {@code Node} in the specified subtree. Child i of a
+	 * {@code NonLeafNode} holds keys between key(i - 1) and key(i), both inclusive, so when duplicate keys span splits,
+	 * several children may hold the first key of the {@code Node}. They are searched from right to left.
+	 * 
+	 * @param p
+	 *            the root of a subtree.
+	 * @param node
+	 *            a {@code Node}.
+	 * @param key
+	 *            the first key of the {@code Node}.
+	 * @return the parent {@code Node} of the specified {@code Node}; {@code null} if it is not in the subtree.
+	 */
+	protected NonLeafNode<K> findParent(Node<K> p, Node<K> node, K key) {
+		if (!(p instanceof NonLeafNode))
+			return null;
+		if (metrics != null)
+			metrics.nodesVisited.increment();
+		NonLeafNode<K> n = (NonLeafNode<K>) p;
+		int i = n.numberOfKeys();
+		while (i > 0 && n.key(i - 1).compareTo(key) > 0) // find the last child whose keys may start with the key
+			i--;
+		for (; i >= 0; i--) {
+			if (n.child(i) == node) // if found the parent of the node.
+				return n;
+			NonLeafNode<K> parent = findParent(n.child(i), node, key);
+			if (parent != null)
+				return parent;
+			if (i == 0 || n.key(i - 1).compareTo(key) < 0) // if the previous child cannot hold the key
+				break;
 		}
 		return null;
 	}
@@ -111,28 +1516,164 @@ public class BPlusTree<K extends Comparable<K>, V> {
 	 *            the value to insert.
 	 */
 	public void insert(K key, V value) {
+		long start = metrics == null ? 0 : metrics.startTimer();
+		applyInsert(key, value);
+		if (metrics != null)
+			metrics.stopTimer(metrics.insertLatency, start);
+	}
+
+	/**
+	 * Inserts the specified key and the value into the {@code LeafNode}s of this {@code BPlusTree}.
+	 * 
+	 * @param key
+	 *            the key to insert.
+	 * @param value
+	 *            the value to insert.
+	 */
+	protected void applyInsert(K key, V value) {
+		if (cache != null)
+			cache.invalidate(key);
 		LeafNode<K, V> leaf; // the leaf node where insertion will occur
 		if (root == null) { // if the root is null
-			leaf = new LeafNode<K, V>(degree);
+			leaf = newLeafNode();
 			root = leaf;
+			if (events != null)
+				publishRootChange();
+		} else if (appendOptimized && lastLeaf != null && lastLeaf.numberOfKeys() > 0
+				&& key.compareTo(lastLeaf.lastKey()) > 0) { // if appending, skip the descent (the run of an equal
+			// key may start in an earlier leaf node, where the descent inserts)
+			leaf = lastLeaf;
 		} else { // if root is not null
 			leaf = find(key);
 		}
+		if (appendOptimized && leaf.successor() == null)
+			lastLeaf = leaf;
+		if (counted)
+			addToCounts(key, 1);
+		if (filters != null) {
+			LeafFilters.Filter f = filterOf(key, leaf);
+			if (f != null) {
+				filters.add(f, key);
+				if (leaf.hasRoom()) // otherwise, the filter is rebuilt after the split if the leaf has changed size
+					f.size = leaf.numberOfKeys() + 1;
+			}
+		}
 		if (leaf.hasRoom()) { // if the leaf node has room for the new entry
-			leaf.insert(key, value);
+			splitPolicy.inserted(leaf, leaf.insert(key, value));
 		} else { // if split is required
 			LeafNode<K, V> t = new LeafNode<K, V>(degree + 1); // create a temporary leaf node
 			t.copy(leaf, 0, leaf.numberOfKeys());// copy everything to the temporary node
-			t.insert(key, value); // insert the key and value to the temporary node
-			LeafNode<K, V> nLeaf = new LeafNode<K, V>(degree); // create a new leaf node
+			int position = t.insert(key, value); // insert the key and value to the temporary node
+			int m = splitPolicy.splitPoint(leaf, position, leaf.successor() == null, degree); // compute the split point
+			m = Math.max(1, Math.min(degree - 1, m)); // leave at least one entry in each leaf node
+			LeafNode<K, V> nLeaf = newLeafNode(); // create a new leaf node
 			nLeaf.setSuccessor(leaf.successor()); // chaining
 			leaf.clear(); // clear the leaf node
 			leaf.setSuccessor(nLeaf); // chaining from leaf to nLeaf
-			int m = (int) Math.ceil(degree / 2.0); // compute the split point
-			leaf.copy(t, 0, m); // put the first half into leaf
-			nLeaf.copy(t, m, t.numberOfKeys()); // put the second half to nLeaf
+			leaf.copy(t, 0, m); // put the first part into leaf
+			nLeaf.copy(t, m, t.numberOfKeys()); // put the second part to nLeaf
+			splitPolicy.split(leaf, nLeaf);
+			if (metrics != null)
+				metrics.leafSplits.increment();
+			if (events != null)
+				events.publish(TreeEvent.Type.LEAF_SPLIT, nLeaf.firstKey(), null, true, 0);
+			if (appendOptimized && nLeaf.successor() == null)
+				lastLeaf = nLeaf;
 			insertInParent(leaf, nLeaf.firstKey(), nLeaf); // use the first key of nLeaf as the separator.
+			if (learned != null)
+				learned.changed(nLeaf.firstKey(), 1);
+		}
+		if (monoid != null)
+			reaggregate(root, key);
+		if (events != null)
+			events.publish(TreeEvent.Type.INSERTED, key, value, true, 0);
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this {@code BPlusTree}: replaces the value of the first
+	 * entry with the key if there is one, and inserts a new entry otherwise.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value to associate with the key.
+	 * @return the previous value associated with the key; {@code null} if the key was not found.
+	 */
+	public V put(K key, V value) {
+		return applyPut(key, value);
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this {@code BPlusTree} like
+	 * {@link #put(Comparable, Object)}, but without returning the previous value, so that a {@code BufferedBPlusTree}
+	 * can accept the change without reading the {@code LeafNode} of the key.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value to associate with the key.
+	 */
+	public void upsert(K key, V value) {
+		applyPut(key, value);
+	}
+
+	/**
+	 * Associates the specified value with the specified key in the {@code LeafNode}s of this {@code BPlusTree}.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value to associate with the key.
+	 * @return the previous value associated with the key; {@code null} if the key was not found.
+	 */
+	protected V applyPut(K key, V value) {
+		LeafNode<K, V> leaf = root == null ? null : find(key);
+		int i = leaf == null ? -1 : leaf.findIndex(key);
+		if (i < 0 && leaf != null && startOfRun(leaf, key) != null) {
+			leaf = leaf.successor();
+			i = 0;
+		}
+		if (i < 0) {
+			applyInsert(key, value);
+			return null;
 		}
+		if (cache != null)
+			cache.invalidate(key);
+		V previous = leaf.value(i);
+		leaf.values[i] = value;
+		if (monoid != null)
+			reaggregate(root, key);
+		if (events != null) { // a replacement is shipped as a deletion followed by an insertion
+			events.publish(TreeEvent.Type.DELETED, key, previous, true, 0);
+			events.publish(TreeEvent.Type.INSERTED, key, value, true, 0);
+		}
+		return previous;
+	}
+
+	/**
+	 * Creates a {@code LeafNode} and assigns it the next allocation sequence number.
+	 * 
+	 * @return the new {@code LeafNode}.
+	 */
+	protected LeafNode<K, V> newLeafNode() {
+		LeafNode<K, V> leaf = new LeafNode<K, V>(degree);
+		leaf.serial = leafAllocations++;
+		return leaf;
+	}
+
+	/**
+	 * Determines whether or not the specified {@code Node} is on the right edge of this {@code BPlusTree}.
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @return {@code true} if the specified {@code Node} is reached from the root by always following the last child;
+	 *         {@code false} otherwise.
+	 */
+	protected boolean onRightEdge(Node<K> node) {
+		Node<K> c = root;
+		while (c != node && c instanceof NonLeafNode)
+			c = ((NonLeafNode<K>) c).child(c.numberOfKeys());
+		return c == node;
 	}
 
 	/**
@@ -147,23 +1688,38 @@ public class BPlusTree<K extends Comparable<K>, V> {
 	 */
 	void insertInParent(Node<K> n, K key, Node<K> nn) {
 		if (n == root) { // if the root was split
-			root = new NonLeafNode<K>(degree); // create a new node
-			root.insert(key, n, 0); // make the new root point to the nodes.
-			root.pointers[1] = nn;
+			NonLeafNode<K> r = new NonLeafNode<K>(degree); // create a new node
+			r.children[0] = n; // make the new root point to the nodes.
+			r.append(key, nn);
+			root = r;
+			refresh(r);
+			if (events != null)
+				publishRootChange();
 			return;
 		}
 		NonLeafNode<K> p = findParent(n);
 		if (p.hasRoom()) {
-			p.insertAfter(key, nn, n); // insert key and nn right after n
+			splitPolicy.inserted(p, p.insertAfter(key, nn, n)); // insert key and nn right after n
+			refresh(p);
 		} else { // if split is required
 			NonLeafNode<K> t = new NonLeafNode<K>(degree + 1); // crate a temporary node
 			t.copy(p, 0, p.numberOfKeys()); // copy everything of p to the temporary node
-			t.insertAfter(key, nn, n); // insert key and nn after n
+			int position = t.insertAfter(key, nn, n); // insert key and nn after n
+			int m = splitPolicy.splitPoint(p, position, onRightEdge(p), degree); // compute the split point
+			m = Math.max(2, Math.min(degree - 1, m)); // leave at least two children in each node
 			p.clear(); // clear p
-			int m = (int) Math.ceil(degree / 2.0); // compute the split point
 			p.copy(t, 0, m - 1);
 			NonLeafNode<K> np = new NonLeafNode<K>(degree); // create a new node
-			np.copy(t, m, t.numberOfKeys()); // put the second half to np
+			np.copy(t, m, t.numberOfKeys()); // put the second part to np
+			childrenMoved(p, t.keys[m - 1], np);
+			splitPolicy.split(p, np);
+			np.filters = p.filters; // let np keep the filters of the leaf nodes moved from p
+			refresh(p);
+			refresh(np);
+			if (metrics != null)
+				metrics.internalSplits.increment();
+			if (events != null)
+				events.publish(TreeEvent.Type.INTERNAL_SPLIT, t.keys[m - 1], null, false, 0);
 			insertInParent(p, t.keys[m - 1], np); // use the middle key as the separator
 		}
 	}
@@ -174,222 +1730,223 @@ public class BPlusTree<K extends Comparable<K>, V> {
 	 * @param key
 	 *            the key to delete.
 	 * @param value
-	 *            the value to delete.
+	 *            the value to delete; {@code null} to delete the first entry with the specified key.
+	 * @return {@code true} if an entry was deleted; {@code false} if no entry has the specified key and value.
+	 */
+	public boolean delete(K key, V value) {
+		long start = metrics == null ? 0 : metrics.startTimer();
+		boolean deleted = applyDelete(key, value);
+		if (metrics != null)
+			metrics.stopTimer(metrics.deleteLatency, start);
+		return deleted;
+	}
+
+	/**
+	 * Deletes the specified key and the value from this {@code BPlusTree}.
+	 * 
+	 * @param node
+	 *            ignored ({@link #delete(Comparable, Object)} finds the {@code LeafNode} and its ancestors itself).
+	 * @param key
+	 *            the key to delete.
+	 * @param value
+	 *            the value to delete; {@code null} to delete the first entry with the specified key.
+	 * @deprecated use {@link #delete(Comparable, Object)}. The old {@code delete_entry} found the parent of each
+	 *             {@code Node} again with {@link #findParent(Node)} while merging, which broke on random workloads;
+	 *             deletions now record the ancestors of the {@code LeafNode} during the descent and pass them to
+	 *             {@link #deleteEntry(Node, int, java.util.List)}.
 	 */
-	public void delete(K key, V value) {
-		// please implement the body of this method so that we can remove key-value pairs from the tree (refer to page
-		// 498 in the text book).
-		Node<K> node = find(key);//find node which contains the key
-		delete_entry(node, key, value);//delete entry will be called when key/value is present
+	@Deprecated
+	public void delete_entry(Node<K> node, K key, V value) {
+		delete(key, value);
 	}
-	int nodePos,siblingNodePos;
-	public void delete_entry(Node<K> node, K key, V value){
-		Node<K> parent;
-		if(node!=root)//check if node is root or not
-		{
-		parent=findParent(node);//finding parent
+
+	/**
+	 * Deletes the specified key and the value from the {@code LeafNode}s of this {@code BPlusTree}.
+	 * 
+	 * @param key
+	 *            the key to delete.
+	 * @param value
+	 *            the value to delete; {@code null} to delete the first entry with the specified key.
+	 * @return {@code true} if an entry was deleted; {@code false} if no entry has the specified key and value.
+	 */
+	protected boolean applyDelete(K key, V value) {
+		if (cache != null)
+			cache.invalidate(key);
+		lastLeaf = null; // the rightmost leaf node may be merged away
+		java.util.ArrayList<NonLeafNode<K>> path = new java.util.ArrayList<NonLeafNode<K>>(); // ancestors of the leaf
+		Node<K> c = root;
+		while (c instanceof NonLeafNode) {
+			path.add((NonLeafNode<K>) c);
+			c = ((NonLeafNode<K>) c).child(key);
 		}
-		else
-		{
-			parent=null;//set parent to null
-		}
-		//check if key exist in the node
-		int pos=-1;
-		for(int i = 0; i<node.numberOfKeys; i++){
-			if(node.keys[i] == key){
-				node.keys[i]=null;
-				if(node instanceof LeafNode)//check if node is LeafNode
-				node.pointers[i]=null;
-				else
-					node.pointers[nodePos]=null;
-				pos=i;
-			}
+		@SuppressWarnings("unchecked")
+		LeafNode<K, V> leaf = (LeafNode<K, V>) c;
+		int i = leaf == null ? -1 : leaf.findIndex(key);
+		if (i < 0 && leaf != null && startOfRun(leaf, key) != null) {
+			leaf = advance(path, leaf);
+			i = 0;
 		}
-		//shifting remaining pointers to left
-		if(pos!=-1)
-		{
-			if(node instanceof LeafNode)//check if node is LeafNode
-			{
-		for(int i=pos;i<node.numberOfKeys-1;i++)
-		{
-			node.keys[i]=node.keys[i+1];
-			node.pointers[i]=node.pointers[i+1];
-		}
-		node.keys[node.numberOfKeys-1]=null;
-		node.numberOfKeys--;
-			}
-			else //if node is NonLeafNode
-			{
-				for(int i=pos;i<node.numberOfKeys-1;i++)//shifting key for NonLeaf
-				{
-					node.keys[i]=node.keys[i+1];
-				}
-				for(int i=nodePos;i<node.numberOfKeys;i++)//shifting pointer for Nonleaf
-				{
-					node.pointers[i]=node.pointers[i+1];
-				}
-				node.pointers[node.numberOfKeys]=null;
-				node.keys[node.numberOfKeys-1]=null;
-				node.numberOfKeys--;
-			}
+		// if a specific entry is to be deleted, skip the other entries with the key, which may span leaf nodes
+		while (i >= 0 && value != null && !value.equals(leaf.value(i))) {
+			if (++i < leaf.numberOfKeys())
+				i = leaf.key(i).compareTo(key) == 0 ? i : -1;
+			else if (startOfRun(leaf, key) != null) {
+				leaf = advance(path, leaf);
+				i = 0;
+			} else
+				i = -1;
 		}
-		
-		int remainingChild=0;
-		int childpos=0;
-		for(int i=0;i<degree;i++)//calculate the remaining child and child position
-		{
-			if(node.pointers[i]!=null)//if node pointer is not null
-			{
-				remainingChild++;
-				childpos=i;
+		if (i >= 0) { // if the entry is found
+			if (events != null)
+				events.publish(TreeEvent.Type.DELETED, leaf.key(i), leaf.value(i), true, 0);
+			if (counted)
+				addToCounts(path, leaf, -1);
+			if (filters != null) { // the key stays in the filter, which remains a superset of the keys
+				LeafFilters.Filter f = filterOf(path, leaf);
+				if (f != null)
+					f.size = leaf.numberOfKeys() - 1;
 			}
+			deleteEntry(leaf, i, path);
+			if (monoid != null)
+				reaggregate(root, key);
+		}
+		return i >= 0;
+	}
+
+	/**
+	 * Moves from the specified {@code LeafNode} to its successor, which must exist, replacing the ancestors of the
+	 * {@code LeafNode} in the specified path with those of the successor.
+	 * 
+	 * @param path
+	 *            the ancestors of the {@code LeafNode} from the root; the parent of the {@code LeafNode} is the last
+	 *            element.
+	 * @param leaf
+	 *            a {@code LeafNode} that has a successor.
+	 * @return the successor of the specified {@code LeafNode}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected LeafNode<K, V> advance(java.util.List<NonLeafNode<K>> path, LeafNode<K, V> leaf) {
+		Node<K> node = leaf;
+		NonLeafNode<K> parent = path.get(path.size() - 1);
+		while (parent.indexOf(node) == parent.numberOfKeys()) { // climb while the node is the last child
+			node = path.remove(path.size() - 1);
+			parent = path.get(path.size() - 1);
 		}
-		//too few values or pointers in the node
-		int  minNonLeaf = (int) Math.ceil(degree / 2.0);
-		int  minLeaf = (int) Math.ceil((degree-1)/ 2.0);
-		boolean toofewValues = false;
-		if(node instanceof LeafNode)
-		{
-			if(node.numberOfKeys<minLeaf)
-				toofewValues = true;
+		node = parent.child(parent.indexOf(node) + 1);
+		while (node instanceof NonLeafNode) { // descend to the first leaf node of the next subtree
+			path.add((NonLeafNode<K>) node);
+			node = ((NonLeafNode<K>) node).child(0);
 		}
-		else
-		{
-			if(remainingChild<minNonLeaf)
-				toofewValues = true;
-		}
-		if(node==root && remainingChild==1)//make node the root if remaining child is 1
-		{
-		root=(Node<K>)node.pointers[childpos];//make child the root
-		node.clear();
-		}
-		else if(toofewValues)
-		{
-		nodePos=0;//finding index of node
-		siblingNodePos=0;
-		K parentKey;
-		for(int i = 0;i<=parent.numberOfKeys; i++)
-		{
-			if((Node<K>)parent.pointers[i]==node)
-				nodePos=i;
-		
-		}
-		if(nodePos==0)
-		{
-		siblingNodePos=1;//setting position for siblingNode
-		parentKey=parent.keys[0];
-		}
-		else 
-		{
-			siblingNodePos=nodePos-1;
-			parentKey=parent.keys[siblingNodePos];
-		}	
-		Node<K> siblingNode = (Node<K>)parent.pointers[siblingNodePos];//finding sibling node
-		if(node.numberOfKeys+siblingNode.numberOfKeys<=(degree-1))//checking if both can fit in same node
-		{
-			if(nodePos<siblingNodePos)//check if node has a previous or next child of parent node
-			{//swap using 3 variables
-				Node<K> t=node; //temp=n
-				node=siblingNode;//n=siblingNode
-				siblingNode=t;//siblingNode=temp
+		return (LeafNode<K, V>) node;
+	}
+
+	/**
+	 * Deletes the key at the specified index from the specified {@code Node} (together with its value if the
+	 * {@code Node} is a {@code LeafNode}, or with the pointer that follows it otherwise) and then merges or
+	 * redistributes the {@code Node} with a sibling if it has too few entries (refer to page 498 in the text book).
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @param i
+	 *            the index of the key to delete.
+	 * @param path
+	 *            the ancestors of the {@code Node} from the root; the parent of the {@code Node} is the last element.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void deleteEntry(Node<K> node, int i, java.util.List<NonLeafNode<K>> path) {
+		node.remove(i);
+		if (node instanceof NonLeafNode)
+			refresh((NonLeafNode<K>) node);
+		if (node == root) {
+			if (node instanceof NonLeafNode && node.numberOfKeys() == 0) { // if the root has only one child
+				root = ((NonLeafNode<K>) node).child(0); // make the child the root
+				rootReplaced((NonLeafNode<K>) node);
 			}
-			if(node instanceof LeafNode)//check if node is a LeafNode
-			{
-				siblingNode=node;//shifting values and keys from node to sibling Node
+			else if (node.numberOfKeys() == 0) // if the tree has become empty
+				root = null;
+			if (events != null && root != node)
+				publishRootChange();
+			return;
+		}
+		if (!tooFewEntries(node))
+			return;
+		NonLeafNode<K> parent = path.remove(path.size() - 1);
+		int j = parent.indexOf(node);
+		boolean left = j > 0; // use the previous sibling if there is one
+		int k = left ? j - 1 : j; // the index of the key between node and its sibling in parent
+		Node<K> sibling = parent.child(left ? j - 1 : j + 1);
+		Node<K> l = left ? sibling : node; // the left one of the two nodes
+		Node<K> r = left ? node : sibling; // the right one of the two nodes
+		int entries = l.numberOfKeys() + r.numberOfKeys() + (node instanceof NonLeafNode ? 1 : 0);
+		if (entries <= degree - 1) { // if the entries fit in a single node, merge r into l
+			if (l instanceof LeafNode)
+				((LeafNode<K, V>) l).merge((LeafNode<K, V>) r);
+			else {
+				((NonLeafNode<K>) l).merge(parent.key(k), (NonLeafNode<K>) r);
+				childrenMoved((NonLeafNode<K>) l, null, (NonLeafNode<K>) r);
 			}
-			else
-			{
-				siblingNode.keys[0]= parentKey;//shift node from parent to sibling node
-				siblingNode.numberOfKeys++;//increment number of keys of siblingNode
-				int j=0;
-				for(int i=0;i<siblingNode.pointers.length-1;i++)
-				{
-					siblingNode.pointers[i]=siblingNode.pointers[i+1];
-				}
-				for(int i=siblingNode.numberOfKeys;i<degree-1;i++)
-				{
-					siblingNode.keys[i]=node.keys[j];
-					siblingNode.pointers[i]=node.keys[j];
-					j++;
-				
+			if (l instanceof NonLeafNode)
+				refresh((NonLeafNode<K>) l);
+			if (metrics != null)
+				metrics.merges.increment();
+			if (events != null)
+				events.publish(TreeEvent.Type.MERGE, parent.key(k), null, l instanceof LeafNode, 0);
+			K separator = parent.key(k);
+			deleteEntry(parent, k, path); // remove the key between l and r as well as the pointer to r
+			if (r instanceof LeafNode) {
+				r.clear(); // a LearnedIndex recognizes a leaf node merged away by its lack of keys
+				if (learned != null)
+					learned.changed(separator, -1);
+			}
+		} else { // if redistribution is required, move an entry from the sibling to node
+			if (node instanceof LeafNode) {
+				if (left) {
+					((LeafNode<K, V>) node).insert(l.lastKey(), ((LeafNode<K, V>) l).value(l.numberOfKeys() - 1), 0);
+					l.remove(l.numberOfKeys() - 1);
+					parent.keys[k] = node.firstKey();
+				} else {
+					((LeafNode<K, V>) node).insert(r.firstKey(), ((LeafNode<K, V>) r).value(0), node.numberOfKeys());
+					r.remove(0);
+					parent.keys[k] = r.firstKey();
 				}
-				while(j>0)
-				{
-					siblingNode.numberOfKeys++;
-					j--;
+			} else {
+				NonLeafNode<K> n = (NonLeafNode<K>) node;
+				if (left) {
+					n.insertFirst(((NonLeafNode<K>) l).child(l.numberOfKeys()), parent.key(k));
+					parent.keys[k] = l.lastKey();
+					l.remove(l.numberOfKeys() - 1);
+				} else {
+					n.append(parent.key(k), ((NonLeafNode<K>) r).child(0));
+					parent.keys[k] = r.firstKey();
+					((NonLeafNode<K>) r).removeFirst();
 				}
 			}
-			delete_entry(parent,parentKey,null);//delete entry
-			
-		}
-		//Redistribution borrow an entry from N'
-		else if(nodePos>siblingNodePos)
-		{
-			if(node instanceof NonLeafNode)//check if node is a NonLeafNode
-			{
-				for(int i=0;i<degree-1;i++)//shifting the value and pointer of node
-				{
-					node.keys[i]=node.keys[i+1];
-					node.pointers[i]=node.pointers[i+1];		
-			}
-				node.keys[0]=parentKey;
-				node.numberOfKeys++;
-				parentKey=siblingNode.keys[1];
-				siblingNode.pointers[2]=null;//set siblingNode pointer to null
-				siblingNode.keys[1]=null;//set siblingNode key to null
-				siblingNode.numberOfKeys--;//decrement number of keys of siblingNode
-			}			
-			else
-			{
-				for(int i=0;i<degree-1;i++)
-				{
-					node.keys[i]=node.keys[i+1];
-					node.pointers[i]=node.pointers[i+1];		
+			if (node instanceof NonLeafNode) {
+				childrenMoved((NonLeafNode<K>) l, parent.key(k), (NonLeafNode<K>) r);
+				refresh((NonLeafNode<K>) node);
+				refresh((NonLeafNode<K>) sibling);
 			}
-			node.pointers[0]=siblingNode.pointers[1];
-			node.keys[0]=siblingNode.keys[1];
-			node.numberOfKeys++;//increment number of keys of node
-			siblingNode.numberOfKeys--;//decrement number of keys siblingNode
-			siblingNode.keys[1]=null;//removing the key
-			siblingNode.pointers[1]=null;//removing the pointer
-		}
+			refresh(parent);
+			if (metrics != null)
+				metrics.redistributions.increment();
+			if (events != null)
+				events.publish(TreeEvent.Type.BORROW, parent.key(k), null, node instanceof LeafNode, 0);
 		}
+	}
+
+	/**
+	 * Determines whether or not the specified {@code Node} (other than the root) has too few entries.
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @return {@code true} if a {@code LeafNode} has fewer than ceil((degree - 1) / 2) keys or a {@code NonLeafNode}
+	 *         has fewer than ceil(degree / 2) pointers; {@code false} otherwise.
+	 */
+	protected boolean tooFewEntries(Node<K> node) {
+		if (node instanceof LeafNode)
+			return node.numberOfKeys() < (int) Math.ceil((degree - 1) / 2.0);
 		else
-		{
-			if(node instanceof NonLeafNode)//check if node is a NonLeafNode
-			{
-				node.keys[node.numberOfKeys]=parentKey;
-				node.pointers[node.numberOfKeys+1]=siblingNode.pointers[0];
-				node.numberOfKeys++;
-				parentKey=siblingNode.keys[0];
-				for(int i=degree-2;i>0;i--)//shifting the value and pointer of siblingNode
-				{
-					siblingNode.keys[i-1]=siblingNode.keys[i];
-					siblingNode.pointers[i-1]=siblingNode.pointers[i];	
-					siblingNode.pointers[i]=siblingNode.pointers[i+1];
-			}
-				siblingNode.keys[1]=null;//removing the key
-				siblingNode.pointers[1]=null;//removing the pointer
-				siblingNode.numberOfKeys--;//decrement number of keys
-			}
-			else
-			{
-				node.keys[node.numberOfKeys]=siblingNode.keys[0];
-				node.pointers[node.numberOfKeys]=siblingNode.pointers[0];
-				node.numberOfKeys++;
-				
-				for(int i=degree-2;i>0;i--)
-				{
-					siblingNode.keys[i-1]=siblingNode.keys[i];
-					siblingNode.pointers[i-1]=siblingNode.pointers[i];	
-				}
-				siblingNode.keys[1]=null;//removing the key
-				siblingNode.pointers[1]=null;//removing the pointer
-				siblingNode.numberOfKeys--;//decrement number of keys
-				parentKey=siblingNode.keys[0];
-			}
-		}
-		}
+			return node.numberOfKeys() + 1 < (int) Math.ceil(degree / 2.0);
 	}
 
 }
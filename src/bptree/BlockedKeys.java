@@ -0,0 +1,133 @@
+package bptree;
+
+/**
+ * {@code BlockedKeys} hold a copy of the {@code Long} or {@code Integer} keys of a {@code NonLeafNode} as
+ * {@code long}s laid out in cache-line-sized blocks of {@link KeySearch#BLOCK} keys, so that a search reads one block
+ * per level of a small (BLOCK + 1)-ary search tree instead of following a chain of dependent comparisons. Level 0
+ * holds the keys in order, padded with {@code Long.MAX_VALUE} to one more than the capacity of the {@code NonLeafNode}
+ * rounded up to a whole block; each higher level holds the last key of every block of the level below, until a level
+ * fits in a single block. The levels are stored from the top down in one array, so the first few blocks visited by
+ * every search are adjacent. The number of keys smaller than a probe is found by counting, in the single top block, the
+ * keys smaller than the probe and, on each lower level, those in the block that this count selects.
+ */
+public class BlockedKeys {
+
+	/**
+	 * The levels from the top down.
+	 */
+	protected long[] layout;
+
+	/**
+	 * The index in {@link #layout} at which each level begins (from the top down; the last is level 0).
+	 */
+	protected int[] offsets;
+
+	/**
+	 * The kernel that searches a block.
+	 */
+	protected KeySearch search;
+
+	/**
+	 * Constructs {@code BlockedKeys}.
+	 * 
+	 * @param capacity
+	 *            the maximum number of keys.
+	 * @param search
+	 *            the kernel that searches a block.
+	 */
+	public BlockedKeys(int capacity, KeySearch search) {
+		this.search = search;
+		int slots = capacity + 1; // the last block of level 0 ends with Long.MAX_VALUE, so no search passes it
+		int levels = 1;
+		for (int n = blocks(slots); n > 1; n = blocks(n))
+			levels++;
+		int[] lengths = new int[levels]; // the padded length of each level from the bottom up
+		for (int l = 0, n = slots; l < levels; l++, n = blocks(n))
+			lengths[l] = blocks(n) * KeySearch.BLOCK;
+		offsets = new int[levels];
+		int length = 0;
+		for (int l = levels - 1; l >= 0; l--) {
+			offsets[levels - 1 - l] = length;
+			length += lengths[l];
+		}
+		layout = new long[length];
+	}
+
+	/**
+	 * Returns the number of blocks needed for the specified number of keys.
+	 * 
+	 * @param n
+	 *            a number of keys.
+	 * @return the number of blocks needed for the specified number of keys.
+	 */
+	protected static int blocks(int n) {
+		return Math.max(1, (n + KeySearch.BLOCK - 1) / KeySearch.BLOCK);
+	}
+
+	/**
+	 * Copies the specified keys into these {@code BlockedKeys} and rebuilds the upper levels.
+	 * 
+	 * @param keys
+	 *            the keys in order.
+	 * @param n
+	 *            the number of keys (at most the capacity).
+	 * @return {@code true} if all keys are {@code Long}s or {@code Integer}s (and have been copied); {@code false}
+	 *         otherwise.
+	 */
+	public boolean update(Object[] keys, int n) {
+		int base = offsets[offsets.length - 1];
+		for (int i = 0; i < n; i++) {
+			Object key = keys[i];
+			if (key instanceof Long)
+				layout[base + i] = (Long) key;
+			else if (key instanceof Integer)
+				layout[base + i] = (Integer) key;
+			else
+				return false;
+		}
+		java.util.Arrays.fill(layout, base + n, layout.length, Long.MAX_VALUE);
+		for (int l = offsets.length - 2; l >= 0; l--) { // each level takes the last key of every block below
+			int below = offsets[l + 1];
+			int blocks = ((l + 2 < offsets.length ? offsets[l + 2] : layout.length) - below) / KeySearch.BLOCK;
+			for (int i = 0; i < below - offsets[l]; i++)
+				layout[offsets[l] + i] = i < blocks ? layout[below + i * KeySearch.BLOCK + KeySearch.BLOCK - 1]
+						: Long.MAX_VALUE;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of keys that are smaller than the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the number of keys that are smaller than the specified key.
+	 */
+	public int countLess(long key) {
+		int count = 0;
+		for (int l = 0; l < offsets.length; l++)
+			count = count * KeySearch.BLOCK + search.countLess(layout, offsets[l] + count * KeySearch.BLOCK, key);
+		return count;
+	}
+
+	/**
+	 * Returns the key at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the key.
+	 * @return the key at the specified index ({@code Long.MAX_VALUE} beyond the last key).
+	 */
+	public long key(int i) {
+		return layout[offsets[offsets.length - 1] + i];
+	}
+
+	/**
+	 * Returns the kernel that searches a block.
+	 * 
+	 * @return the kernel that searches a block.
+	 */
+	public KeySearch search() {
+		return search;
+	}
+
+}
@@ -0,0 +1,438 @@
+package bptree;
+
+/**
+ * A {@code BufferedBPlusTree} is a {@code BPlusTree} that accepts insertions, replacements and deletions as messages
+ * in the {@code MessageBuffer} of the root. Messages move down one level, in sorted batches, whenever a
+ * {@code MessageBuffer} fills up, and the messages that reach the parents of {@code LeafNode}s are applied in key
+ * order, so consecutive ones share most of their path. {@link #insert(Comparable, Object)},
+ * {@link #upsert(Comparable, Object)} and {@link #delete(Comparable, Object)} are blind writes that read no
+ * {@code LeafNode}; {@link #put(Comparable, Object)} looks up the previous value first, which it returns.
+ * <p>
+ * Lookups replay the messages for their key found along the path on the entries of the {@code LeafNode}, so they see
+ * every accepted change. Range scans, counts and other operations that read many {@code LeafNode}s first
+ * {@link #flush()} all messages. Listeners are notified of the changes when the messages are applied. The
+ * {@code Node}s returned by {@link #find(Comparable)}, {@link #firstLeaf()} and {@link #root()} only hold the applied
+ * entries.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class BufferedBPlusTree<K extends Comparable<K>, V> extends BPlusTree<K, V> {
+
+	/**
+	 * The number of messages that the {@code MessageBuffer} of a {@code NonLeafNode} accumulates before they are
+	 * flushed to its children.
+	 */
+	protected int bufferCapacity;
+
+	/**
+	 * The number of messages accepted but not yet applied to the {@code LeafNode}s.
+	 */
+	protected long pendingMessages;
+
+	/**
+	 * The messages left over when the root {@code NonLeafNode} was replaced by a {@code LeafNode}; {@code null} if
+	 * there are none.
+	 */
+	protected MessageBuffer<K> unrouted;
+
+	/**
+	 * Constructs a {@code BufferedBPlusTree}.
+	 * 
+	 * @param degree
+	 *            the maximum number of pointers that each {@code Node} of this {@code BufferedBPlusTree} can have.
+	 * @param capacity
+	 *            the number of messages that a {@code MessageBuffer} accumulates before it is flushed (e.g., 4 times
+	 *            the degree).
+	 */
+	public BufferedBPlusTree(int degree, int capacity) {
+		super(degree);
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity: " + capacity);
+		this.bufferCapacity = capacity;
+	}
+
+	/**
+	 * Copy-constructs a {@code BufferedBPlusTree}. The pending messages of the other {@code BufferedBPlusTree} are
+	 * applied first.
+	 * 
+	 * @param tree
+	 *            another {@code BufferedBPlusTree} to copy from.
+	 */
+	public BufferedBPlusTree(BufferedBPlusTree<K, V> tree) {
+		super(tree);
+		this.bufferCapacity = tree.bufferCapacity;
+	}
+
+	/**
+	 * Accepts the insertion of the specified key and the value as a message (or, while the root is a
+	 * {@code LeafNode}, inserts them at once).
+	 * 
+	 * @param key
+	 *            the key to insert.
+	 * @param value
+	 *            the value to insert.
+	 */
+	@Override
+	public void insert(K key, V value) {
+		if (!(root instanceof NonLeafNode)) {
+			super.insert(key, value);
+			return;
+		}
+		long start = metrics == null ? 0 : metrics.startTimer();
+		enqueue(MessageBuffer.Type.INSERT, key, value);
+		if (metrics != null)
+			metrics.stopTimer(metrics.insertLatency, start);
+	}
+
+	/**
+	 * Looks up the value associated with the specified key and accepts the replacement of that value as a message.
+	 * {@link #upsert(Comparable, Object)} makes the same change without the lookup.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value to associate with the key.
+	 * @return the previous value associated with the key; {@code null} if the key was not found.
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (!(root instanceof NonLeafNode))
+			return super.put(key, value);
+		V previous = lookup(key);
+		enqueue(MessageBuffer.Type.PUT, key, value);
+		return previous;
+	}
+
+	/**
+	 * Determines whether or not lookups change the state of this {@code BufferedBPlusTree}, which is always the case
+	 * since lookups sort the {@code MessageBuffer}s that they read.
+	 * 
+	 * @return {@code true}.
+	 */
+	@Override
+	public boolean hasMutatingLookups() {
+		return true;
+	}
+
+	/**
+	 * Accepts the association of the specified value with the specified key as a message, without reading the
+	 * {@code LeafNode} of the key.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value to associate with the key.
+	 */
+	@Override
+	public void upsert(K key, V value) {
+		if (root instanceof NonLeafNode)
+			enqueue(MessageBuffer.Type.PUT, key, value);
+		else
+			super.upsert(key, value);
+	}
+
+	/**
+	 * Accepts the deletion of the specified key and the value as a message (or, while the root is a {@code LeafNode},
+	 * deletes them at once).
+	 * 
+	 * @param key
+	 *            the key to delete.
+	 * @param value
+	 *            the value to delete; {@code null} to delete the first entry with the specified key.
+	 * @return {@code true} if the deletion has been accepted as a message or an entry was deleted; {@code false} if
+	 *         no entry has the specified key and value.
+	 */
+	@Override
+	public boolean delete(K key, V value) {
+		if (!(root instanceof NonLeafNode))
+			return super.delete(key, value);
+		long start = metrics == null ? 0 : metrics.startTimer();
+		enqueue(MessageBuffer.Type.DELETE, key, value);
+		if (metrics != null)
+			metrics.stopTimer(metrics.deleteLatency, start);
+		return true;
+	}
+
+	/**
+	 * Returns the value associated with the specified key, replaying the pending messages for the key (if any) on the
+	 * entries of its {@code LeafNode}.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	@Override
+	protected V lookup(K key) {
+		return pendingMessages > 0 ? lookupBuffered(key) : super.lookup(key);
+	}
+
+	/**
+	 * Returns the number of messages that a {@code MessageBuffer} accumulates before it is flushed.
+	 * 
+	 * @return the number of messages that a {@code MessageBuffer} accumulates before it is flushed.
+	 */
+	public int bufferCapacity() {
+		return bufferCapacity;
+	}
+
+	/**
+	 * Returns the number of messages accepted but not yet applied to the {@code LeafNode}s.
+	 * 
+	 * @return the number of messages accepted but not yet applied to the {@code LeafNode}s.
+	 */
+	public long pendingMessages() {
+		return pendingMessages;
+	}
+
+	/**
+	 * Applies all pending messages to the {@code LeafNode}s.
+	 */
+	@Override
+	public void flush() {
+		while (pendingMessages > 0 && root instanceof NonLeafNode)
+			flushAll((NonLeafNode<K>) root);
+		applyUnrouted();
+	}
+
+	/**
+	 * Adds the specified message to the {@code MessageBuffer} of the root, which must be a {@code NonLeafNode}, and
+	 * flushes it if it is full.
+	 * 
+	 * @param type
+	 *            the type of the message.
+	 * @param key
+	 *            the key of the message.
+	 * @param value
+	 *            the value of the message.
+	 */
+	protected void enqueue(MessageBuffer.Type type, K key, V value) {
+		if (cache != null)
+			cache.invalidate(key);
+		NonLeafNode<K> r = (NonLeafNode<K>) root;
+		if (r.buffer == null)
+			r.buffer = new MessageBuffer<K>(bufferCapacity);
+		r.buffer.add(type, key, value);
+		pendingMessages++;
+		if (r.buffer.size() >= bufferCapacity) {
+			flush(r);
+			applyUnrouted();
+		}
+	}
+
+	/**
+	 * Moves the messages of the specified {@code NonLeafNode} to its children: each child {@code NonLeafNode} receives
+	 * the run of messages in its key range (and is flushed in turn if it becomes full), and the messages for child
+	 * {@code LeafNode}s are applied in key order. The {@code MessageBuffer} is detached first, so the
+	 * {@code NonLeafNode} (and, while a flush cascades down from the root, each of its ancestors) has no messages when
+	 * the {@code LeafNode}s split or merge.
+	 * 
+	 * @param node
+	 *            a {@code NonLeafNode}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void flush(NonLeafNode<K> node) {
+		MessageBuffer<K> messages = node.buffer;
+		node.buffer = null;
+		if (messages == null)
+			return;
+		if (node.child(0) instanceof LeafNode) {
+			for (int i = 0; i < messages.size(); i++) {
+				MessageBuffer.Message<K> m = messages.message(i);
+				pendingMessages--;
+				apply(m.type(), m.key(), (V) m.value());
+			}
+			return;
+		}
+		java.util.ArrayList<NonLeafNode<K>> full = new java.util.ArrayList<NonLeafNode<K>>();
+		for (int b = 0, e; b < messages.size(); b = e) {
+			int c = node.childIndex(messages.message(b).key()); // child c holds the keys from key(c - 1) up to key(c)
+			e = c == node.numberOfKeys() ? messages.size() : messages.search(node.key(c), true);
+			NonLeafNode<K> child = (NonLeafNode<K>) node.child(c);
+			if (child.buffer == null)
+				child.buffer = new MessageBuffer<K>(bufferCapacity);
+			child.buffer.addAll(messages, b, e);
+			if (child.buffer.size() >= bufferCapacity)
+				full.add(child);
+		}
+		for (NonLeafNode<K> child : full) {
+			if (child.buffer != null && child.buffer.size() >= bufferCapacity) // unless merged away meanwhile
+				flush(child);
+		}
+	}
+
+	/**
+	 * Flushes the messages in the specified subtree from the top down.
+	 * 
+	 * @param node
+	 *            the root of a subtree.
+	 */
+	protected void flushAll(NonLeafNode<K> node) {
+		flush(node);
+		if (node.child(0) instanceof NonLeafNode) {
+			Node<K>[] children = java.util.Arrays.copyOf(node.children, node.numberOfKeys() + 1);
+			for (Node<K> child : children)
+				flushAll((NonLeafNode<K>) child);
+		}
+	}
+
+	/**
+	 * Applies the messages left over when the root {@code NonLeafNode} was replaced by a {@code LeafNode}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void applyUnrouted() {
+		while (unrouted != null) {
+			MessageBuffer<K> messages = unrouted;
+			unrouted = null;
+			for (int i = 0; i < messages.size(); i++) {
+				MessageBuffer.Message<K> m = messages.message(i);
+				pendingMessages--;
+				apply(m.type(), m.key(), (V) m.value());
+			}
+		}
+	}
+
+	/**
+	 * Applies the specified message to the {@code LeafNode}s.
+	 * 
+	 * @param type
+	 *            the type of the message.
+	 * @param key
+	 *            the key of the message.
+	 * @param value
+	 *            the value of the message.
+	 */
+	protected void apply(MessageBuffer.Type type, K key, V value) {
+		switch (type) {
+		case INSERT:
+			applyInsert(key, value);
+			break;
+		case PUT:
+			applyPut(key, value);
+			break;
+		case DELETE:
+			applyDelete(key, value);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Redistributes the messages of two sibling {@code NonLeafNode}s after their children have been split between
+	 * them, redistributed or merged.
+	 * 
+	 * @param left
+	 *            a {@code NonLeafNode}.
+	 * @param separator
+	 *            the key that now separates the two {@code NonLeafNode}s; {@code null} if the right one has been
+	 *            merged into the left one.
+	 * @param right
+	 *            the next sibling of the left {@code NonLeafNode}.
+	 */
+	@Override
+	protected void childrenMoved(NonLeafNode<K> left, K separator, NonLeafNode<K> right) {
+		if (right.buffer != null) {
+			if (left.buffer == null)
+				left.buffer = new MessageBuffer<K>(bufferCapacity);
+			left.buffer.addAll(right.buffer, 0, right.buffer.size());
+			right.buffer = null;
+		}
+		if (separator != null && left.buffer != null)
+			right.buffer = left.buffer.split(separator);
+	}
+
+	/**
+	 * Passes the messages of the specified former root to the new root.
+	 * 
+	 * @param node
+	 *            the former root, which had a single child.
+	 */
+	@Override
+	protected void rootReplaced(NonLeafNode<K> node) {
+		if (node.buffer == null)
+			return;
+		// the messages of the former root are newer than those of its child
+		MessageBuffer<K> target;
+		if (root instanceof NonLeafNode) {
+			NonLeafNode<K> r = (NonLeafNode<K>) root;
+			if (r.buffer == null)
+				r.buffer = new MessageBuffer<K>(bufferCapacity);
+			target = r.buffer;
+		} else {
+			if (unrouted == null)
+				unrouted = new MessageBuffer<K>(bufferCapacity);
+			target = unrouted;
+		}
+		target.addAll(node.buffer, 0, node.buffer.size());
+		node.buffer = null;
+	}
+
+	/**
+	 * Returns the value associated with the specified key, taking into account the pending messages on the path to
+	 * the {@code LeafNode}: they are replayed from the oldest (deepest) to the newest on the values of the entries with
+	 * the key in the {@code LeafNode}.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	@SuppressWarnings("unchecked")
+	protected V lookupBuffered(K key) {
+		java.util.ArrayList<MessageBuffer.Message<K>> messages = null; // the messages for the key, top down
+		java.util.ArrayList<Integer> starts = null; // the index in messages where each buffer's messages start
+		Node<K> c = root;
+		while (c instanceof NonLeafNode) {
+			NonLeafNode<K> n = (NonLeafNode<K>) c;
+			if (n.buffer != null) {
+				if (messages == null) {
+					messages = new java.util.ArrayList<MessageBuffer.Message<K>>();
+					starts = new java.util.ArrayList<Integer>();
+				}
+				starts.add(messages.size());
+				n.buffer.collect(key, messages);
+			}
+			c = n.child(key);
+		}
+		LeafNode<K, V> leaf = (LeafNode<K, V>) c;
+		int i = leaf == null ? -1 : leaf.findIndex(key);
+		if (i < 0 && leaf != null && startOfRun(leaf, key) != null) {
+			leaf = leaf.successor();
+			i = 0;
+		}
+		if (messages == null || messages.isEmpty())
+			return i < 0 ? null : leaf.value(i);
+		java.util.LinkedList<Object> values = new java.util.LinkedList<Object>(); // the run of the key
+		for (; i >= 0 && leaf != null; leaf = startOfRun(leaf, key), i = 0)
+			for (int j = i; j < leaf.numberOfKeys() && leaf.key(j).compareTo(key) == 0; j++)
+				values.add(leaf.value(j));
+		for (int b = starts.size() - 1, end = messages.size(); b >= 0; end = starts.get(b--)) { // the oldest first
+			for (int j = starts.get(b); j < end; j++) {
+				MessageBuffer.Message<K> message = messages.get(j);
+				switch (message.type()) {
+				case INSERT: // a new entry precedes the entries with the same key (see LeafNode.insert)
+					values.addFirst(message.value());
+					break;
+				case PUT:
+					if (values.isEmpty())
+						values.add(message.value());
+					else
+						values.set(0, message.value());
+					break;
+				case DELETE:
+					if (message.value() == null)
+						values.poll();
+					else
+						values.remove(message.value());
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return (V) values.peek();
+	}
+
+}
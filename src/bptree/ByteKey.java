@@ -0,0 +1,320 @@
+package bptree;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@code ByteKey} is a composite key (e.g., a (tenant, timestamp, id) tuple) encoded into bytes whose unsigned
+ * lexicographic order is the order of the tuples, so {@link #compareTo(ByteKey)} is a single
+ * {@code Arrays.compareUnsigned} over the encodings with no decoding or allocation. A {@code ByteKey} is built with a
+ * {@link Builder}, which encodes each component as follows:
+ * <ul>
+ * <li>{@code int} and {@code long}: big-endian two's complement with the sign bit flipped,</li>
+ * <li>{@code String} (as UTF-8) and {@code byte[]}: each 0x00 byte escaped as 0x00 0xFF and the component terminated
+ * by 0x00 0x01, so a component sorts before every longer component that it is a prefix of.</li>
+ * </ul>
+ * The encoding of a tuple is a prefix of the encoding of every longer tuple that extends it, so all keys that start
+ * with some components lie in the range from the {@code ByteKey} of those components to its {@link #prefixEnd()} (see
+ * {@link #scanPrefix(BPlusTree, ByteKey, java.util.function.BiConsumer)}).
+ */
+public class ByteKey implements Comparable<ByteKey> {
+
+	/**
+	 * The encoding of this {@code ByteKey}.
+	 */
+	protected final byte[] bytes;
+
+	/**
+	 * Constructs a {@code ByteKey}.
+	 * 
+	 * @param bytes
+	 *            the encoding of the {@code ByteKey} (which is not copied).
+	 */
+	public ByteKey(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Returns a new {@code Builder}.
+	 * 
+	 * @return a new {@code Builder}.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Returns the encoding of this {@code ByteKey}.
+	 * 
+	 * @return the encoding of this {@code ByteKey} (which must not be modified).
+	 */
+	public byte[] bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns a {@code Reader} that decodes the components of this {@code ByteKey} in order.
+	 * 
+	 * @return a {@code Reader} positioned at the first component.
+	 */
+	public Reader reader() {
+		return new Reader(bytes);
+	}
+
+	/**
+	 * Determines whether or not this {@code ByteKey} starts with the specified {@code ByteKey}.
+	 * 
+	 * @param prefix
+	 *            a {@code ByteKey}.
+	 * @return {@code true} if the encoding of this {@code ByteKey} starts with that of the specified {@code ByteKey};
+	 *         {@code false} otherwise.
+	 */
+	public boolean startsWith(ByteKey prefix) {
+		return prefix.bytes.length <= bytes.length
+				&& java.util.Arrays.equals(bytes, 0, prefix.bytes.length, prefix.bytes, 0, prefix.bytes.length);
+	}
+
+	/**
+	 * Returns the smallest {@code ByteKey} that is greater than every {@code ByteKey} starting with this
+	 * {@code ByteKey}.
+	 * 
+	 * @return the smallest {@code ByteKey} that is greater than every {@code ByteKey} starting with this
+	 *         {@code ByteKey}; {@code null} if there is no such {@code ByteKey} (all bytes are 0xFF).
+	 */
+	public ByteKey prefixEnd() {
+		int n = bytes.length;
+		while (n > 0 && bytes[n - 1] == (byte) 0xFF)
+			n--;
+		if (n == 0)
+			return null;
+		byte[] end = java.util.Arrays.copyOf(bytes, n);
+		end[n - 1]++;
+		return new ByteKey(end);
+	}
+
+	/**
+	 * Passes the entries of the specified {@code BPlusTree} whose keys start with the specified {@code ByteKey} to the
+	 * specified action in key order (e.g., all rows of a tenant, or of a tenant within a time window when the prefix
+	 * ends with the timestamp; for a time window, scan from the {@code ByteKey} of the start to that of the end).
+	 * 
+	 * @param <V>
+	 *            the type of values
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param prefix
+	 *            the encoding of the leading components.
+	 * @param action
+	 *            the action to perform on each key and value.
+	 * @return the number of entries passed to the action.
+	 */
+	public static <V> long scanPrefix(BPlusTree<ByteKey, V> tree, ByteKey prefix,
+			java.util.function.BiConsumer<? super ByteKey, ? super V> action) {
+		return tree.scan(prefix, prefix.prefixEnd(), action);
+	}
+
+	@Override
+	public int compareTo(ByteKey o) {
+		return java.util.Arrays.compareUnsigned(bytes, o.bytes);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof ByteKey && java.util.Arrays.equals(bytes, ((ByteKey) o).bytes);
+	}
+
+	@Override
+	public int hashCode() {
+		return java.util.Arrays.hashCode(bytes);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder(bytes.length * 2);
+		for (byte x : bytes)
+			b.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+		return b.toString();
+	}
+
+	/**
+	 * A {@code Builder} encodes the components of a {@code ByteKey} in order.
+	 */
+	public static class Builder {
+
+		/**
+		 * The encoding so far.
+		 */
+		protected byte[] buffer = new byte[32];
+
+		/**
+		 * The number of bytes in the encoding so far.
+		 */
+		protected int length;
+
+		/**
+		 * Appends an {@code int} component.
+		 * 
+		 * @param v
+		 *            an {@code int}.
+		 * @return this {@code Builder}.
+		 */
+		public Builder add(int v) {
+			ensure(4);
+			v ^= Integer.MIN_VALUE; // negative numbers sort before positive ones
+			for (int shift = 24; shift >= 0; shift -= 8)
+				buffer[length++] = (byte) (v >>> shift);
+			return this;
+		}
+
+		/**
+		 * Appends a {@code long} component.
+		 * 
+		 * @param v
+		 *            a {@code long}.
+		 * @return this {@code Builder}.
+		 */
+		public Builder add(long v) {
+			ensure(8);
+			v ^= Long.MIN_VALUE; // negative numbers sort before positive ones
+			for (int shift = 56; shift >= 0; shift -= 8)
+				buffer[length++] = (byte) (v >>> shift);
+			return this;
+		}
+
+		/**
+		 * Appends a {@code String} component.
+		 * 
+		 * @param s
+		 *            a {@code String}.
+		 * @return this {@code Builder}.
+		 */
+		public Builder add(String s) {
+			return add(s.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Appends a {@code byte[]} component.
+		 * 
+		 * @param b
+		 *            a {@code byte[]}.
+		 * @return this {@code Builder}.
+		 */
+		public Builder add(byte[] b) {
+			ensure(b.length * 2 + 2);
+			for (byte x : b) {
+				buffer[length++] = x;
+				if (x == 0)
+					buffer[length++] = (byte) 0xFF;
+			}
+			buffer[length++] = 0;
+			buffer[length++] = 1;
+			return this;
+		}
+
+		/**
+		 * Returns a {@code ByteKey} of the components appended so far. This {@code Builder} can then be used to append
+		 * more components for a longer {@code ByteKey}.
+		 * 
+		 * @return a {@code ByteKey} of the components appended so far.
+		 */
+		public ByteKey build() {
+			return new ByteKey(java.util.Arrays.copyOf(buffer, length));
+		}
+
+		/**
+		 * Makes room for the specified number of bytes.
+		 * 
+		 * @param n
+		 *            the number of bytes.
+		 */
+		protected void ensure(int n) {
+			if (length + n > buffer.length)
+				buffer = java.util.Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + n));
+		}
+
+	}
+
+	/**
+	 * A {@code Reader} decodes the components of a {@code ByteKey} in order. The caller must know the types of the
+	 * components since the encoding does not record them.
+	 */
+	public static class Reader {
+
+		/**
+		 * The encoding.
+		 */
+		protected byte[] bytes;
+
+		/**
+		 * The position of the next component.
+		 */
+		protected int position;
+
+		/**
+		 * Constructs a {@code Reader}.
+		 * 
+		 * @param bytes
+		 *            the encoding.
+		 */
+		protected Reader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Determines whether or not there are more components.
+		 * 
+		 * @return {@code true} if there are more components; {@code false} otherwise.
+		 */
+		public boolean hasMore() {
+			return position < bytes.length;
+		}
+
+		/**
+		 * Decodes an {@code int} component.
+		 * 
+		 * @return the {@code int}.
+		 */
+		public int readInt() {
+			int v = 0;
+			for (int i = 0; i < 4; i++)
+				v = (v << 8) | (bytes[position++] & 0xFF);
+			return v ^ Integer.MIN_VALUE;
+		}
+
+		/**
+		 * Decodes a {@code long} component.
+		 * 
+		 * @return the {@code long}.
+		 */
+		public long readLong() {
+			long v = 0;
+			for (int i = 0; i < 8; i++)
+				v = (v << 8) | (bytes[position++] & 0xFF);
+			return v ^ Long.MIN_VALUE;
+		}
+
+		/**
+		 * Decodes a {@code String} component.
+		 * 
+		 * @return the {@code String}.
+		 */
+		public String readString() {
+			return new String(readBytes(), StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Decodes a {@code byte[]} component.
+		 * 
+		 * @return the {@code byte[]}.
+		 */
+		public byte[] readBytes() {
+			java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+			while (true) {
+				byte x = bytes[position++];
+				if (x == 0 && bytes[position++] == 1) // if the terminator is reached (0x00 0xFF is an escaped 0x00)
+					return out.toByteArray();
+				out.write(x);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package bptree;
+
+/**
+ * A {@code ChangeBatch} is a sequence of insertions and deletions with consecutive sequence numbers, i.e., the unit in
+ * which a change log is shipped from a leader {@code BPlusTree} to its followers.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class ChangeBatch<K, V> {
+
+	/**
+	 * The sequence number of the first change.
+	 */
+	protected long firstSequence;
+
+	/**
+	 * The number of changes.
+	 */
+	protected int size;
+
+	/**
+	 * A flag for each change indicating whether the change is a deletion (rather than an insertion).
+	 */
+	protected boolean[] deletes;
+
+	/**
+	 * The key of each change.
+	 */
+	protected Object[] keys;
+
+	/**
+	 * The value of each change.
+	 */
+	protected Object[] values;
+
+	/**
+	 * Constructs an empty {@code ChangeBatch}.
+	 * 
+	 * @param firstSequence
+	 *            the sequence number of the first change.
+	 * @param capacity
+	 *            the initial number of changes that the {@code ChangeBatch} can hold.
+	 */
+	public ChangeBatch(long firstSequence, int capacity) {
+		this.firstSequence = firstSequence;
+		deletes = new boolean[Math.max(1, capacity)];
+		keys = new Object[deletes.length];
+		values = new Object[deletes.length];
+	}
+
+	/**
+	 * Appends a change to this {@code ChangeBatch}.
+	 * 
+	 * @param delete
+	 *            {@code true} for a deletion; {@code false} for an insertion.
+	 * @param key
+	 *            the key of the change.
+	 * @param value
+	 *            the value of the change.
+	 */
+	public void add(boolean delete, K key, V value) {
+		if (size == deletes.length) {
+			deletes = java.util.Arrays.copyOf(deletes, 2 * size);
+			keys = java.util.Arrays.copyOf(keys, 2 * size);
+			values = java.util.Arrays.copyOf(values, 2 * size);
+		}
+		deletes[size] = delete;
+		keys[size] = key;
+		values[size++] = value;
+	}
+
+	/**
+	 * Appends the changes of the specified {@code ChangeBatch}, which must immediately follow those of this
+	 * {@code ChangeBatch}.
+	 * 
+	 * @param batch
+	 *            a {@code ChangeBatch}.
+	 * @throws IllegalArgumentException
+	 *             if the sequence numbers of the specified {@code ChangeBatch} do not follow those of this
+	 *             {@code ChangeBatch}.
+	 */
+	public void addAll(ChangeBatch<K, V> batch) {
+		if (batch.firstSequence != firstSequence + size)
+			throw new IllegalArgumentException("expected sequence number " + (firstSequence + size) + ", found "
+					+ batch.firstSequence);
+		for (int i = 0; i < batch.size; i++)
+			add(batch.deletes[i], batch.key(i), batch.value(i));
+	}
+
+	/**
+	 * Returns the sequence number of the first change in this {@code ChangeBatch}.
+	 * 
+	 * @return the sequence number of the first change in this {@code ChangeBatch}.
+	 */
+	public long firstSequence() {
+		return firstSequence;
+	}
+
+	/**
+	 * Returns the sequence number of the last change in this {@code ChangeBatch}.
+	 * 
+	 * @return the sequence number of the last change in this {@code ChangeBatch}.
+	 */
+	public long lastSequence() {
+		return firstSequence + size - 1;
+	}
+
+	/**
+	 * Returns the number of changes in this {@code ChangeBatch}.
+	 * 
+	 * @return the number of changes in this {@code ChangeBatch}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determines whether or not the specified change is a deletion.
+	 * 
+	 * @param i
+	 *            the index of the change.
+	 * @return {@code true} if the specified change is a deletion; {@code false} if it is an insertion.
+	 */
+	public boolean isDelete(int i) {
+		return deletes[i];
+	}
+
+	/**
+	 * Returns the key of the specified change.
+	 * 
+	 * @param i
+	 *            the index of the change.
+	 * @return the key of the specified change.
+	 */
+	@SuppressWarnings("unchecked")
+	public K key(int i) {
+		return (K) keys[i];
+	}
+
+	/**
+	 * Returns the value of the specified change.
+	 * 
+	 * @param i
+	 *            the index of the change.
+	 * @return the value of the specified change.
+	 */
+	@SuppressWarnings("unchecked")
+	public V value(int i) {
+		return (V) values[i];
+	}
+
+}
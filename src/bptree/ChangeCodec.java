@@ -0,0 +1,151 @@
+package bptree;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@code ChangeCodec} writes and reads the keys or values of a change log in binary form.
+ * 
+ * @param <T>
+ *            the type of the objects written and read
+ */
+public interface ChangeCodec<T> {
+
+	/**
+	 * A {@code ChangeCodec} for {@code Long}s, which writes each number as a zigzag variable-length integer (1 byte
+	 * for numbers between -64 and 63, up to 10 bytes).
+	 */
+	public static final ChangeCodec<Long> LONG = new ChangeCodec<Long>() {
+
+		@Override
+		public void write(Long t, DataOutput out) throws IOException {
+			writeVarLong(t, out);
+		}
+
+		@Override
+		public Long read(DataInput in) throws IOException {
+			return readVarLong(in);
+		}
+
+	};
+
+	/**
+	 * A {@code ChangeCodec} for {@code Integer}s, which writes each number as a zigzag variable-length integer.
+	 */
+	public static final ChangeCodec<Integer> INTEGER = new ChangeCodec<Integer>() {
+
+		@Override
+		public void write(Integer t, DataOutput out) throws IOException {
+			writeVarLong(t, out);
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			return (int) readVarLong(in);
+		}
+
+	};
+
+	/**
+	 * A {@code ChangeCodec} for {@code String}s, which writes each string in modified UTF-8.
+	 */
+	public static final ChangeCodec<String> STRING = new ChangeCodec<String>() {
+
+		@Override
+		public void write(String t, DataOutput out) throws IOException {
+			out.writeUTF(t);
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			return in.readUTF();
+		}
+
+	};
+
+	/**
+	 * A {@code ChangeCodec} for {@code ByteKey}s, which writes the length of each encoding as a variable-length integer
+	 * followed by the encoding.
+	 */
+	public static final ChangeCodec<ByteKey> BYTE_KEY = new ChangeCodec<ByteKey>() {
+
+		@Override
+		public void write(ByteKey t, DataOutput out) throws IOException {
+			writeVarLong(t.bytes().length, out);
+			out.write(t.bytes());
+		}
+
+		@Override
+		public ByteKey read(DataInput in) throws IOException {
+			byte[] bytes = new byte[(int) readVarLong(in)];
+			in.readFully(bytes);
+			return new ByteKey(bytes);
+		}
+
+	};
+
+	/**
+	 * Writes the specified object.
+	 * 
+	 * @param t
+	 *            an object (not {@code null}).
+	 * @param out
+	 *            the {@code DataOutput} to write to.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	void write(T t, DataOutput out) throws IOException;
+
+	/**
+	 * Reads an object.
+	 * 
+	 * @param in
+	 *            the {@code DataInput} to read from.
+	 * @return the object read.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	T read(DataInput in) throws IOException;
+
+	/**
+	 * Writes the specified number as a zigzag variable-length integer (7 bits per byte, least significant group
+	 * first).
+	 * 
+	 * @param v
+	 *            a number.
+	 * @param out
+	 *            the {@code DataOutput} to write to.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	static void writeVarLong(long v, DataOutput out) throws IOException {
+		long z = (v << 1) ^ (v >> 63); // small magnitudes become small unsigned numbers
+		while ((z & ~0x7FL) != 0) {
+			out.writeByte((int) (z & 0x7F) | 0x80);
+			z >>>= 7;
+		}
+		out.writeByte((int) z);
+	}
+
+	/**
+	 * Reads a zigzag variable-length integer.
+	 * 
+	 * @param in
+	 *            the {@code DataInput} to read from.
+	 * @return the number read.
+	 * @throws IOException
+	 *             if an I/O error occurs or the number is longer than 10 bytes.
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long z = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readByte();
+			z |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return (z >>> 1) ^ -(z & 1);
+		}
+		throw new java.io.StreamCorruptedException("variable-length integer too long");
+	}
+
+}
@@ -0,0 +1,147 @@
+package bptree;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * A {@code ChangeLogReader} reads the frames of a change log written by a {@code ChangeLogWriter}, verifying the
+ * checksum of each frame and the continuity of sequence numbers across frames.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class ChangeLogReader<K, V> implements java.io.Closeable {
+
+	/**
+	 * The stream from which frames are read.
+	 */
+	protected DataInputStream in;
+
+	/**
+	 * The {@code ChangeCodec} for keys.
+	 */
+	protected ChangeCodec<K> keyCodec;
+
+	/**
+	 * The {@code ChangeCodec} for values.
+	 */
+	protected ChangeCodec<V> valueCodec;
+
+	/**
+	 * The payload of the current frame.
+	 */
+	protected byte[] payload = new byte[1 << 16];
+
+	/**
+	 * The checksum of payloads.
+	 */
+	protected java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+
+	/**
+	 * The sequence number expected for the next change; -1 if any sequence number is accepted.
+	 */
+	protected long nextSequence;
+
+	/**
+	 * Constructs a {@code ChangeLogReader} that accepts a change log starting at any sequence number.
+	 * 
+	 * @param in
+	 *            the stream to read the change log from.
+	 * @param keyCodec
+	 *            the {@code ChangeCodec} for keys.
+	 * @param valueCodec
+	 *            the {@code ChangeCodec} for values.
+	 */
+	public ChangeLogReader(InputStream in, ChangeCodec<K> keyCodec, ChangeCodec<V> valueCodec) {
+		this(in, keyCodec, valueCodec, -1);
+	}
+
+	/**
+	 * Constructs a {@code ChangeLogReader}.
+	 * 
+	 * @param in
+	 *            the stream to read the change log from.
+	 * @param keyCodec
+	 *            the {@code ChangeCodec} for keys.
+	 * @param valueCodec
+	 *            the {@code ChangeCodec} for values.
+	 * @param nextSequence
+	 *            the sequence number expected for the first change; -1 to accept any sequence number.
+	 */
+	public ChangeLogReader(InputStream in, ChangeCodec<K> keyCodec, ChangeCodec<V> valueCodec, long nextSequence) {
+		this.in = new DataInputStream(new java.io.BufferedInputStream(in, 1 << 16));
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.nextSequence = nextSequence;
+	}
+
+	/**
+	 * Reads the next frame.
+	 * 
+	 * @return the changes in the next frame; {@code null} if the change log ends.
+	 * @throws IOException
+	 *             if an I/O error occurs or the change log is corrupted, truncated or has a gap in sequence numbers.
+	 */
+	public ChangeBatch<K, V> next() throws IOException {
+		int magic;
+		try {
+			magic = in.readInt();
+		} catch (EOFException e) { // if the change log ends at a frame boundary
+			return null;
+		}
+		if (magic != ChangeLogWriter.MAGIC)
+			throw new StreamCorruptedException("invalid frame header: " + Integer.toHexString(magic));
+		long firstSequence = in.readLong();
+		int count = in.readInt();
+		int length = in.readInt();
+		if (count < 0 || length < 0)
+			throw new StreamCorruptedException("invalid frame at sequence number " + firstSequence);
+		if (nextSequence >= 0 && firstSequence != nextSequence)
+			throw new StreamCorruptedException("expected sequence number " + nextSequence + ", found " + firstSequence);
+		if (length > payload.length)
+			payload = new byte[Math.max(length, 2 * payload.length)];
+		in.readFully(payload, 0, length);
+		crc.reset();
+		crc.update(payload, 0, length);
+		if ((int) crc.getValue() != in.readInt())
+			throw new StreamCorruptedException("checksum mismatch at sequence number " + firstSequence);
+		DataInputStream decoder = new DataInputStream(new java.io.ByteArrayInputStream(payload, 0, length));
+		ChangeBatch<K, V> batch = new ChangeBatch<K, V>(firstSequence, count);
+		for (int i = 0; i < count; i++) {
+			int flags = decoder.readByte();
+			K key = keyCodec.read(decoder);
+			V value = (flags & ChangeLogWriter.NULL_VALUE) != 0 ? null : valueCodec.read(decoder);
+			batch.add((flags & ChangeLogWriter.DELETE) != 0, key, value);
+		}
+		nextSequence = firstSequence + count;
+		return batch;
+	}
+
+	/**
+	 * Determines whether or not the next frame can (at least partly) be read without blocking.
+	 * 
+	 * @return {@code true} if the next frame has started arriving; {@code false} otherwise.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public boolean ready() throws IOException {
+		return in.available() > 0;
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,239 @@
+package bptree;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A {@code ChangeLogWriter} writes the insertions and deletions of a leader {@code BPlusTree} as a binary change log
+ * that followers read with a {@code ChangeLogReader}. Attached to the leader as a {@code TreeListener}, it runs on the
+ * consumer thread of the {@code TreeEventRing}, so encoding and shipping stay off the leader's update path.
+ * <p>
+ * The log is a sequence of frames, each carrying a batch of changes with consecutive sequence numbers:
+ * 
+ * <pre>
+ * frame  := MAGIC(int) firstSequence(long) count(int) payloadLength(int) payload crc32(int)
+ * change := flags(byte) key [value]
+ * </pre>
+ * 
+ * where bit 0 of the flags marks a deletion and bit 1 marks a {@code null} value (which is then omitted). A frame is
+ * written once {@code batchSize} changes have accumulated or the {@code TreeEventRing} has no more events at the
+ * moment, and the underlying stream is flushed only in the latter case.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class ChangeLogWriter<K, V> implements TreeListener<K, V>, java.io.Closeable {
+
+	/**
+	 * The number that starts each frame ("BPLG").
+	 */
+	public static final int MAGIC = 0x42504C47;
+
+	/**
+	 * The default maximum number of changes per frame.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 4096;
+
+	/**
+	 * The flag marking a deletion.
+	 */
+	static final int DELETE = 1;
+
+	/**
+	 * The flag marking a {@code null} value.
+	 */
+	static final int NULL_VALUE = 2;
+
+	/**
+	 * A {@code ByteArrayOutputStream} whose content can be accessed without copying.
+	 */
+	static class Buffer extends java.io.ByteArrayOutputStream {
+
+		/**
+		 * Returns the internal array of this {@code Buffer}.
+		 * 
+		 * @return the internal array of this {@code Buffer}.
+		 */
+		byte[] array() {
+			return buf;
+		}
+
+	}
+
+	/**
+	 * The stream to which frames are written.
+	 */
+	protected DataOutputStream out;
+
+	/**
+	 * The {@code ChangeCodec} for keys.
+	 */
+	protected ChangeCodec<K> keyCodec;
+
+	/**
+	 * The {@code ChangeCodec} for values.
+	 */
+	protected ChangeCodec<V> valueCodec;
+
+	/**
+	 * The maximum number of changes per frame.
+	 */
+	protected int batchSize;
+
+	/**
+	 * The payload of the current frame.
+	 */
+	protected Buffer payload = new Buffer();
+
+	/**
+	 * The stream that encodes changes into the payload.
+	 */
+	protected DataOutputStream encoder = new DataOutputStream(payload);
+
+	/**
+	 * The checksum of payloads.
+	 */
+	protected java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+
+	/**
+	 * The sequence number of the first change in the current frame.
+	 */
+	protected long firstSequence;
+
+	/**
+	 * The number of changes in the current frame.
+	 */
+	protected int count;
+
+	/**
+	 * Constructs a {@code ChangeLogWriter}.
+	 * 
+	 * @param out
+	 *            the stream to write the change log to (e.g., a file or a socket).
+	 * @param keyCodec
+	 *            the {@code ChangeCodec} for keys.
+	 * @param valueCodec
+	 *            the {@code ChangeCodec} for values.
+	 */
+	public ChangeLogWriter(OutputStream out, ChangeCodec<K> keyCodec, ChangeCodec<V> valueCodec) {
+		this(out, keyCodec, valueCodec, DEFAULT_BATCH_SIZE, 0);
+	}
+
+	/**
+	 * Constructs a {@code ChangeLogWriter}.
+	 * 
+	 * @param out
+	 *            the stream to write the change log to (e.g., a file or a socket).
+	 * @param keyCodec
+	 *            the {@code ChangeCodec} for keys.
+	 * @param valueCodec
+	 *            the {@code ChangeCodec} for values.
+	 * @param batchSize
+	 *            the maximum number of changes per frame.
+	 * @param firstSequence
+	 *            the sequence number of the first change to write.
+	 */
+	public ChangeLogWriter(OutputStream out, ChangeCodec<K> keyCodec, ChangeCodec<V> valueCodec, int batchSize,
+			long firstSequence) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize: " + batchSize);
+		this.out = new DataOutputStream(new java.io.BufferedOutputStream(out, 1 << 16));
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.batchSize = batchSize;
+		this.firstSequence = firstSequence;
+	}
+
+	/**
+	 * Returns the sequence number that the next change will receive.
+	 * 
+	 * @return the sequence number that the next change will receive.
+	 */
+	public long nextSequence() {
+		return firstSequence + count;
+	}
+
+	@Override
+	public void onEvent(TreeEvent<K, V> event, boolean endOfBatch) {
+		try {
+			if (event.type() == TreeEvent.Type.INSERTED)
+				append(false, event.key(), event.value());
+			else if (event.type() == TreeEvent.Type.DELETED)
+				append(true, event.key(), event.value());
+			if (endOfBatch)
+				flush();
+		} catch (IOException e) {
+			throw new java.io.UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Appends a change to the change log.
+	 * 
+	 * @param delete
+	 *            {@code true} for a deletion; {@code false} for an insertion.
+	 * @param key
+	 *            the key of the change.
+	 * @param value
+	 *            the value of the change.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void append(boolean delete, K key, V value) throws IOException {
+		encoder.writeByte((delete ? DELETE : 0) | (value == null ? NULL_VALUE : 0));
+		keyCodec.write(key, encoder);
+		if (value != null)
+			valueCodec.write(value, encoder);
+		if (++count == batchSize)
+			ship();
+	}
+
+	/**
+	 * Writes the current frame (if it has any change) to the underlying stream.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	protected void ship() throws IOException {
+		if (count == 0)
+			return;
+		crc.reset();
+		crc.update(payload.array(), 0, payload.size());
+		out.writeInt(MAGIC);
+		out.writeLong(firstSequence);
+		out.writeInt(count);
+		out.writeInt(payload.size());
+		out.write(payload.array(), 0, payload.size());
+		out.writeInt((int) crc.getValue());
+		firstSequence += count;
+		count = 0;
+		payload.reset();
+	}
+
+	/**
+	 * Writes the current frame and flushes the underlying stream.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void flush() throws IOException {
+		ship();
+		out.flush();
+	}
+
+	/**
+	 * Writes the current frame and closes the underlying stream.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+		out.close();
+	}
+
+}
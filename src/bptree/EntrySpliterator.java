@@ -0,0 +1,217 @@
+package bptree;
+
+import java.util.Map;
+
+/**
+ * An {@code EntrySpliterator} traverses the entries of a {@code BPlusTree} whose keys are in a given range, in key
+ * order. Instead of following the chain of {@code LeafNode}s, it keeps the subtrees that remain to be traversed, so
+ * {@link #trySplit()} can hand the first half of them to a new {@code EntrySpliterator} (expanding a single remaining
+ * {@code NonLeafNode} into its children first). The subtrees outside the range are pruned when a {@code NonLeafNode}
+ * is expanded. If the {@code BPlusTree} maintains subtree counts, the size of each subtree is exact, and this
+ * {@code EntrySpliterator} is {@code SIZED} and {@code SUBSIZED} when the range is unbounded. Otherwise, the size of
+ * each subtree is estimated by dividing the estimate of its parent evenly among the children, starting from a sampled
+ * estimate of the size of the tree. The {@code BPlusTree} must not be modified during the traversal.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class EntrySpliterator<K extends Comparable<K>, V> implements java.util.Spliterator<Map.Entry<K, V>> {
+
+	/**
+	 * The lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 */
+	protected K fromKey;
+
+	/**
+	 * The highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 */
+	protected K toKey;
+
+	/**
+	 * The subtrees that remain to be traversed, in key order.
+	 */
+	protected java.util.ArrayDeque<Node<K>> pending = new java.util.ArrayDeque<Node<K>>();
+
+	/**
+	 * The estimated number of entries in each subtree in {@code pending} (in the same order).
+	 */
+	protected java.util.ArrayDeque<Long> estimates = new java.util.ArrayDeque<Long>();
+
+	/**
+	 * A flag indicating whether or not {@link #estimateSize()} is exact.
+	 */
+	protected boolean sized;
+
+	/**
+	 * The {@code LeafNode} being traversed; {@code null} if none.
+	 */
+	protected LeafNode<K, V> leaf;
+
+	/**
+	 * The index of the next entry in {@code leaf}.
+	 */
+	protected int index;
+
+	/**
+	 * Constructs an {@code EntrySpliterator}.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 */
+	public EntrySpliterator(BPlusTree<K, V> tree, K fromKey, K toKey) {
+		this.fromKey = fromKey;
+		this.toKey = toKey;
+		this.sized = tree.hasCounts() && fromKey == null && toKey == null;
+		if (tree.root() != null) {
+			pending.add(tree.root());
+			if (tree.hasCounts() || tree.root() instanceof LeafNode)
+				estimates.add(tree.size());
+			else
+				estimates.add(tree.stats(8).size());
+		}
+	}
+
+	/**
+	 * Constructs an {@code EntrySpliterator} for a prefix split off from another {@code EntrySpliterator}.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @param sized
+	 *            a flag indicating whether or not {@link #estimateSize()} is exact.
+	 */
+	protected EntrySpliterator(K fromKey, K toKey, boolean sized) {
+		this.fromKey = fromKey;
+		this.toKey = toKey;
+		this.sized = sized;
+	}
+
+	@Override
+	public boolean tryAdvance(java.util.function.Consumer<? super Map.Entry<K, V>> action) {
+		while (true) {
+			if (leaf != null && index < leaf.numberOfKeys()) {
+				K key = leaf.key(index);
+				if (toKey != null && key.compareTo(toKey) >= 0) { // if the end of the range is reached
+					finish();
+					return false;
+				}
+				V value = leaf.value(index++);
+				if (fromKey != null && key.compareTo(fromKey) < 0)
+					continue;
+				action.accept(new java.util.AbstractMap.SimpleImmutableEntry<K, V>(key, value));
+				return true;
+			}
+			if (!nextLeaf())
+				return false;
+		}
+	}
+
+	@Override
+	public void forEachRemaining(java.util.function.Consumer<? super Map.Entry<K, V>> action) {
+		do {
+			if (leaf == null)
+				continue;
+			for (; index < leaf.numberOfKeys(); index++) {
+				K key = leaf.key(index);
+				if (toKey != null && key.compareTo(toKey) >= 0) {
+					finish();
+					return;
+				}
+				if (fromKey == null || key.compareTo(fromKey) >= 0)
+					action.accept(new java.util.AbstractMap.SimpleImmutableEntry<K, V>(key, leaf.value(index)));
+			}
+		} while (nextLeaf());
+	}
+
+	/**
+	 * Moves on to the first {@code LeafNode} of the first remaining subtree.
+	 * 
+	 * @return {@code true} if there is such a {@code LeafNode}; {@code false} if no subtree remains.
+	 */
+	@SuppressWarnings("unchecked")
+	protected boolean nextLeaf() {
+		leaf = null;
+		while (!pending.isEmpty()) {
+			if (pending.peekFirst() instanceof LeafNode) {
+				leaf = (LeafNode<K, V>) pending.pollFirst();
+				estimates.pollFirst();
+				index = 0;
+				return true;
+			}
+			expandFirst();
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces the first remaining subtree (a {@code NonLeafNode}) with its children that may have keys in the range.
+	 */
+	protected void expandFirst() {
+		NonLeafNode<K> node = (NonLeafNode<K>) pending.pollFirst();
+		long estimate = estimates.pollFirst();
+		int n = node.numberOfKeys();
+		int first = 0, last = n; // child i covers the keys between key(i - 1) and key(i)
+		while (first < n && fromKey != null && node.key(first).compareTo(fromKey) < 0)
+			first++;
+		while (last > 0 && toKey != null && node.key(last - 1).compareTo(toKey) >= 0)
+			last--;
+		long share = Math.max(1, estimate / (n + 1));
+		for (int i = last; i >= first; i--) {
+			pending.addFirst(node.child(i));
+			estimates.addFirst(node.counts == null ? share : node.counts[i]);
+		}
+	}
+
+	/**
+	 * Ends the traversal.
+	 */
+	protected void finish() {
+		leaf = null;
+		pending.clear();
+		estimates.clear();
+	}
+
+	@Override
+	public EntrySpliterator<K, V> trySplit() {
+		if (pending.size() == 1 && pending.peekFirst() instanceof NonLeafNode)
+			expandFirst();
+		int n = pending.size() / 2;
+		if (n == 0)
+			return null;
+		EntrySpliterator<K, V> prefix = new EntrySpliterator<K, V>(fromKey, toKey, sized);
+		prefix.leaf = leaf;
+		prefix.index = index;
+		leaf = null;
+		for (int i = 0; i < n; i++) {
+			prefix.pending.addLast(pending.pollFirst());
+			prefix.estimates.addLast(estimates.pollFirst());
+		}
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		long size = leaf == null ? 0 : leaf.numberOfKeys() - index;
+		for (long e : estimates)
+			size += e;
+		return size;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SORTED | NONNULL | (sized ? SIZED | SUBSIZED : 0);
+	}
+
+	@Override
+	public java.util.Comparator<? super Map.Entry<K, V>> getComparator() {
+		return Map.Entry.comparingByKey();
+	}
+
+}
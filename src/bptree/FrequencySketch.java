@@ -0,0 +1,148 @@
+package bptree;
+
+/**
+ * The {@code FrequencySketch} class implements a count-min sketch with 4-bit counters that estimates how often each key
+ * has been accessed recently. Once the number of recorded accesses reaches the sample size, all counters are halved so
+ * that the sketch ages out keys that used to be popular (the TinyLFU reset operation).
+ * 
+ * @param <K>
+ *            the type of keys
+ */
+public class FrequencySketch<K> {
+
+	/**
+	 * The seeds used to derive the four hash functions of this {@code FrequencySketch}.
+	 */
+	protected static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	/**
+	 * A mask that selects the low bit of each 4-bit counter in a {@code long}.
+	 */
+	protected static final long ONE_MASK = 0x1111111111111111L;
+
+	/**
+	 * A mask that clears the high bit of each 4-bit counter in a {@code long}.
+	 */
+	protected static final long RESET_MASK = 0x7777777777777777L;
+
+	/**
+	 * The counters of this {@code FrequencySketch}, 16 counters per {@code long}.
+	 */
+	protected long[] table;
+
+	/**
+	 * The number of accesses after which all counters are halved.
+	 */
+	protected int sampleSize;
+
+	/**
+	 * The number of accesses recorded since the last reset.
+	 */
+	protected int size;
+
+	/**
+	 * Constructs a {@code FrequencySketch}.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of entries in the cache that uses this {@code FrequencySketch}.
+	 */
+	public FrequencySketch(int maximumSize) {
+		int length = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 1;
+		table = new long[length];
+		sampleSize = 10 * Math.max(maximumSize, 1);
+	}
+
+	/**
+	 * Returns the estimated number of recent accesses to the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the estimated number of recent accesses to the specified key (at most 15).
+	 */
+	public int frequency(K key) {
+		int hash = spread(key.hashCode());
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = counterOffset(hash, i);
+			frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records an access to the specified key.
+	 * 
+	 * @param key
+	 *            the key accessed.
+	 */
+	public void increment(K key) {
+		int hash = spread(key.hashCode());
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = counterOffset(hash, i);
+			if (((table[index] >>> offset) & 0xfL) != 0xfL) { // if the counter is not saturated
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && ++size == sampleSize)
+			reset();
+	}
+
+	/**
+	 * Halves all counters of this {@code FrequencySketch}.
+	 */
+	protected void reset() {
+		int odd = 0; // the number of counters whose low bit is lost by halving
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size = (size - (odd >>> 2)) >>> 1; // an odd counter loses 1/2, i.e., 1/8 of an increment of 4 counters
+	}
+
+	/**
+	 * Returns the index of the {@code long} that holds the counter of the specified hash function.
+	 * 
+	 * @param hash
+	 *            the spread hash code of a key.
+	 * @param i
+	 *            the index of the hash function.
+	 * @return the index of the {@code long} that holds the counter of the specified hash function.
+	 */
+	protected int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & (table.length - 1);
+	}
+
+	/**
+	 * Returns the bit offset of the counter of the specified hash function within its {@code long}.
+	 * 
+	 * @param hash
+	 *            the spread hash code of a key.
+	 * @param i
+	 *            the index of the hash function.
+	 * @return the bit offset of the counter of the specified hash function within its {@code long}.
+	 */
+	protected int counterOffset(int hash, int i) {
+		return (((hash >>> (i << 3)) & 3) << 2) + (i << 4);
+	}
+
+	/**
+	 * Applies a supplemental hash function to the specified hash code.
+	 * 
+	 * @param x
+	 *            a hash code.
+	 * @return the spread hash code.
+	 */
+	protected static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+
+}
@@ -0,0 +1,209 @@
+package bptree;
+
+/**
+ * A {@code FrozenBPlusTree} is an immutable snapshot of a {@code BPlusTree} (see {@link BPlusTree#freeze()}) laid out
+ * for lookups. The keys are stored in Eytzinger order (the breadth-first order of a complete binary search tree: the
+ * children of the key at position k are at positions 2k and 2k + 1) in one contiguous array, so the first levels of
+ * every search share a few cache lines regardless of the degree of the original {@code BPlusTree}, and each step of a
+ * search computes the next position from the outcome of one comparison instead of branching on it. {@code Long} and
+ * {@code Integer} keys are stored as {@code long}s so that a search does not dereference any key object. The entries
+ * are also kept in key order for range scans.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class FrozenBPlusTree<K extends Comparable<K>, V> {
+
+	/**
+	 * The maximum number of entries (positions up to 2 * size + 1 must be {@code int}s).
+	 */
+	public static final int MAXIMUM_SIZE = (1 << 30) - 1;
+
+	/**
+	 * The keys in increasing order.
+	 */
+	protected final K[] keys;
+
+	/**
+	 * The values in the order of their keys.
+	 */
+	protected final V[] values;
+
+	/**
+	 * The keys in Eytzinger order starting at position 1; {@code null} if the keys are stored in {@link #longs}.
+	 */
+	protected final K[] tree;
+
+	/**
+	 * The {@code Long} or {@code Integer} keys as {@code long}s in Eytzinger order starting at position 1;
+	 * {@code null} if the keys are of another type.
+	 */
+	protected final long[] longs;
+
+	/**
+	 * The index in {@link #keys} of the key at each position of the Eytzinger order.
+	 */
+	protected final int[] ranks;
+
+	/**
+	 * The values in Eytzinger order starting at position 1, so a lookup reads its value without going through
+	 * {@link #ranks}.
+	 */
+	protected final V[] treeValues;
+
+	/**
+	 * Constructs a {@code FrozenBPlusTree}.
+	 * 
+	 * @param keys
+	 *            the keys in increasing order (which are not copied).
+	 * @param values
+	 *            the values in the order of their keys (which are not copied).
+	 * @throws IllegalArgumentException
+	 *             if there are more than {@link #MAXIMUM_SIZE} keys.
+	 */
+	@SuppressWarnings("unchecked")
+	public FrozenBPlusTree(K[] keys, V[] values) {
+		if (keys.length > MAXIMUM_SIZE)
+			throw new IllegalArgumentException("size: " + keys.length);
+		this.keys = keys;
+		this.values = values;
+		this.ranks = new int[keys.length + 1];
+		boolean primitive = keys.length > 0;
+		for (int i = 0; i < keys.length && primitive; i++)
+			primitive = keys[i] instanceof Long || keys[i] instanceof Integer;
+		this.longs = primitive ? new long[keys.length + 1] : null;
+		this.tree = primitive ? null : (K[]) new Comparable[keys.length + 1];
+		this.treeValues = (V[]) new Object[keys.length + 1];
+		build(0, 1);
+	}
+
+	/**
+	 * Places the keys from the specified index onward in the subtree at the specified position of the Eytzinger
+	 * order.
+	 * 
+	 * @param i
+	 *            the index of the next key to place.
+	 * @param k
+	 *            a position in the Eytzinger order.
+	 * @return the index of the next key to place after the subtree.
+	 */
+	protected int build(int i, int k) {
+		if (k > keys.length)
+			return i;
+		i = build(i, 2 * k); // the left subtree holds the smaller keys
+		if (longs != null)
+			longs[k] = ((Number) keys[i]).longValue();
+		else
+			tree[k] = keys[i];
+		ranks[k] = i;
+		treeValues[k] = values[i];
+		return build(i + 1, 2 * k + 1);
+	}
+
+	/**
+	 * Returns the number of entries in this {@code FrozenBPlusTree}.
+	 * 
+	 * @return the number of entries in this {@code FrozenBPlusTree}.
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns the number of keys in this {@code FrozenBPlusTree} that are smaller than the specified key, i.e., the
+	 * index of the first entry whose key is greater than or equal to it.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the number of keys in this {@code FrozenBPlusTree} that are smaller than the specified key.
+	 */
+	public int rank(K key) {
+		int k = position(key);
+		return k == 0 ? keys.length : ranks[k];
+	}
+
+	/**
+	 * Returns the position in the Eytzinger order of the first key that is greater than or equal to the specified key.
+	 * The search descends to a leaf of the Eytzinger tree without branching on the comparisons, and then recovers the
+	 * last position at which it went left from the trailing one bits of the final position.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the position in the Eytzinger order of the first key that is greater than or equal to the specified key;
+	 *         0 if there is no such key.
+	 */
+	protected int position(K key) {
+		int n = keys.length;
+		int k = 1;
+		if (longs != null) {
+			long x = key instanceof Integer ? (Integer) key : (Long) key;
+			while (k <= n)
+				k = 2 * k + (longs[k] < x ? 1 : 0);
+		} else {
+			while (k <= n)
+				k = 2 * k + (tree[k].compareTo(key) < 0 ? 1 : 0);
+		}
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1); // undo the right turns after the last left turn
+	}
+
+	/**
+	 * Returns the value associated with the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the value of the first entry with the specified key; {@code null} if the key is not found.
+	 */
+	public V get(K key) {
+		int k = position(key);
+		if (k == 0)
+			return null;
+		boolean found = longs != null ? longs[k] == (key instanceof Integer ? (Integer) key : (Long) key)
+				: tree[k].compareTo(key) == 0; // the key at position k was compared during the descent
+		return found ? treeValues[k] : null;
+	}
+
+	/**
+	 * Returns the key at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the entry (0 for the entry with the smallest key).
+	 * @return the key at the specified index.
+	 */
+	public K key(int i) {
+		return keys[i];
+	}
+
+	/**
+	 * Returns the value at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the entry (0 for the entry with the smallest key).
+	 * @return the value at the specified index.
+	 */
+	public V value(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Passes the entries of this {@code FrozenBPlusTree} whose keys are in the specified range to the specified action
+	 * in key order.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @param action
+	 *            the action to perform on each key and value.
+	 * @return the number of entries passed to the action.
+	 */
+	public long scan(K fromKey, K toKey, java.util.function.BiConsumer<? super K, ? super V> action) {
+		int i = fromKey == null ? 0 : rank(fromKey);
+		int end = toKey == null ? keys.length : rank(toKey);
+		for (int j = i; j < end; j++)
+			action.accept(keys[j], values[j]);
+		return Math.max(0, end - i);
+	}
+
+}
@@ -0,0 +1,69 @@
+package bptree;
+
+/**
+ * A {@code KeyOrder} computes the order in which a batch of operations is applied to a {@code BPlusTree}: the indices
+ * of the operations sorted by key, with the operations on the same key kept in their original order. Operations on
+ * different keys commute, so applying a batch in this order has the same effect as applying it in the original order
+ * while consecutive operations descend to the same or neighboring {@code LeafNode}s. The arrays are reused across
+ * batches.
+ */
+public class KeyOrder {
+
+	/**
+	 * The indices of the operations in key order.
+	 */
+	protected int[] order = new int[0];
+
+	/**
+	 * The buffer for merging.
+	 */
+	protected int[] buffer = new int[0];
+
+	/**
+	 * Sorts the indices of the specified keys (a bottom-up merge sort that starts from sorted runs of 16 keys).
+	 * 
+	 * @param keys
+	 *            the keys of the operations ({@code Comparable}s of the same type).
+	 * @param n
+	 *            the number of operations.
+	 * @return an array whose first {@code n} elements are the indices of the operations in key order (valid until the
+	 *         next invocation).
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public int[] sort(Object[] keys, int n) {
+		if (order.length < n) {
+			order = new int[Math.max(n, 2 * order.length)];
+			buffer = new int[order.length];
+		}
+		int[] a = order, b = buffer;
+		for (int start = 0; start < n; start += 16) { // insertion sort of each run
+			int end = Math.min(n, start + 16);
+			for (int i = start; i < end; i++) {
+				Comparable key = (Comparable) keys[i];
+				int j = i;
+				for (; j > start && key.compareTo(keys[a[j - 1]]) < 0; j--)
+					a[j] = a[j - 1];
+				a[j] = i;
+			}
+		}
+		for (int width = 16; width < n; width *= 2) { // merge adjacent runs
+			for (int left = 0; left < n; left += 2 * width) {
+				int middle = Math.min(n, left + width), right = Math.min(n, left + 2 * width);
+				int i = left, j = middle, k = left;
+				while (i < middle && j < right)
+					b[k++] = ((Comparable) keys[a[j]]).compareTo(keys[a[i]]) < 0 ? a[j++] : a[i++];
+				while (i < middle)
+					b[k++] = a[i++];
+				while (j < right)
+					b[k++] = a[j++];
+			}
+			int[] t = a;
+			a = b;
+			b = t;
+		}
+		if (a != order)
+			System.arraycopy(a, 0, order, 0, n);
+		return order;
+	}
+
+}
@@ -0,0 +1,57 @@
+package bptree;
+
+/**
+ * The {@code KeySearch} interface defines the kernel that {@code BlockedKeys} use to search a block of
+ * {@link #BLOCK} {@code long} keys (one 64-byte cache line). The kernel counts the keys in the block that are smaller
+ * than a probe without branching on the individual comparisons.
+ * 
+ * @see ScalarKeySearch
+ * @see BlockedKeys
+ */
+public interface KeySearch {
+
+	/**
+	 * The number of keys in a block.
+	 */
+	int BLOCK = 8;
+
+	/**
+	 * Returns the number of keys in the specified block that are smaller than the specified key.
+	 * 
+	 * @param keys
+	 *            an array of keys.
+	 * @param from
+	 *            the index of the first key of the block (the block must lie within the array).
+	 * @param key
+	 *            the probe.
+	 * @return the number of keys among keys[from], ..., keys[from + BLOCK - 1] that are smaller than the specified key.
+	 */
+	int countLess(long[] keys, int from, long key);
+
+	/**
+	 * Returns the {@code KeySearch} that uses the Vector API ({@code jdk.incubator.vector}), which is available only
+	 * if the JVM was started with {@code --add-modules jdk.incubator.vector}, the kernel was compiled (see
+	 * {@code src-vector}) and the CPU compares at least two {@code long}s per instruction.
+	 * 
+	 * @return the {@code KeySearch} that uses the Vector API; {@code null} if it is not available.
+	 */
+	static KeySearch vector() {
+		try {
+			return (KeySearch) Class.forName("bptree.VectorKeySearch").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the fastest available {@code KeySearch}.
+	 * 
+	 * @return the {@code KeySearch} that uses the Vector API if it is available; a {@code ScalarKeySearch}
+	 *         otherwise.
+	 */
+	static KeySearch best() {
+		KeySearch search = vector();
+		return search != null ? search : new ScalarKeySearch();
+	}
+
+}
@@ -0,0 +1,159 @@
+package bptree;
+
+/**
+ * The {@code LatencyHistogram} class implements a histogram of latencies in the style of HdrHistogram. Values are
+ * counted in log-linear buckets (16 linear sub-buckets per power of two), so that recording a value is a few shifts
+ * and one atomic increment, and percentiles are reported with a relative error below 1/16.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of bits used for the linear sub-buckets within each power of two.
+	 */
+	protected static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * The number of linear sub-buckets within each power of two.
+	 */
+	protected static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The counts of the buckets of this {@code LatencyHistogram}.
+	 */
+	protected java.util.concurrent.atomic.AtomicLongArray counts = new java.util.concurrent.atomic.AtomicLongArray(
+			(64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+
+	/**
+	 * The sum of the values recorded in this {@code LatencyHistogram}.
+	 */
+	protected java.util.concurrent.atomic.LongAdder sum = new java.util.concurrent.atomic.LongAdder();
+
+	/**
+	 * The largest value recorded in this {@code LatencyHistogram}.
+	 */
+	protected java.util.concurrent.atomic.AtomicLong max = new java.util.concurrent.atomic.AtomicLong();
+
+	/**
+	 * Constructs a {@code LatencyHistogram}.
+	 */
+	public LatencyHistogram() {
+	}
+
+	/**
+	 * Records the specified value.
+	 * 
+	 * @param value
+	 *            a non-negative value (e.g., a latency in nanoseconds).
+	 */
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(indexOf(value));
+		sum.add(value);
+		long m = max.get();
+		while (value > m && !max.compareAndSet(m, value))
+			m = max.get();
+	}
+
+	/**
+	 * Returns the number of values recorded in this {@code LatencyHistogram}.
+	 * 
+	 * @return the number of values recorded in this {@code LatencyHistogram}.
+	 */
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++)
+			count += counts.get(i);
+		return count;
+	}
+
+	/**
+	 * Returns the mean of the values recorded in this {@code LatencyHistogram}.
+	 * 
+	 * @return the mean of the values recorded in this {@code LatencyHistogram}; 0 if no value has been recorded.
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * Returns the largest value recorded in this {@code LatencyHistogram}.
+	 * 
+	 * @return the largest value recorded in this {@code LatencyHistogram}.
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the value at the specified percentile.
+	 * 
+	 * @param percentile
+	 *            a percentile between 0 and 100.
+	 * @return the largest value that is equivalent (i.e., falls into the same bucket) to the value at the specified
+	 *         percentile; 0 if no value has been recorded.
+	 */
+	public long percentile(double percentile) {
+		long count = count();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(highestEquivalentValue(i), max());
+		}
+		return max();
+	}
+
+	/**
+	 * Clears this {@code LatencyHistogram}.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++)
+			counts.set(i, 0);
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Returns the index of the bucket for the specified value.
+	 * 
+	 * @param value
+	 *            a non-negative value.
+	 * @return the index of the bucket for the specified value.
+	 */
+	protected static int indexOf(long value) {
+		if (value < 2 * SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	/**
+	 * Returns the largest value that falls into the specified bucket.
+	 * 
+	 * @param index
+	 *            the index of a bucket.
+	 * @return the largest value that falls into the specified bucket.
+	 */
+	protected static long highestEquivalentValue(int index) {
+		if (index < 2 * SUB_BUCKETS)
+			return index;
+		int shift = (index >>> SUB_BUCKET_BITS) - 1;
+		long subBucket = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Returns the String representation of this {@code LatencyHistogram}.
+	 */
+	public String toString() {
+		return "(count: " + count() + ", mean: " + mean() + ", p50: " + percentile(50) + ", p99: " + percentile(99)
+				+ ", max: " + max() + ")";
+	}
+
+}
@@ -0,0 +1,155 @@
+package bptree;
+
+/**
+ * The {@code LatencySummary} class implements immutable summaries of {@code LatencyHistogram}s. Its getters are
+ * exposed by {@code TreeMetricsMXBean} as composite data.
+ */
+public class LatencySummary {
+
+	/**
+	 * The number of recorded values.
+	 */
+	private long count;
+
+	/**
+	 * The mean of the recorded values.
+	 */
+	private double mean;
+
+	/**
+	 * The median of the recorded values.
+	 */
+	private long p50;
+
+	/**
+	 * The 90th percentile of the recorded values.
+	 */
+	private long p90;
+
+	/**
+	 * The 99th percentile of the recorded values.
+	 */
+	private long p99;
+
+	/**
+	 * The 99.9th percentile of the recorded values.
+	 */
+	private long p999;
+
+	/**
+	 * The largest recorded value.
+	 */
+	private long max;
+
+	/**
+	 * Constructs a {@code LatencySummary}.
+	 * 
+	 * @param count
+	 *            the number of recorded values.
+	 * @param mean
+	 *            the mean of the recorded values.
+	 * @param p50
+	 *            the median of the recorded values.
+	 * @param p90
+	 *            the 90th percentile of the recorded values.
+	 * @param p99
+	 *            the 99th percentile of the recorded values.
+	 * @param p999
+	 *            the 99.9th percentile of the recorded values.
+	 * @param max
+	 *            the largest recorded value.
+	 */
+	@java.beans.ConstructorProperties({ "count", "mean", "p50", "p90", "p99", "p999", "max" })
+	public LatencySummary(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+
+	/**
+	 * Constructs a {@code LatencySummary} of the specified {@code LatencyHistogram}.
+	 * 
+	 * @param histogram
+	 *            a {@code LatencyHistogram}.
+	 */
+	public LatencySummary(LatencyHistogram histogram) {
+		this(histogram.count(), histogram.mean(), histogram.percentile(50), histogram.percentile(90), histogram
+				.percentile(99), histogram.percentile(99.9), histogram.max());
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 * 
+	 * @return the number of recorded values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * 
+	 * @return the mean of the recorded values.
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Returns the median of the recorded values.
+	 * 
+	 * @return the median of the recorded values.
+	 */
+	public long getP50() {
+		return p50;
+	}
+
+	/**
+	 * Returns the 90th percentile of the recorded values.
+	 * 
+	 * @return the 90th percentile of the recorded values.
+	 */
+	public long getP90() {
+		return p90;
+	}
+
+	/**
+	 * Returns the 99th percentile of the recorded values.
+	 * 
+	 * @return the 99th percentile of the recorded values.
+	 */
+	public long getP99() {
+		return p99;
+	}
+
+	/**
+	 * Returns the 99.9th percentile of the recorded values.
+	 * 
+	 * @return the 99.9th percentile of the recorded values.
+	 */
+	public long getP999() {
+		return p999;
+	}
+
+	/**
+	 * Returns the largest recorded value.
+	 * 
+	 * @return the largest recorded value.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the String representation of this {@code LatencySummary}.
+	 */
+	public String toString() {
+		return "(count: " + count + ", mean: " + mean + ", p50: " + p50 + ", p90: " + p90 + ", p99: " + p99
+				+ ", p99.9: " + p999 + ", max: " + max + ")";
+	}
+
+}
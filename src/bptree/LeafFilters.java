@@ -0,0 +1,285 @@
+package bptree;
+
+/**
+ * {@code LeafFilters} define the Bloom filters that a {@code BPlusTree} keeps for its {@code LeafNode}s and record how
+ * well they answer lookups of missing keys. The filter of each {@code LeafNode} is stored in its parent, so a lookup
+ * whose key is rejected by the filter returns without reading the {@code LeafNode}. A key is added to the filter when
+ * it is inserted; deleted keys stay in the filter (making it a superset of the keys of the {@code LeafNode}) until the
+ * filter is rebuilt because the {@code LeafNode} is split, merged or redistributed. Each filter has room for a full
+ * {@code LeafNode}, i.e., degree - 1 keys at the configured number of bits per key. Keys are hashed with
+ * {@code hashCode}, so they must have a {@code hashCode} consistent with {@code compareTo} (see
+ * {@link BPlusTree#enableLeafFilters(int)}).
+ * 
+ * @param <K>
+ *            the type of keys
+ */
+public class LeafFilters<K> {
+
+	/**
+	 * A {@code Filter} is the Bloom filter of a {@code LeafNode}.
+	 */
+	public static class Filter {
+
+		/**
+		 * The {@code LeafNode} for which this {@code Filter} was built.
+		 */
+		protected Node<?> leaf;
+
+		/**
+		 * The number of keys of the {@code LeafNode} after the last change that this {@code Filter} reflects. If the
+		 * {@code LeafNode} has a different number of keys, it has exchanged keys with a sibling, and this
+		 * {@code Filter} is rebuilt.
+		 */
+		protected int size;
+
+		/**
+		 * The bits of this {@code Filter}.
+		 */
+		protected long[] bits;
+
+		/**
+		 * Constructs a {@code Filter}.
+		 * 
+		 * @param leaf
+		 *            the {@code LeafNode} for which the {@code Filter} is built.
+		 * @param words
+		 *            the number of {@code long}s of bits.
+		 */
+		protected Filter(Node<?> leaf, int words) {
+			this.leaf = leaf;
+			this.size = leaf.numberOfKeys();
+			this.bits = new long[words];
+		}
+
+	}
+
+	/**
+	 * The number of bits per key.
+	 */
+	protected int bitsPerKey;
+
+	/**
+	 * The number of hash functions.
+	 */
+	protected int hashes;
+
+	/**
+	 * The number of bits in each {@code Filter}.
+	 */
+	protected int bitsPerFilter;
+
+	/**
+	 * The number of lookups that consulted a {@code Filter}.
+	 */
+	protected long probes;
+
+	/**
+	 * The number of lookups that a {@code Filter} answered without reading the {@code LeafNode}.
+	 */
+	protected long negatives;
+
+	/**
+	 * The number of lookups that a {@code Filter} passed although the key was not in the {@code LeafNode}.
+	 */
+	protected long falsePositives;
+
+	/**
+	 * The number of {@code Filter}s built.
+	 */
+	protected long builds;
+
+	/**
+	 * Constructs {@code LeafFilters}.
+	 * 
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param bitsPerKey
+	 *            the number of bits per key (e.g., 10 for a false positive rate of about 1% in full
+	 *            {@code LeafNode}s).
+	 */
+	public LeafFilters(int degree, int bitsPerKey) {
+		if (bitsPerKey < 1)
+			throw new IllegalArgumentException("bitsPerKey: " + bitsPerKey);
+		this.bitsPerKey = bitsPerKey;
+		this.hashes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+		this.bitsPerFilter = ((degree - 1) * bitsPerKey + 63) / 64 * 64;
+	}
+
+	/**
+	 * Returns the number of bits per key.
+	 * 
+	 * @return the number of bits per key.
+	 */
+	public int bitsPerKey() {
+		return bitsPerKey;
+	}
+
+	/**
+	 * Builds the {@code Filter} of the specified {@code LeafNode}.
+	 * 
+	 * @param leaf
+	 *            a {@code LeafNode}.
+	 * @return the {@code Filter} of the specified {@code LeafNode}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected Filter build(Node<?> leaf) {
+		Filter f = new Filter(leaf, bitsPerFilter / 64);
+		for (int i = 0; i < leaf.numberOfKeys(); i++)
+			add(f, (K) leaf.key(i));
+		builds++;
+		return f;
+	}
+
+	/**
+	 * Adds the specified key to the specified {@code Filter}.
+	 * 
+	 * @param f
+	 *            a {@code Filter}.
+	 * @param key
+	 *            a key.
+	 */
+	protected void add(Filter f, K key) {
+		long h = hash(key);
+		int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int b = index(h1 + i * h2);
+			f.bits[b >>> 6] |= 1L << b;
+		}
+	}
+
+	/**
+	 * Determines whether or not the specified key may be in the {@code LeafNode} of the specified {@code Filter}.
+	 * 
+	 * @param f
+	 *            a {@code Filter}.
+	 * @param key
+	 *            a key.
+	 * @return {@code false} if the key is definitely not in the {@code LeafNode}; {@code true} otherwise.
+	 */
+	protected boolean mightContain(Filter f, K key) {
+		probes++;
+		long h = hash(key);
+		int h1 = (int) h, h2 = (int) (h >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int b = index(h1 + i * h2);
+			if ((f.bits[b >>> 6] & (1L << b)) == 0) {
+				negatives++;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records that a {@code Filter} passed a key that was not in the {@code LeafNode}.
+	 */
+	protected void recordFalsePositive() {
+		falsePositives++;
+	}
+
+	/**
+	 * Maps the specified hash to a bit position of a {@code Filter}.
+	 * 
+	 * @param h
+	 *            a hash.
+	 * @return a bit position between 0 (inclusive) and the number of bits in each {@code Filter} (exclusive).
+	 */
+	protected int index(int h) {
+		return (int) (((h & 0xFFFFFFFFL) * bitsPerFilter) >>> 32);
+	}
+
+	/**
+	 * Returns a 64-bit hash of the specified key (the hash code of the key mixed by the finalizer of MurmurHash3).
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return a 64-bit hash of the specified key.
+	 */
+	protected static long hash(Object key) {
+		long h = key.hashCode();
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Returns the number of lookups that consulted a {@code Filter}.
+	 * 
+	 * @return the number of lookups that consulted a {@code Filter}.
+	 */
+	public long probes() {
+		return probes;
+	}
+
+	/**
+	 * Returns the number of lookups that a {@code Filter} answered without reading the {@code LeafNode}.
+	 * 
+	 * @return the number of lookups that a {@code Filter} answered without reading the {@code LeafNode}.
+	 */
+	public long negatives() {
+		return negatives;
+	}
+
+	/**
+	 * Returns the number of lookups that a {@code Filter} passed although the key was not in the {@code LeafNode}.
+	 * 
+	 * @return the number of lookups that a {@code Filter} passed although the key was not in the {@code LeafNode}.
+	 */
+	public long falsePositives() {
+		return falsePositives;
+	}
+
+	/**
+	 * Returns the number of {@code Filter}s built.
+	 * 
+	 * @return the number of {@code Filter}s built.
+	 */
+	public long builds() {
+		return builds;
+	}
+
+	/**
+	 * Returns the observed false positive rate, i.e., the ratio of lookups of missing keys that a {@code Filter}
+	 * passed.
+	 * 
+	 * @return the observed false positive rate; 0 if no lookup of a missing key has consulted a {@code Filter}.
+	 */
+	public double falsePositiveRate() {
+		long misses = negatives + falsePositives;
+		return misses == 0 ? 0 : (double) falsePositives / misses;
+	}
+
+	/**
+	 * Returns the expected false positive rate of a {@code Filter} of the specified number of keys.
+	 * 
+	 * @param keys
+	 *            the number of keys in a {@code Filter}.
+	 * @return the expected false positive rate of a {@code Filter} of the specified number of keys.
+	 */
+	public double expectedFalsePositiveRate(int keys) {
+		return Math.pow(1 - Math.exp(-(double) hashes * keys / bitsPerFilter), hashes);
+	}
+
+	/**
+	 * Returns the number of bytes that each {@code Filter} occupies (excluding object headers).
+	 * 
+	 * @return the number of bytes that each {@code Filter} occupies.
+	 */
+	public int bytesPerFilter() {
+		return bitsPerFilter / 8;
+	}
+
+	/**
+	 * Returns the String representation of these {@code LeafFilters}.
+	 */
+	@Override
+	public String toString() {
+		return "LeafFilters(bits per key: " + bitsPerKey + ", hashes: " + hashes + ", bytes per filter: "
+				+ bytesPerFilter() + ", probes: " + probes + ", negatives: " + negatives + ", false positives: "
+				+ falsePositives + ", false positive rate: " + falsePositiveRate() + ", builds: " + builds + ")";
+	}
+
+}
@@ -8,24 +8,44 @@ package bptree;
  */
 public class LeafNode<K extends Comparable<K>, V> extends Node<K> {
 
+	/**
+	 * The sequence number assigned to this {@code LeafNode} when it was allocated by a {@code BPlusTree}.
+	 */
+	protected long serial;
+
+	/**
+	 * The values that this {@code LeafNode} maintains (the value at index i is associated with the key at index i).
+	 */
+	protected V[] values;
+
+	/**
+	 * The successor of this {@code LeafNode}; {@code null} if this {@code LeafNode} is the last {@code LeafNode}.
+	 */
+	protected LeafNode<K, V> successor;
+
 	/**
 	 * Constructs a {@code LeafNode}.
 	 * 
 	 * @param degree
 	 *            the degree of the {@code LeafNode}.
 	 */
+	@SuppressWarnings("unchecked")
 	public LeafNode(int degree) {
 		super(degree);
+		values = (V[]) new Object[degree - 1];
 	}
 
 	/**
-	 * Copy-constructs a {@code LeafNode}.
+	 * Copy-constructs a {@code LeafNode}. The successor is not copied since it is not a child (see
+	 * {@code BPlusTree(BPlusTree)}).
 	 * 
 	 * @param node
 	 *            the other {@code LeafNode} to copy from.
 	 */
 	public LeafNode(LeafNode<K, V> node) {
 		super(node);
+		this.serial = node.serial;
+		this.values = node.values.clone();
 	}
 
 	/**
@@ -35,14 +55,103 @@ public class LeafNode<K extends Comparable<K>, V> extends Node<K> {
 	 *            the key to insert.
 	 * @param value
 	 *            the value to insert.
+	 * @return the index at which the key has been inserted.
 	 */
-	public void insert(K key, V value) {
+	public int insert(K key, V value) {
 		if (numberOfKeys == 0 || key.compareTo(keys[0]) < 0) {
 			insert(key, value, 0);
+			return 0;
 		} else {
 			int i = findIndexL(key);
 			insert(key, value, i + 1);
+			return i + 1;
+		}
+	}
+
+	/**
+	 * Inserts the specified key and value at the specified location.
+	 * 
+	 * @param key
+	 *            the key to insert.
+	 * @param value
+	 *            the value to insert.
+	 * @param pos
+	 *            the insertion position
+	 */
+	protected void insert(K key, V value, int pos) {
+		insertKey(key, pos);
+		System.arraycopy(values, pos, values, pos + 1, numberOfKeys - pos);
+		values[pos] = value;
+		numberOfKeys++;
+	}
+
+	/**
+	 * Removes the key and the value at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the key to remove.
+	 */
+	@Override
+	protected void remove(int i) {
+		for (; i < numberOfKeys - 1; i++) {
+			keys[i] = keys[i + 1];
+			values[i] = values[i + 1];
+		}
+		keys[i] = null;
+		values[i] = null;
+		numberOfKeys--;
+	}
+
+	/**
+	 * Appends all entries of the specified {@code LeafNode}, which must be the successor of this {@code LeafNode}, to
+	 * this {@code LeafNode} and takes over its successor.
+	 * 
+	 * @param node
+	 *            the successor of this {@code LeafNode}.
+	 */
+	protected void merge(LeafNode<K, V> node) {
+		for (int i = 0; i < node.numberOfKeys; i++) {
+			keys[numberOfKeys] = node.keys[i];
+			values[numberOfKeys] = node.values[i];
+			numberOfKeys++;
 		}
+		successor = node.successor;
+	}
+
+	/**
+	 * Copies the specified keys and their values of the specified {@code LeafNode} into this {@code LeafNode}.
+	 * 
+	 * @param node
+	 *            a {@code LeafNode}.
+	 * @param beginIndex
+	 *            the beginning index of the keys, inclusive.
+	 * @param endIndex
+	 *            the ending index of the keys, exclusive.
+	 */
+	public void copy(LeafNode<K, V> node, int beginIndex, int endIndex) {
+		copyKeys(node, beginIndex, endIndex);
+		System.arraycopy(node.values, beginIndex, values, 0, endIndex - beginIndex);
+	}
+
+	/**
+	 * Clears this {@code LeafNode}.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		java.util.Arrays.fill(values, null);
+		successor = null;
+	}
+
+	/**
+	 * Returns the value at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the value.
+	 * @return the value at the specified index.
+	 */
+	public V value(int i) {
+		return values[i];
 	}
 
 	/**
@@ -50,9 +159,8 @@ public class LeafNode<K extends Comparable<K>, V> extends Node<K> {
 	 * 
 	 * @return the successor of this {@code LeafNode}.
 	 */
-	@SuppressWarnings("unchecked")
 	public LeafNode<K, V> successor() {
-		return (LeafNode<K, V>) pointers[pointers.length - 1];
+		return successor;
 	}
 
 	/**
@@ -63,9 +171,8 @@ public class LeafNode<K extends Comparable<K>, V> extends Node<K> {
 	 * @return the previous successor of this {@code LeafNode}.
 	 */
 	public LeafNode<K, V> setSuccessor(LeafNode<K, V> successor) {
-		@SuppressWarnings("unchecked")
-		LeafNode<K, V> s = (LeafNode<K, V>) pointers[pointers.length - 1];
-		pointers[pointers.length - 1] = successor;
+		LeafNode<K, V> s = this.successor;
+		this.successor = successor;
 		return s;
 	}
 }
@@ -0,0 +1,442 @@
+package bptree;
+
+/**
+ * A {@code LearnedIndex} is a two-stage piecewise-linear model (in the style of a recursive model index) of where the
+ * {@code Long} or {@code Integer} keys of a {@code BPlusTree} are stored, which lets lookups jump straight to a
+ * {@code LeafNode} instead of descending through the {@code NonLeafNode}s. The first stage maps a key linearly onto one
+ * of the {@code Segment}s, each of which covers an equal share of the key range seen at training. A {@code Segment}
+ * holds the {@code LeafNode}s whose first keys fall in its share (and the {@code LeafNode} before them) together
+ * with a least-squares fit of the index of a {@code LeafNode} against its first key and the largest error of that fit,
+ * so a lookup only binary-searches the first keys within the error window around the prediction. The candidate
+ * {@code LeafNode} is then checked against its current keys (following at most {@link #MAXIMUM_HOPS} successors
+ * created by splits since training); if the check fails, the {@code BPlusTree} falls back to a normal descent. Each
+ * split or merge of {@code LeafNode}s is charged to the {@code Segment} where it occurs, and a {@code Segment} is
+ * retrained on its own (by walking its part of the {@code LeafNode} chain) once these changes exceed a quarter of its
+ * {@code LeafNode}s; the whole model is retrained once the number of {@code LeafNode}s has doubled or halved. The
+ * {@code LeafNode}s of a {@code BPlusTree} whose keys are not {@code Long}s or {@code Integer}s are not modeled, so
+ * every lookup falls back.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class LearnedIndex<K extends Comparable<K>, V> {
+
+	/**
+	 * A {@code Segment} models the positions of the {@code LeafNode}s in a share of the key range.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param <V>
+	 *            the type of values
+	 */
+	protected static class Segment<K extends Comparable<K>, V> {
+
+		/**
+		 * The {@code LeafNode}s of this {@code Segment} in key order.
+		 */
+		protected LeafNode<K, V>[] leaves;
+
+		/**
+		 * The first key of each {@code LeafNode} of this {@code Segment} at training.
+		 */
+		protected long[] firstKeys;
+
+		/**
+		 * The mean of the first keys.
+		 */
+		protected double meanKey;
+
+		/**
+		 * The mean of the indices of the {@code LeafNode}s.
+		 */
+		protected double meanIndex;
+
+		/**
+		 * The number of {@code LeafNode}s per unit of key.
+		 */
+		protected double slope;
+
+		/**
+		 * The largest difference between the predicted and the actual index of a {@code LeafNode} at training.
+		 */
+		protected int error;
+
+		/**
+		 * The number of splits and merges of {@code LeafNode}s in this {@code Segment} since training.
+		 */
+		protected int changes;
+
+		/**
+		 * Constructs a {@code Segment} and fits its model.
+		 * 
+		 * @param leaves
+		 *            the {@code LeafNode}s in key order.
+		 * @param firstKeys
+		 *            the first key of each {@code LeafNode}.
+		 */
+		protected Segment(LeafNode<K, V>[] leaves, long[] firstKeys) {
+			this.leaves = leaves;
+			this.firstKeys = firstKeys;
+			int n = firstKeys.length;
+			for (int j = 0; j < n; j++)
+				meanKey += (double) firstKeys[j] / n;
+			meanIndex = (n - 1) / 2.0;
+			double covariance = 0, variance = 0;
+			for (int j = 0; j < n; j++) {
+				double d = firstKeys[j] - meanKey;
+				covariance += d * (j - meanIndex);
+				variance += d * d;
+			}
+			slope = variance == 0 ? 0 : covariance / variance;
+			for (int j = 0; j < n; j++)
+				error = Math.max(error, Math.abs(predict(firstKeys[j]) - j));
+		}
+
+		/**
+		 * Predicts the index of the {@code LeafNode} that is responsible for the specified key.
+		 * 
+		 * @param key
+		 *            a key.
+		 * @return the predicted index of the {@code LeafNode} that is responsible for the specified key.
+		 */
+		protected int predict(long key) {
+			double p = meanIndex + slope * (key - meanKey);
+			return (int) Math.max(0, Math.min(firstKeys.length - 1, Math.round(p)));
+		}
+
+		/**
+		 * Returns the index of the last {@code LeafNode} whose first key at training is smaller than or equal to the
+		 * specified key. Since the model is monotonic, a key between two first keys is predicted within one more than
+		 * the error of the fit, and only that window is searched unless its ends show that the key lies outside.
+		 * 
+		 * @param key
+		 *            a key.
+		 * @return the index of the last {@code LeafNode} whose first key at training is smaller than or equal to the
+		 *         specified key; 0 if there is no such {@code LeafNode}.
+		 */
+		protected int search(long key) {
+			int p = predict(key);
+			int lo = Math.max(0, p - error - 1);
+			int hi = Math.min(firstKeys.length - 1, p + error + 1);
+			if (lo > 0 && firstKeys[lo] > key || hi < firstKeys.length - 1 && firstKeys[hi + 1] <= key) {
+				lo = 0;
+				hi = firstKeys.length - 1;
+			}
+			while (lo < hi) {
+				int m = (lo + hi + 1) >>> 1;
+				if (firstKeys[m] <= key)
+					lo = m;
+				else
+					hi = m - 1;
+			}
+			return lo;
+		}
+
+	}
+
+	/**
+	 * The maximum number of successors that a lookup follows from the predicted {@code LeafNode}.
+	 */
+	public static final int MAXIMUM_HOPS = 2;
+
+	/**
+	 * The {@code BPlusTree} whose {@code LeafNode}s are modeled.
+	 */
+	protected BPlusTree<K, V> tree;
+
+	/**
+	 * The number of {@code LeafNode}s per {@code Segment} at training.
+	 */
+	protected int leavesPerSegment;
+
+	/**
+	 * The {@code Segment}s in key order; empty if the {@code LeafNode}s are not modeled.
+	 */
+	protected Segment<K, V>[] segments;
+
+	/**
+	 * The smallest key at training.
+	 */
+	protected long minimumKey;
+
+	/**
+	 * The number of {@code Segment}s per unit of key.
+	 */
+	protected double scale;
+
+	/**
+	 * A flag indicating whether the keys are {@code Integer}s (rather than {@code Long}s).
+	 */
+	protected boolean integers;
+
+	/**
+	 * The number of {@code LeafNode}s at training.
+	 */
+	protected long trainedLeaves;
+
+	/**
+	 * The number of {@code LeafNode}s.
+	 */
+	protected long leaves;
+
+	/**
+	 * The number of lookups that reached a {@code LeafNode} through the model.
+	 */
+	protected long hits;
+
+	/**
+	 * The number of lookups that fell back to a descent.
+	 */
+	protected long misses;
+
+	/**
+	 * The number of times that the whole model has been trained.
+	 */
+	protected long trainings;
+
+	/**
+	 * The number of times that a single {@code Segment} has been retrained.
+	 */
+	protected long retrainings;
+
+	/**
+	 * Constructs a {@code LearnedIndex} and trains it on the {@code LeafNode}s of the specified {@code BPlusTree}.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param leavesPerSegment
+	 *            the number of {@code LeafNode}s per {@code Segment} at training.
+	 */
+	public LearnedIndex(BPlusTree<K, V> tree, int leavesPerSegment) {
+		if (leavesPerSegment < 1)
+			throw new IllegalArgumentException("leavesPerSegment: " + leavesPerSegment);
+		this.tree = tree;
+		this.leavesPerSegment = leavesPerSegment;
+		train();
+	}
+
+	/**
+	 * Returns the number of {@code LeafNode}s per {@code Segment} at training.
+	 * 
+	 * @return the number of {@code LeafNode}s per {@code Segment} at training.
+	 */
+	public int leavesPerSegment() {
+		return leavesPerSegment;
+	}
+
+	/**
+	 * Trains the whole model on the current {@code LeafNode}s.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void train() {
+		java.util.ArrayList<LeafNode<K, V>> all = new java.util.ArrayList<LeafNode<K, V>>();
+		for (LeafNode<K, V> leaf = tree.firstLeaf(); leaf != null; leaf = leaf.successor())
+			all.add(leaf);
+		trainedLeaves = leaves = all.size();
+		segments = new Segment[0];
+		trainings++;
+		if (all.isEmpty() || all.get(0).numberOfKeys() == 0)
+			return;
+		K first = all.get(0).firstKey();
+		if (!(first instanceof Long || first instanceof Integer))
+			return;
+		integers = first instanceof Integer;
+		minimumKey = longValue(first);
+		int n = all.size();
+		long[] firstKeys = new long[n];
+		for (int i = 0; i < n; i++)
+			firstKeys[i] = longValue(all.get(i).firstKey());
+		int count = Math.max(1, n / leavesPerSegment);
+		scale = count / ((double) longValue(all.get(n - 1).lastKey()) - minimumKey + 1);
+		segments = new Segment[count];
+		for (int s = 0, begin = 0; s < count; s++) {
+			int end = begin; // the segment of the first key of a leaf node never decreases along the chain
+			while (end < n && segment(firstKeys[end]) <= s)
+				end++;
+			int from = Math.max(0, begin - 1); // the leaf node before the segment holds its smallest keys
+			segments[s] = new Segment<K, V>(all.subList(from, end).toArray(new LeafNode[end - from]),
+					java.util.Arrays.copyOfRange(firstKeys, from, end));
+			begin = end;
+		}
+	}
+
+	/**
+	 * Retrains the specified {@code Segment} on the current {@code LeafNode}s in its share of the key range.
+	 * 
+	 * @param s
+	 *            the index of a {@code Segment}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected void retrain(int s) {
+		LeafNode<K, V> leaf = s == 0 ? tree.firstLeaf() : tree.find(toKey(segments[s].firstKeys[0]));
+		while (leaf.successor() != null && segment(longValue(leaf.successor().firstKey())) < s)
+			leaf = leaf.successor();
+		java.util.ArrayList<LeafNode<K, V>> list = new java.util.ArrayList<LeafNode<K, V>>();
+		for (list.add(leaf); (leaf = leaf.successor()) != null && segment(longValue(leaf.firstKey())) <= s;)
+			list.add(leaf);
+		long[] firstKeys = new long[list.size()];
+		for (int i = 0; i < firstKeys.length; i++)
+			firstKeys[i] = longValue(list.get(i).firstKey());
+		segments[s] = new Segment<K, V>(list.toArray(new LeafNode[list.size()]), firstKeys);
+		retrainings++;
+	}
+
+	/**
+	 * Returns the index of the {@code Segment} whose share of the key range contains the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the index of the {@code Segment} whose share of the key range contains the specified key.
+	 */
+	protected int segment(long key) {
+		double s = ((double) key - minimumKey) * scale;
+		return (int) Math.max(0, Math.min(segments.length - 1, s));
+	}
+
+	/**
+	 * Finds the {@code LeafNode} that must contain the specified key if the {@code BPlusTree} contains it. A
+	 * {@code LeafNode} is only confirmed if its first key is smaller than the specified key: when duplicate keys span
+	 * {@code LeafNode}s, the entries with the first key of a {@code LeafNode} may start in its predecessor.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the {@code LeafNode} that must contain the specified key if the {@code BPlusTree} contains it;
+	 *         {@code null} if the model cannot tell, in which case the {@code BPlusTree} must be descended.
+	 */
+	public LeafNode<K, V> find(K key) {
+		if (segments.length == 0) {
+			misses++;
+			return null;
+		}
+		long x = longValue(key);
+		Segment<K, V> g = segments[segment(x)];
+		LeafNode<K, V> leaf = g.leaves[g.search(x)];
+		// a leaf node merged away is cleared, so it has no keys
+		for (int hops = 0; leaf.numberOfKeys() > 0 && longValue(leaf.firstKey()) < x; hops++) {
+			LeafNode<K, V> next = leaf.successor();
+			if (x <= longValue(leaf.lastKey()) || next == null || x < longValue(next.firstKey())) {
+				hits++;
+				return leaf;
+			}
+			if (hops == MAXIMUM_HOPS)
+				break;
+			leaf = next;
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Records that a {@code LeafNode} has been created by a split or removed by a merge, and retrains the affected
+	 * {@code Segment} (or the whole model) if it has changed enough. Must be called once the {@code BPlusTree} is
+	 * consistent again.
+	 * 
+	 * @param key
+	 *            the first key of the new {@code LeafNode} or the separator of the {@code LeafNode}s merged.
+	 * @param delta
+	 *            1 for a split; -1 for a merge.
+	 */
+	protected void changed(K key, int delta) {
+		leaves += delta;
+		if (leaves > 2 * trainedLeaves || 2 * leaves < trainedLeaves)
+			train();
+		else if (segments.length > 0) {
+			int s = segment(longValue(key));
+			if (++segments[s].changes > segments[s].leaves.length / 4)
+				retrain(s);
+		}
+	}
+
+	/**
+	 * Returns the specified key as a {@code long}.
+	 * 
+	 * @param key
+	 *            a {@code Long} or {@code Integer} key.
+	 * @return the specified key as a {@code long}.
+	 */
+	protected static long longValue(Object key) {
+		return ((Number) key).longValue();
+	}
+
+	/**
+	 * Returns the key of the type of the {@code BPlusTree} for the specified {@code long}.
+	 * 
+	 * @param key
+	 *            a {@code long} obtained from a key.
+	 * @return the key of the type of the {@code BPlusTree} for the specified {@code long}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected K toKey(long key) {
+		return (K) (integers ? (Object) Integer.valueOf((int) key) : (Object) Long.valueOf(key));
+	}
+
+	/**
+	 * Returns the number of {@code Segment}s.
+	 * 
+	 * @return the number of {@code Segment}s; 0 if the {@code LeafNode}s are not modeled.
+	 */
+	public int segments() {
+		return segments.length;
+	}
+
+	/**
+	 * Returns the largest error window (in {@code LeafNode}s on either side of a prediction) of the {@code Segment}s.
+	 * 
+	 * @return the largest error window of the {@code Segment}s.
+	 */
+	public int maximumError() {
+		int error = 0;
+		for (Segment<K, V> g : segments)
+			error = Math.max(error, g.error + 1);
+		return error;
+	}
+
+	/**
+	 * Returns the number of lookups that reached a {@code LeafNode} through the model.
+	 * 
+	 * @return the number of lookups that reached a {@code LeafNode} through the model.
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that fell back to a descent.
+	 * 
+	 * @return the number of lookups that fell back to a descent.
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of times that the whole model has been trained.
+	 * 
+	 * @return the number of times that the whole model has been trained.
+	 */
+	public long trainings() {
+		return trainings;
+	}
+
+	/**
+	 * Returns the number of times that a single {@code Segment} has been retrained.
+	 * 
+	 * @return the number of times that a single {@code Segment} has been retrained.
+	 */
+	public long retrainings() {
+		return retrainings;
+	}
+
+	/**
+	 * Returns the String representation of this {@code LearnedIndex}.
+	 */
+	@Override
+	public String toString() {
+		return "LearnedIndex(segments: " + segments.length + ", leaves: " + leaves + ", maximum error: "
+				+ maximumError() + ", hits: " + hits + ", misses: " + misses + ", trainings: " + trainings
+				+ ", retrainings: " + retrainings + ")";
+	}
+
+}
@@ -0,0 +1,435 @@
+package bptree;
+
+/**
+ * The {@code LookupCache} class implements a bounded key-to-value cache that can be placed in front of a
+ * {@code BPlusTree}. It follows the W-TinyLFU design: new entries enter a small LRU window, and an entry evicted from
+ * the window is admitted into the main region only if the {@code FrequencySketch} estimates that it is accessed more
+ * often than a victim chosen by sampling the main region.
+ * <p>
+ * Keys are found with {@code equals} and {@code hashCode}, so a {@code BPlusTree} can only invalidate the entry of a
+ * key that it updates if the keys have {@code equals} and {@code hashCode} consistent with {@code compareTo}. Every
+ * lookup reorders the entries, so a {@code LookupCache} is not thread-safe, even for lookups.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class LookupCache<K, V> {
+
+	/**
+	 * The {@code Entry} class implements entries of a {@code LookupCache}.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param <V>
+	 *            the type of values
+	 */
+	static class Entry<K, V> {
+
+		/**
+		 * The key of this {@code Entry}.
+		 */
+		K key;
+
+		/**
+		 * The value of this {@code Entry}.
+		 */
+		V value;
+
+		/**
+		 * The position of this {@code Entry} in the main region; -1 if this {@code Entry} is in the window.
+		 */
+		int index = -1;
+
+		/**
+		 * The previous {@code Entry} in the window (more recently used).
+		 */
+		Entry<K, V> previous;
+
+		/**
+		 * The next {@code Entry} in the window (less recently used).
+		 */
+		Entry<K, V> next;
+
+		/**
+		 * Constructs an {@code Entry}.
+		 * 
+		 * @param key
+		 *            the key of the {@code Entry}.
+		 * @param value
+		 *            the value of the {@code Entry}.
+		 */
+		Entry(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the value of this {@code Entry}.
+		 * 
+		 * @return the value of this {@code Entry}.
+		 */
+		V value() {
+			return value;
+		}
+
+	}
+
+	/**
+	 * The number of entries sampled from the main region when choosing an eviction victim.
+	 */
+	protected static final int SAMPLE_COUNT = 8;
+
+	/**
+	 * The maximum number of entries in this {@code LookupCache}.
+	 */
+	protected int maximumSize;
+
+	/**
+	 * The maximum number of entries in the window of this {@code LookupCache}.
+	 */
+	protected int windowMaximum;
+
+	/**
+	 * The entries of this {@code LookupCache} (keyed by {@code equals} and {@code hashCode}).
+	 */
+	protected java.util.HashMap<K, Entry<K, V>> data;
+
+	/**
+	 * The sketch that estimates the access frequency of keys.
+	 */
+	protected FrequencySketch<K> sketch;
+
+	/**
+	 * The most recently used {@code Entry} in the window.
+	 */
+	protected Entry<K, V> windowHead;
+
+	/**
+	 * The least recently used {@code Entry} in the window.
+	 */
+	protected Entry<K, V> windowTail;
+
+	/**
+	 * The number of entries in the window.
+	 */
+	protected int windowSize;
+
+	/**
+	 * The entries in the main region.
+	 */
+	protected java.util.ArrayList<Entry<K, V>> main;
+
+	/**
+	 * The random number generator used for sampling the main region.
+	 */
+	protected java.util.Random random = new java.util.Random();
+
+	/**
+	 * The number of lookups answered by this {@code LookupCache}.
+	 */
+	protected long hitCount;
+
+	/**
+	 * The number of lookups that could not be answered by this {@code LookupCache}.
+	 */
+	protected long missCount;
+
+	/**
+	 * The number of entries evicted from this {@code LookupCache}.
+	 */
+	protected long evictionCount;
+
+	/**
+	 * The total time (in nanoseconds) spent on lookups answered by this {@code LookupCache}.
+	 */
+	protected long hitNanos;
+
+	/**
+	 * The total time (in nanoseconds) spent on lookups that could not be answered by this {@code LookupCache}.
+	 */
+	protected long missNanos;
+
+	/**
+	 * Constructs a {@code LookupCache}.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of entries in the {@code LookupCache}.
+	 */
+	public LookupCache(int maximumSize) {
+		if (maximumSize < 1)
+			throw new IllegalArgumentException("maximumSize: " + maximumSize);
+		this.maximumSize = maximumSize;
+		this.windowMaximum = Math.max(1, maximumSize / 100);
+		this.data = new java.util.HashMap<K, Entry<K, V>>();
+		this.sketch = new FrequencySketch<K>(maximumSize);
+		this.main = new java.util.ArrayList<Entry<K, V>>(maximumSize - windowMaximum);
+	}
+
+	/**
+	 * Returns the maximum number of entries in this {@code LookupCache}.
+	 * 
+	 * @return the maximum number of entries in this {@code LookupCache}.
+	 */
+	public int maximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns the number of entries in this {@code LookupCache}.
+	 * 
+	 * @return the number of entries in this {@code LookupCache}.
+	 */
+	public int size() {
+		return data.size();
+	}
+
+	/**
+	 * Returns the {@code Entry} for the specified key and records the access.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the {@code Entry} for the specified key; {@code null} if the key is not cached.
+	 */
+	Entry<K, V> getEntry(K key) {
+		sketch.increment(key);
+		Entry<K, V> e = data.get(key);
+		if (e != null && e.index < 0) { // if in the window, make it the most recently used
+			unlink(e);
+			linkFirst(e);
+		}
+		return e;
+	}
+
+	/**
+	 * Puts the specified key and value into this {@code LookupCache}, possibly evicting another entry.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param value
+	 *            the value.
+	 */
+	public void put(K key, V value) {
+		Entry<K, V> e = data.get(key);
+		if (e != null) {
+			e.value = value;
+			return;
+		}
+		e = new Entry<K, V>(key, value);
+		data.put(key, e);
+		linkFirst(e);
+		if (windowSize > windowMaximum) { // if the window overflows
+			Entry<K, V> candidate = windowTail;
+			unlink(candidate);
+			admit(candidate);
+		}
+	}
+
+	/**
+	 * Removes the specified key from this {@code LookupCache}.
+	 * 
+	 * @param key
+	 *            the key to remove.
+	 */
+	public void invalidate(K key) {
+		Entry<K, V> e = data.remove(key);
+		if (e == null)
+			return;
+		if (e.index < 0)
+			unlink(e);
+		else
+			removeFromMain(e);
+	}
+
+	/**
+	 * Removes all entries from this {@code LookupCache}.
+	 */
+	public void clear() {
+		data.clear();
+		main.clear();
+		windowHead = windowTail = null;
+		windowSize = 0;
+	}
+
+	/**
+	 * Moves the specified {@code Entry} evicted from the window into the main region if the main region has room or if
+	 * the {@code Entry} is accessed more frequently than a sampled victim. Otherwise, the {@code Entry} is discarded.
+	 * 
+	 * @param candidate
+	 *            an {@code Entry} evicted from the window.
+	 */
+	protected void admit(Entry<K, V> candidate) {
+		if (main.size() < maximumSize - windowMaximum) { // if the main region has room
+			candidate.index = main.size();
+			main.add(candidate);
+			return;
+		}
+		Entry<K, V> victim = sampleVictim();
+		if (victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+			data.remove(victim.key);
+			candidate.index = victim.index;
+			main.set(victim.index, candidate);
+		} else {
+			data.remove(candidate.key);
+		}
+		evictionCount++;
+	}
+
+	/**
+	 * Returns the least frequently used {@code Entry} among entries sampled from the main region.
+	 * 
+	 * @return the least frequently used {@code Entry} among entries sampled from the main region; {@code null} if the
+	 *         main region is empty.
+	 */
+	protected Entry<K, V> sampleVictim() {
+		Entry<K, V> victim = null;
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < SAMPLE_COUNT && !main.isEmpty(); i++) {
+			Entry<K, V> e = main.get(random.nextInt(main.size()));
+			int f = sketch.frequency(e.key);
+			if (f < min) {
+				min = f;
+				victim = e;
+			}
+		}
+		return victim;
+	}
+
+	/**
+	 * Removes the specified {@code Entry} from the main region by moving the last {@code Entry} into its slot.
+	 * 
+	 * @param e
+	 *            an {@code Entry} in the main region.
+	 */
+	protected void removeFromMain(Entry<K, V> e) {
+		Entry<K, V> last = main.remove(main.size() - 1);
+		if (last != e) {
+			last.index = e.index;
+			main.set(e.index, last);
+		}
+		e.index = -1;
+	}
+
+	/**
+	 * Makes the specified {@code Entry} the most recently used {@code Entry} in the window.
+	 * 
+	 * @param e
+	 *            an {@code Entry}.
+	 */
+	protected void linkFirst(Entry<K, V> e) {
+		e.previous = null;
+		e.next = windowHead;
+		if (windowHead != null)
+			windowHead.previous = e;
+		else
+			windowTail = e;
+		windowHead = e;
+		windowSize++;
+	}
+
+	/**
+	 * Removes the specified {@code Entry} from the window.
+	 * 
+	 * @param e
+	 *            an {@code Entry} in the window.
+	 */
+	protected void unlink(Entry<K, V> e) {
+		if (e.previous != null)
+			e.previous.next = e.next;
+		else
+			windowHead = e.next;
+		if (e.next != null)
+			e.next.previous = e.previous;
+		else
+			windowTail = e.previous;
+		e.previous = e.next = null;
+		windowSize--;
+	}
+
+	/**
+	 * Records a lookup answered by this {@code LookupCache}.
+	 * 
+	 * @param nanos
+	 *            the time (in nanoseconds) spent on the lookup.
+	 */
+	void recordHit(long nanos) {
+		hitCount++;
+		hitNanos += nanos;
+	}
+
+	/**
+	 * Records a lookup that could not be answered by this {@code LookupCache}.
+	 * 
+	 * @param nanos
+	 *            the time (in nanoseconds) spent on the lookup, including the descent of the tree.
+	 */
+	void recordMiss(long nanos) {
+		missCount++;
+		missNanos += nanos;
+	}
+
+	/**
+	 * Returns the number of lookups answered by this {@code LookupCache}.
+	 * 
+	 * @return the number of lookups answered by this {@code LookupCache}.
+	 */
+	public long hitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that could not be answered by this {@code LookupCache}.
+	 * 
+	 * @return the number of lookups that could not be answered by this {@code LookupCache}.
+	 */
+	public long missCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of entries evicted from this {@code LookupCache}.
+	 * 
+	 * @return the number of entries evicted from this {@code LookupCache}.
+	 */
+	public long evictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the ratio of lookups answered by this {@code LookupCache}.
+	 * 
+	 * @return the ratio of lookups answered by this {@code LookupCache}; 0 if no lookup has been made.
+	 */
+	public double hitRate() {
+		long total = hitCount + missCount;
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * Returns the average time (in nanoseconds) of lookups answered by this {@code LookupCache}.
+	 * 
+	 * @return the average time (in nanoseconds) of lookups answered by this {@code LookupCache}.
+	 */
+	public double averageHitNanos() {
+		return hitCount == 0 ? 0 : (double) hitNanos / hitCount;
+	}
+
+	/**
+	 * Returns the average time (in nanoseconds) of lookups that could not be answered by this {@code LookupCache}.
+	 * 
+	 * @return the average time (in nanoseconds) of lookups that could not be answered by this {@code LookupCache}.
+	 */
+	public double averageMissNanos() {
+		return missCount == 0 ? 0 : (double) missNanos / missCount;
+	}
+
+	/**
+	 * Returns the String representation of this {@code LookupCache}.
+	 */
+	public String toString() {
+		return "LookupCache(size: " + size() + "/" + maximumSize + ", hit rate: " + hitRate() + ", hits: " + hitCount
+				+ ", misses: " + missCount + ", evictions: " + evictionCount + ")";
+	}
+
+}
@@ -0,0 +1,303 @@
+package bptree;
+
+/**
+ * A {@code MessageBuffer} holds the insertions, replacements and deletions that a {@code BufferedBPlusTree} has
+ * accepted for the subtree of a {@code NonLeafNode} but not yet applied to its {@code LeafNode}s. Messages (and sorted
+ * runs of messages flushed from the parent) are appended, and the {@code MessageBuffer} is sorted by key only when a
+ * lookup or a flush needs it; the sort is stable, so the messages with equal keys stay in the order in which they
+ * were accepted, and it merges the appended runs rather than comparing every pair. For any key, the messages in the
+ * {@code MessageBuffer} of a {@code NonLeafNode} are newer than those in the {@code MessageBuffer}s of its
+ * descendants.
+ * 
+ * @param <K>
+ *            the type of keys
+ */
+public class MessageBuffer<K extends Comparable<K>> {
+
+	/**
+	 * The types of messages.
+	 */
+	public enum Type {
+
+		/**
+		 * An entry is to be inserted (see {@link BPlusTree#insert(Comparable, Object)}).
+		 */
+		INSERT,
+
+		/**
+		 * The value of the first entry with the key is to be replaced, or an entry is to be inserted if there is no
+		 * such entry (see {@link BPlusTree#upsert(Comparable, Object)}).
+		 */
+		PUT,
+
+		/**
+		 * An entry is to be deleted (see {@link BPlusTree#delete(Comparable, Object)}).
+		 */
+		DELETE
+	}
+
+	/**
+	 * A {@code Message} is an insertion, replacement or deletion.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 */
+	public static class Message<K extends Comparable<K>> {
+
+		/**
+		 * The type of this {@code Message}.
+		 */
+		protected final Type type;
+
+		/**
+		 * The key of this {@code Message}.
+		 */
+		protected final K key;
+
+		/**
+		 * The value of this {@code Message} ({@code null} for a deletion of the first entry with the key).
+		 */
+		protected final Object value;
+
+		/**
+		 * Constructs a {@code Message}.
+		 * 
+		 * @param type
+		 *            the type of the {@code Message}.
+		 * @param key
+		 *            the key of the {@code Message}.
+		 * @param value
+		 *            the value of the {@code Message}.
+		 */
+		public Message(Type type, K key, Object value) {
+			this.type = type;
+			this.key = key;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the type of this {@code Message}.
+		 * 
+		 * @return the type of this {@code Message}.
+		 */
+		public Type type() {
+			return type;
+		}
+
+		/**
+		 * Returns the key of this {@code Message}.
+		 * 
+		 * @return the key of this {@code Message}.
+		 */
+		public K key() {
+			return key;
+		}
+
+		/**
+		 * Returns the value of this {@code Message}.
+		 * 
+		 * @return the value of this {@code Message}.
+		 */
+		public Object value() {
+			return value;
+		}
+
+	}
+
+	/**
+	 * The messages.
+	 */
+	protected Message<K>[] messages;
+
+	/**
+	 * The number of messages.
+	 */
+	protected int size;
+
+	/**
+	 * The number of leading messages that are sorted by key; the messages after them are newer and not sorted.
+	 */
+	protected int sortedSize;
+
+	/**
+	 * Constructs a {@code MessageBuffer}.
+	 * 
+	 * @param capacity
+	 *            the initial capacity (which grows if more messages are added).
+	 */
+	@SuppressWarnings("unchecked")
+	public MessageBuffer(int capacity) {
+		messages = (Message<K>[]) new Message[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Copy-constructs a {@code MessageBuffer}.
+	 * 
+	 * @param buffer
+	 *            the other {@code MessageBuffer} to copy from.
+	 */
+	public MessageBuffer(MessageBuffer<K> buffer) {
+		this.messages = buffer.messages.clone(); // the messages themselves are immutable
+		this.size = buffer.size;
+		this.sortedSize = buffer.sortedSize;
+	}
+
+	/**
+	 * Returns the number of messages in this {@code MessageBuffer}.
+	 * 
+	 * @return the number of messages in this {@code MessageBuffer}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the message at the specified index in key order.
+	 * 
+	 * @param i
+	 *            the index of a message.
+	 * @return the message at the specified index in key order.
+	 */
+	public Message<K> message(int i) {
+		sort();
+		return messages[i];
+	}
+
+	/**
+	 * Returns the index of the first message whose key is greater than or equal to (or, if {@code after} is
+	 * {@code true}, greater than) the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @param after
+	 *            {@code true} to skip the messages with the specified key.
+	 * @return the index of the first message whose key is greater than or equal to (or greater than) the specified
+	 *         key; {@link #size()} if there is no such message.
+	 */
+	public int search(K key, boolean after) {
+		sort();
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int m = (lo + hi) >>> 1;
+			int c = messages[m].key.compareTo(key);
+			if (c < 0 || after && c == 0)
+				lo = m + 1;
+			else
+				hi = m;
+		}
+		return lo;
+	}
+
+	/**
+	 * Adds the messages with the specified key to the specified list in the order in which they were accepted. The
+	 * sorted messages are searched and the newer ones scanned; they are sorted first once there are more than the
+	 * square root of the number of messages, so that sorting and scanning both take time proportional to that square
+	 * root per message added.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @param list
+	 *            the list to which the messages are added.
+	 */
+	public void collect(K key, java.util.List<Message<K>> list) {
+		int unsorted = size - sortedSize;
+		if (unsorted * unsorted > size)
+			sort();
+		int lo = 0, hi = sortedSize;
+		while (lo < hi) {
+			int m = (lo + hi) >>> 1;
+			if (messages[m].key.compareTo(key) < 0)
+				lo = m + 1;
+			else
+				hi = m;
+		}
+		for (int i = lo; i < sortedSize && messages[i].key.compareTo(key) == 0; i++)
+			list.add(messages[i]);
+		for (int i = sortedSize; i < size; i++)
+			if (messages[i].key.compareTo(key) == 0)
+				list.add(messages[i]);
+	}
+
+	/**
+	 * Adds the specified message after the messages accepted before it.
+	 * 
+	 * @param type
+	 *            the type of the message.
+	 * @param key
+	 *            the key of the message.
+	 * @param value
+	 *            the value of the message.
+	 */
+	public void add(Type type, K key, Object value) {
+		if (size == messages.length)
+			grow(size + 1);
+		if (sortedSize == size && (size == 0 || messages[size - 1].key.compareTo(key) <= 0))
+			sortedSize++;
+		messages[size++] = new Message<K>(type, key, value);
+	}
+
+	/**
+	 * Adds the specified messages of the specified {@code MessageBuffer}, which are newer than the messages in this
+	 * {@code MessageBuffer}.
+	 * 
+	 * @param buffer
+	 *            a {@code MessageBuffer}.
+	 * @param beginIndex
+	 *            the index of the first message to add in key order, inclusive.
+	 * @param endIndex
+	 *            the index of the last message to add in key order, exclusive.
+	 */
+	public void addAll(MessageBuffer<K> buffer, int beginIndex, int endIndex) {
+		int n = endIndex - beginIndex;
+		if (n <= 0)
+			return;
+		buffer.sort();
+		if (size + n > messages.length)
+			grow(size + n);
+		boolean inOrder = sortedSize == size
+				&& (size == 0 || messages[size - 1].key.compareTo(buffer.messages[beginIndex].key) <= 0);
+		System.arraycopy(buffer.messages, beginIndex, messages, size, n);
+		size += n;
+		if (inOrder)
+			sortedSize = size;
+	}
+
+	/**
+	 * Moves the messages whose keys are greater than the specified key into a new {@code MessageBuffer} (the messages
+	 * with a separator key are routed to the child on its left; see {@link NonLeafNode#childIndex(Comparable)}).
+	 * 
+	 * @param key
+	 *            the separator key.
+	 * @return a new {@code MessageBuffer} that holds the messages whose keys are greater than the specified key.
+	 */
+	public MessageBuffer<K> split(K key) {
+		int i = search(key, true);
+		MessageBuffer<K> buffer = new MessageBuffer<K>(messages.length);
+		buffer.addAll(this, i, size);
+		java.util.Arrays.fill(messages, i, size, null);
+		size = sortedSize = i;
+		return buffer;
+	}
+
+	/**
+	 * Sorts the messages by key unless they are sorted. The sort is stable and runs in linear time on the runs of
+	 * sorted messages that have been appended.
+	 */
+	protected void sort() {
+		if (sortedSize < size) {
+			java.util.Arrays.sort(messages, 0, size, (x, y) -> x.key.compareTo(y.key));
+			sortedSize = size;
+		}
+	}
+
+	/**
+	 * Enlarges the array of this {@code MessageBuffer}.
+	 * 
+	 * @param minimum
+	 *            the minimum number of messages that the array must hold.
+	 */
+	protected void grow(int minimum) {
+		messages = java.util.Arrays.copyOf(messages, Math.max(minimum, 2 * messages.length));
+	}
+
+}
@@ -0,0 +1,28 @@
+package bptree;
+
+/**
+ * The {@code MidpointSplitPolicy} class implements the textbook {@code SplitPolicy} that moves the second half of the
+ * entries of an overflowing {@code Node} to the new sibling.
+ */
+public class MidpointSplitPolicy implements SplitPolicy {
+
+	/**
+	 * Constructs a {@code MidpointSplitPolicy}.
+	 */
+	public MidpointSplitPolicy() {
+	}
+
+	@Override
+	public void inserted(Node<?> node, int position) {
+	}
+
+	@Override
+	public int splitPoint(Node<?> node, int position, boolean rightEdge, int degree) {
+		return (int) Math.ceil(degree / 2.0);
+	}
+
+	@Override
+	public void split(Node<?> node, Node<?> sibling) {
+	}
+
+}
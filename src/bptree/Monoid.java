@@ -0,0 +1,94 @@
+package bptree;
+
+/**
+ * The {@code Monoid} interface defines how the values of a {@code BPlusTree} are aggregated over key ranges. Each value
+ * is lifted into an aggregate, and aggregates are combined by an associative operation whose identity is the aggregate
+ * of an empty range. The operation need not be commutative since aggregates are always combined in key order.
+ * 
+ * @param <V>
+ *            the type of values
+ * @param <A>
+ *            the type of aggregates
+ */
+public interface Monoid<V, A> {
+
+	/**
+	 * Returns the aggregate of no value.
+	 * 
+	 * @return the aggregate of no value.
+	 */
+	A identity();
+
+	/**
+	 * Returns the aggregate of the specified value.
+	 * 
+	 * @param value
+	 *            a value.
+	 * @return the aggregate of the specified value.
+	 */
+	A lift(V value);
+
+	/**
+	 * Combines the specified aggregates.
+	 * 
+	 * @param a
+	 *            the aggregate of the values with smaller keys.
+	 * @param b
+	 *            the aggregate of the values with larger keys.
+	 * @return the aggregate of the values of both aggregates.
+	 */
+	A combine(A a, A b);
+
+	/**
+	 * Returns a {@code Monoid} whose aggregates are of the same type as the values (e.g., the sum, minimum or maximum).
+	 * 
+	 * @param <V>
+	 *            the type of values
+	 * @param identity
+	 *            the aggregate of no value.
+	 * @param combine
+	 *            the associative operation that combines aggregates.
+	 * @return a {@code Monoid} that lifts each value into itself.
+	 */
+	static <V> Monoid<V, V> of(V identity, java.util.function.BinaryOperator<V> combine) {
+		return of(identity, v -> v, combine);
+	}
+
+	/**
+	 * Returns a {@code Monoid} defined by the specified functions.
+	 * 
+	 * @param <V>
+	 *            the type of values
+	 * @param <A>
+	 *            the type of aggregates
+	 * @param identity
+	 *            the aggregate of no value.
+	 * @param lift
+	 *            the function that returns the aggregate of a value.
+	 * @param combine
+	 *            the associative operation that combines aggregates.
+	 * @return a {@code Monoid} defined by the specified functions.
+	 */
+	static <V, A> Monoid<V, A> of(A identity, java.util.function.Function<? super V, ? extends A> lift,
+			java.util.function.BinaryOperator<A> combine) {
+		return new Monoid<V, A>() {
+
+			@Override
+			public A identity() {
+				return identity;
+			}
+
+			@Override
+			public A lift(V value) {
+				return lift.apply(value);
+			}
+
+			@Override
+			public A combine(A a, A b) {
+				return combine.apply(a, b);
+			}
+
+		};
+	}
+
+}
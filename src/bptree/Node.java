@@ -18,9 +18,10 @@ public abstract class Node<K extends Comparable<K>> {
 	protected K[] keys;
 
 	/**
-	 * The pointers that this {@code Node} maintains.
+	 * The moving average of the relative positions (0 for the front and 1 for the back) at which keys have recently
+	 * been inserted into this {@code Node}. It is maintained only by {@code AdaptiveSplitPolicy}.
 	 */
-	protected Object[] pointers;
+	protected float insertPosition = 0.5f;
 
 	/**
 	 * Constructs a {@code Node}.
@@ -32,30 +33,18 @@ public abstract class Node<K extends Comparable<K>> {
 	public Node(int degree) {
 		numberOfKeys = 0;
 		keys = (K[]) new Comparable[degree - 1];
-		pointers = new Object[degree];
 	}
 
 	/**
-	 * Copy-constructs a {@code Node}.
+	 * Copy-constructs a {@code Node} (the keys only; subclasses copy what the keys point to).
 	 * 
 	 * @param node
 	 *            the other {@code Node} to copy from.
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public Node(Node<K> node) {
 		this.numberOfKeys = node.numberOfKeys;
-		keys = (K[]) new Comparable[node.keys.length];
-		System.arraycopy(node.keys, 0, keys, 0, node.keys.length);
-		pointers = new Object[node.pointers.length];
-		for (int i = 0; i < node.pointers.length; i++) {
-			Object pointer = node.pointers[i];
-			if (pointer instanceof LeafNode)
-				pointers[i] = new LeafNode((LeafNode) pointer); // copy construct the node.
-			else if (pointer instanceof NonLeafNode)
-				pointers[i] = new NonLeafNode((NonLeafNode) pointer); // copy construct the node.
-			else
-				pointers[i] = pointer;
-		}
+		this.insertPosition = node.insertPosition;
+		keys = node.keys.clone();
 	}
 
 	/**
@@ -87,6 +76,15 @@ public abstract class Node<K extends Comparable<K>> {
 		return keys[0];
 	}
 
+	/**
+	 * Returns the last key of this {@code Node}.
+	 * 
+	 * @return the last key of this {@code Node}.
+	 */
+	public K lastKey() {
+		return keys[numberOfKeys - 1];
+	}
+
 	/**
 	 * Clears this {@code Node}.
 	 */
@@ -94,8 +92,6 @@ public abstract class Node<K extends Comparable<K>> {
 		numberOfKeys = 0;
 		for (int i = 0; i < keys.length; i++)
 			keys[i] = null;
-		for (int i = 0; i < pointers.length; i++)
-			pointers[i] = null;
 	}
 
 	/**
@@ -138,27 +134,44 @@ public abstract class Node<K extends Comparable<K>> {
 	}
 
 	/**
-	 * Inserts the specified key and object at the specified location.
+	 * Returns the index i such that keys[i] is equal to the given key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the index i such that keys[i] is equal to the given key; -1 if there is no such i.
+	 */
+	protected int findIndex(K key) {
+		for (int i = 0; i < numberOfKeys; i++) {
+			if (keys[i].compareTo(key) == 0)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Shifts the keys from the specified location one position to the right and puts the specified key there.
 	 * 
 	 * @param key
 	 *            the key to insert.
-	 * @param object
-	 *            the object to insert.
 	 * @param pos
 	 *            the insertion position
 	 */
-	protected void insert(K key, Object object, int pos) {
-		for (int i = numberOfKeys; i > pos; i--) {
+	protected void insertKey(K key, int pos) {
+		for (int i = numberOfKeys; i > pos; i--)
 			keys[i] = keys[i - 1];
-			pointers[i] = pointers[i - 1];
-		}
 		keys[pos] = key;
-		pointers[pos] = object;
-		numberOfKeys++;
 	}
 
 	/**
-	 * Copies the specified keys and their pointers of the specified {@code Node} into this {@code Node}.
+	 * Removes the key at the specified index together with its associated pointer.
+	 * 
+	 * @param i
+	 *            the index of the key to remove.
+	 */
+	protected abstract void remove(int i);
+
+	/**
+	 * Copies the specified keys of the specified {@code Node} into this {@code Node}.
 	 * 
 	 * @param node
 	 *            a {@code Node}.
@@ -167,12 +180,9 @@ public abstract class Node<K extends Comparable<K>> {
 	 * @param endIndex
 	 *            the ending index of the keys, exclusive.
 	 */
-	public void copy(Node<K> node, int beginIndex, int endIndex) {
-		numberOfKeys = 0;
-		for (; numberOfKeys < endIndex - beginIndex; numberOfKeys++) {
-			this.keys[numberOfKeys] = node.keys[numberOfKeys + beginIndex];
-			this.pointers[numberOfKeys] = node.pointers[numberOfKeys + beginIndex];
-		}
+	protected void copyKeys(Node<K> node, int beginIndex, int endIndex) {
+		numberOfKeys = endIndex - beginIndex;
+		System.arraycopy(node.keys, beginIndex, keys, 0, numberOfKeys);
 	}
 
 }
@@ -7,14 +7,52 @@ package bptree;
  */
 public class NonLeafNode<K extends Comparable<K>> extends Node<K> {
 
+	/**
+	 * The child {@code Node}s of this {@code NonLeafNode} (the keys of child i are between key(i - 1) and key(i)).
+	 */
+	protected Node<K>[] children;
+
+	/**
+	 * The number of entries in the subtree of each child {@code Node}; {@code null} if the {@code BPlusTree} does not
+	 * maintain subtree counts.
+	 */
+	protected long[] counts;
+
+	/**
+	 * The aggregate of the values in the subtree of each child {@code Node}; {@code null} if the {@code BPlusTree} does
+	 * not maintain aggregates.
+	 */
+	protected Object[] aggregates;
+
+	/**
+	 * The Bloom filter of each child {@code LeafNode}; {@code null} if this {@code NonLeafNode} is not a parent of
+	 * {@code LeafNode}s or the {@code BPlusTree} does not maintain {@code LeafFilters}.
+	 */
+	protected LeafFilters.Filter[] filters;
+
+	/**
+	 * A copy of the keys in cache-line-sized blocks that {@link #findIndexGE(Comparable)} searches instead of comparing
+	 * the keys one by one; {@code null} if the {@code BPlusTree} does not maintain {@code BlockedKeys} or the keys are
+	 * neither {@code Long}s nor {@code Integer}s.
+	 */
+	protected BlockedKeys blocked;
+
+	/**
+	 * The messages accepted for the subtree of this {@code NonLeafNode} but not yet applied; {@code null} if there are
+	 * none (the {@code BPlusTree} is not a {@code BufferedBPlusTree} or has flushed them).
+	 */
+	protected MessageBuffer<K> buffer;
+
 	/**
 	 * Constructs a {@code NonLeafNode}.
 	 * 
 	 * @param degree
 	 *            the degree of the {@code NonLeafNode}.
 	 */
+	@SuppressWarnings("unchecked")
 	public NonLeafNode(int degree) {
 		super(degree);
+		children = (Node<K>[]) new Node[degree];
 	}
 
 	/**
@@ -23,8 +61,21 @@ public class NonLeafNode<K extends Comparable<K>> extends Node<K> {
 	 * @param node
 	 *            the other {@code NonLeafNode} to copy from.
 	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public NonLeafNode(NonLeafNode<K> node) {
 		super(node);
+		children = (Node<K>[]) new Node[node.children.length];
+		boolean leaves = node.children[0] instanceof LeafNode; // all children are at the same level
+		for (int i = 0; i <= numberOfKeys; i++) { // copy construct the children
+			Node<K> child = node.children[i];
+			children[i] = leaves ? new LeafNode((LeafNode) child) : new NonLeafNode<K>((NonLeafNode<K>) child);
+		}
+		if (node.counts != null)
+			counts = node.counts.clone();
+		if (node.aggregates != null)
+			aggregates = node.aggregates.clone();
+		if (node.buffer != null)
+			buffer = new MessageBuffer<K>(node.buffer);
 	}
 
 	/**
@@ -36,17 +87,112 @@ public class NonLeafNode<K extends Comparable<K>> extends Node<K> {
 	 *            the {@code Node} to insert.
 	 * @param child
 	 *            the {@code Node} after which the key and the specified {@code Node} will be inserted.
+	 * @return the index at which the key has been inserted.
 	 */
-	protected void insertAfter(K key, Node<K> node, Node<K> child) {
+	protected int insertAfter(K key, Node<K> node, Node<K> child) {
 		int i = numberOfKeys;
-		while (pointers[i] != child) {
+		while (children[i] != child) {
 			keys[i] = keys[i - 1];
-			pointers[i + 1] = pointers[i];
+			children[i + 1] = children[i];
 			i--;
 		}
 		keys[i] = key;
-		pointers[i + 1] = node;
+		children[i + 1] = node;
 		numberOfKeys++;
+		return i;
+	}
+
+	/**
+	 * Removes the key at the specified index and the child {@code Node} that follows it.
+	 * 
+	 * @param i
+	 *            the index of the key to remove.
+	 */
+	@Override
+	protected void remove(int i) {
+		for (int j = i; j < numberOfKeys - 1; j++)
+			keys[j] = keys[j + 1];
+		for (int j = i + 1; j < numberOfKeys; j++)
+			children[j] = children[j + 1];
+		keys[numberOfKeys - 1] = null;
+		children[numberOfKeys] = null;
+		numberOfKeys--;
+	}
+
+	/**
+	 * Removes the first child {@code Node} and the first key.
+	 */
+	protected void removeFirst() {
+		for (int j = 0; j < numberOfKeys - 1; j++)
+			keys[j] = keys[j + 1];
+		for (int j = 0; j < numberOfKeys; j++)
+			children[j] = children[j + 1];
+		keys[numberOfKeys - 1] = null;
+		children[numberOfKeys] = null;
+		numberOfKeys--;
+	}
+
+	/**
+	 * Inserts the specified child {@code Node} and key in front of the existing children and keys.
+	 * 
+	 * @param child
+	 *            the child {@code Node} to insert.
+	 * @param key
+	 *            the key that separates the child {@code Node} from the current first child.
+	 */
+	protected void insertFirst(Node<K> child, K key) {
+		children[numberOfKeys + 1] = children[numberOfKeys];
+		for (int j = numberOfKeys; j > 0; j--) {
+			keys[j] = keys[j - 1];
+			children[j] = children[j - 1];
+		}
+		keys[0] = key;
+		children[0] = child;
+		numberOfKeys++;
+	}
+
+	/**
+	 * Appends the specified key and child {@code Node} after the existing keys and children.
+	 * 
+	 * @param key
+	 *            the key that separates the current last child from the new one.
+	 * @param child
+	 *            the child {@code Node} to append.
+	 */
+	protected void append(K key, Node<K> child) {
+		keys[numberOfKeys] = key;
+		children[numberOfKeys + 1] = child;
+		numberOfKeys++;
+	}
+
+	/**
+	 * Appends the specified separator key and all keys and children of the specified {@code NonLeafNode}, which must
+	 * be the next sibling of this {@code NonLeafNode}, to this {@code NonLeafNode}.
+	 * 
+	 * @param key
+	 *            the key that separates this {@code NonLeafNode} and the specified {@code NonLeafNode}.
+	 * @param node
+	 *            the next sibling of this {@code NonLeafNode}.
+	 */
+	protected void merge(K key, NonLeafNode<K> node) {
+		append(key, node.children[0]);
+		for (int i = 0; i < node.numberOfKeys; i++)
+			append(node.keys[i], node.children[i + 1]);
+	}
+
+	/**
+	 * Returns the index of the specified child {@code Node}.
+	 * 
+	 * @param child
+	 *            a child {@code Node}.
+	 * @return the index of the specified child {@code Node}; -1 if it is not a child of this {@code NonLeafNode}.
+	 */
+	public int indexOf(Node<K> child) {
+		for (int i = 0; i <= numberOfKeys; i++) {
+			if (children[i] == child)
+				return i;
+		}
+		return -1;
 	}
 
 	/**
@@ -56,32 +202,189 @@ public class NonLeafNode<K extends Comparable<K>> extends Node<K> {
 	 *            the index of the child {@code Node}.
 	 * @return the child {@code Node} at the specified index.
 	 */
-	@SuppressWarnings("unchecked")
 	public Node<K> child(int i) {
-		return (Node<K>) pointers[i];
+		return children[i];
 	}
 
 	/**
-	 * Returns the child {@code Node} that is responsible for the specified key.
+	 * Returns the number of entries in the subtree of the child {@code Node} at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the child {@code Node}.
+	 * @return the number of entries in the subtree of the child {@code Node} at the specified index.
+	 */
+	public long count(int i) {
+		return counts[i];
+	}
+
+	/**
+	 * Recomputes the number of entries in the subtree of each child {@code Node} from the children, whose own counts
+	 * must be up to date.
+	 */
+	protected void recount() {
+		if (counts == null)
+			counts = new long[children.length];
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = i <= numberOfKeys ? sizeOf(child(i)) : 0;
+	}
+
+	/**
+	 * Returns the number of entries in the subtree of the specified {@code Node}.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param node
+	 *            a {@code Node} whose subtree counts (if it is a {@code NonLeafNode}) are up to date.
+	 * @return the number of entries in the subtree of the specified {@code Node}.
+	 */
+	public static <K extends Comparable<K>> long sizeOf(Node<K> node) {
+		if (node instanceof LeafNode)
+			return node.numberOfKeys();
+		NonLeafNode<K> n = (NonLeafNode<K>) node;
+		long size = 0;
+		for (int i = 0; i <= n.numberOfKeys(); i++)
+			size += n.counts[i];
+		return size;
+	}
+
+	/**
+	 * Returns the aggregate of the values in the subtree of the child {@code Node} at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the child {@code Node}.
+	 * @return the aggregate of the values in the subtree of the child {@code Node} at the specified index.
+	 */
+	public Object aggregate(int i) {
+		return aggregates[i];
+	}
+
+	/**
+	 * Recomputes the aggregate of the values in the subtree of each child {@code Node} from the children, whose own
+	 * aggregates must be up to date.
+	 * 
+	 * @param monoid
+	 *            the {@code Monoid} that aggregates values.
+	 */
+	protected void reaggregate(Monoid<Object, Object> monoid) {
+		if (aggregates == null)
+			aggregates = new Object[children.length];
+		for (int i = 0; i < aggregates.length; i++)
+			aggregates[i] = i <= numberOfKeys ? aggregateOf(child(i), monoid) : null;
+	}
+
+	/**
+	 * Returns the aggregate of the values in the subtree of the specified {@code Node}.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param node
+	 *            a {@code Node} whose aggregates (if it is a {@code NonLeafNode}) are up to date.
+	 * @param monoid
+	 *            the {@code Monoid} that aggregates values.
+	 * @return the aggregate of the values in the subtree of the specified {@code Node}.
+	 */
+	public static <K extends Comparable<K>> Object aggregateOf(Node<K> node, Monoid<Object, Object> monoid) {
+		Object a = monoid.identity();
+		if (node instanceof LeafNode) {
+			LeafNode<K, ?> leaf = (LeafNode<K, ?>) node;
+			for (int i = 0; i < leaf.numberOfKeys(); i++)
+				a = monoid.combine(a, monoid.lift(leaf.value(i)));
+		} else {
+			NonLeafNode<K> n = (NonLeafNode<K>) node;
+			for (int i = 0; i <= n.numberOfKeys(); i++)
+				a = monoid.combine(a, n.aggregates[i]);
+		}
+		return a;
+	}
+
+	/**
+	 * Updates the Bloom filters of the child {@code LeafNode}s. The filter of a {@code LeafNode} is rebuilt if it is
+	 * new to this {@code NonLeafNode} or its number of keys differs from what the filter reflects (i.e., it has
+	 * received keys from a sibling or lost keys to one); otherwise, the current filter is kept.
+	 * 
+	 * @param leafFilters
+	 *            the {@code LeafFilters} that build the filters.
+	 */
+	protected void refilter(LeafFilters<?> leafFilters) {
+		LeafFilters.Filter[] previous = filters;
+		filters = new LeafFilters.Filter[children.length];
+		for (int i = 0; i <= numberOfKeys; i++) {
+			Node<K> leaf = child(i);
+			LeafFilters.Filter f = null;
+			for (int j = 0; previous != null && j < previous.length && f == null; j++) {
+				if (previous[j] != null && previous[j].leaf == leaf && previous[j].size == leaf.numberOfKeys())
+					f = previous[j];
+			}
+			filters[i] = f != null ? f : leafFilters.build(leaf);
+		}
+	}
+
+	/**
+	 * Copies the keys into the {@code BlockedKeys} of this {@code NonLeafNode}, which are created if necessary and
+	 * dropped if a key is neither a {@code Long} nor an {@code Integer}.
+	 * 
+	 * @param search
+	 *            the kernel that searches a block of keys.
+	 */
+	protected void reblock(KeySearch search) {
+		if (blocked == null || blocked.search() != search)
+			blocked = new BlockedKeys(keys.length, search);
+		if (!blocked.update(keys, numberOfKeys))
+			blocked = null;
+	}
+
+	/**
+	 * Returns the first index i such that keys[i] >= the given key, searching the {@code BlockedKeys} if there are.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the first index i such that keys[i] >= the given key; -1 if there is no such i.
+	 */
+	@Override
+	protected int findIndexGE(K key) {
+		if (blocked == null)
+			return super.findIndexGE(key);
+		int i = blocked.countLess(key instanceof Integer ? (Integer) key : (Long) key);
+		return i < numberOfKeys ? i : -1;
+	}
+
+	/**
+	 * Clears this {@code NonLeafNode}.
+	 */
+	@Override
+	public void clear() {
+		super.clear();
+		java.util.Arrays.fill(children, null);
+	}
+
+	/**
+	 * Returns the index of the child {@code Node} that is responsible for the specified key. Child i holds keys between
+	 * key(i - 1) and key(i), both inclusive, so when duplicate keys span splits, the entries with a key may continue
+	 * into the following children; this is the first child that may hold the key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the index of the child {@code Node} that is responsible for the specified key.
+	 */
+	public int childIndex(K key) {
+		int i = findIndexGE(key); // find smallest i such that keys[i] >= key
+		return i < 0 ? numberOfKeys : i; // if no i such that keys[i] >= key, the last child
+	}
+
+	/**
+	 * Returns the child {@code Node} that is responsible for the specified key (the first child that may hold the
+	 * key).
 	 * 
 	 * @param key
 	 *            a key.
 	 * @return the child {@code Node} that is responsible for the specified key.
 	 */
-	@SuppressWarnings("unchecked")
 	public Node<K> child(K key) {
-		int i = findIndexGE(key); // find smallest i such that keys[i] >= key
-		if (i < 0) { // if no i such that keys[i] >= key
-			return (Node<K>) pointers[numberOfKeys];
-		} else if (key.compareTo(keys[i]) == 0) {
-			return (Node<K>) pointers[i + 1];
-		} else {
-			return (Node<K>) pointers[i];
-		}
+		return child(childIndex(key));
 	}
 
 	/**
-	 * Copies the specified keys and their pointers of the specified {@code NonLeafNode} into this {@code NonLeafNode}.
+	 * Copies the specified keys and their children of the specified {@code NonLeafNode} into this {@code NonLeafNode}.
 	 * 
 	 * @param node
 	 *            a {@code NonLeafNode}.
@@ -91,8 +394,8 @@ public class NonLeafNode<K extends Comparable<K>> extends Node<K> {
 	 *            the ending index of the keys, exclusive.
 	 */
 	public void copy(NonLeafNode<K> node, int beginIndex, int endIndex) {
-		super.copy(node, beginIndex, endIndex);
-		this.pointers[numberOfKeys] = node.pointers[numberOfKeys + beginIndex];
+		copyKeys(node, beginIndex, endIndex);
+		System.arraycopy(node.children, beginIndex, children, 0, numberOfKeys + 1);
 	}
 
 }
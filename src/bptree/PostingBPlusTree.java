@@ -0,0 +1,130 @@
+package bptree;
+
+/**
+ * The {@code PostingBPlusTree} class implements a multimap from keys to row IDs for secondary indexes. Instead of
+ * storing a duplicate entry for each row, the underlying {@code BPlusTree} stores each key once with a
+ * {@code PostingList} of its row IDs, so the {@code BPlusTree} holds as many entries as there are distinct keys,
+ * {@link #getAll(Comparable)} is a single lookup, and the row IDs of several keys can be intersected as sorted arrays.
+ * {@code PostingList}s are updated in place, so {@code TreeListener}s of the underlying {@code BPlusTree} observe only
+ * the first row ID added to, and the last row ID removed from, each key.
+ * 
+ * @param <K>
+ *            the type of keys
+ */
+public class PostingBPlusTree<K extends Comparable<K>> {
+
+	/**
+	 * The {@code BPlusTree} that maps each key to its {@code PostingList}.
+	 */
+	protected BPlusTree<K, PostingList> tree;
+
+	/**
+	 * The number of (key, row ID) pairs.
+	 */
+	protected long size;
+
+	/**
+	 * Constructs a {@code PostingBPlusTree}.
+	 * 
+	 * @param degree
+	 *            the maximum number of pointers that each {@code Node} of the underlying {@code BPlusTree} can have.
+	 */
+	public PostingBPlusTree(int degree) {
+		this.tree = new BPlusTree<K, PostingList>(degree);
+	}
+
+	/**
+	 * Returns the underlying {@code BPlusTree}, e.g., for range scans over the keys.
+	 * 
+	 * @return the underlying {@code BPlusTree}.
+	 */
+	public BPlusTree<K, PostingList> tree() {
+		return tree;
+	}
+
+	/**
+	 * Returns the number of (key, row ID) pairs in this {@code PostingBPlusTree}.
+	 * 
+	 * @return the number of (key, row ID) pairs in this {@code PostingBPlusTree}.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Associates the specified row ID with the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @param id
+	 *            a row ID.
+	 * @return {@code true} if the row ID has been added; {@code false} if it was already associated with the key.
+	 */
+	public boolean add(K key, long id) {
+		PostingList list = tree.get(key);
+		if (list == null) {
+			list = new PostingList();
+			tree.insert(key, list);
+		}
+		if (!list.add(id))
+			return false;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Dissociates the specified row ID from the specified key. The key is deleted from the underlying
+	 * {@code BPlusTree} when its last row ID is removed.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @param id
+	 *            a row ID.
+	 * @return {@code true} if the row ID has been removed; {@code false} if it was not associated with the key.
+	 */
+	public boolean remove(K key, long id) {
+		PostingList list = tree.get(key);
+		if (list == null || !list.remove(id))
+			return false;
+		size--;
+		if (list.size() == 0)
+			tree.delete(key, null);
+		return true;
+	}
+
+	/**
+	 * Returns the row IDs associated with the specified key.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the {@code PostingList} of the specified key (which reflects later changes);
+	 *         {@code PostingList.EMPTY} if the key is not found.
+	 */
+	public PostingList getAll(K key) {
+		PostingList list = tree.get(key);
+		return list == null ? PostingList.EMPTY : list;
+	}
+
+	/**
+	 * Returns the row IDs that are associated with all of the specified keys. The {@code PostingList}s are intersected
+	 * from the shortest to the longest, so the intermediate results stay small.
+	 * 
+	 * @param keys
+	 *            keys.
+	 * @return a new {@code PostingList} containing the row IDs associated with all of the specified keys.
+	 */
+	@SafeVarargs
+	public final PostingList intersect(K... keys) {
+		if (keys.length == 0)
+			return PostingList.EMPTY;
+		PostingList[] lists = new PostingList[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			lists[i] = getAll(keys[i]);
+		java.util.Arrays.sort(lists, java.util.Comparator.comparingInt(PostingList::size));
+		PostingList result = lists[0];
+		for (int i = 1; i < lists.length && result.size() > 0; i++)
+			result = PostingList.intersect(result, lists[i]);
+		return result == lists[0] ? new PostingList(result.toArray(), result.size()) : result;
+	}
+
+}
@@ -0,0 +1,182 @@
+package bptree;
+
+/**
+ * A {@code PostingList} holds the distinct row IDs associated with a key of a {@code PostingBPlusTree} in a sorted
+ * {@code long} array, so membership tests take logarithmic time and two {@code PostingList}s can be intersected
+ * without hashing. The array grows by half of its length when full. Only the {@code PostingBPlusTree} modifies a
+ * {@code PostingList}.
+ */
+public class PostingList {
+
+	/**
+	 * The {@code PostingList} that has no row ID.
+	 */
+	public static final PostingList EMPTY = new PostingList(new long[0], 0);
+
+	/**
+	 * The row IDs in increasing order (followed by unused slots).
+	 */
+	protected long[] ids;
+
+	/**
+	 * The number of row IDs.
+	 */
+	protected int size;
+
+	/**
+	 * Constructs an empty {@code PostingList}.
+	 */
+	protected PostingList() {
+		this(new long[4], 0);
+	}
+
+	/**
+	 * Constructs a {@code PostingList} with the specified row IDs.
+	 * 
+	 * @param ids
+	 *            the row IDs in increasing order (followed by unused slots).
+	 * @param size
+	 *            the number of row IDs.
+	 */
+	protected PostingList(long[] ids, int size) {
+		this.ids = ids;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the number of row IDs in this {@code PostingList}.
+	 * 
+	 * @return the number of row IDs in this {@code PostingList}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the row ID at the specified index.
+	 * 
+	 * @param i
+	 *            the index of the row ID (0 for the smallest row ID).
+	 * @return the row ID at the specified index.
+	 */
+	public long get(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("i: " + i);
+		return ids[i];
+	}
+
+	/**
+	 * Determines whether or not this {@code PostingList} contains the specified row ID.
+	 * 
+	 * @param id
+	 *            a row ID.
+	 * @return {@code true} if this {@code PostingList} contains the specified row ID; {@code false} otherwise.
+	 */
+	public boolean contains(long id) {
+		return java.util.Arrays.binarySearch(ids, 0, size, id) >= 0;
+	}
+
+	/**
+	 * Returns the row IDs of this {@code PostingList}.
+	 * 
+	 * @return a new array containing the row IDs of this {@code PostingList} in increasing order.
+	 */
+	public long[] toArray() {
+		return java.util.Arrays.copyOf(ids, size);
+	}
+
+	/**
+	 * Adds the specified row ID to this {@code PostingList}.
+	 * 
+	 * @param id
+	 *            a row ID.
+	 * @return {@code true} if the row ID has been added; {@code false} if it was already present.
+	 */
+	protected boolean add(long id) {
+		int i = size == 0 || ids[size - 1] < id ? -size - 1 : java.util.Arrays.binarySearch(ids, 0, size, id);
+		if (i >= 0)
+			return false;
+		i = -i - 1; // the insertion point
+		if (size == ids.length)
+			ids = java.util.Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+		System.arraycopy(ids, i, ids, i + 1, size - i);
+		ids[i] = id;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes the specified row ID from this {@code PostingList}.
+	 * 
+	 * @param id
+	 *            a row ID.
+	 * @return {@code true} if the row ID has been removed; {@code false} if it was not present.
+	 */
+	protected boolean remove(long id) {
+		int i = java.util.Arrays.binarySearch(ids, 0, size, id);
+		if (i < 0)
+			return false;
+		System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns the row IDs that are in both of the specified {@code PostingList}s. If one is much longer than the other,
+	 * each row ID of the shorter one is looked up in the longer one by galloping (exponential search) from the
+	 * previous match; otherwise, the two are merged.
+	 * 
+	 * @param a
+	 *            a {@code PostingList}.
+	 * @param b
+	 *            a {@code PostingList}.
+	 * @return a new {@code PostingList} containing the row IDs that are in both {@code PostingList}s.
+	 */
+	public static PostingList intersect(PostingList a, PostingList b) {
+		if (a.size > b.size) {
+			PostingList t = a;
+			a = b;
+			b = t;
+		}
+		long[] result = new long[a.size];
+		int n = 0;
+		if ((long) a.size * 32 < b.size) { // if a is much shorter than b
+			int j = 0;
+			for (int i = 0; i < a.size && j < b.size; i++) {
+				long id = a.ids[i];
+				int step = 1;
+				int hi = j;
+				while (hi < b.size && b.ids[hi] < id) { // gallop to find a range that may contain the row ID
+					j = hi + 1;
+					hi += step;
+					step <<= 1;
+				}
+				int k = java.util.Arrays.binarySearch(b.ids, j, Math.min(hi + 1, b.size), id);
+				if (k >= 0) {
+					result[n++] = id;
+					j = k + 1;
+				} else
+					j = -k - 1;
+			}
+		} else {
+			for (int i = 0, j = 0; i < a.size && j < b.size;) {
+				if (a.ids[i] < b.ids[j])
+					i++;
+				else if (a.ids[i] > b.ids[j])
+					j++;
+				else {
+					result[n++] = a.ids[i];
+					i++;
+					j++;
+				}
+			}
+		}
+		return new PostingList(result, n);
+	}
+
+	@Override
+	public String toString() {
+		return java.util.Arrays.toString(toArray());
+	}
+
+}
@@ -0,0 +1,194 @@
+package bptree;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@code ReplicaApplier} keeps a follower {@code BPlusTree} up to date by applying the frames of a change log read
+ * by a {@code ChangeLogReader}. Each frame is applied in key order rather than in log order: changes to different keys
+ * commute, and a stable sort keeps the changes to the same key in log order, so the follower ends up with the same
+ * entries while consecutive changes descend to the same or neighboring {@code LeafNode}s, whose paths are still in
+ * the cache. When the follower falls behind, the frames that have already arrived are merged (up to
+ * {@code maxBatchSize} changes) and applied together, so a lagging follower sorts larger batches and catches up
+ * faster. Readers of the follower share a read lock that the {@code ReplicaApplier} takes exclusively once per batch.
+ * If lookups change the state of the follower (see {@link BPlusTree#hasMutatingLookups()}; e.g., it has a
+ * {@code LookupCache} or is a {@code BufferedBPlusTree}), readers take the lock exclusively as well and are serialized.
+ * <p>
+ * Each deletion in the log names the entry that the leader deleted, so the follower must hold that entry. A deletion
+ * that finds nothing to delete means that the follower has diverged from the leader (e.g., it did not start from the
+ * same entries), and stops the {@code ReplicaApplier} with an {@code IllegalStateException} instead of being skipped.
+ * A {@code BufferedBPlusTree} follower only queues deletions, so this is not detected there.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class ReplicaApplier<K extends Comparable<K>, V> implements Runnable {
+
+	/**
+	 * The follower {@code BPlusTree}.
+	 */
+	protected BPlusTree<K, V> tree;
+
+	/**
+	 * The {@code ChangeLogReader} that reads the change log.
+	 */
+	protected ChangeLogReader<K, V> reader;
+
+	/**
+	 * The maximum number of changes that are merged into a batch.
+	 */
+	protected int maxBatchSize;
+
+	/**
+	 * The lock that separates readers of the follower from the application of frames.
+	 */
+	protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * The sequence number of the last applied change.
+	 */
+	protected volatile long appliedSequence = -1;
+
+	/**
+	 * The exception that stopped {@link #run()}: an {@code IOException} if the change log could not be read or an
+	 * {@code IllegalStateException} if the follower has diverged from the leader; {@code null} if none.
+	 */
+	protected volatile Exception failure;
+
+	/**
+	 * The {@code KeyOrder} that sorts the changes of each batch.
+	 */
+	protected KeyOrder keyOrder = new KeyOrder();
+
+	/**
+	 * Constructs a {@code ReplicaApplier} that merges up to 65536 changes into a batch.
+	 * 
+	 * @param tree
+	 *            the follower {@code BPlusTree}.
+	 * @param reader
+	 *            the {@code ChangeLogReader} that reads the change log.
+	 */
+	public ReplicaApplier(BPlusTree<K, V> tree, ChangeLogReader<K, V> reader) {
+		this(tree, reader, 1 << 16);
+	}
+
+	/**
+	 * Constructs a {@code ReplicaApplier}.
+	 * 
+	 * @param tree
+	 *            the follower {@code BPlusTree}.
+	 * @param reader
+	 *            the {@code ChangeLogReader} that reads the change log.
+	 * @param maxBatchSize
+	 *            the maximum number of changes that are merged into a batch.
+	 */
+	public ReplicaApplier(BPlusTree<K, V> tree, ChangeLogReader<K, V> reader, int maxBatchSize) {
+		this.tree = tree;
+		this.reader = reader;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Applies the frames of the change log until it ends, cannot be read or contains a deletion that the follower
+	 * cannot apply.
+	 */
+	@Override
+	public void run() {
+		try {
+			for (ChangeBatch<K, V> batch = reader.next(); batch != null; batch = reader.next()) {
+				while (batch.size() < maxBatchSize && reader.ready()) { // merge the frames that have arrived
+					ChangeBatch<K, V> next = reader.next();
+					if (next == null)
+						break;
+					batch.addAll(next);
+				}
+				apply(batch);
+			}
+		} catch (IOException | IllegalStateException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Applies the specified {@code ChangeBatch} to the follower {@code BPlusTree} in key order.
+	 * 
+	 * @param batch
+	 *            a {@code ChangeBatch}.
+	 * @throws IllegalStateException
+	 *             if a deletion finds no entry with its key and value in the follower, which has then diverged from
+	 *             the leader (the changes of the batch before it in key order remain applied).
+	 */
+	public void apply(ChangeBatch<K, V> batch) {
+		int n = batch.size();
+		int[] order = keyOrder.sort(batch.keys, n);
+		lock.writeLock().lock();
+		try {
+			for (int j = 0; j < n; j++) {
+				int i = order[j];
+				if (batch.isDelete(i)) {
+					if (!tree.delete(batch.key(i), batch.value(i)))
+						throw new IllegalStateException("change " + (batch.firstSequence() + i) + " deletes "
+								+ batch.key(i) + "=" + batch.value(i) + ", which the follower does not have");
+				} else
+					tree.insert(batch.key(i), batch.value(i));
+			}
+			appliedSequence = batch.lastSequence();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the last applied change.
+	 * 
+	 * @return the sequence number of the last applied change; -1 if no change has been applied.
+	 */
+	public long appliedSequence() {
+		return appliedSequence;
+	}
+
+	/**
+	 * Returns the exception that stopped {@link #run()}.
+	 * 
+	 * @return the exception that stopped {@link #run()}: an {@code IOException} if the change log could not be read
+	 *         or an {@code IllegalStateException} if the follower has diverged from the leader; {@code null} if none.
+	 */
+	public Exception failure() {
+		return failure;
+	}
+
+	/**
+	 * Returns the value associated with the specified key in the follower {@code BPlusTree}.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	public V get(K key) {
+		return read(t -> t.get(key));
+	}
+
+	/**
+	 * Applies the specified function to the follower {@code BPlusTree} while no frame is being applied. The function
+	 * runs concurrently with other readers only if lookups do not change the state of the follower (see
+	 * {@link BPlusTree#hasMutatingLookups()}).
+	 * 
+	 * @param <R>
+	 *            the type of the result
+	 * @param function
+	 *            a function that reads (but does not modify) the follower {@code BPlusTree}.
+	 * @return the result of the function.
+	 */
+	public <R> R read(java.util.function.Function<BPlusTree<K, V>, R> function) {
+		java.util.concurrent.locks.Lock l = tree.hasMutatingLookups() ? lock.writeLock() : lock.readLock();
+		l.lock();
+		try {
+			return function.apply(tree);
+		} finally {
+			l.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package bptree;
+
+/**
+ * The {@code RightBiasedSplitPolicy} class implements a {@code SplitPolicy} for keys that arrive mostly in increasing
+ * order. When a {@code Node} on the right edge of the tree overflows because of an append, the {@code Node} keeps the
+ * specified fraction of its entries instead of half of them so that it is not left half-empty forever. All other
+ * splits occur at the midpoint.
+ */
+public class RightBiasedSplitPolicy extends MidpointSplitPolicy {
+
+	/**
+	 * The fraction of entries that stay in a {@code Node} on the right edge when it is split by an append.
+	 */
+	protected double fillFactor;
+
+	/**
+	 * Constructs a {@code RightBiasedSplitPolicy}.
+	 * 
+	 * @param fillFactor
+	 *            the fraction of entries (between 0.5 and 1.0) that stay in a {@code Node} on the right edge when it
+	 *            is split by an append (e.g., 0.9 for 90/10 splits and 1.0 for 100/0 splits).
+	 */
+	public RightBiasedSplitPolicy(double fillFactor) {
+		if (fillFactor < 0.5 || fillFactor > 1.0)
+			throw new IllegalArgumentException("fillFactor: " + fillFactor);
+		this.fillFactor = fillFactor;
+	}
+
+	/**
+	 * Returns the fraction of entries that stay in a {@code Node} on the right edge when it is split by an append.
+	 * 
+	 * @return the fraction of entries that stay in a {@code Node} on the right edge when it is split by an append.
+	 */
+	public double fillFactor() {
+		return fillFactor;
+	}
+
+	@Override
+	public int splitPoint(Node<?> node, int position, boolean rightEdge, int degree) {
+		int m = super.splitPoint(node, position, rightEdge, degree);
+		if (rightEdge && position == degree - 1) // if the new key is the last key of the rightmost node
+			m = Math.max(m, (int) Math.ceil(degree * fillFactor));
+		return m;
+	}
+
+}
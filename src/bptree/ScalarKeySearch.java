@@ -0,0 +1,23 @@
+package bptree;
+
+/**
+ * The {@code ScalarKeySearch} class implements the portable {@code KeySearch} kernel. It adds up the outcomes of the
+ * {@link KeySearch#BLOCK} comparisons instead of stopping at the first larger key, so the JIT compiler can unroll the
+ * loop into conditional moves with no branch to mispredict.
+ */
+public class ScalarKeySearch implements KeySearch {
+
+	@Override
+	public int countLess(long[] keys, int from, long key) {
+		int count = 0;
+		for (int i = from; i < from + BLOCK; i++)
+			count += keys[i] < key ? 1 : 0;
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "scalar";
+	}
+
+}
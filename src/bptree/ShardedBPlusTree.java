@@ -0,0 +1,617 @@
+package bptree;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code ShardedBPlusTree} class implements an ordered index that range-partitions the key space across
+ * independent {@code BPlusTree}s (shards). Each shard is owned by a single thread that applies every operation on the
+ * shard in order, so the shards need no locks and operations on different shards run in parallel. An operation is
+ * routed to the shard whose key range contains its key; if the boundaries move between routing and execution (see
+ * {@link #rebalance(double)}), the shard routes the operation again. A range scan visits the shards in key order and
+ * reads each of them in chunks, resuming from the last key read (so it never holds more than two chunks, and a
+ * chunk routed to a shard whose boundaries have moved is routed again).
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class ShardedBPlusTree<K extends Comparable<K>, V> implements java.io.Closeable {
+
+	/**
+	 * The number of entries that a scan reads from a shard at a time.
+	 */
+	protected static final int SCAN_CHUNK_SIZE = 256;
+
+	/**
+	 * The {@code Shard} class implements the shards of a {@code ShardedBPlusTree}.
+	 */
+	protected class Shard {
+
+		/**
+		 * The {@code BPlusTree} of this {@code Shard}.
+		 */
+		protected BPlusTree<K, V> tree;
+
+		/**
+		 * The thread that owns this {@code Shard}.
+		 */
+		protected ExecutorService executor;
+
+		/**
+		 * The lowest key of this {@code Shard} (inclusive); {@code null} if unbounded. Read and written only while the
+		 * owner thread is running a task of this {@code Shard} or is paused.
+		 */
+		protected K lower;
+
+		/**
+		 * The highest key of this {@code Shard} (exclusive); {@code null} if unbounded.
+		 */
+		protected K upper;
+
+		/**
+		 * Constructs a {@code Shard}.
+		 * 
+		 * @param index
+		 *            the index of the {@code Shard}.
+		 * @param lower
+		 *            the lowest key of the {@code Shard} (inclusive); {@code null} if unbounded.
+		 * @param upper
+		 *            the highest key of the {@code Shard} (exclusive); {@code null} if unbounded.
+		 */
+		protected Shard(int index, K lower, K upper) {
+			this.tree = new BPlusTree<K, V>(degree);
+			this.lower = lower;
+			this.upper = upper;
+			this.executor = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "ShardedBPlusTree shard " + index);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+
+		/**
+		 * Determines whether or not the specified key belongs to this {@code Shard}.
+		 * 
+		 * @param key
+		 *            a key.
+		 * @return {@code true} if the specified key belongs to this {@code Shard}; {@code false} otherwise.
+		 */
+		protected boolean contains(K key) {
+			return (lower == null || key.compareTo(lower) >= 0) && (upper == null || key.compareTo(upper) < 0);
+		}
+
+		/**
+		 * Reads the next chunk of a range scan from the {@code BPlusTree} of this {@code Shard} (on the owner thread).
+		 * 
+		 * @param fromKey
+		 *            the key from which the chunk is read (which must belong to this {@code Shard}); {@code null} to
+		 *            start from the first entry.
+		 * @param skip
+		 *            the number of entries with {@code fromKey} that have already been read.
+		 * @param toKey
+		 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+		 * @return the next chunk of the range scan.
+		 */
+		protected Chunk read(K fromKey, int skip, K toKey) {
+			Chunk chunk = new Chunk(fromKey, skip);
+			K end = upper == null || toKey != null && toKey.compareTo(upper) < 0 ? toKey : upper;
+			LeafNode<K, V> leaf = fromKey == null ? tree.firstLeaf() : tree.find(fromKey);
+			int i = leaf == null || fromKey == null ? 0 : leaf.findIndexGE(fromKey);
+			if (i < 0) { // if all keys in the leaf node are smaller than fromKey
+				leaf = leaf.successor();
+				i = 0;
+			}
+			for (; leaf != null; leaf = leaf.successor(), i = 0)
+				for (; i < leaf.numberOfKeys(); i++) {
+					K key = leaf.key(i);
+					if (end != null && key.compareTo(end) >= 0)
+						return chunk.last(upper, toKey);
+					if (fromKey != null && skip > 0 && key.compareTo(fromKey) == 0) { // if read before
+						skip--;
+						continue;
+					}
+					if (chunk.entries.size() == 2 * SCAN_CHUNK_SIZE)
+						return chunk;
+					chunk.add(key, leaf.value(i));
+				}
+			return chunk.last(upper, toKey);
+		}
+
+	}
+
+	/**
+	 * The {@code Chunk} class represents consecutive entries that a range scan reads from a shard at a time.
+	 */
+	protected class Chunk {
+
+		/**
+		 * The keys and values of the entries (alternately).
+		 */
+		protected java.util.ArrayList<Object> entries = new java.util.ArrayList<Object>(2 * SCAN_CHUNK_SIZE);
+
+		/**
+		 * The key from which the next chunk is read.
+		 */
+		protected K resumeKey;
+
+		/**
+		 * The number of entries with {@code resumeKey} that have been read by this and the previous chunks.
+		 */
+		protected int resumeSkip;
+
+		/**
+		 * A flag indicating whether or not this is the last chunk of the range scan.
+		 */
+		protected boolean end;
+
+		/**
+		 * Constructs a {@code Chunk}.
+		 * 
+		 * @param fromKey
+		 *            the key from which the {@code Chunk} is read; {@code null} to start from the first entry.
+		 * @param skip
+		 *            the number of entries with {@code fromKey} that have already been read.
+		 */
+		protected Chunk(K fromKey, int skip) {
+			this.resumeKey = fromKey;
+			this.resumeSkip = skip;
+		}
+
+		/**
+		 * Adds the specified entry to this {@code Chunk}.
+		 * 
+		 * @param key
+		 *            a key.
+		 * @param value
+		 *            a value.
+		 */
+		protected void add(K key, V value) {
+			entries.add(key);
+			entries.add(value);
+			if (resumeKey != null && key.compareTo(resumeKey) == 0)
+				resumeSkip++;
+			else {
+				resumeKey = key;
+				resumeSkip = 1;
+			}
+		}
+
+		/**
+		 * Marks this {@code Chunk} as the last one of its shard, so that the range scan continues with the next
+		 * shard.
+		 * 
+		 * @param upper
+		 *            the highest key of the shard (exclusive); {@code null} if unbounded.
+		 * @param toKey
+		 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+		 * @return this {@code Chunk}.
+		 */
+		protected Chunk last(K upper, K toKey) {
+			resumeKey = upper;
+			resumeSkip = 0;
+			end = upper == null || toKey != null && toKey.compareTo(upper) <= 0;
+			return this;
+		}
+
+	}
+
+	/**
+	 * The degree of the {@code BPlusTree}s of the shards.
+	 */
+	protected int degree;
+
+	/**
+	 * The shards in key order.
+	 */
+	protected java.util.List<Shard> shards = new java.util.ArrayList<Shard>();
+
+	/**
+	 * The boundaries between adjacent shards ({@code bounds[i]} is the lowest key of shard {@code i + 1}); replaced
+	 * as a whole when a boundary moves.
+	 */
+	protected volatile Object[] bounds;
+
+	/**
+	 * The lock that serializes rebalancing.
+	 */
+	protected ReentrantLock topology = new ReentrantLock();
+
+	/**
+	 * The thread that rebalances the shards periodically; {@code null} if rebalancing is not automatic.
+	 */
+	protected java.util.concurrent.ScheduledExecutorService rebalancer;
+
+	/**
+	 * Constructs a {@code ShardedBPlusTree}.
+	 * 
+	 * @param degree
+	 *            the maximum number of pointers that each {@code Node} of the shards can have.
+	 * @param splitKeys
+	 *            the initial boundaries between shards in increasing order ({@code n} keys for {@code n + 1}
+	 *            shards).
+	 */
+	public ShardedBPlusTree(int degree, K[] splitKeys) {
+		this.degree = degree;
+		for (int i = 1; i < splitKeys.length; i++)
+			if (splitKeys[i - 1].compareTo(splitKeys[i]) >= 0)
+				throw new IllegalArgumentException("split keys not in increasing order: " + splitKeys[i]);
+		for (int i = 0; i <= splitKeys.length; i++)
+			shards.add(new Shard(i, i == 0 ? null : splitKeys[i - 1], i == splitKeys.length ? null : splitKeys[i]));
+		bounds = splitKeys.clone();
+	}
+
+	/**
+	 * Returns the number of shards.
+	 * 
+	 * @return the number of shards.
+	 */
+	public int shards() {
+		return shards.size();
+	}
+
+	/**
+	 * Returns the index of the shard whose key range contains the specified key according to the current boundaries.
+	 * 
+	 * @param key
+	 *            a key.
+	 * @return the index of the shard whose key range contains the specified key.
+	 */
+	@SuppressWarnings("unchecked")
+	public int shardOf(K key) {
+		Object[] b = bounds;
+		int low = 0, high = b.length; // the number of boundaries less than or equal to the key is in [low, high]
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (((K) b[middle]).compareTo(key) <= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Applies the specified function to the {@code BPlusTree} of the shard responsible for the specified key on the
+	 * thread of that shard.
+	 * 
+	 * @param <R>
+	 *            the type of the result
+	 * @param key
+	 *            a key.
+	 * @param function
+	 *            a function that accesses the {@code BPlusTree} of the shard (only for the specified key).
+	 * @return a {@code CompletableFuture} that completes with the result of the function.
+	 */
+	public <R> CompletableFuture<R> submit(K key, java.util.function.Function<BPlusTree<K, V>, R> function) {
+		CompletableFuture<R> result = new CompletableFuture<R>();
+		route(key, function, result);
+		return result;
+	}
+
+	/**
+	 * Routes the specified function to the shard responsible for the specified key.
+	 * 
+	 * @param <R>
+	 *            the type of the result
+	 * @param key
+	 *            a key.
+	 * @param function
+	 *            a function that accesses the {@code BPlusTree} of the shard.
+	 * @param result
+	 *            the {@code CompletableFuture} to complete with the result of the function.
+	 */
+	protected <R> void route(K key, java.util.function.Function<BPlusTree<K, V>, R> function,
+			CompletableFuture<R> result) {
+		Shard s = shards.get(shardOf(key));
+		try {
+			s.executor.execute(() -> {
+				if (!s.contains(key)) { // if the boundaries have moved since routing
+					route(key, function, result);
+					return;
+				}
+				try {
+					result.complete(function.apply(s.tree));
+				} catch (Throwable t) {
+					result.completeExceptionally(t);
+				}
+			});
+		} catch (java.util.concurrent.RejectedExecutionException e) { // if closed
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Inserts the specified key and the value into this {@code ShardedBPlusTree}.
+	 * 
+	 * @param key
+	 *            the key to insert.
+	 * @param value
+	 *            the value to insert.
+	 */
+	public void insert(K key, V value) {
+		submit(key, t -> {
+			t.insert(key, value);
+			return null;
+		}).join();
+	}
+
+	/**
+	 * Deletes the specified key and the value from this {@code ShardedBPlusTree}.
+	 * 
+	 * @param key
+	 *            the key to delete.
+	 * @param value
+	 *            the value to delete; {@code null} to delete the first entry with the specified key.
+	 */
+	public void delete(K key, V value) {
+		submit(key, t -> {
+			t.delete(key, value);
+			return null;
+		}).join();
+	}
+
+	/**
+	 * Returns the value associated with the specified key in this {@code ShardedBPlusTree}.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return the value associated with the specified key; {@code null} if the key is not found.
+	 */
+	public V get(K key) {
+		return submit(key, t -> t.get(key)).join();
+	}
+
+	/**
+	 * Passes the entries of this {@code ShardedBPlusTree} whose keys are in the specified range to the specified
+	 * action in key order. The shards are visited in key order and each of them is read in chunks of
+	 * {@value #SCAN_CHUNK_SIZE} entries on its owner thread, resuming from the last key read; the next chunk is read
+	 * while the action runs on the entries of the current one on the calling thread. The scan is not a snapshot:
+	 * entries inserted or deleted during the scan may or may not be passed to the action, but the keys passed are in
+	 * order even if boundaries move during the scan.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @param action
+	 *            the action to perform on each key and value.
+	 * @return the number of entries passed to the action.
+	 */
+	@SuppressWarnings("unchecked")
+	public long scan(K fromKey, K toKey, java.util.function.BiConsumer<? super K, ? super V> action) {
+		if (fromKey != null && toKey != null && fromKey.compareTo(toKey) >= 0)
+			return 0;
+		CompletableFuture<Chunk> next = new CompletableFuture<Chunk>();
+		read(fromKey, 0, toKey, next);
+		long count = 0;
+		while (next != null) {
+			Chunk chunk = next.join();
+			next = null;
+			if (!chunk.end) {
+				next = new CompletableFuture<Chunk>();
+				read(chunk.resumeKey, chunk.resumeSkip, toKey, next);
+			}
+			for (int i = 0; i < chunk.entries.size(); i += 2)
+				action.accept((K) chunk.entries.get(i), (V) chunk.entries.get(i + 1));
+			count += chunk.entries.size() / 2;
+		}
+		return count;
+	}
+
+	/**
+	 * Routes the reading of the next chunk of a range scan to the shard responsible for the specified key.
+	 * 
+	 * @param fromKey
+	 *            the key from which the chunk is read; {@code null} to start from the first entry.
+	 * @param skip
+	 *            the number of entries with {@code fromKey} that have already been read.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @param result
+	 *            the {@code CompletableFuture} to complete with the chunk.
+	 */
+	protected void read(K fromKey, int skip, K toKey, CompletableFuture<Chunk> result) {
+		Shard s = shards.get(fromKey == null ? 0 : shardOf(fromKey));
+		try {
+			s.executor.execute(() -> {
+				if (fromKey != null && !s.contains(fromKey)) { // if the boundaries have moved since routing
+					read(fromKey, skip, toKey, result);
+					return;
+				}
+				try {
+					result.complete(s.read(fromKey, skip, toKey));
+				} catch (Throwable t) {
+					result.completeExceptionally(t);
+				}
+			});
+		} catch (java.util.concurrent.RejectedExecutionException e) { // if closed
+			result.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Estimates the number of entries in each shard by sampling random root-to-leaf paths.
+	 * 
+	 * @return the estimated number of entries in each shard.
+	 */
+	public long[] shardSizes() {
+		java.util.List<CompletableFuture<Long>> sizes = new java.util.ArrayList<CompletableFuture<Long>>();
+		for (Shard s : shards)
+			sizes.add(CompletableFuture.supplyAsync(() -> s.tree.root() == null ? 0L : s.tree.stats(64).size(),
+					s.executor));
+		long[] result = new long[sizes.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = sizes.get(i).join();
+		return result;
+	}
+
+	/**
+	 * Moves the boundaries between adjacent shards whose sizes differ by more than the specified ratio so that they
+	 * hold about the same number of entries. While a boundary moves, the two shards are paused (operations on them
+	 * wait in their queues) and the entries between the old and the new boundary are moved from the larger shard to
+	 * the smaller one; the other shards keep running.
+	 * 
+	 * @param skew
+	 *            the ratio (greater than 1) between the sizes of adjacent shards above which the boundary is moved.
+	 * @return the number of entries moved.
+	 */
+	public long rebalance(double skew) {
+		long moved = 0;
+		topology.lock();
+		try {
+			long[] sizes = shardSizes();
+			for (int pass = 0; pass < shards.size(); pass++) { // an imbalance can travel one shard per pass
+				boolean changed = false;
+				for (int i = 0; i + 1 < shards.size(); i++) {
+					long large = Math.max(sizes[i], sizes[i + 1]), small = Math.min(sizes[i], sizes[i + 1]);
+					if (large <= skew * Math.max(1, small))
+						continue;
+					boolean toRight = sizes[i] > sizes[i + 1];
+					long m = moveBoundary(i, (large - small) / 2, toRight);
+					if (m == 0)
+						continue;
+					sizes[i] += toRight ? -m : m;
+					sizes[i + 1] += toRight ? m : -m;
+					moved += m;
+					changed = true;
+				}
+				if (!changed)
+					break;
+			}
+		} finally {
+			topology.unlock();
+		}
+		return moved;
+	}
+
+	/**
+	 * Moves the boundary between the specified shard and the next one while both are paused. The entries between the
+	 * old and the new boundary are moved by splitting the {@code BPlusTree} of one shard at the new boundary and
+	 * joining the split-off {@code LeafNode}s to the {@code BPlusTree} of the other shard.
+	 * 
+	 * @param i
+	 *            the index of a shard.
+	 * @param count
+	 *            the approximate number of entries to move.
+	 * @param toRight
+	 *            {@code true} to move entries from shard {@code i} to shard {@code i + 1}; {@code false} to move
+	 *            entries from shard {@code i + 1} to shard {@code i}.
+	 * @return the number of entries moved.
+	 */
+	protected long moveBoundary(int i, long count, boolean toRight) {
+		Shard left = shards.get(i), right = shards.get(i + 1);
+		CountDownLatch paused = new CountDownLatch(2), resume = new CountDownLatch(1);
+		for (Shard s : java.util.List.of(left, right))
+			s.executor.execute(() -> {
+				paused.countDown();
+				awaitUninterruptibly(resume);
+			});
+		awaitUninterruptibly(paused);
+		try { // both owner threads are parked, so their trees can be accessed here
+			BPlusTree<K, V> source = toRight ? left.tree : right.tree, target = toRight ? right.tree : left.tree;
+			long size = 0;
+			for (LeafNode<K, V> l = source.firstLeaf(); l != null; l = l.successor())
+				size += l.numberOfKeys();
+			count = Math.min(count, size / 2);
+			if (count == 0)
+				return 0;
+			K boundary = keyAt(source, toRight ? size - count : count); // the lowest key of the right shard
+			if (boundary.compareTo(source.firstLeaf().firstKey()) == 0) // if duplicates leave no room for a boundary
+				return 0;
+			BPlusTree<K, V> high = source.splitOff(boundary); // the leaf nodes move; no entry is copied
+			BPlusTree<K, V> moved = toRight ? high : source;
+			long m = moved.size();
+			target.join(moved);
+			if (!toRight)
+				source.join(high);
+			left.upper = boundary;
+			right.lower = boundary;
+			Object[] b = bounds.clone();
+			b[i] = boundary;
+			bounds = b;
+			return m;
+		} finally {
+			resume.countDown();
+		}
+	}
+
+	/**
+	 * Returns the key at the specified position in the specified {@code BPlusTree}.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param position
+	 *            a position (0 for the first key), which must be less than the number of keys.
+	 * @return the key at the specified position.
+	 */
+	protected K keyAt(BPlusTree<K, V> tree, long position) {
+		LeafNode<K, V> l = tree.firstLeaf();
+		while (position >= l.numberOfKeys()) {
+			position -= l.numberOfKeys();
+			l = l.successor();
+		}
+		return l.key((int) position);
+	}
+
+	/**
+	 * Waits until the specified {@code CountDownLatch} reaches zero, ignoring interrupts.
+	 * 
+	 * @param latch
+	 *            a {@code CountDownLatch}.
+	 */
+	protected static void awaitUninterruptibly(CountDownLatch latch) {
+		boolean interrupted = false;
+		while (true)
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Rebalances the shards periodically on a background thread.
+	 * 
+	 * @param periodMillis
+	 *            the period (in milliseconds) between rebalancing rounds.
+	 * @param skew
+	 *            the ratio (greater than 1) between the sizes of adjacent shards above which the boundary is moved.
+	 */
+	public void enableAutoRebalance(long periodMillis, double skew) {
+		disableAutoRebalance();
+		rebalancer = java.util.concurrent.Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ShardedBPlusTree rebalancer");
+			t.setDaemon(true);
+			return t;
+		});
+		rebalancer.scheduleWithFixedDelay(() -> rebalance(skew), periodMillis, periodMillis,
+				java.util.concurrent.TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops rebalancing the shards periodically.
+	 */
+	public void disableAutoRebalance() {
+		if (rebalancer != null)
+			rebalancer.shutdownNow();
+		rebalancer = null;
+	}
+
+	/**
+	 * Stops the threads of this {@code ShardedBPlusTree} after the operations submitted so far.
+	 */
+	@Override
+	public void close() {
+		disableAutoRebalance();
+		for (Shard s : shards)
+			s.executor.shutdown();
+	}
+
+}
@@ -0,0 +1,51 @@
+package bptree;
+
+/**
+ * The {@code SplitPolicy} interface decides how the entries of an overflowing {@code Node} are divided between the
+ * {@code Node} and its new sibling.
+ * 
+ * @see MidpointSplitPolicy
+ * @see RightBiasedSplitPolicy
+ * @see AdaptiveSplitPolicy
+ */
+public interface SplitPolicy {
+
+	/**
+	 * Notifies this {@code SplitPolicy} that an entry has been inserted into the specified {@code Node} without a
+	 * split.
+	 * 
+	 * @param node
+	 *            the {@code Node} into which the entry has been inserted.
+	 * @param position
+	 *            the index of the new key in the {@code Node}.
+	 */
+	void inserted(Node<?> node, int position);
+
+	/**
+	 * Returns the split point for the specified overflowing {@code Node}. A {@code LeafNode} keeps its first m entries
+	 * and a {@code NonLeafNode} keeps its first m pointers, where m is the returned split point. The
+	 * {@code BPlusTree} clamps the returned value so that both {@code Node}s remain non-empty.
+	 * 
+	 * @param node
+	 *            the overflowing {@code Node} (its entries have not been divided yet).
+	 * @param position
+	 *            the index of the new key among the degree keys of the overflowing {@code Node}.
+	 * @param rightEdge
+	 *            {@code true} if the {@code Node} is on the right edge of the tree.
+	 * @param degree
+	 *            the degree of the tree.
+	 * @return the split point.
+	 */
+	int splitPoint(Node<?> node, int position, boolean rightEdge, int degree);
+
+	/**
+	 * Notifies this {@code SplitPolicy} that the specified {@code Node} has been split.
+	 * 
+	 * @param node
+	 *            the {@code Node} that has been split.
+	 * @param sibling
+	 *            the new {@code Node} that received the second part of the entries.
+	 */
+	void split(Node<?> node, Node<?> sibling);
+
+}
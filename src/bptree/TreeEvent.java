@@ -0,0 +1,174 @@
+package bptree;
+
+/**
+ * The {@code TreeEvent} class implements the changes of a {@code BPlusTree} that are delivered to
+ * {@code TreeListener}s. The {@code TreeEvent}s are preallocated in the slots of a {@code TreeEventRing} and are
+ * overwritten once every listener has consumed them, so a {@code TreeListener} must copy whatever it needs to keep
+ * before returning from {@link TreeListener#onEvent(TreeEvent, boolean)}. A {@code TreeEvent} carries keys and values
+ * rather than {@code Node}s since {@code Node}s keep changing after the event is published.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class TreeEvent<K, V> {
+
+	/**
+	 * The types of {@code TreeEvent}s.
+	 */
+	public enum Type {
+
+		/**
+		 * An entry was inserted; the key and the value are those of the entry.
+		 */
+		INSERTED,
+
+		/**
+		 * An entry was deleted; the key and the value are those of the entry.
+		 */
+		DELETED,
+
+		/**
+		 * A {@code LeafNode} was split; the key is the separator (the first key of the new {@code LeafNode}).
+		 */
+		LEAF_SPLIT,
+
+		/**
+		 * A {@code NonLeafNode} was split; the key is the separator moved up to the parent.
+		 */
+		INTERNAL_SPLIT,
+
+		/**
+		 * Two sibling {@code Node}s were merged; the key is the separator removed from the parent.
+		 */
+		MERGE,
+
+		/**
+		 * An entry was moved between sibling {@code Node}s; the key is the new separator in the parent.
+		 */
+		BORROW,
+
+		/**
+		 * The root changed; the height is the new height of the tree (0 if the tree has become empty).
+		 */
+		ROOT_CHANGE
+	}
+
+	/**
+	 * The sequence number of this {@code TreeEvent} (starting at 0 for the first event of a {@code TreeEventRing}).
+	 */
+	protected long sequence;
+
+	/**
+	 * The type of this {@code TreeEvent}.
+	 */
+	protected Type type;
+
+	/**
+	 * The key of this {@code TreeEvent}.
+	 */
+	protected K key;
+
+	/**
+	 * The value of this {@code TreeEvent}.
+	 */
+	protected V value;
+
+	/**
+	 * A flag indicating whether or not the structural change of this {@code TreeEvent} involves {@code LeafNode}s.
+	 */
+	protected boolean leafLevel;
+
+	/**
+	 * The height of the tree after a root change.
+	 */
+	protected int height;
+
+	/**
+	 * Sets the content of this {@code TreeEvent}.
+	 * 
+	 * @param sequence
+	 *            the sequence number of the event.
+	 * @param type
+	 *            the type of the event.
+	 * @param key
+	 *            the key of the event.
+	 * @param value
+	 *            the value of the event.
+	 * @param leafLevel
+	 *            a flag indicating whether or not the structural change involves {@code LeafNode}s.
+	 * @param height
+	 *            the height of the tree after a root change.
+	 */
+	void set(long sequence, Type type, K key, V value, boolean leafLevel, int height) {
+		this.sequence = sequence;
+		this.type = type;
+		this.key = key;
+		this.value = value;
+		this.leafLevel = leafLevel;
+		this.height = height;
+	}
+
+	/**
+	 * Returns the sequence number of this {@code TreeEvent}.
+	 * 
+	 * @return the sequence number of this {@code TreeEvent}.
+	 */
+	public long sequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the type of this {@code TreeEvent}.
+	 * 
+	 * @return the type of this {@code TreeEvent}.
+	 */
+	public Type type() {
+		return type;
+	}
+
+	/**
+	 * Returns the key of this {@code TreeEvent}.
+	 * 
+	 * @return the inserted or deleted key, or the separator key of a structural change; {@code null} for a root
+	 *         change.
+	 */
+	public K key() {
+		return key;
+	}
+
+	/**
+	 * Returns the value of this {@code TreeEvent}.
+	 * 
+	 * @return the inserted or deleted value; {@code null} for a structural change.
+	 */
+	public V value() {
+		return value;
+	}
+
+	/**
+	 * Determines whether or not the structural change of this {@code TreeEvent} involves {@code LeafNode}s.
+	 * 
+	 * @return {@code true} for a leaf split, or a merge or borrow between {@code LeafNode}s; {@code false} otherwise.
+	 */
+	public boolean leafLevel() {
+		return leafLevel;
+	}
+
+	/**
+	 * Returns the height of the tree after a root change.
+	 * 
+	 * @return the height of the tree after a root change; 0 for other {@code TreeEvent}s.
+	 */
+	public int height() {
+		return height;
+	}
+
+	@Override
+	public String toString() {
+		return sequence + " " + type + (key == null ? "" : " " + key) + (value == null ? "" : " " + value)
+				+ (type == Type.ROOT_CHANGE ? " height " + height : "");
+	}
+
+}
@@ -0,0 +1,314 @@
+package bptree;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code TreeEventRing} class implements a bounded ring buffer of preallocated {@code TreeEvent}s that delivers
+ * the changes of a {@code BPlusTree} to {@code TreeListener}s running on their own threads (in the style of the LMAX
+ * Disruptor). The thread updating the tree is the single producer: it claims the next slot, fills in the
+ * {@code TreeEvent} and publishes its sequence number with a release store, without locks or allocation. Each
+ * {@code TreeListener} follows with its own sequence number and reads the events up to the published one in a batch.
+ * The producer waits (spinning, then yielding, then parking) only when the ring is full, i.e., when the slowest
+ * {@code TreeListener} is a full ring behind. An idle {@code Consumer} spins and yields briefly and then parks until
+ * the producer publishes the next event and unparks it, so idle {@code TreeListener}s cost no processor time.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+public class TreeEventRing<K, V> {
+
+	/**
+	 * The default number of slots.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 14;
+
+	/**
+	 * The {@code Consumer} class implements the threads that deliver {@code TreeEvent}s to {@code TreeListener}s.
+	 */
+	protected class Consumer implements Runnable {
+
+		/**
+		 * The {@code TreeListener} of this {@code Consumer}.
+		 */
+		protected TreeListener<K, V> listener;
+
+		/**
+		 * The sequence number of the last {@code TreeEvent} consumed.
+		 */
+		protected AtomicLong sequence;
+
+		/**
+		 * The thread of this {@code Consumer}.
+		 */
+		protected Thread thread;
+
+		/**
+		 * A flag indicating whether or not this {@code Consumer} is to keep waiting for new {@code TreeEvent}s.
+		 */
+		protected volatile boolean running = true;
+
+		/**
+		 * A flag indicating whether or not this {@code Consumer} is (about to be) parked until the next
+		 * {@code TreeEvent} is published.
+		 */
+		protected volatile boolean sleeping;
+
+		/**
+		 * Constructs a {@code Consumer}.
+		 * 
+		 * @param listener
+		 *            a {@code TreeListener}.
+		 * @param sequence
+		 *            the sequence number of the last {@code TreeEvent} not to deliver to the {@code TreeListener}.
+		 */
+		protected Consumer(TreeListener<K, V> listener, long sequence) {
+			this.listener = listener;
+			this.sequence = new AtomicLong(sequence);
+			this.thread = new Thread(this, "TreeEventRing consumer");
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			long next = sequence.get() + 1;
+			int idle = 0;
+			while (true) {
+				long available = cursor.getAcquire();
+				if (next > available) {
+					if (!running && next > cursor.getAcquire()) // if stopped and no event was published meanwhile
+						return;
+					if (idle < 200) {
+						idle = idle(idle);
+						continue;
+					}
+					sleeping = true;
+					if (running && next > cursor.get()) // the producer unparks this thread after publishing
+						LockSupport.park(this);
+					sleeping = false;
+					continue;
+				}
+				idle = 0;
+				for (; next <= available; next++) {
+					try {
+						listener.onEvent(slots[(int) next & mask], next == available);
+					} catch (RuntimeException e) {
+						thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+					}
+				}
+				sequence.setRelease(available);
+			}
+		}
+
+	}
+
+	/**
+	 * The slots of this {@code TreeEventRing}.
+	 */
+	protected TreeEvent<K, V>[] slots;
+
+	/**
+	 * The mask that maps sequence numbers to slots.
+	 */
+	protected int mask;
+
+	/**
+	 * The sequence number of the last published {@code TreeEvent}.
+	 */
+	protected AtomicLong cursor = new AtomicLong(-1);
+
+	/**
+	 * The sequence number of the last claimed {@code TreeEvent} (accessed only by the producer).
+	 */
+	protected long claimed = -1;
+
+	/**
+	 * The smallest sequence number consumed by the {@code Consumer}s when last checked by the producer.
+	 */
+	protected long gate = -1;
+
+	/**
+	 * The {@code Consumer}s (replaced as a whole whenever a {@code TreeListener} is added or removed).
+	 */
+	protected volatile java.util.List<Consumer> consumers = new java.util.ArrayList<Consumer>();
+
+	/**
+	 * Constructs a {@code TreeEventRing}.
+	 * 
+	 * @param capacity
+	 *            the number of slots (a power of two).
+	 */
+	@SuppressWarnings("unchecked")
+	public TreeEventRing(int capacity) {
+		if (capacity < 1 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("capacity: " + capacity);
+		slots = new TreeEvent[capacity];
+		for (int i = 0; i < capacity; i++)
+			slots[i] = new TreeEvent<K, V>();
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the number of slots of this {@code TreeEventRing}.
+	 * 
+	 * @return the number of slots of this {@code TreeEventRing}.
+	 */
+	public int capacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns the sequence number of the last published {@code TreeEvent}.
+	 * 
+	 * @return the sequence number of the last published {@code TreeEvent}; -1 if no {@code TreeEvent} has been
+	 *         published.
+	 */
+	public long cursor() {
+		return cursor.get();
+	}
+
+	/**
+	 * Returns the number of {@code TreeListener}s of this {@code TreeEventRing}.
+	 * 
+	 * @return the number of {@code TreeListener}s of this {@code TreeEventRing}.
+	 */
+	public int listeners() {
+		return consumers.size();
+	}
+
+	/**
+	 * Adds the specified {@code TreeListener}, which will receive the {@code TreeEvent}s published from now on.
+	 * 
+	 * @param listener
+	 *            a {@code TreeListener}.
+	 */
+	public synchronized void add(TreeListener<K, V> listener) {
+		Consumer c = new Consumer(listener, cursor.get());
+		java.util.List<Consumer> l = new java.util.ArrayList<Consumer>(consumers);
+		l.add(c);
+		consumers = l;
+		c.thread.start();
+	}
+
+	/**
+	 * Removes the specified {@code TreeListener} after it has received the {@code TreeEvent}s published so far.
+	 * 
+	 * @param listener
+	 *            a {@code TreeListener}.
+	 * @return the number of remaining {@code TreeListener}s.
+	 */
+	public synchronized int remove(TreeListener<K, V> listener) {
+		java.util.List<Consumer> l = new java.util.ArrayList<Consumer>(consumers);
+		for (int i = 0; i < l.size(); i++)
+			if (l.get(i).listener == listener) {
+				Consumer c = l.remove(i);
+				stop(c);
+				consumers = l;
+				break;
+			}
+		return l.size();
+	}
+
+	/**
+	 * Removes all {@code TreeListener}s after they have received the {@code TreeEvent}s published so far.
+	 */
+	public synchronized void close() {
+		for (Consumer c : consumers)
+			stop(c);
+		consumers = new java.util.ArrayList<Consumer>();
+	}
+
+	/**
+	 * Stops the specified {@code Consumer} once it has consumed all published {@code TreeEvent}s.
+	 * 
+	 * @param c
+	 *            a {@code Consumer}.
+	 */
+	protected void stop(Consumer c) {
+		c.running = false;
+		LockSupport.unpark(c.thread);
+		boolean interrupted = false;
+		while (c.thread.isAlive() && c.thread != Thread.currentThread())
+			try {
+				c.thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Waits until every {@code TreeListener} has received the {@code TreeEvent}s published so far.
+	 */
+	public void drain() {
+		long published = cursor.get();
+		int idle = 0;
+		while (minimumSequence(published) < published)
+			idle = idle(idle);
+	}
+
+	/**
+	 * Publishes a {@code TreeEvent}. This method must be invoked by one thread at a time (the thread updating the
+	 * {@code BPlusTree}).
+	 * 
+	 * @param type
+	 *            the type of the event.
+	 * @param key
+	 *            the key of the event.
+	 * @param value
+	 *            the value of the event.
+	 * @param leafLevel
+	 *            a flag indicating whether or not the structural change involves {@code LeafNode}s.
+	 * @param height
+	 *            the height of the tree after a root change.
+	 */
+	public void publish(TreeEvent.Type type, K key, V value, boolean leafLevel, int height) {
+		long next = ++claimed;
+		long wrap = next - slots.length; // the event that the slot holds
+		if (wrap > gate) { // if the slot may not have been consumed yet
+			int idle = 0;
+			while (wrap > (gate = minimumSequence(next - 1)))
+				idle = idle(idle);
+		}
+		slots[(int) next & mask].set(next, type, key, value, leafLevel, height);
+		cursor.set(next); // a volatile store so that a Consumer going to sleep either sees it or is seen sleeping
+		for (Consumer c : consumers)
+			if (c.sleeping)
+				LockSupport.unpark(c.thread);
+	}
+
+	/**
+	 * Returns the smallest sequence number consumed by the {@code Consumer}s.
+	 * 
+	 * @param published
+	 *            the value to return if there is no {@code Consumer}.
+	 * @return the smallest sequence number consumed by the {@code Consumer}s.
+	 */
+	protected long minimumSequence(long published) {
+		long minimum = published;
+		for (Consumer c : consumers)
+			minimum = Math.min(minimum, c.sequence.getAcquire());
+		return minimum;
+	}
+
+	/**
+	 * Waits briefly: spins at first, then yields the processor, and then parks the current thread.
+	 * 
+	 * @param idle
+	 *            the number of times the current thread has waited in a row.
+	 * @return the number of times the current thread has waited in a row, including this time.
+	 */
+	protected static int idle(int idle) {
+		if (idle < 100)
+			Thread.onSpinWait();
+		else if (idle < 200)
+			Thread.yield();
+		else
+			LockSupport.parkNanos(50_000);
+		return idle + 1;
+	}
+
+}
@@ -0,0 +1,27 @@
+package bptree;
+
+/**
+ * The {@code TreeListener} interface defines the consumers of the {@code TreeEvent}s of a {@code BPlusTree}. Each
+ * {@code TreeListener} runs on its own thread and receives every {@code TreeEvent} in order, some time after the
+ * change was made.
+ * 
+ * @param <K>
+ *            the type of keys
+ * @param <V>
+ *            the type of values
+ */
+@FunctionalInterface
+public interface TreeListener<K, V> {
+
+	/**
+	 * Is invoked for each {@code TreeEvent}. The {@code TreeEvent} is reused once this method returns.
+	 * 
+	 * @param event
+	 *            a {@code TreeEvent}.
+	 * @param endOfBatch
+	 *            {@code true} if no more {@code TreeEvent}s are available at the moment (e.g., a good time to flush
+	 *            buffered output); {@code false} otherwise.
+	 */
+	void onEvent(TreeEvent<K, V> event, boolean endOfBatch);
+
+}
@@ -0,0 +1,259 @@
+package bptree;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code TreeMetrics} class implements the instrumentation of a {@code BPlusTree}. Structural events are counted
+ * with striped {@code LongAdder}s and operation latencies are recorded in {@code LatencyHistogram}s, so that the
+ * metrics can be read (e.g., through JMX) while the tree is being updated. Since reading the clock costs more than the
+ * rest of the instrumentation, only one in every {@code sampleInterval} operations is timed; the counters are exact.
+ */
+public class TreeMetrics implements TreeMetricsMXBean {
+
+	/**
+	 * The number of {@code LeafNode} splits.
+	 */
+	protected LongAdder leafSplits = new LongAdder();
+
+	/**
+	 * The number of {@code NonLeafNode} splits.
+	 */
+	protected LongAdder internalSplits = new LongAdder();
+
+	/**
+	 * The number of merges of sibling {@code Node}s.
+	 */
+	protected LongAdder merges = new LongAdder();
+
+	/**
+	 * The number of redistributions between sibling {@code Node}s.
+	 */
+	protected LongAdder redistributions = new LongAdder();
+
+	/**
+	 * The number of walks from the root to find the parent of a {@code Node}.
+	 */
+	protected LongAdder findParentWalks = new LongAdder();
+
+	/**
+	 * The number of {@code Node}s visited while descending the tree.
+	 */
+	protected LongAdder nodesVisited = new LongAdder();
+
+	/**
+	 * The latencies of insertions.
+	 */
+	protected LatencyHistogram insertLatency = new LatencyHistogram();
+
+	/**
+	 * The latencies of lookups.
+	 */
+	protected LatencyHistogram getLatency = new LatencyHistogram();
+
+	/**
+	 * The latencies of deletions.
+	 */
+	protected LatencyHistogram deleteLatency = new LatencyHistogram();
+
+	/**
+	 * The latencies of range scans.
+	 */
+	protected LatencyHistogram scanLatency = new LatencyHistogram();
+
+	/**
+	 * The name under which this {@code TreeMetrics} is registered with the platform MBean server; {@code null} if not
+	 * registered.
+	 */
+	protected javax.management.ObjectName objectName;
+
+	/**
+	 * The mask that selects one in every {@code sampleInterval} operations for timing.
+	 */
+	protected int sampleMask;
+
+	/**
+	 * The number of operations considered for timing (updated without synchronization since it only drives sampling).
+	 */
+	protected int ticks;
+
+	/**
+	 * Constructs a {@code TreeMetrics} that times one in every 16 operations.
+	 */
+	public TreeMetrics() {
+		this(16);
+	}
+
+	/**
+	 * Constructs a {@code TreeMetrics}.
+	 * 
+	 * @param sampleInterval
+	 *            the number of operations (a power of two) per timed operation; 1 to time every operation.
+	 */
+	public TreeMetrics(int sampleInterval) {
+		if (sampleInterval < 1 || Integer.bitCount(sampleInterval) != 1)
+			throw new IllegalArgumentException("sampleInterval: " + sampleInterval);
+		this.sampleMask = sampleInterval - 1;
+	}
+
+	/**
+	 * Returns the current time if the next operation is to be timed.
+	 * 
+	 * @return the current time (in nanoseconds) if the next operation is to be timed; 0 otherwise.
+	 */
+	long startTimer() {
+		return (++ticks & sampleMask) == 0 ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the latency of a timed operation in the specified {@code LatencyHistogram}.
+	 * 
+	 * @param histogram
+	 *            a {@code LatencyHistogram}.
+	 * @param start
+	 *            the value returned by {@link #startTimer()} when the operation started.
+	 */
+	void stopTimer(LatencyHistogram histogram, long start) {
+		if (start != 0)
+			histogram.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Registers this {@code TreeMetrics} with the platform MBean server under
+	 * {@code bptree:type=BPlusTree,name=<name>}.
+	 * 
+	 * @param name
+	 *            the name of the tree.
+	 * @throws javax.management.JMException
+	 *             if the registration fails.
+	 */
+	public void register(String name) throws javax.management.JMException {
+		javax.management.ObjectName objectName = new javax.management.ObjectName("bptree:type=BPlusTree,name="
+				+ javax.management.ObjectName.quote(name));
+		java.lang.management.ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+	}
+
+	/**
+	 * Unregisters this {@code TreeMetrics} from the platform MBean server.
+	 * 
+	 * @throws javax.management.JMException
+	 *             if the unregistration fails.
+	 */
+	public void unregister() throws javax.management.JMException {
+		if (objectName != null) {
+			java.lang.management.ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Returns the histogram of the latencies of insertions.
+	 * 
+	 * @return the histogram of the latencies of insertions.
+	 */
+	public LatencyHistogram insertLatency() {
+		return insertLatency;
+	}
+
+	/**
+	 * Returns the histogram of the latencies of lookups.
+	 * 
+	 * @return the histogram of the latencies of lookups.
+	 */
+	public LatencyHistogram getLatency() {
+		return getLatency;
+	}
+
+	/**
+	 * Returns the histogram of the latencies of deletions.
+	 * 
+	 * @return the histogram of the latencies of deletions.
+	 */
+	public LatencyHistogram deleteLatency() {
+		return deleteLatency;
+	}
+
+	/**
+	 * Returns the histogram of the latencies of range scans.
+	 * 
+	 * @return the histogram of the latencies of range scans.
+	 */
+	public LatencyHistogram scanLatency() {
+		return scanLatency;
+	}
+
+	@Override
+	public long getLeafSplits() {
+		return leafSplits.sum();
+	}
+
+	@Override
+	public long getInternalSplits() {
+		return internalSplits.sum();
+	}
+
+	@Override
+	public long getMerges() {
+		return merges.sum();
+	}
+
+	@Override
+	public long getRedistributions() {
+		return redistributions.sum();
+	}
+
+	@Override
+	public long getFindParentWalks() {
+		return findParentWalks.sum();
+	}
+
+	@Override
+	public long getNodesVisited() {
+		return nodesVisited.sum();
+	}
+
+	@Override
+	public LatencySummary getInsertLatency() {
+		return new LatencySummary(insertLatency);
+	}
+
+	@Override
+	public LatencySummary getGetLatency() {
+		return new LatencySummary(getLatency);
+	}
+
+	@Override
+	public LatencySummary getDeleteLatency() {
+		return new LatencySummary(deleteLatency);
+	}
+
+	@Override
+	public LatencySummary getScanLatency() {
+		return new LatencySummary(scanLatency);
+	}
+
+	@Override
+	public void reset() {
+		leafSplits.reset();
+		internalSplits.reset();
+		merges.reset();
+		redistributions.reset();
+		findParentWalks.reset();
+		nodesVisited.reset();
+		insertLatency.reset();
+		getLatency.reset();
+		deleteLatency.reset();
+		scanLatency.reset();
+	}
+
+	/**
+	 * Returns the String representation of this {@code TreeMetrics}.
+	 */
+	public String toString() {
+		return "TreeMetrics(leaf splits: " + getLeafSplits() + ", internal splits: " + getInternalSplits()
+				+ ", merges: " + getMerges() + ", redistributions: " + getRedistributions() + ", findParent walks: "
+				+ getFindParentWalks() + ", nodes visited: " + getNodesVisited() + ", insert: " + insertLatency
+				+ ", get: " + getLatency + ", delete: " + deleteLatency + ", scan: " + scanLatency + ")";
+	}
+
+}
@@ -0,0 +1,84 @@
+package bptree;
+
+/**
+ * The {@code TreeMetricsMXBean} interface exposes the {@code TreeMetrics} of a {@code BPlusTree} through JMX.
+ * Latencies are reported in nanoseconds.
+ */
+public interface TreeMetricsMXBean {
+
+	/**
+	 * Returns the number of {@code LeafNode} splits.
+	 * 
+	 * @return the number of {@code LeafNode} splits.
+	 */
+	long getLeafSplits();
+
+	/**
+	 * Returns the number of {@code NonLeafNode} splits.
+	 * 
+	 * @return the number of {@code NonLeafNode} splits.
+	 */
+	long getInternalSplits();
+
+	/**
+	 * Returns the number of merges of sibling {@code Node}s.
+	 * 
+	 * @return the number of merges of sibling {@code Node}s.
+	 */
+	long getMerges();
+
+	/**
+	 * Returns the number of redistributions (borrows) between sibling {@code Node}s.
+	 * 
+	 * @return the number of redistributions (borrows) between sibling {@code Node}s.
+	 */
+	long getRedistributions();
+
+	/**
+	 * Returns the number of walks from the root to find the parent of a {@code Node}.
+	 * 
+	 * @return the number of walks from the root to find the parent of a {@code Node}.
+	 */
+	long getFindParentWalks();
+
+	/**
+	 * Returns the number of {@code Node}s visited while descending the tree.
+	 * 
+	 * @return the number of {@code Node}s visited while descending the tree.
+	 */
+	long getNodesVisited();
+
+	/**
+	 * Returns a summary of the latencies of insertions.
+	 * 
+	 * @return a summary of the latencies of insertions.
+	 */
+	LatencySummary getInsertLatency();
+
+	/**
+	 * Returns a summary of the latencies of lookups.
+	 * 
+	 * @return a summary of the latencies of lookups.
+	 */
+	LatencySummary getGetLatency();
+
+	/**
+	 * Returns a summary of the latencies of deletions.
+	 * 
+	 * @return a summary of the latencies of deletions.
+	 */
+	LatencySummary getDeleteLatency();
+
+	/**
+	 * Returns a summary of the latencies of range scans.
+	 * 
+	 * @return a summary of the latencies of range scans.
+	 */
+	LatencySummary getScanLatency();
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,530 @@
+package bptree;
+
+/**
+ * The {@code TreeStats} class implements health reports of {@code BPlusTree}s: the height, the number of {@code Node}s
+ * per level, histograms of the number of keys per {@code LeafNode} and per {@code NonLeafNode}, fill factors, an
+ * estimate of the heap usage, and the fragmentation of the successor chain in allocation order. A {@code TreeStats} is
+ * either exact (obtained by visiting every {@code Node}, in parallel for large trees) or sampled. A sampled
+ * {@code TreeStats} is obtained by descending along random root-to-leaf paths and weighting each visited {@code Node}
+ * by the product of the fan-outs above it (Knuth's estimator), which gives unbiased estimates of the exact counts.
+ * Sampled {@code TreeStats}s can be accumulated with {@link #add(TreeStats)} so that a tree can be monitored
+ * incrementally with a few paths at a time.
+ */
+public class TreeStats {
+
+	/**
+	 * The estimated size (in bytes) of a {@code Node} object excluding its arrays.
+	 */
+	protected static final int NODE_BYTES = 32;
+
+	/**
+	 * The size (in bytes) of the header of an array.
+	 */
+	protected static final int ARRAY_HEADER_BYTES = 16;
+
+	/**
+	 * The size (in bytes) of a (compressed) reference.
+	 */
+	protected static final int REFERENCE_BYTES = 4;
+
+	/**
+	 * The minimum height of a tree whose upper levels are visited in parallel.
+	 */
+	protected static final int PARALLEL_HEIGHT = 4;
+
+	/**
+	 * The degree of the tree.
+	 */
+	protected int degree;
+
+	/**
+	 * The height of the tree.
+	 */
+	protected int height;
+
+	/**
+	 * The number of sampled paths; 0 if this {@code TreeStats} is exact.
+	 */
+	protected long samples;
+
+	/**
+	 * The (weighted) number of {@code Node}s at each level (level 0 is the root).
+	 */
+	protected double[] nodesPerLevel;
+
+	/**
+	 * The (weighted) number of {@code LeafNode}s with each number of keys.
+	 */
+	protected double[] leafKeyHistogram;
+
+	/**
+	 * The (weighted) number of {@code NonLeafNode}s with each number of keys.
+	 */
+	protected double[] nonLeafKeyHistogram;
+
+	/**
+	 * The (weighted) number of {@code LeafNode}s that have a successor.
+	 */
+	protected double successorLinks;
+
+	/**
+	 * The (weighted) number of {@code LeafNode}s whose successor was allocated before them.
+	 */
+	protected double backwardLinks;
+
+	/**
+	 * Constructs an empty {@code TreeStats}.
+	 * 
+	 * @param degree
+	 *            the degree of the tree.
+	 * @param height
+	 *            the height of the tree.
+	 */
+	protected TreeStats(int degree, int height) {
+		this.degree = degree;
+		this.height = height;
+		this.nodesPerLevel = new double[height];
+		this.leafKeyHistogram = new double[degree];
+		this.nonLeafKeyHistogram = new double[degree];
+	}
+
+	/**
+	 * Computes the exact {@code TreeStats} of the specified {@code BPlusTree}.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @return the exact {@code TreeStats} of the specified {@code BPlusTree}.
+	 */
+	public static TreeStats of(BPlusTree<?, ?> tree) {
+		int height = heightOf(tree.root);
+		if (height < PARALLEL_HEIGHT)
+			return walk(tree.root, tree.degree, height, 0);
+		return java.util.concurrent.ForkJoinPool.commonPool().invoke(
+				new WalkTask(tree.root, tree.degree, height, 0));
+	}
+
+	/**
+	 * Estimates the {@code TreeStats} of the specified {@code BPlusTree} by sampling random root-to-leaf paths.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param paths
+	 *            the number of paths to sample.
+	 * @param random
+	 *            the random number generator used for choosing paths.
+	 * @return the estimated {@code TreeStats} of the specified {@code BPlusTree}.
+	 */
+	public static TreeStats sample(BPlusTree<?, ?> tree, int paths, java.util.Random random) {
+		int height = heightOf(tree.root);
+		TreeStats stats = new TreeStats(tree.degree, height);
+		if (tree.root == null)
+			return stats;
+		for (int p = 0; p < paths; p++) {
+			Node<?> node = tree.root;
+			double weight = 1;
+			for (int level = 0; node != null; level++) {
+				if (level < height)
+					stats.nodesPerLevel[level] += weight;
+				if (node instanceof NonLeafNode) {
+					stats.nonLeafKeyHistogram[node.numberOfKeys] += weight;
+					int children = node.numberOfKeys + 1;
+					weight *= children;
+					node = ((NonLeafNode<?>) node).child(random.nextInt(children));
+				} else {
+					stats.countLeaf((LeafNode<?, ?>) node, weight);
+					node = null;
+				}
+			}
+			stats.samples++;
+		}
+		return stats;
+	}
+
+	/**
+	 * Returns the height of the subtree rooted at the specified {@code Node}.
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @return the height of the subtree rooted at the specified {@code Node}; 0 if the {@code Node} is {@code null}.
+	 */
+	protected static int heightOf(Node<?> node) {
+		int height = 0;
+		for (; node != null; height++)
+			node = node instanceof NonLeafNode ? ((NonLeafNode<?>) node).child(0) : null;
+		return height;
+	}
+
+	/**
+	 * Visits every {@code Node} of the subtree rooted at the specified {@code Node}.
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @param degree
+	 *            the degree of the tree.
+	 * @param height
+	 *            the height of the tree.
+	 * @param level
+	 *            the level of the {@code Node}.
+	 * @return the exact {@code TreeStats} of the subtree.
+	 */
+	protected static TreeStats walk(Node<?> node, int degree, int height, int level) {
+		TreeStats stats = new TreeStats(degree, height);
+		if (node != null)
+			stats.visit(node, level);
+		return stats;
+	}
+
+	/**
+	 * Visits every {@code Node} of the subtree rooted at the specified {@code Node} and adds them to this
+	 * {@code TreeStats}.
+	 * 
+	 * @param node
+	 *            a {@code Node}.
+	 * @param level
+	 *            the level of the {@code Node}.
+	 */
+	protected void visit(Node<?> node, int level) {
+		if (level < height)
+			nodesPerLevel[level]++;
+		if (node instanceof NonLeafNode) {
+			nonLeafKeyHistogram[node.numberOfKeys]++;
+			for (int i = 0; i <= node.numberOfKeys; i++)
+				visit(((NonLeafNode<?>) node).child(i), level + 1);
+		} else {
+			countLeaf((LeafNode<?, ?>) node, 1);
+		}
+	}
+
+	/**
+	 * Adds the specified {@code LeafNode} to this {@code TreeStats}.
+	 * 
+	 * @param leaf
+	 *            a {@code LeafNode}.
+	 * @param weight
+	 *            the weight of the {@code LeafNode}.
+	 */
+	protected void countLeaf(LeafNode<?, ?> leaf, double weight) {
+		leafKeyHistogram[leaf.numberOfKeys] += weight;
+		LeafNode<?, ?> successor = leaf.successor();
+		if (successor != null) {
+			successorLinks += weight;
+			if (successor.serial < leaf.serial)
+				backwardLinks += weight;
+		}
+	}
+
+	/**
+	 * Adds the counts of the specified {@code TreeStats} to this {@code TreeStats}. Exact {@code TreeStats}s of
+	 * disjoint subtrees add up to the exact {@code TreeStats} of their union, and sampled {@code TreeStats}s add up to
+	 * an estimate based on all of their paths.
+	 * 
+	 * @param other
+	 *            another {@code TreeStats} of the same kind (exact or sampled) for a tree of the same degree.
+	 * @return this {@code TreeStats}.
+	 */
+	public TreeStats add(TreeStats other) {
+		if (other.degree != degree || (other.samples == 0) != (samples == 0))
+			throw new IllegalArgumentException("incompatible TreeStats");
+		if (other.height > height) {
+			nodesPerLevel = java.util.Arrays.copyOf(nodesPerLevel, other.height);
+			height = other.height;
+		}
+		for (int i = 0; i < other.height; i++)
+			nodesPerLevel[i] += other.nodesPerLevel[i];
+		for (int i = 0; i < degree; i++) {
+			leafKeyHistogram[i] += other.leafKeyHistogram[i];
+			nonLeafKeyHistogram[i] += other.nonLeafKeyHistogram[i];
+		}
+		successorLinks += other.successorLinks;
+		backwardLinks += other.backwardLinks;
+		samples += other.samples;
+		return this;
+	}
+
+	/**
+	 * Returns the (estimated) value of the specified weighted count.
+	 * 
+	 * @param count
+	 *            a weighted count.
+	 * @return the exact count if this {@code TreeStats} is exact; the average over the sampled paths otherwise.
+	 */
+	protected long estimate(double count) {
+		return Math.round(samples == 0 ? count : count / samples);
+	}
+
+	/**
+	 * Determines whether or not this {@code TreeStats} is based on sampling.
+	 * 
+	 * @return {@code true} if this {@code TreeStats} is based on sampling; {@code false} if it is exact.
+	 */
+	public boolean sampled() {
+		return samples > 0;
+	}
+
+	/**
+	 * Returns the number of sampled paths.
+	 * 
+	 * @return the number of sampled paths; 0 if this {@code TreeStats} is exact.
+	 */
+	public long samples() {
+		return samples;
+	}
+
+	/**
+	 * Returns the height of the tree.
+	 * 
+	 * @return the height of the tree; 0 if the tree is empty.
+	 */
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Returns the number of {@code Node}s at the specified level.
+	 * 
+	 * @param level
+	 *            a level (0 for the root).
+	 * @return the number of {@code Node}s at the specified level.
+	 */
+	public long nodes(int level) {
+		return estimate(nodesPerLevel[level]);
+	}
+
+	/**
+	 * Returns the number of {@code LeafNode}s.
+	 * 
+	 * @return the number of {@code LeafNode}s.
+	 */
+	public long leafNodes() {
+		return estimate(sum(leafKeyHistogram, false));
+	}
+
+	/**
+	 * Returns the number of {@code NonLeafNode}s.
+	 * 
+	 * @return the number of {@code NonLeafNode}s.
+	 */
+	public long nonLeafNodes() {
+		return estimate(sum(nonLeafKeyHistogram, false));
+	}
+
+	/**
+	 * Returns the number of entries (keys in {@code LeafNode}s).
+	 * 
+	 * @return the number of entries.
+	 */
+	public long size() {
+		return estimate(sum(leafKeyHistogram, true));
+	}
+
+	/**
+	 * Returns the histogram of the number of keys per {@code LeafNode}.
+	 * 
+	 * @return an array whose i-th element is the number of {@code LeafNode}s with i keys.
+	 */
+	public long[] leafKeyHistogram() {
+		return estimates(leafKeyHistogram);
+	}
+
+	/**
+	 * Returns the histogram of the number of keys per {@code NonLeafNode}.
+	 * 
+	 * @return an array whose i-th element is the number of {@code NonLeafNode}s with i keys.
+	 */
+	public long[] nonLeafKeyHistogram() {
+		return estimates(nonLeafKeyHistogram);
+	}
+
+	/**
+	 * Returns the average fill factor of the {@code LeafNode}s.
+	 * 
+	 * @return the average fill factor of the {@code LeafNode}s; 0 if there is no {@code LeafNode}.
+	 */
+	public double leafFillFactor() {
+		return fillFactor(leafKeyHistogram);
+	}
+
+	/**
+	 * Returns the average fill factor of the {@code NonLeafNode}s.
+	 * 
+	 * @return the average fill factor of the {@code NonLeafNode}s; 0 if there is no {@code NonLeafNode}.
+	 */
+	public double nonLeafFillFactor() {
+		return fillFactor(nonLeafKeyHistogram);
+	}
+
+	/**
+	 * Returns the average fill factor of all {@code Node}s.
+	 * 
+	 * @return the average fill factor of all {@code Node}s; 0 if the tree is empty.
+	 */
+	public double fillFactor() {
+		double nodes = sum(leafKeyHistogram, false) + sum(nonLeafKeyHistogram, false);
+		double keys = sum(leafKeyHistogram, true) + sum(nonLeafKeyHistogram, true);
+		return nodes == 0 ? 0 : keys / (nodes * (degree - 1));
+	}
+
+	/**
+	 * Returns the estimated number of bytes that the {@code Node}s occupy in the heap, excluding the keys and values
+	 * themselves.
+	 * 
+	 * @return the estimated number of bytes that the {@code Node}s occupy in the heap.
+	 */
+	public long estimatedHeapBytes() {
+		long keysBytes = align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * (degree - 1));
+		long pointersBytes = align(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * degree);
+		return (leafNodes() + nonLeafNodes()) * (NODE_BYTES + keysBytes + pointersBytes);
+	}
+
+	/**
+	 * Returns the fragmentation of the successor chain, i.e., the fraction of successor links that point to a
+	 * {@code LeafNode} allocated earlier. It is 0 if a range scan visits {@code LeafNode}s in allocation order (e.g.,
+	 * after sequential insertions) and approaches 0.5 after random insertions.
+	 * 
+	 * @return the fragmentation of the successor chain; 0 if there are fewer than two {@code LeafNode}s.
+	 */
+	public double fragmentation() {
+		return successorLinks == 0 ? 0 : backwardLinks / successorLinks;
+	}
+
+	/**
+	 * Returns the weighted sum of the specified histogram.
+	 * 
+	 * @param histogram
+	 *            a histogram.
+	 * @param keys
+	 *            {@code true} to sum up the keys; {@code false} to sum up the {@code Node}s.
+	 * @return the weighted sum of the specified histogram.
+	 */
+	protected static double sum(double[] histogram, boolean keys) {
+		double sum = 0;
+		for (int i = 0; i < histogram.length; i++)
+			sum += keys ? i * histogram[i] : histogram[i];
+		return sum;
+	}
+
+	/**
+	 * Returns the average fill factor of the {@code Node}s in the specified histogram.
+	 * 
+	 * @param histogram
+	 *            a histogram of the number of keys per {@code Node}.
+	 * @return the average fill factor of the {@code Node}s in the specified histogram.
+	 */
+	protected double fillFactor(double[] histogram) {
+		double nodes = sum(histogram, false);
+		return nodes == 0 ? 0 : sum(histogram, true) / (nodes * (degree - 1));
+	}
+
+	/**
+	 * Returns the (estimated) values of the specified weighted counts.
+	 * 
+	 * @param counts
+	 *            weighted counts.
+	 * @return the (estimated) values of the specified weighted counts.
+	 */
+	protected long[] estimates(double[] counts) {
+		long[] estimates = new long[counts.length];
+		for (int i = 0; i < counts.length; i++)
+			estimates[i] = estimate(counts[i]);
+		return estimates;
+	}
+
+	/**
+	 * Rounds up the specified size to a multiple of 8.
+	 * 
+	 * @param bytes
+	 *            a size in bytes.
+	 * @return the specified size rounded up to a multiple of 8.
+	 */
+	protected static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * Returns the String representation of this {@code TreeStats}.
+	 */
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append(sampled() ? "TreeStats (sampled, " + samples + " paths)\n" : "TreeStats (exact)\n");
+		b.append("  height: ").append(height).append("\n");
+		for (int i = 0; i < height; i++)
+			b.append("  level ").append(i).append(": ").append(nodes(i)).append(" nodes\n");
+		b.append("  entries: ").append(size()).append("\n");
+		b.append("  leaf nodes: ").append(leafNodes()).append(" (fill factor: ").append(leafFillFactor())
+				.append(")\n");
+		b.append("  non-leaf nodes: ").append(nonLeafNodes()).append(" (fill factor: ").append(nonLeafFillFactor())
+				.append(")\n");
+		b.append("  keys per leaf node: ").append(java.util.Arrays.toString(leafKeyHistogram())).append("\n");
+		b.append("  keys per non-leaf node: ").append(java.util.Arrays.toString(nonLeafKeyHistogram())).append("\n");
+		b.append("  estimated heap bytes: ").append(estimatedHeapBytes()).append("\n");
+		b.append("  successor chain fragmentation: ").append(fragmentation()).append("\n");
+		return b.toString();
+	}
+
+	/**
+	 * The {@code WalkTask} class implements tasks that visit the upper levels of a large tree in parallel.
+	 */
+	protected static class WalkTask extends java.util.concurrent.RecursiveTask<TreeStats> {
+
+		/**
+		 * Automatically generated serial version ID.
+		 */
+		private static final long serialVersionUID = -2430818720418434618L;
+
+		/**
+		 * The root of the subtree to visit.
+		 */
+		protected Node<?> node;
+
+		/**
+		 * The degree of the tree.
+		 */
+		protected int degree;
+
+		/**
+		 * The height of the tree.
+		 */
+		protected int height;
+
+		/**
+		 * The level of the root of the subtree.
+		 */
+		protected int level;
+
+		/**
+		 * Constructs a {@code WalkTask}.
+		 * 
+		 * @param node
+		 *            the root of the subtree to visit.
+		 * @param degree
+		 *            the degree of the tree.
+		 * @param height
+		 *            the height of the tree.
+		 * @param level
+		 *            the level of the root of the subtree.
+		 */
+		protected WalkTask(Node<?> node, int degree, int height, int level) {
+			this.node = node;
+			this.degree = degree;
+			this.height = height;
+			this.level = level;
+		}
+
+		@Override
+		protected TreeStats compute() {
+			if (height - level < PARALLEL_HEIGHT - 1) // if the subtree is small, visit it sequentially
+				return walk(node, degree, height, level);
+			TreeStats stats = new TreeStats(degree, height);
+			stats.nodesPerLevel[level]++;
+			stats.nonLeafKeyHistogram[node.numberOfKeys]++;
+			java.util.List<WalkTask> tasks = new java.util.ArrayList<WalkTask>();
+			for (int i = 0; i <= node.numberOfKeys; i++)
+				tasks.add(new WalkTask(((NonLeafNode<?>) node).child(i), degree, height, level + 1));
+			for (WalkTask task : invokeAll(tasks))
+				stats.add(task.join());
+			return stats;
+		}
+
+	}
+
+}
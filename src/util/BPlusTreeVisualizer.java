@@ -8,9 +8,6 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 
 import bptree.BPlusTree;
-import bptree.Node;
-import bptree.NonLeafNode;
-import bptree.LeafNode;
 
 /**
  * A BPlusTreeVisualizer can display a collection of BPlusTrees, one at a time.
@@ -26,15 +23,21 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 	private static final long serialVersionUID = -3741562432319457809L;
 
 	/**
-	 * A collection of BPlusTrees to visualize.
+	 * The history of BPlusTrees to visualize.
 	 */
-	protected java.util.Vector<util.Pair<BPlusTree<Integer, String>, String>> trees;
+	protected FrameHistory trees;
 
 	/**
-	 * The position of the tree shown in the collection of trees.
+	 * The position of the tree shown in the collection of trees (only changed and read on the event dispatch thread).
 	 */
 	protected int currentFrame = 0;
 
+	/**
+	 * The frame and the viewport that the drawing thread draws, replaced together on the event dispatch thread whenever
+	 * either changes.
+	 */
+	protected transient volatile View view;
+
 	/**
 	 * The width on the display for each key.
 	 */
@@ -45,85 +48,104 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 	 */
 	protected static int keyHeight = 20;
 
+	/**
+	 * The maximum number of frames whose layouts are cached.
+	 */
+	protected static final int LAYOUT_CACHE_SIZE = 16;
+
+	/**
+	 * The layouts of recently shown frames in access order.
+	 */
+	protected transient java.util.Map<Integer, TreeLayout> layouts = new java.util.LinkedHashMap<Integer, TreeLayout>(
+			LAYOUT_CACHE_SIZE, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(java.util.Map.Entry<Integer, TreeLayout> eldest) {
+			return size() > LAYOUT_CACHE_SIZE;
+		}
+	};
+
 	/**
 	 * Constructs a BPlusTreeVisualizer.
 	 * 
 	 * @param trees
-	 *            a collection of BPlusTrees to visualize.
+	 *            the history of BPlusTrees to visualize.
 	 */
-	public BPlusTreeVisualizer(java.util.Vector<util.Pair<BPlusTree<Integer, String>, String>> trees) {
+	public BPlusTreeVisualizer(FrameHistory trees) {
 		this.trees = trees;
 		addKeyListener(this); // This class has its own key listeners.
 		setFocusable(true); // Allow panel to get focus
 		zoomGraphics.setMinXY(-keyWidth, -2 * keyHeight);
+		viewChanged();
 	}
 
 	/**
-	 * Draws the specified node on the screen.
-	 * 
-	 * @param node
-	 *            the node to display.
-	 * @param level
-	 *            the level of the tree.
-	 * @param leafNodes
-	 *            the number of known leaf nodes.
-	 * @param degree
-	 *            the degree of the tree.
-	 * @return the number of known leaf nodes and the location of the node on the screen.
+	 * A {@code View} is an immutable snapshot of the frame and the viewport to draw.
 	 */
-	@SuppressWarnings("unchecked")
-	protected util.Pair<Integer, Integer> draw(Node<Integer> node, int level, int leafNodes, int degree) {
-		if (node == null)
-			return null;
-		Integer[] childrenPos = null;
-		int x = (leafNodes) * keyWidth * (degree);
-		int y = (level - 1) * 2 * keyHeight;
-		if (node instanceof NonLeafNode) {
-			int minX = Integer.MAX_VALUE;
-			int maxX = Integer.MIN_VALUE;
-			childrenPos = new Integer[degree];
-			for (int i = 0; i < degree; i++) {
-				Node<Integer> child = ((NonLeafNode<Integer>) node).child(i);
-				if (child instanceof Node) {
-					util.Pair<Integer, Integer> widthPos = draw((Node<Integer>) child, level + 1, leafNodes, degree);
-					leafNodes = widthPos.getFirst();
-					childrenPos[i] = widthPos.getSecond();
-					if (child instanceof LeafNode)
-						leafNodes++;
-					minX = Math.min(minX, childrenPos[i]);
-					maxX = Math.max(maxX, childrenPos[i]);
-				}
-			}
-			x = (minX + maxX) / 2;
-		} else { // if leaf node
-			if (((LeafNode<Integer, String>) node).successor() != null) // if there is a next leaf node
-				zoomGraphics.drawLine(x + keyWidth * (degree - 1), y + keyHeight / 2, x + keyWidth * (degree) - 3, y
-						+ keyHeight / 2);
-		}
-		zoomGraphics.setColor(Color.WHITE);
-		zoomGraphics.fillRect(x - 3, y, keyWidth * (degree - 1) + 6, keyHeight);
-		for (int i = 0; i < degree; i++) {
-			zoomGraphics.setColor(Color.GRAY);
-			zoomGraphics.fillRect(x + i * keyWidth - 3, y, 6, keyHeight); // draw a separator between two keys
-			zoomGraphics.setColor(Color.BLACK);
-			if (childrenPos != null && childrenPos[i] != null) { // draw a line to the child
-				zoomGraphics.drawLine(x + i * keyWidth, y + keyHeight - 4,
-						childrenPos[i] + keyWidth * (degree - 1) / 2, level * 2 * keyHeight);
-			}
-			if (i < degree - 1 && node.key(i) != null)
-				zoomGraphics.drawStrings(new String[] { node.key(i).toString() }, x + i * keyWidth + 4, y,
-						keyWidth - 6, keyHeight);
+	protected static class View {
+
+		/**
+		 * The position of the tree to draw in the collection of trees.
+		 */
+		protected final int frame;
+
+		/**
+		 * A copy of the viewport (never bound to a Graphics context).
+		 */
+		protected final ZoomGraphics viewport;
+
+		/**
+		 * Constructs a {@code View}.
+		 * 
+		 * @param frame
+		 *            the position of the tree to draw in the collection of trees.
+		 * @param viewport
+		 *            the viewport, which is copied.
+		 */
+		protected View(int frame, ZoomGraphics viewport) {
+			this.frame = frame;
+			this.viewport = new ZoomGraphics(viewport);
 		}
-		zoomGraphics.drawRect(x - 3, y, keyWidth * (degree - 1) + 6, keyHeight);
-		return new util.Pair<Integer, Integer>(leafNodes, x);
+
 	}
 
 	@Override
-	public void draw() {
+	protected void viewChanged() {
+		view = new View(currentFrame, zoomGraphics);
+	}
+
+	/**
+	 * Returns the layout of the specified frame, computing it only if it is not among the recently used layouts.
+	 * 
+	 * @param frame
+	 *            the position of a tree in the collection of trees.
+	 * @return the layout of the specified frame.
+	 */
+	protected TreeLayout layout(int frame) {
+		TreeLayout layout = layouts.get(frame);
+		if (layout == null) {
+			BPlusTree<Integer, String> tree = trees.frame(frame);
+			layout = new TreeLayout(tree.root(), tree.degree(), keyWidth, keyHeight);
+			layouts.put(frame, layout);
+		}
+		return layout;
+	}
+
+	/**
+	 * Draws the tree of the specified frame.
+	 * 
+	 * @param frame
+	 *            the position of a tree in the collection of trees.
+	 * @param zoomGraphics
+	 *            a copy of the viewport bound to the Graphics context in which to paint.
+	 */
+	protected void draw(int frame, ZoomGraphics zoomGraphics) {
 		try {
-			BPlusTree<Integer, String> tree = trees.elementAt(currentFrame).getFirst();
-			zoomGraphics.setColor(Color.BLACK);
-			draw(tree.root(), 1, 0, tree.degree());
+			TreeRenderer renderer = new TreeRenderer(layout(frame));
+			renderer.render(zoomGraphics, zoomGraphics.getMinX(), zoomGraphics.getMinY(),
+					zoomGraphics.getVisibleWidth(), zoomGraphics.getVisibleHeight(), zoomGraphics.getScale());
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -133,9 +155,13 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 	public void draw(java.awt.Graphics g) {
 		g.setColor(Color.WHITE);
 		g.fillRect(0, 0, getWidth(), getHeight());
-		super.draw(g);
-		g.drawString("" + currentFrame + " : " + trees.elementAt(currentFrame).getSecond(), 10, g.getFontMetrics()
-				.getHeight());
+		View v = view; // read once so that the frame and the viewport match
+		if (v == null || trees.size() == 0)
+			return;
+		ZoomGraphics zoomGraphics = new ZoomGraphics(v.viewport);
+		zoomGraphics.set(g, getWidth() - 1, getHeight() - 1);
+		draw(v.frame, zoomGraphics);
+		g.drawString("" + v.frame + " : " + trees.label(v.frame), 10, g.getFontMetrics().getHeight());
 	}
 
 	/**
@@ -151,24 +177,14 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 	}
 
 	public static void startVisualizer(int degree, String inputFile) throws IOException {
-		BPlusTree<Integer, String> tree = new BPlusTree<Integer, String>(degree);
-		java.util.Vector<util.Pair<BPlusTree<Integer, String>, String>> trees = new java.util.Vector<util.Pair<BPlusTree<Integer, String>, String>>();
-		java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.FileReader(inputFile));
-		String line = "";
+		FrameHistory trees = new FrameHistory(degree);
+		CommandReader reader = new CommandReader(inputFile);
 		try {
-			while ((line = reader.readLine()) != null) {
-				System.out.println(line);
-				String[] command = line.split(" ");
-				if (command[0].equals("insert")) {
-					tree.insert(Integer.parseInt(command[1]), null);
-				} else if (command[0].equals("delete")) {
-					tree.delete(Integer.parseInt(command[1]), null);
-				}
-				trees.add(new util.Pair<BPlusTree<Integer, String>, String>(new BPlusTree<Integer, String>(tree), line));
-			}
+			while (reader.next())
+				trees.append(reader);
 		} catch (Exception e) {
 			e.printStackTrace();
-			System.err.println("last input line: " + line);
+			System.err.println("last input line: " + reader.line());
 		} finally {
 			reader.close();
 		}
@@ -191,14 +207,16 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 			} else {
 				currentFrame = Math.max(0, currentFrame - 1);
 			}
+			viewChanged();
 			repaint();
 			break;
 		case KeyEvent.VK_RIGHT:
 			if (e.isControlDown()) {
 				zoomGraphics.moveBy(-keyWidth, 0);
 			} else {
-				currentFrame = Math.min(trees.size() - 1, currentFrame + 1);
+				currentFrame = Math.max(0, Math.min(trees.size() - 1, currentFrame + 1));
 			}
+			viewChanged();
 			repaint();
 			break;
 		case KeyEvent.VK_UP: // zoom in
@@ -207,6 +225,7 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 			} else {
 				zoomGraphics.changeScale(1.2);
 			}
+			viewChanged();
 			repaint();
 			break;
 		case KeyEvent.VK_DOWN:
@@ -215,6 +234,27 @@ public class BPlusTreeVisualizer extends util.ZoomView implements java.awt.event
 			} else {
 				zoomGraphics.changeScale(1 / 1.2);
 			}
+			viewChanged();
+			repaint();
+			break;
+		case KeyEvent.VK_PAGE_UP: // seek backward
+			currentFrame = Math.max(0, currentFrame - 100);
+			viewChanged();
+			repaint();
+			break;
+		case KeyEvent.VK_PAGE_DOWN: // seek forward
+			currentFrame = Math.max(0, Math.min(trees.size() - 1, currentFrame + 100));
+			viewChanged();
+			repaint();
+			break;
+		case KeyEvent.VK_HOME:
+			currentFrame = 0;
+			viewChanged();
+			repaint();
+			break;
+		case KeyEvent.VK_END:
+			currentFrame = Math.max(0, trees.size() - 1);
+			viewChanged();
 			repaint();
 			break;
 		}
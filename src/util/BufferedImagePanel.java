@@ -6,6 +6,9 @@ import java.awt.event.*;
 import java.awt.image.BufferedImage;
 
 /**
+ * A BufferedImagePanel draws its content into a back buffer on a background thread and shows the most recently
+ * completed image, so that drawing a large scene does not block the Swing event dispatch thread. Repaint requests that
+ * arrive while a drawing is pending are coalesced into that drawing.
  * 
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  * 
@@ -18,28 +21,45 @@ public abstract class BufferedImagePanel extends JPanel {
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * The buffered image.
+	 * The buffered image (i.e., the most recently completed drawing).
 	 */
 	protected BufferedImage bufferedImage = null;
 
+	/**
+	 * The back buffer into which the next drawing is made.
+	 */
+	protected BufferedImage backBuffer = null;
+
+	/**
+	 * The thread that draws into the back buffer.
+	 */
+	protected transient java.util.concurrent.ExecutorService drawingThread;
+
+	/**
+	 * A flag indicating whether or not a drawing has been requested but not started yet.
+	 */
+	protected transient java.util.concurrent.atomic.AtomicBoolean drawingPending;
+
 	/**
 	 * Constructs a BufferedImagePanel.
 	 */
 	public BufferedImagePanel() {
+		drawingPending = new java.util.concurrent.atomic.AtomicBoolean();
+		drawingThread = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "BufferedImagePanel drawing");
+			t.setDaemon(true);
+			return t;
+		});
 		ComponentListener c = new ComponentAdapter() {
 			public void componentResized(ComponentEvent e) {
-				synchronized (this) {
-					Dimension d = getSize();
-					bufferedImage = new BufferedImage(d.width, d.height, BufferedImage.TYPE_INT_ARGB);
-					repaint();
-				}
+				repaint();
 			}
 		};
 		addComponentListener(c);
 	}
 
 	/**
-	 * Draws on the specified Graphics context.
+	 * Draws on the specified Graphics context. This method is invoked on the drawing thread.
 	 * 
 	 * @param g
 	 *            the Graphics context.
@@ -47,14 +67,39 @@ public abstract class BufferedImagePanel extends JPanel {
 	public abstract void draw(Graphics g);
 
 	/**
-	 * Repaints this BufferedImagePanel.
+	 * Repaints this BufferedImagePanel by requesting a drawing on the drawing thread.
 	 */
-	public final synchronized void repaint() {
-		if (bufferedImage != null) {
-			Graphics g = bufferedImage.getGraphics();
+	public final void repaint() {
+		if (drawingThread == null) // if invoked by the JPanel constructor
+			return;
+		if (drawingPending.compareAndSet(false, true))
+			drawingThread.execute(() -> {
+				drawingPending.set(false);
+				drawBuffer();
+			});
+	}
+
+	/**
+	 * Draws into the back buffer, swaps the back buffer with the buffered image, and has Swing show the result.
+	 */
+	protected void drawBuffer() {
+		Dimension d = getSize();
+		if (d.width <= 0 || d.height <= 0)
+			return;
+		BufferedImage image = backBuffer;
+		if (image == null || image.getWidth() != d.width || image.getHeight() != d.height)
+			image = new BufferedImage(d.width, d.height, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = image.getGraphics();
+		try {
 			draw(g);
-			super.repaint();
+		} finally {
+			g.dispose();
+		}
+		synchronized (this) {
+			backBuffer = bufferedImage;
+			bufferedImage = image;
 		}
+		super.repaint();
 	}
 
 	/**
@@ -0,0 +1,376 @@
+package util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@code CommandReader} reads the commands in a workload file such as {@code input.txt}, one line at a time. The file
+ * is memory-mapped in windows and parsed byte by byte, so no {@code String} is created per line and files larger than
+ * the heap (or 2 GB) can be streamed. Each line contains one of the following commands (blank lines and lines
+ * starting with {@code #} are ignored):
+ * 
+ * <pre>
+ * insert &lt;key&gt;
+ * delete &lt;key&gt;
+ * get &lt;key&gt;
+ * range &lt;fromKey&gt; &lt;toKey&gt;              (fromKey inclusive, toKey exclusive)
+ * batch insert|delete|get &lt;key&gt; ...
+ * batch range &lt;fromKey&gt; &lt;toKey&gt; ...
+ * </pre>
+ * 
+ * Keys are signed decimal {@code long}s.
+ */
+public class CommandReader implements java.io.Closeable {
+
+	/**
+	 * The commands that a {@code CommandReader} can read.
+	 */
+	public enum Command {
+		INSERT, DELETE, GET, RANGE
+	}
+
+	/**
+	 * The default size (in bytes) of the windows of the file that are mapped into memory.
+	 */
+	public static final int WINDOW_SIZE = 1 << 28;
+
+	/**
+	 * The channel of the file.
+	 */
+	protected FileChannel channel;
+
+	/**
+	 * The size of the file.
+	 */
+	protected long fileSize;
+
+	/**
+	 * The size of the windows of the file that are mapped into memory.
+	 */
+	protected int windowSize;
+
+	/**
+	 * The position in the file of the current window.
+	 */
+	protected long windowOffset;
+
+	/**
+	 * The current window of the file.
+	 */
+	protected MappedByteBuffer window;
+
+	/**
+	 * The position in the current window of the next line.
+	 */
+	protected int position;
+
+	/**
+	 * The positions in the current window of the start and the end of the current line.
+	 */
+	protected int lineStart, lineEnd;
+
+	/**
+	 * The number of the current line.
+	 */
+	protected long lineNumber;
+
+	/**
+	 * The current command.
+	 */
+	protected Command command;
+
+	/**
+	 * A flag indicating whether or not the current command is a batch.
+	 */
+	protected boolean batch;
+
+	/**
+	 * The arguments of the current command.
+	 */
+	protected long[] arguments = new long[16];
+
+	/**
+	 * The number of arguments of the current command.
+	 */
+	protected int argumentCount;
+
+	/**
+	 * Constructs a {@code CommandReader}.
+	 * 
+	 * @param fileName
+	 *            the name of the workload file.
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	public CommandReader(String fileName) throws IOException {
+		this(fileName, WINDOW_SIZE);
+	}
+
+	/**
+	 * Constructs a {@code CommandReader}.
+	 * 
+	 * @param fileName
+	 *            the name of the workload file.
+	 * @param windowSize
+	 *            the size (in bytes) of the windows of the file that are mapped into memory (i.e., the maximum length
+	 *            of a line).
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	public CommandReader(String fileName, int windowSize) throws IOException {
+		this.channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+		this.fileSize = channel.size();
+		this.windowSize = windowSize;
+		map(0);
+	}
+
+	/**
+	 * Maps the window of the file that starts at the specified position.
+	 * 
+	 * @param offset
+	 *            a position in the file.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	protected void map(long offset) throws IOException {
+		windowOffset = offset;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, fileSize - offset));
+		position = 0;
+	}
+
+	/**
+	 * Reads the next command.
+	 * 
+	 * @return {@code true} if a command has been read; {@code false} if the end of the file has been reached.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws IllegalArgumentException
+	 *             if the next line is not a valid command.
+	 */
+	public boolean next() throws IOException {
+		while (windowOffset + position < fileSize) {
+			int limit = window.limit();
+			int end = position;
+			while (end < limit && window.get(end) != '\n')
+				end++;
+			if (end == limit && windowOffset + limit < fileSize) { // if the line continues beyond the window
+				if (position == 0)
+					throw new IllegalArgumentException("line " + (lineNumber + 1) + " is longer than " + windowSize
+							+ " bytes");
+				map(windowOffset + position);
+				continue;
+			}
+			lineNumber++;
+			lineStart = position;
+			lineEnd = end;
+			position = end + 1;
+			if (parse())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Parses the current line.
+	 * 
+	 * @return {@code true} if the current line contains a command; {@code false} if it is blank or a comment.
+	 * @throws IllegalArgumentException
+	 *             if the current line is not a valid command.
+	 */
+	protected boolean parse() {
+		int p = skipSpaces(lineStart);
+		if (p == lineEnd || window.get(p) == '#')
+			return false;
+		int end = wordEnd(p);
+		batch = matches(p, end, "batch");
+		if (batch) {
+			p = skipSpaces(end);
+			end = wordEnd(p);
+		}
+		if (matches(p, end, "insert"))
+			command = Command.INSERT;
+		else if (matches(p, end, "delete"))
+			command = Command.DELETE;
+		else if (matches(p, end, "get"))
+			command = Command.GET;
+		else if (matches(p, end, "range"))
+			command = Command.RANGE;
+		else
+			throw invalid();
+		argumentCount = 0;
+		for (p = skipSpaces(end); p < lineEnd; p = skipSpaces(p)) {
+			if (argumentCount == arguments.length)
+				arguments = java.util.Arrays.copyOf(arguments, 2 * arguments.length);
+			p = parseLong(p);
+		}
+		int arity = command == Command.RANGE ? 2 : 1;
+		if (batch ? argumentCount % arity != 0 : argumentCount != arity)
+			throw invalid();
+		return true;
+	}
+
+	/**
+	 * Parses the decimal number at the specified position and appends it to the arguments of the current command.
+	 * 
+	 * @param p
+	 *            a position in the current line.
+	 * @return the position following the number.
+	 * @throws IllegalArgumentException
+	 *             if there is no valid number at the specified position.
+	 */
+	protected int parseLong(int p) {
+		boolean negative = window.get(p) == '-';
+		if (negative || window.get(p) == '+')
+			p++;
+		int start = p;
+		long value = 0;
+		for (; p < lineEnd; p++) {
+			int digit = window.get(p) - '0';
+			if (digit < 0 || digit > 9)
+				break;
+			if (value < (Long.MIN_VALUE + digit) / 10) // if the number does not fit in a long
+				throw invalid();
+			value = value * 10 - digit; // accumulate negatively to cover Long.MIN_VALUE
+		}
+		if (p == start || p < lineEnd && !isSpace(window.get(p)) || !negative && value == Long.MIN_VALUE)
+			throw invalid();
+		arguments[argumentCount++] = negative ? value : -value;
+		return p;
+	}
+
+	/**
+	 * Returns the position of the first non-space byte at or after the specified position in the current line.
+	 * 
+	 * @param p
+	 *            a position in the current line.
+	 * @return the position of the first non-space byte at or after the specified position; the end of the line if
+	 *         there is no such byte.
+	 */
+	protected int skipSpaces(int p) {
+		while (p < lineEnd && isSpace(window.get(p)))
+			p++;
+		return p;
+	}
+
+	/**
+	 * Returns the position following the word that starts at the specified position in the current line.
+	 * 
+	 * @param p
+	 *            a position in the current line.
+	 * @return the position following the word that starts at the specified position.
+	 */
+	protected int wordEnd(int p) {
+		while (p < lineEnd && !isSpace(window.get(p)))
+			p++;
+		return p;
+	}
+
+	/**
+	 * Determines whether or not the specified part of the current line equals the specified word.
+	 * 
+	 * @param start
+	 *            the start of the part (inclusive).
+	 * @param end
+	 *            the end of the part (exclusive).
+	 * @param word
+	 *            an ASCII word.
+	 * @return {@code true} if the part equals the word; {@code false} otherwise.
+	 */
+	protected boolean matches(int start, int end, String word) {
+		if (end - start != word.length())
+			return false;
+		for (int i = 0; i < word.length(); i++)
+			if (window.get(start + i) != word.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Determines whether or not the specified byte is a space.
+	 * 
+	 * @param b
+	 *            a byte.
+	 * @return {@code true} if the byte is a space, a tab, or a carriage return; {@code false} otherwise.
+	 */
+	protected static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * Constructs an exception for the current line.
+	 * 
+	 * @return an exception for the current line.
+	 */
+	protected IllegalArgumentException invalid() {
+		return new IllegalArgumentException("invalid command at line " + lineNumber + ": " + line());
+	}
+
+	/**
+	 * Returns the current command.
+	 * 
+	 * @return the current command.
+	 */
+	public Command command() {
+		return command;
+	}
+
+	/**
+	 * Determines whether or not the current command is a batch.
+	 * 
+	 * @return {@code true} if the current command is a batch; {@code false} otherwise.
+	 */
+	public boolean isBatch() {
+		return batch;
+	}
+
+	/**
+	 * Returns the number of arguments of the current command.
+	 * 
+	 * @return the number of arguments of the current command.
+	 */
+	public int argumentCount() {
+		return argumentCount;
+	}
+
+	/**
+	 * Returns the specified argument of the current command.
+	 * 
+	 * @param i
+	 *            the index of the argument.
+	 * @return the specified argument of the current command.
+	 */
+	public long argument(int i) {
+		return arguments[i];
+	}
+
+	/**
+	 * Returns the number of the current line.
+	 * 
+	 * @return the number of the current line.
+	 */
+	public long lineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Returns the current line. Unlike the other methods of this {@code CommandReader}, this method creates a
+	 * {@code String}.
+	 * 
+	 * @return the current line.
+	 */
+	public String line() {
+		byte[] bytes = new byte[lineEnd - lineStart];
+		window.get(lineStart, bytes);
+		return new String(bytes, StandardCharsets.US_ASCII).trim();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
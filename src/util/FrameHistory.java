@@ -0,0 +1,235 @@
+package util;
+
+import bptree.BPlusTree;
+import util.CommandReader.Command;
+
+/**
+ * A {@code FrameHistory} keeps the sequence of {@code BPlusTree}s produced by a sequence of commands (one frame per
+ * command) without storing a copy of the tree per frame. It records each command compactly and keeps a copy of the
+ * tree (a keyframe) only once in a while. Any frame is rebuilt on demand by replaying the commands that follow the
+ * nearest preceding keyframe. Keyframes are spaced by at least a fixed interval and at least a fraction of the size of
+ * the tree, so keyframes take memory proportional to the number of commands while rebuilding a frame replays a
+ * bounded number of commands. Consecutive frames are rebuilt incrementally from the previously rebuilt frame.
+ */
+public class FrameHistory {
+
+	/**
+	 * The default minimum number of commands between keyframes.
+	 */
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 256;
+
+	/**
+	 * The degree of the trees.
+	 */
+	protected int degree;
+
+	/**
+	 * The minimum number of commands between keyframes.
+	 */
+	protected int keyframeInterval;
+
+	/**
+	 * The number of frames.
+	 */
+	protected int size;
+
+	/**
+	 * The command of each frame ({@code Command.ordinal()}, plus {@code Command.values().length} for batches).
+	 */
+	protected byte[] commands = new byte[1024];
+
+	/**
+	 * The index in {@code arguments} of the first argument of each frame; the entry at index {@code size} marks the
+	 * end of the arguments of the last frame.
+	 */
+	protected int[] argumentStarts = new int[1025];
+
+	/**
+	 * The arguments of all frames.
+	 */
+	protected long[] arguments = new long[1024];
+
+	/**
+	 * The frames that have keyframes, in increasing order (-1 stands for the empty tree before the first command).
+	 */
+	protected java.util.ArrayList<Integer> keyframeIndices = new java.util.ArrayList<Integer>();
+
+	/**
+	 * The keyframes.
+	 */
+	protected java.util.ArrayList<BPlusTree<Integer, String>> keyframes =
+			new java.util.ArrayList<BPlusTree<Integer, String>>();
+
+	/**
+	 * The tree after the last frame.
+	 */
+	protected BPlusTree<Integer, String> head;
+
+	/**
+	 * The approximate number of keys in the tree after the last frame.
+	 */
+	protected long headKeys;
+
+	/**
+	 * The frame most recently rebuilt.
+	 */
+	protected int cursorIndex;
+
+	/**
+	 * The tree of the frame most recently rebuilt; {@code null} if no frame has been rebuilt.
+	 */
+	protected BPlusTree<Integer, String> cursor;
+
+	/**
+	 * Constructs a {@code FrameHistory}.
+	 * 
+	 * @param degree
+	 *            the degree of the trees.
+	 */
+	public FrameHistory(int degree) {
+		this(degree, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Constructs a {@code FrameHistory}.
+	 * 
+	 * @param degree
+	 *            the degree of the trees.
+	 * @param keyframeInterval
+	 *            the minimum number of commands between keyframes.
+	 */
+	public FrameHistory(int degree, int keyframeInterval) {
+		this.degree = degree;
+		this.keyframeInterval = keyframeInterval;
+		this.head = new BPlusTree<Integer, String>(degree);
+		keyframeIndices.add(-1);
+		keyframes.add(new BPlusTree<Integer, String>(degree));
+	}
+
+	/**
+	 * Returns the number of frames in this {@code FrameHistory}.
+	 * 
+	 * @return the number of frames in this {@code FrameHistory}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of keyframes in this {@code FrameHistory}.
+	 * 
+	 * @return the number of keyframes in this {@code FrameHistory} (including the empty tree).
+	 */
+	public int keyframes() {
+		return keyframes.size();
+	}
+
+	/**
+	 * Returns the tree after the last frame.
+	 * 
+	 * @return the tree after the last frame (which must not be modified).
+	 */
+	public BPlusTree<Integer, String> head() {
+		return head;
+	}
+
+	/**
+	 * Appends the frame of the current command of the specified {@code CommandReader}.
+	 * 
+	 * @param reader
+	 *            a {@code CommandReader}.
+	 * @throws IllegalArgumentException
+	 *             if an argument of the command is not an {@code int} (the type of the keys of the trees), in which
+	 *             case nothing is appended.
+	 */
+	public void append(CommandReader reader) {
+		for (int i = 0; i < reader.argumentCount(); i++)
+			if (reader.argument(i) != (int) reader.argument(i))
+				throw new IllegalArgumentException("key out of the int range: " + reader.argument(i));
+		if (size == commands.length) {
+			commands = java.util.Arrays.copyOf(commands, 2 * size);
+			argumentStarts = java.util.Arrays.copyOf(argumentStarts, 2 * size + 1);
+		}
+		int start = argumentStarts[size], n = reader.argumentCount();
+		if (start + n > arguments.length)
+			arguments = java.util.Arrays.copyOf(arguments, Math.max(2 * arguments.length, start + n));
+		for (int i = 0; i < n; i++)
+			arguments[start + i] = reader.argument(i);
+		commands[size] = (byte) (reader.command().ordinal() + (reader.isBatch() ? Command.values().length : 0));
+		argumentStarts[size + 1] = start + n;
+		apply(size, head);
+		if (reader.command() == Command.INSERT)
+			headKeys += n;
+		else if (reader.command() == Command.DELETE)
+			headKeys = Math.max(0, headKeys - n);
+		size++;
+		if (size - 1 - keyframeIndices.get(keyframeIndices.size() - 1) >= Math.max(keyframeInterval, headKeys / 8)) {
+			keyframeIndices.add(size - 1);
+			keyframes.add(new BPlusTree<Integer, String>(head));
+		}
+	}
+
+	/**
+	 * Applies the command of the specified frame to the specified tree.
+	 * 
+	 * @param frame
+	 *            the index of a frame.
+	 * @param tree
+	 *            a tree.
+	 */
+	protected void apply(int frame, BPlusTree<Integer, String> tree) {
+		Command command = Command.values()[commands[frame] % Command.values().length];
+		for (int i = argumentStarts[frame]; i < argumentStarts[frame + 1]; i++) // append only accepts int arguments
+			if (command == Command.INSERT)
+				tree.insert((int) arguments[i], null);
+			else if (command == Command.DELETE)
+				tree.delete((int) arguments[i], null);
+	}
+
+	/**
+	 * Returns the tree of the specified frame.
+	 * 
+	 * @param frame
+	 *            the index of a frame.
+	 * @return a new copy of the tree of the specified frame.
+	 */
+	public BPlusTree<Integer, String> frame(int frame) {
+		if (frame < 0 || frame >= size)
+			throw new IndexOutOfBoundsException("frame: " + frame + ", size: " + size);
+		int k = java.util.Collections.binarySearch(keyframeIndices, frame);
+		if (k < 0)
+			k = -k - 2; // the nearest preceding keyframe
+		int keyframe = keyframeIndices.get(k);
+		if (cursor == null || cursorIndex > frame || cursorIndex < keyframe) { // if the cursor cannot be advanced
+			cursor = new BPlusTree<Integer, String>(keyframes.get(k));
+			cursorIndex = keyframe;
+		}
+		while (cursorIndex < frame)
+			apply(++cursorIndex, cursor);
+		return new BPlusTree<Integer, String>(cursor);
+	}
+
+	/**
+	 * Returns the label (i.e., the command) of the specified frame.
+	 * 
+	 * @param frame
+	 *            the index of a frame.
+	 * @return the label of the specified frame.
+	 */
+	public String label(int frame) {
+		Command[] values = Command.values();
+		StringBuilder b = new StringBuilder();
+		if (commands[frame] >= values.length)
+			b.append("batch ");
+		b.append(values[commands[frame] % values.length].name().toLowerCase());
+		for (int i = argumentStarts[frame]; i < argumentStarts[frame + 1]; i++) {
+			if (b.length() > 80) {
+				b.append(" ...");
+				break;
+			}
+			b.append(' ').append(arguments[i]);
+		}
+		return b.toString();
+	}
+
+}
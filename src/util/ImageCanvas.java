@@ -0,0 +1,112 @@
+package util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+
+/**
+ * An {@code ImageCanvas} draws on a {@code Graphics2D} context (e.g., that of a {@code BufferedImage}) without a
+ * display. Unlike {@code ZoomGraphics}, it can use different horizontal and vertical scales, and it draws every
+ * rectangle at least one pixel wide so that shapes narrower than a pixel remain visible.
+ */
+public class ImageCanvas implements TreeCanvas {
+
+	/**
+	 * The graphics context.
+	 */
+	protected Graphics2D g;
+
+	/**
+	 * The minimum x coordinate value on the virtual screen.
+	 */
+	protected double minX;
+
+	/**
+	 * The minimum y coordinate value on the virtual screen.
+	 */
+	protected double minY;
+
+	/**
+	 * The horizontal scale for the mapping from the virtual screen to the graphics context.
+	 */
+	protected double scaleX;
+
+	/**
+	 * The vertical scale for the mapping from the virtual screen to the graphics context.
+	 */
+	protected double scaleY;
+
+	/**
+	 * Constructs an {@code ImageCanvas}.
+	 * 
+	 * @param g
+	 *            the graphics context.
+	 * @param minX
+	 *            the minimum x coordinate value on the virtual screen.
+	 * @param minY
+	 *            the minimum y coordinate value on the virtual screen.
+	 * @param scaleX
+	 *            the horizontal scale for the mapping from the virtual screen to the graphics context.
+	 * @param scaleY
+	 *            the vertical scale for the mapping from the virtual screen to the graphics context.
+	 */
+	public ImageCanvas(Graphics2D g, double minX, double minY, double scaleX, double scaleY) {
+		this.g = g;
+		this.minX = minX;
+		this.minY = minY;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+	}
+
+	@Override
+	public void setColor(Color c) {
+		g.setColor(c);
+	}
+
+	@Override
+	public void fillRect(double x, double y, double width, double height) {
+		g.fillRect(getX(x), getY(y), Math.max(1, (int) (width * scaleX)), Math.max(1, (int) (height * scaleY)));
+	}
+
+	@Override
+	public void drawRect(double x, double y, double width, double height) {
+		g.drawRect(getX(x), getY(y), (int) (width * scaleX), (int) (height * scaleY));
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2) {
+		g.drawLine(getX(x1), getY(y1), getX(x2), getY(y2));
+	}
+
+	@Override
+	public void drawStrings(String[] s, double x, double y, double width, double height) {
+		java.awt.Shape clip = g.getClip();
+		g.clipRect(getX(x), getY(y), (int) (width * scaleX), (int) (height * scaleY));
+		int lineHeight = g.getFontMetrics().getHeight();
+		for (int i = 0; i < s.length; i++)
+			g.drawString(s[i], getX(x) + 2, getY(y) + lineHeight * (i + 1));
+		g.setClip(clip);
+	}
+
+	/**
+	 * Returns the corresponding x-position on the graphics context for the specified x-position on the virtual screen.
+	 * 
+	 * @param x
+	 *            the x-position on the virtual screen.
+	 * @return the corresponding x-position on the graphics context.
+	 */
+	protected int getX(double x) {
+		return (int) ((x - minX) * scaleX);
+	}
+
+	/**
+	 * Returns the corresponding y-position on the graphics context for the specified y-position on the virtual screen.
+	 * 
+	 * @param y
+	 *            the y-position on the virtual screen.
+	 * @return the corresponding y-position on the graphics context.
+	 */
+	protected int getY(double y) {
+		return (int) ((y - minY) * scaleY);
+	}
+
+}
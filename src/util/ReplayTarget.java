@@ -0,0 +1,157 @@
+package util;
+
+/**
+ * A {@code ReplayTarget} is an ordered index against which a {@code WorkloadReplayer} replays commands.
+ */
+public interface ReplayTarget {
+
+	/**
+	 * Inserts the specified key. A key that is already present is replaced, so every {@code ReplayTarget} holds each
+	 * key at most once and a replay leaves them all with the same contents.
+	 * 
+	 * @param key
+	 *            the key to insert.
+	 */
+	void insert(long key);
+
+	/**
+	 * Deletes the specified key.
+	 * 
+	 * @param key
+	 *            the key to delete.
+	 */
+	void delete(long key);
+
+	/**
+	 * Looks up the specified key.
+	 * 
+	 * @param key
+	 *            the search key.
+	 * @return {@code true} if the key is found; {@code false} otherwise.
+	 */
+	boolean get(long key);
+
+	/**
+	 * Visits the keys in the specified range.
+	 * 
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive).
+	 * @param toKey
+	 *            the highest key of the range (exclusive).
+	 * @return the number of keys visited.
+	 */
+	long range(long fromKey, long toKey);
+
+	/**
+	 * A {@code ReplayTarget} backed by a {@code BPlusTree}. Keys are inserted with {@code BPlusTree.put} rather than
+	 * {@code BPlusTree.insert}, which would add another entry for a key that is already present (unlike
+	 * {@code Map.put}).
+	 */
+	public static class Tree implements ReplayTarget {
+
+		/**
+		 * The {@code BPlusTree}.
+		 */
+		protected bptree.BPlusTree<Long, Long> tree;
+
+		/**
+		 * Constructs a {@code Tree}.
+		 * 
+		 * @param tree
+		 *            a {@code BPlusTree}.
+		 */
+		public Tree(bptree.BPlusTree<Long, Long> tree) {
+			this.tree = tree;
+		}
+
+		/**
+		 * Returns the {@code BPlusTree} of this {@code Tree}.
+		 * 
+		 * @return the {@code BPlusTree} of this {@code Tree}.
+		 */
+		public bptree.BPlusTree<Long, Long> tree() {
+			return tree;
+		}
+
+		@Override
+		public void insert(long key) {
+			tree.put(key, key);
+		}
+
+		@Override
+		public void delete(long key) {
+			tree.delete(key, null);
+		}
+
+		@Override
+		public boolean get(long key) {
+			return tree.get(key) != null;
+		}
+
+		@Override
+		public long range(long fromKey, long toKey) {
+			return tree.scan(fromKey, toKey, (k, v) -> {
+			});
+		}
+
+		@Override
+		public String toString() {
+			return "BPlusTree-" + tree.degree();
+		}
+
+	}
+
+	/**
+	 * A {@code ReplayTarget} backed by a {@code NavigableMap} (e.g., a {@code TreeMap}).
+	 */
+	public static class Map implements ReplayTarget {
+
+		/**
+		 * The {@code NavigableMap}.
+		 */
+		protected java.util.NavigableMap<Long, Long> map;
+
+		/**
+		 * Constructs a {@code Map}.
+		 * 
+		 * @param map
+		 *            a {@code NavigableMap}.
+		 */
+		public Map(java.util.NavigableMap<Long, Long> map) {
+			this.map = map;
+		}
+
+		@Override
+		public void insert(long key) {
+			map.put(key, key);
+		}
+
+		@Override
+		public void delete(long key) {
+			map.remove(key);
+		}
+
+		@Override
+		public boolean get(long key) {
+			return map.get(key) != null;
+		}
+
+		@Override
+		public long range(long fromKey, long toKey) {
+			if (fromKey >= toKey)
+				return 0;
+			long count = 0;
+			for (@SuppressWarnings("unused")
+			Long k : map.subMap(fromKey, true, toKey, false).keySet())
+				count++;
+			return count;
+		}
+
+		@Override
+		public String toString() {
+			return map.getClass().getSimpleName();
+		}
+
+	}
+
+}
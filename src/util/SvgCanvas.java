@@ -0,0 +1,191 @@
+package util;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An {@code SvgCanvas} writes the shapes drawn on it as an SVG document. Coordinates on the virtual screen are mapped
+ * to the image in the same way as {@code ZoomGraphics} does.
+ */
+public class SvgCanvas implements TreeCanvas, java.io.Closeable {
+
+	/**
+	 * The {@code Writer} of the SVG document.
+	 */
+	protected Writer writer;
+
+	/**
+	 * The minimum x coordinate value on the virtual screen.
+	 */
+	protected double minX;
+
+	/**
+	 * The minimum y coordinate value on the virtual screen.
+	 */
+	protected double minY;
+
+	/**
+	 * The horizontal scale for the mapping from the virtual screen to the image.
+	 */
+	protected double scaleX;
+
+	/**
+	 * The vertical scale for the mapping from the virtual screen to the image.
+	 */
+	protected double scaleY;
+
+	/**
+	 * The current color in SVG notation.
+	 */
+	protected String color = "#000000";
+
+	/**
+	 * A buffer for building elements.
+	 */
+	protected StringBuilder b = new StringBuilder(256);
+
+	/**
+	 * Constructs an {@code SvgCanvas} and writes the beginning of the SVG document.
+	 * 
+	 * @param writer
+	 *            the {@code Writer} of the SVG document.
+	 * @param width
+	 *            the width of the image.
+	 * @param height
+	 *            the height of the image.
+	 * @param minX
+	 *            the minimum x coordinate value on the virtual screen.
+	 * @param minY
+	 *            the minimum y coordinate value on the virtual screen.
+	 * @param scaleX
+	 *            the horizontal scale for the mapping from the virtual screen to the image.
+	 * @param scaleY
+	 *            the vertical scale for the mapping from the virtual screen to the image.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public SvgCanvas(Writer writer, int width, int height, double minX, double minY, double scaleX, double scaleY)
+			throws IOException {
+		this.writer = writer;
+		this.minX = minX;
+		this.minY = minY;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+		writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+				+ "\" font-family=\"sans-serif\" font-size=\"" + format(12 * Math.min(1, scaleY)) + "\">\n");
+		writer.write("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>\n");
+	}
+
+	@Override
+	public void setColor(Color c) {
+		color = String.format("#%06x", c.getRGB() & 0xffffff);
+	}
+
+	@Override
+	public void fillRect(double x, double y, double width, double height) {
+		b.setLength(0);
+		b.append("<rect x=\"").append(format(getX(x))).append("\" y=\"").append(format(getY(y)));
+		b.append("\" width=\"").append(format(width * scaleX)).append("\" height=\"").append(format(height * scaleY));
+		b.append("\" fill=\"").append(color).append("\"/>\n");
+		write();
+	}
+
+	@Override
+	public void drawRect(double x, double y, double width, double height) {
+		b.setLength(0);
+		b.append("<rect x=\"").append(format(getX(x))).append("\" y=\"").append(format(getY(y)));
+		b.append("\" width=\"").append(format(width * scaleX)).append("\" height=\"").append(format(height * scaleY));
+		b.append("\" fill=\"none\" stroke=\"").append(color).append("\"/>\n");
+		write();
+	}
+
+	@Override
+	public void drawLine(double x1, double y1, double x2, double y2) {
+		b.setLength(0);
+		b.append("<line x1=\"").append(format(getX(x1))).append("\" y1=\"").append(format(getY(y1)));
+		b.append("\" x2=\"").append(format(getX(x2))).append("\" y2=\"").append(format(getY(y2)));
+		b.append("\" stroke=\"").append(color).append("\"/>\n");
+		write();
+	}
+
+	@Override
+	public void drawStrings(String[] s, double x, double y, double width, double height) {
+		double lineHeight = height * scaleY / Math.max(1, s.length);
+		for (int i = 0; i < s.length; i++) {
+			b.setLength(0);
+			b.append("<text x=\"").append(format(getX(x) + 2)).append("\" y=\"");
+			b.append(format(getY(y) + lineHeight * (i + 0.75))).append("\" fill=\"").append(color).append("\">");
+			for (int j = 0; j < s[i].length(); j++) {
+				char c = s[i].charAt(j);
+				if (c == '<')
+					b.append("&lt;");
+				else if (c == '>')
+					b.append("&gt;");
+				else if (c == '&')
+					b.append("&amp;");
+				else
+					b.append(c);
+			}
+			b.append("</text>\n");
+			write();
+		}
+	}
+
+	/**
+	 * Writes the end of the SVG document and closes the {@code Writer}.
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.write("</svg>\n");
+		writer.close();
+	}
+
+	/**
+	 * Writes the element in the buffer.
+	 */
+	protected void write() {
+		try {
+			writer.append(b);
+		} catch (IOException e) {
+			throw new java.io.UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the corresponding x-position on the image for the specified x-position on the virtual screen.
+	 * 
+	 * @param x
+	 *            the x-position on the virtual screen.
+	 * @return the corresponding x-position on the image.
+	 */
+	protected double getX(double x) {
+		return (x - minX) * scaleX;
+	}
+
+	/**
+	 * Returns the corresponding y-position on the image for the specified y-position on the virtual screen.
+	 * 
+	 * @param y
+	 *            the y-position on the virtual screen.
+	 * @return the corresponding y-position on the image.
+	 */
+	protected double getY(double y) {
+		return (y - minY) * scaleY;
+	}
+
+	/**
+	 * Formats the specified number with at most two decimal places.
+	 * 
+	 * @param v
+	 *            a number.
+	 * @return the formatted number.
+	 */
+	protected static String format(double v) {
+		long r = Math.round(v * 100);
+		if (r % 100 == 0)
+			return Long.toString(r / 100);
+		return Double.toString(r / 100.0);
+	}
+
+}
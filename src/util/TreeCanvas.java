@@ -0,0 +1,76 @@
+package util;
+
+import java.awt.Color;
+
+/**
+ * A {@code TreeCanvas} is a surface on which a {@code TreeRenderer} draws in virtual (i.e., layout) coordinates.
+ */
+public interface TreeCanvas {
+
+	/**
+	 * Sets the current color.
+	 * 
+	 * @param c
+	 *            the color.
+	 */
+	void setColor(Color c);
+
+	/**
+	 * Fills the specified rectangle using the current color.
+	 * 
+	 * @param x
+	 *            the <i>x</i> coordinate of the rectangle.
+	 * @param y
+	 *            the <i>y</i> coordinate of the rectangle.
+	 * @param width
+	 *            the width of the rectangle.
+	 * @param height
+	 *            the height of the rectangle.
+	 */
+	void fillRect(double x, double y, double width, double height);
+
+	/**
+	 * Draws the outline of the specified rectangle using the current color.
+	 * 
+	 * @param x
+	 *            the <i>x</i> coordinate of the rectangle.
+	 * @param y
+	 *            the <i>y</i> coordinate of the rectangle.
+	 * @param width
+	 *            the width of the rectangle.
+	 * @param height
+	 *            the height of the rectangle.
+	 */
+	void drawRect(double x, double y, double width, double height);
+
+	/**
+	 * Draws a line between the specified points using the current color.
+	 * 
+	 * @param x1
+	 *            the first point's <i>x</i> coordinate.
+	 * @param y1
+	 *            the first point's <i>y</i> coordinate.
+	 * @param x2
+	 *            the second point's <i>x</i> coordinate.
+	 * @param y2
+	 *            the second point's <i>y</i> coordinate.
+	 */
+	void drawLine(double x1, double y1, double x2, double y2);
+
+	/**
+	 * Draws the specified lines of text within the specified area using the current color.
+	 * 
+	 * @param s
+	 *            the lines of text.
+	 * @param x
+	 *            the <i>x</i> coordinate of the area.
+	 * @param y
+	 *            the <i>y</i> coordinate of the area.
+	 * @param width
+	 *            the width of the area.
+	 * @param height
+	 *            the height of the area.
+	 */
+	void drawStrings(String[] s, double x, double y, double width, double height);
+
+}
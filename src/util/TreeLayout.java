@@ -0,0 +1,273 @@
+package util;
+
+import bptree.Node;
+import bptree.NonLeafNode;
+
+/**
+ * A {@code TreeLayout} holds the positions of the nodes of a {@code BPlusTree} (or of a subtree) on the virtual screen,
+ * using the placement of {@code BPlusTreeVisualizer}: leaf nodes are placed side by side in key order and each
+ * non-leaf node is centered above its children. The nodes are stored in level order in parallel arrays, so the
+ * children of each node are contiguous and the layout of a tree with millions of nodes takes a few tens of bytes per
+ * node. Each node also knows the range of leaf nodes below it, which gives the bounding box of its subtree in constant
+ * time for culling.
+ */
+public class TreeLayout {
+
+	/**
+	 * The degree of the tree.
+	 */
+	protected int degree;
+
+	/**
+	 * The width on the virtual screen for each key.
+	 */
+	protected int keyWidth;
+
+	/**
+	 * The height on the virtual screen for each key.
+	 */
+	protected int keyHeight;
+
+	/**
+	 * The number of nodes.
+	 */
+	protected int size;
+
+	/**
+	 * The number of levels.
+	 */
+	protected int height;
+
+	/**
+	 * The nodes in level order.
+	 */
+	protected Node<?>[] nodes;
+
+	/**
+	 * The <i>x</i> coordinate of each node.
+	 */
+	protected double[] x;
+
+	/**
+	 * The level of each node (1 for the root).
+	 */
+	protected int[] level;
+
+	/**
+	 * The index of the first child of each node; -1 for leaf nodes.
+	 */
+	protected int[] firstChild;
+
+	/**
+	 * The number of children of each node.
+	 */
+	protected int[] childCount;
+
+	/**
+	 * The position (among the leaf nodes) of the leftmost leaf node in the subtree of each node.
+	 */
+	protected int[] firstLeaf;
+
+	/**
+	 * The position (among the leaf nodes) of the rightmost leaf node in the subtree of each node.
+	 */
+	protected int[] lastLeaf;
+
+	/**
+	 * Constructs a {@code TreeLayout}.
+	 * 
+	 * @param root
+	 *            the root of the tree or subtree; {@code null} for an empty tree.
+	 * @param degree
+	 *            the degree of the tree.
+	 * @param keyWidth
+	 *            the width on the virtual screen for each key.
+	 * @param keyHeight
+	 *            the height on the virtual screen for each key.
+	 */
+	public TreeLayout(Node<?> root, int degree, int keyWidth, int keyHeight) {
+		this.degree = degree;
+		this.keyWidth = keyWidth;
+		this.keyHeight = keyHeight;
+		int capacity = 16;
+		nodes = new Node<?>[capacity];
+		level = new int[capacity];
+		firstChild = new int[capacity];
+		childCount = new int[capacity];
+		if (root != null) {
+			nodes[size] = root;
+			level[size++] = 1;
+		}
+		for (int i = 0; i < size; i++) { // visit the nodes in level order, appending the children of each node
+			height = level[i];
+			firstChild[i] = -1;
+			if (nodes[i] instanceof NonLeafNode) {
+				NonLeafNode<?> node = (NonLeafNode<?>) nodes[i];
+				int n = node.numberOfKeys() + 1;
+				if (size + n > capacity) {
+					capacity = Math.max(2 * capacity, size + n);
+					nodes = java.util.Arrays.copyOf(nodes, capacity);
+					level = java.util.Arrays.copyOf(level, capacity);
+					firstChild = java.util.Arrays.copyOf(firstChild, capacity);
+					childCount = java.util.Arrays.copyOf(childCount, capacity);
+				}
+				firstChild[i] = size;
+				childCount[i] = n;
+				for (int j = 0; j < n; j++) {
+					nodes[size] = node.child(j);
+					level[size++] = level[i] + 1;
+				}
+			}
+		}
+		x = new double[size];
+		firstLeaf = new int[size];
+		lastLeaf = new int[size];
+		int leaves = 0;
+		for (int i = 0; i < size; i++) // leaf nodes appear in key order
+			if (firstChild[i] < 0) {
+				firstLeaf[i] = lastLeaf[i] = leaves;
+				x[i] = (double) leaves++ * keyWidth * degree;
+			}
+		for (int i = size - 1; i >= 0; i--) // children come after their parents
+			if (firstChild[i] >= 0) {
+				int first = firstChild[i], last = first + childCount[i] - 1;
+				x[i] = Math.floor((x[first] + x[last]) / 2);
+				firstLeaf[i] = firstLeaf[first];
+				lastLeaf[i] = lastLeaf[last];
+			}
+	}
+
+	/**
+	 * Returns the number of nodes in this {@code TreeLayout}.
+	 * 
+	 * @return the number of nodes in this {@code TreeLayout}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of levels in this {@code TreeLayout}.
+	 * 
+	 * @return the number of levels in this {@code TreeLayout}.
+	 */
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * Returns the degree of the tree.
+	 * 
+	 * @return the degree of the tree.
+	 */
+	public int degree() {
+		return degree;
+	}
+
+	/**
+	 * Returns the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node (0 for the root).
+	 * @return the specified node.
+	 */
+	public Node<?> node(int i) {
+		return nodes[i];
+	}
+
+	/**
+	 * Returns the <i>x</i> coordinate of the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the <i>x</i> coordinate of the specified node.
+	 */
+	public double x(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Returns the <i>y</i> coordinate of the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the <i>y</i> coordinate of the specified node.
+	 */
+	public double y(int i) {
+		return (level[i] - 1) * 2.0 * keyHeight;
+	}
+
+	/**
+	 * Returns the width of each node.
+	 * 
+	 * @return the width of each node (including the borders).
+	 */
+	public double nodeWidth() {
+		return keyWidth * (degree - 1) + 6;
+	}
+
+	/**
+	 * Returns the left edge of the subtree of the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the left edge of the subtree of the specified node.
+	 */
+	public double left(int i) {
+		return (double) firstLeaf[i] * keyWidth * degree - 3;
+	}
+
+	/**
+	 * Returns the right edge of the subtree of the specified node (including the link to the next leaf node).
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the right edge of the subtree of the specified node.
+	 */
+	public double right(int i) {
+		return (double) (lastLeaf[i] + 1) * keyWidth * degree;
+	}
+
+	/**
+	 * Returns the bottom edge of this {@code TreeLayout}.
+	 * 
+	 * @return the bottom edge of this {@code TreeLayout}.
+	 */
+	public double bottom() {
+		return (height - 1) * 2.0 * keyHeight + keyHeight;
+	}
+
+	/**
+	 * Returns the number of leaf nodes below the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the number of leaf nodes below the specified node.
+	 */
+	public int leafCount(int i) {
+		return lastLeaf[i] - firstLeaf[i] + 1;
+	}
+
+	/**
+	 * Returns the index of the first child of the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the index of the first child of the specified node; -1 if the node is a leaf node.
+	 */
+	public int firstChild(int i) {
+		return firstChild[i];
+	}
+
+	/**
+	 * Returns the number of children of the specified node.
+	 * 
+	 * @param i
+	 *            the index of the node.
+	 * @return the number of children of the specified node.
+	 */
+	public int childCount(int i) {
+		return childCount[i];
+	}
+
+}
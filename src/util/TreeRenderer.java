@@ -0,0 +1,421 @@
+package util;
+
+import java.awt.Color;
+import java.io.IOException;
+
+import bptree.BPlusTree;
+import bptree.LeafNode;
+import bptree.Node;
+import bptree.NonLeafNode;
+
+/**
+ * A {@code TreeRenderer} draws a {@code TreeLayout} on a {@code TreeCanvas} in the style of
+ * {@code BPlusTreeVisualizer}, without requiring a display. It draws only the subtrees whose bounding boxes intersect
+ * the viewport (culling) and, in level-of-detail mode, draws each subtree narrower than a threshold (in pixels) as a
+ * single block instead of descending into it. The cost of rendering is thus bounded by the size of the image rather
+ * than that of the tree. Usage:
+ * 
+ * <pre>
+ * java util.TreeRenderer &lt;command file | random:&lt;keys&gt;&gt;
+ *     &lt;output.svg | output.png&gt; [-degree &lt;degree&gt;] [-size &lt;width&gt; &lt;height&gt;]
+ *     [-lod &lt;pixels&gt;] [-viewport &lt;minX&gt; &lt;minY&gt; &lt;scale&gt;] [-subtree &lt;key&gt; &lt;depth&gt;]
+ * </pre>
+ * 
+ * By default, the whole tree is scaled to fit the image. With {@code -subtree}, only the node at the specified depth
+ * on the path to the specified key and its descendants are rendered.
+ */
+public class TreeRenderer {
+
+	/**
+	 * The minimum width (in pixels) of a key for its text to be drawn.
+	 */
+	protected static final double MINIMUM_TEXT_WIDTH = 12;
+
+	/**
+	 * The color of collapsed subtrees.
+	 */
+	protected static final Color COLLAPSED_COLOR = new Color(160, 160, 160);
+
+	/**
+	 * The {@code TreeLayout} to render.
+	 */
+	protected TreeLayout layout;
+
+	/**
+	 * The width (in pixels) below which a subtree is drawn as a single block; 0 to disable the level-of-detail mode.
+	 */
+	protected double lodThreshold = 4;
+
+	/**
+	 * The left edge of the viewport on the virtual screen.
+	 */
+	protected double minX;
+
+	/**
+	 * The top edge of the viewport on the virtual screen.
+	 */
+	protected double minY;
+
+	/**
+	 * The horizontal scale for the mapping from the virtual screen to the image.
+	 */
+	protected double scaleX = 1;
+
+	/**
+	 * The vertical scale for the mapping from the virtual screen to the image.
+	 */
+	protected double scaleY = 1;
+
+	/**
+	 * The number of nodes drawn by the last rendering.
+	 */
+	protected int drawnNodes;
+
+	/**
+	 * The number of subtrees collapsed by the last rendering.
+	 */
+	protected int collapsedSubtrees;
+
+	/**
+	 * Constructs a {@code TreeRenderer}.
+	 * 
+	 * @param layout
+	 *            the {@code TreeLayout} to render.
+	 */
+	public TreeRenderer(TreeLayout layout) {
+		this.layout = layout;
+	}
+
+	/**
+	 * Sets the width (in pixels) below which a subtree is drawn as a single block.
+	 * 
+	 * @param threshold
+	 *            the width (in pixels) below which a subtree is drawn as a single block; 0 to draw every node.
+	 */
+	public void setLevelOfDetail(double threshold) {
+		this.lodThreshold = threshold;
+	}
+
+	/**
+	 * Sets the viewport.
+	 * 
+	 * @param minX
+	 *            the left edge of the viewport on the virtual screen.
+	 * @param minY
+	 *            the top edge of the viewport on the virtual screen.
+	 * @param scale
+	 *            the scale for the mapping from the virtual screen to the image.
+	 */
+	public void setViewport(double minX, double minY, double scale) {
+		setViewport(minX, minY, scale, scale);
+	}
+
+	/**
+	 * Sets the viewport with different horizontal and vertical scales.
+	 * 
+	 * @param minX
+	 *            the left edge of the viewport on the virtual screen.
+	 * @param minY
+	 *            the top edge of the viewport on the virtual screen.
+	 * @param scaleX
+	 *            the horizontal scale for the mapping from the virtual screen to the image.
+	 * @param scaleY
+	 *            the vertical scale for the mapping from the virtual screen to the image.
+	 */
+	public void setViewport(double minX, double minY, double scaleX, double scaleY) {
+		this.minX = minX;
+		this.minY = minY;
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+	}
+
+	/**
+	 * Sets the viewport so that the whole {@code TreeLayout} fits in an image of the specified size. A large tree is
+	 * much wider than it is tall, so if a uniform scale would make the levels less than a pixel apart, the tree is
+	 * squeezed horizontally instead.
+	 * 
+	 * @param width
+	 *            the width of the image.
+	 * @param height
+	 *            the height of the image.
+	 */
+	public void fit(int width, int height) {
+		if (layout.size() == 0) {
+			setViewport(0, 0, 1);
+			return;
+		}
+		double w = layout.right(0) - layout.left(0) + 6, h = layout.bottom() + 6;
+		double scale = Math.min(width / w, height / h);
+		if (scale >= 0.1)
+			setViewport(layout.left(0) - 3, -3, scale);
+		else
+			setViewport(layout.left(0) - 3, -3, width / w, Math.min(height / h, 1));
+	}
+
+	/**
+	 * Returns the number of nodes drawn by the last rendering.
+	 * 
+	 * @return the number of nodes drawn by the last rendering.
+	 */
+	public int drawnNodes() {
+		return drawnNodes;
+	}
+
+	/**
+	 * Returns the number of subtrees collapsed by the last rendering.
+	 * 
+	 * @return the number of subtrees collapsed by the last rendering.
+	 */
+	public int collapsedSubtrees() {
+		return collapsedSubtrees;
+	}
+
+	/**
+	 * Draws the part of the {@code TreeLayout} within the specified viewport on the specified {@code TreeCanvas}.
+	 * 
+	 * @param canvas
+	 *            the {@code TreeCanvas} to draw on.
+	 * @param minX
+	 *            the left edge of the viewport on the virtual screen.
+	 * @param minY
+	 *            the top edge of the viewport on the virtual screen.
+	 * @param width
+	 *            the width of the viewport on the virtual screen.
+	 * @param height
+	 *            the height of the viewport on the virtual screen.
+	 * @param scale
+	 *            the (horizontal) scale for the mapping from the virtual screen to the {@code TreeCanvas}.
+	 * @return the number of nodes drawn.
+	 */
+	public int render(TreeCanvas canvas, double minX, double minY, double width, double height, double scale) {
+		drawnNodes = collapsedSubtrees = 0;
+		if (layout.size() > 0)
+			render(canvas, 0, minX, minY, minX + width, minY + height, scale);
+		return drawnNodes;
+	}
+
+	/**
+	 * Draws the part of the specified subtree within the specified viewport.
+	 * 
+	 * @param canvas
+	 *            the {@code TreeCanvas} to draw on.
+	 * @param i
+	 *            the index of the root of the subtree.
+	 * @param minX
+	 *            the left edge of the viewport.
+	 * @param minY
+	 *            the top edge of the viewport.
+	 * @param maxX
+	 *            the right edge of the viewport.
+	 * @param maxY
+	 *            the bottom edge of the viewport.
+	 * @param scale
+	 *            the scale for the mapping from the virtual screen to the {@code TreeCanvas}.
+	 */
+	protected void render(TreeCanvas canvas, int i, double minX, double minY, double maxX, double maxY,
+			double scale) {
+		double left = layout.left(i), right = layout.right(i), top = layout.y(i);
+		if (right < minX || left > maxX || top > maxY || layout.bottom() < minY) // if outside the viewport
+			return;
+		if ((right - left) * scale < lodThreshold) { // if too narrow to show any detail
+			canvas.setColor(COLLAPSED_COLOR);
+			canvas.fillRect(left, top, right - left, layout.bottom() - top);
+			collapsedSubtrees++;
+			return;
+		}
+		drawNode(canvas, i, minX, minY, maxX, maxY, scale);
+		int c = layout.firstChild(i);
+		if (c >= 0 && (right - left) * scale < lodThreshold * layout.childCount(i)) { // if the children are too narrow
+			double y = layout.y(c);
+			canvas.setColor(COLLAPSED_COLOR);
+			canvas.fillRect(left, y, right - left, layout.bottom() - y);
+			collapsedSubtrees += layout.childCount(i);
+			return;
+		}
+		for (int j = 0; j < layout.childCount(i); j++)
+			render(canvas, c + j, minX, minY, maxX, maxY, scale);
+	}
+
+	/**
+	 * Draws the specified node and the lines to its children.
+	 * 
+	 * @param canvas
+	 *            the {@code TreeCanvas} to draw on.
+	 * @param i
+	 *            the index of the node.
+	 * @param minX
+	 *            the left edge of the viewport.
+	 * @param minY
+	 *            the top edge of the viewport.
+	 * @param maxX
+	 *            the right edge of the viewport.
+	 * @param maxY
+	 *            the bottom edge of the viewport.
+	 * @param scale
+	 *            the scale for the mapping from the virtual screen to the {@code TreeCanvas}.
+	 */
+	protected void drawNode(TreeCanvas canvas, int i, double minX, double minY, double maxX, double maxY,
+			double scale) {
+		Node<?> node = layout.node(i);
+		int degree = layout.degree();
+		int keyWidth = layout.keyWidth, keyHeight = layout.keyHeight;
+		double x = layout.x(i), y = layout.y(i);
+		canvas.setColor(Color.BLACK);
+		int c = layout.firstChild(i);
+		for (int j = 0; j < layout.childCount(i); j++) { // draw the lines to the children
+			double x1 = x + j * keyWidth, x2 = layout.x(c + j) + keyWidth * (degree - 1) / 2;
+			if (Math.max(x1, x2) >= minX && Math.min(x1, x2) <= maxX)
+				canvas.drawLine(x1, y + keyHeight - 4, x2, layout.y(c + j));
+		}
+		if (x + layout.nodeWidth() < minX || x - 3 > maxX || y > maxY || y + keyHeight < minY)
+			return;
+		drawnNodes++;
+		if (node instanceof LeafNode && ((LeafNode<?, ?>) node).successor() != null) // if there is a next leaf node
+			canvas.drawLine(x + keyWidth * (degree - 1), y + keyHeight / 2, x + keyWidth * degree - 3, y + keyHeight
+					/ 2);
+		canvas.setColor(Color.WHITE);
+		canvas.fillRect(x - 3, y, keyWidth * (degree - 1) + 6, keyHeight);
+		boolean text = keyWidth * scale >= MINIMUM_TEXT_WIDTH;
+		for (int j = 0; j < degree; j++) {
+			canvas.setColor(Color.GRAY);
+			canvas.fillRect(x + j * keyWidth - 3, y, 6, keyHeight); // draw a separator between two keys
+			if (text && j < node.numberOfKeys()) {
+				canvas.setColor(Color.BLACK);
+				canvas.drawStrings(new String[] { node.key(j).toString() }, x + j * keyWidth + 4, y, keyWidth - 6,
+						keyHeight);
+			}
+		}
+		canvas.setColor(Color.BLACK);
+		canvas.drawRect(x - 3, y, keyWidth * (degree - 1) + 6, keyHeight);
+	}
+
+	/**
+	 * Renders the viewport into an SVG file.
+	 * 
+	 * @param fileName
+	 *            the name of the file.
+	 * @param width
+	 *            the width of the image.
+	 * @param height
+	 *            the height of the image.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void writeSvg(String fileName, int width, int height) throws IOException {
+		SvgCanvas canvas = new SvgCanvas(new java.io.BufferedWriter(new java.io.FileWriter(fileName), 1 << 16), width,
+				height, minX, minY, scaleX, scaleY);
+		try {
+			render(canvas, minX, minY, width / scaleX, height / scaleY, scaleX);
+		} finally {
+			canvas.close();
+		}
+	}
+
+	/**
+	 * Renders the viewport into a PNG file.
+	 * 
+	 * @param fileName
+	 *            the name of the file.
+	 * @param width
+	 *            the width of the image.
+	 * @param height
+	 *            the height of the image.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void writePng(String fileName, int width, int height) throws IOException {
+		java.awt.image.BufferedImage image = new java.awt.image.BufferedImage(width, height,
+				java.awt.image.BufferedImage.TYPE_INT_RGB);
+		java.awt.Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		render(new ImageCanvas(g, minX, minY, scaleX, scaleY), minX, minY, width / scaleX, height / scaleY, scaleX);
+		g.dispose();
+		javax.imageio.ImageIO.write(image, "png", new java.io.File(fileName));
+	}
+
+	/**
+	 * The main program.
+	 * 
+	 * @param args
+	 *            the String arguments (see the class description).
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void main(String[] args) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		if (args.length < 2) {
+			System.err.println("usage: java util.TreeRenderer <command file | random:<keys>> <output.svg | output.png>"
+					+ " [-degree <degree>] [-size <width> <height>] [-lod <pixels>] [-viewport <minX> <minY> <scale>]"
+					+ " [-subtree <key> <depth>]");
+			System.exit(2);
+		}
+		int degree = 64, width = 4096, height = 1024;
+		double lod = 4;
+		double[] viewport = null;
+		Long subtreeKey = null;
+		int subtreeDepth = 0;
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("-degree"))
+				degree = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-size")) {
+				width = Integer.parseInt(args[++i]);
+				height = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-lod"))
+				lod = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-viewport"))
+				viewport = new double[] { Double.parseDouble(args[++i]), Double.parseDouble(args[++i]),
+						Double.parseDouble(args[++i]) };
+			else if (args[i].equals("-subtree")) {
+				subtreeKey = Long.parseLong(args[++i]);
+				subtreeDepth = Integer.parseInt(args[++i]);
+			} else
+				throw new IllegalArgumentException("unknown option: " + args[i]);
+		}
+		long start = System.nanoTime();
+		BPlusTree<Long, Long> tree = new BPlusTree<Long, Long>(degree);
+		if (args[0].startsWith("random:")) {
+			java.util.Random random = new java.util.Random(0);
+			for (long n = Long.parseLong(args[0].substring(7)); n > 0; n--) {
+				long key = random.nextLong();
+				tree.insert(key, key);
+			}
+		} else {
+			CommandReader reader = new CommandReader(args[0]);
+			try {
+				while (reader.next())
+					for (int i = 0; i < reader.argumentCount(); i++) {
+						if (reader.command() == CommandReader.Command.INSERT)
+							tree.insert(reader.argument(i), reader.argument(i));
+						else if (reader.command() == CommandReader.Command.DELETE)
+							tree.delete(reader.argument(i), null);
+					}
+			} finally {
+				reader.close();
+			}
+		}
+		long built = System.nanoTime();
+		Node<Long> root = tree.root();
+		for (int d = 0; subtreeKey != null && d < subtreeDepth && root instanceof NonLeafNode; d++)
+			root = ((NonLeafNode<Long>) root).child(subtreeKey);
+		TreeLayout layout = new TreeLayout(root, degree, BPlusTreeVisualizer.keyWidth, BPlusTreeVisualizer.keyHeight);
+		TreeRenderer renderer = new TreeRenderer(layout);
+		renderer.setLevelOfDetail(lod);
+		if (viewport == null)
+			renderer.fit(width, height);
+		else
+			renderer.setViewport(viewport[0], viewport[1], viewport[2]);
+		long laidOut = System.nanoTime();
+		if (args[1].toLowerCase().endsWith(".png"))
+			renderer.writePng(args[1], width, height);
+		else
+			renderer.writeSvg(args[1], width, height);
+		long rendered = System.nanoTime();
+		System.out.printf("nodes: %d, drawn: %d, collapsed subtrees: %d%n", layout.size(), renderer.drawnNodes(),
+				renderer.collapsedSubtrees());
+		System.out.printf("build: %.0f ms, layout: %.0f ms, render: %.0f ms%n", (built - start) / 1e6,
+				(laidOut - built) / 1e6, (rendered - laidOut) / 1e6);
+	}
+
+}
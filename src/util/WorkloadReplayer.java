@@ -0,0 +1,215 @@
+package util;
+
+import java.io.IOException;
+
+import bptree.BPlusTree;
+import bptree.LatencyHistogram;
+import util.CommandReader.Command;
+
+/**
+ * A {@code WorkloadReplayer} replays the commands in a workload file (see {@code CommandReader}) against a
+ * {@code ReplayTarget} without a display and reports the throughput and the latency percentiles of each command.
+ * Usage:
+ * 
+ * <pre>
+ * java util.WorkloadReplayer &lt;workload file&gt; [implementation] [-warmup]
+ * </pre>
+ * 
+ * where the implementation is {@code BPlusTree-<degree>} (default: {@code BPlusTree-64}), {@code TreeMap},
+ * {@code ConcurrentSkipListMap}, or the name of a class that implements {@code ReplayTarget} or
+ * {@code NavigableMap} and has a public constructor without parameters. With {@code -warmup}, the workload is
+ * replayed once against a separate instance before it is measured.
+ */
+public class WorkloadReplayer {
+
+	/**
+	 * The percentiles reported.
+	 */
+	protected static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	/**
+	 * The {@code ReplayTarget} of this {@code WorkloadReplayer}.
+	 */
+	protected ReplayTarget target;
+
+	/**
+	 * The latencies (in nanoseconds) of single commands, indexed by {@code Command.ordinal()}, followed by those of
+	 * batches.
+	 */
+	protected LatencyHistogram[] latencies = new LatencyHistogram[2 * Command.values().length];
+
+	/**
+	 * The number of commands (i.e., lines) replayed.
+	 */
+	protected long commands;
+
+	/**
+	 * The number of operations replayed (each key or range of a batch counts as one operation).
+	 */
+	protected long operations;
+
+	/**
+	 * The number of keys found by {@code get} commands.
+	 */
+	protected long found;
+
+	/**
+	 * The number of keys visited by {@code range} commands.
+	 */
+	protected long visited;
+
+	/**
+	 * The time (in nanoseconds) spent on replaying, including parsing.
+	 */
+	protected long elapsedNanos;
+
+	/**
+	 * Constructs a {@code WorkloadReplayer}.
+	 * 
+	 * @param target
+	 *            the {@code ReplayTarget} to replay commands against.
+	 */
+	public WorkloadReplayer(ReplayTarget target) {
+		this.target = target;
+		for (int i = 0; i < latencies.length; i++)
+			latencies[i] = new LatencyHistogram();
+	}
+
+	/**
+	 * Creates a {@code ReplayTarget}.
+	 * 
+	 * @param implementation
+	 *            {@code BPlusTree-<degree>}, {@code TreeMap}, {@code ConcurrentSkipListMap}, or the name of a class
+	 *            that implements {@code ReplayTarget} or {@code NavigableMap}.
+	 * @return a new {@code ReplayTarget}.
+	 * @throws ReflectiveOperationException
+	 *             if the specified class cannot be instantiated.
+	 */
+	@SuppressWarnings("unchecked")
+	public static ReplayTarget target(String implementation) throws ReflectiveOperationException {
+		if (implementation.startsWith("BPlusTree-"))
+			return new ReplayTarget.Tree(new BPlusTree<Long, Long>(Integer.parseInt(implementation.substring(10))));
+		if (implementation.equals("TreeMap"))
+			return new ReplayTarget.Map(new java.util.TreeMap<Long, Long>());
+		if (implementation.equals("ConcurrentSkipListMap"))
+			return new ReplayTarget.Map(new java.util.concurrent.ConcurrentSkipListMap<Long, Long>());
+		Object o = Class.forName(implementation).getConstructor().newInstance();
+		if (o instanceof ReplayTarget)
+			return (ReplayTarget) o;
+		if (o instanceof java.util.NavigableMap)
+			return new ReplayTarget.Map((java.util.NavigableMap<Long, Long>) o);
+		throw new IllegalArgumentException(implementation + " is neither a ReplayTarget nor a NavigableMap");
+	}
+
+	/**
+	 * Replays all commands from the specified {@code CommandReader}.
+	 * 
+	 * @param reader
+	 *            a {@code CommandReader}.
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void replay(CommandReader reader) throws IOException {
+		long start = System.nanoTime();
+		while (reader.next()) {
+			Command command = reader.command();
+			int n = reader.argumentCount();
+			long t = System.nanoTime();
+			switch (command) {
+			case INSERT:
+				for (int i = 0; i < n; i++)
+					target.insert(reader.argument(i));
+				break;
+			case DELETE:
+				for (int i = 0; i < n; i++)
+					target.delete(reader.argument(i));
+				break;
+			case GET:
+				for (int i = 0; i < n; i++)
+					if (target.get(reader.argument(i)))
+						found++;
+				break;
+			case RANGE:
+				for (int i = 0; i < n; i += 2)
+					visited += target.range(reader.argument(i), reader.argument(i + 1));
+				n /= 2;
+				break;
+			}
+			latencies[command.ordinal() + (reader.isBatch() ? Command.values().length : 0)].record(System.nanoTime()
+					- t);
+			commands++;
+			operations += n;
+		}
+		elapsedNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns a report on the throughput and the latencies of the commands replayed so far.
+	 * 
+	 * @return a report on the throughput and the latencies of the commands replayed so far.
+	 */
+	public String report() {
+		StringBuilder b = new StringBuilder();
+		double seconds = elapsedNanos / 1e9;
+		b.append(String.format("target: %s%n", target));
+		b.append(String.format("commands: %d, operations: %d, elapsed: %.3f s%n", commands, operations, seconds));
+		b.append(String.format("throughput: %.0f commands/s, %.0f operations/s%n", commands / seconds, operations
+				/ seconds));
+		b.append(String.format("gets found: %d, keys visited by ranges: %d%n", found, visited));
+		b.append(String.format("%-14s %12s %10s", "latency (ns)", "count", "mean"));
+		for (double p : PERCENTILES)
+			b.append(String.format(" %9s", "p" + (p == (long) p ? String.valueOf((long) p) : String.valueOf(p))));
+		b.append(String.format(" %10s%n", "max"));
+		Command[] commands = Command.values();
+		for (int i = 0; i < latencies.length; i++) {
+			LatencyHistogram h = latencies[i];
+			if (h.count() == 0)
+				continue;
+			String name = (i < commands.length ? "" : "batch ") + commands[i % commands.length].name().toLowerCase();
+			b.append(String.format("%-14s %12d %10.0f", name, h.count(), h.mean()));
+			for (double p : PERCENTILES)
+				b.append(String.format(" %9d", h.percentile(p)));
+			b.append(String.format(" %10d%n", h.max()));
+		}
+		return b.toString();
+	}
+
+	/**
+	 * The main program.
+	 * 
+	 * @param args
+	 *            the name of the workload file, optionally followed by the implementation and {@code -warmup}.
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("usage: java util.WorkloadReplayer <workload file> [implementation] [-warmup]");
+			System.exit(2);
+		}
+		String implementation = "BPlusTree-64";
+		boolean warmup = false;
+		for (int i = 1; i < args.length; i++)
+			if (args[i].equals("-warmup"))
+				warmup = true;
+			else
+				implementation = args[i];
+		if (warmup) {
+			CommandReader reader = new CommandReader(args[0]);
+			try {
+				new WorkloadReplayer(target(implementation)).replay(reader);
+			} finally {
+				reader.close();
+			}
+		}
+		WorkloadReplayer replayer = new WorkloadReplayer(target(implementation));
+		CommandReader reader = new CommandReader(args[0]);
+		try {
+			replayer.replay(reader);
+		} finally {
+			reader.close();
+		}
+		System.out.print(replayer.report());
+	}
+
+}
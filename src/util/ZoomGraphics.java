@@ -8,7 +8,7 @@ import java.awt.*;
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  * 
  */
-public class ZoomGraphics {
+public class ZoomGraphics implements TreeCanvas {
 
 	/**
 	 * The width of the Graphics context.
@@ -46,6 +46,19 @@ public class ZoomGraphics {
 	public ZoomGraphics() {
 	}
 
+	/**
+	 * Constructs a ZoomGraphics with the same scale and minimum x and y values as the specified ZoomGraphics (but
+	 * without a Graphics context).
+	 * 
+	 * @param other
+	 *            a ZoomGraphics.
+	 */
+	public ZoomGraphics(ZoomGraphics other) {
+		this.scale = other.scale;
+		this.minX = other.minX;
+		this.minY = other.minY;
+	}
+
 	/**
 	 * Sets the minimum x and y values.
 	 * 
@@ -241,6 +254,42 @@ public class ZoomGraphics {
 		return scale;
 	}
 
+	/**
+	 * Returns the minimum x coordinate value (i.e., the left edge of the visible area on the virtual screen).
+	 * 
+	 * @return the minimum x coordinate value.
+	 */
+	public double getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Returns the minimum y coordinate value (i.e., the top edge of the visible area on the virtual screen).
+	 * 
+	 * @return the minimum y coordinate value.
+	 */
+	public double getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Returns the width of the visible area on the virtual screen.
+	 * 
+	 * @return the width of the visible area on the virtual screen.
+	 */
+	public double getVisibleWidth() {
+		return graphicsWidth / scale;
+	}
+
+	/**
+	 * Returns the height of the visible area on the virtual screen.
+	 * 
+	 * @return the height of the visible area on the virtual screen.
+	 */
+	public double getVisibleHeight() {
+		return graphicsHeight / scale;
+	}
+
 	/**
 	 * Changes the scale by the specified ratio.
 	 * 
@@ -1,6 +1,5 @@
 package util;
 
-import java.awt.Graphics;
 import java.awt.event.*;
 
 /**
@@ -16,7 +15,7 @@ public abstract class ZoomView extends BufferedImagePanel {
 	private static final long serialVersionUID = 5949882869282877870L;
 
 	/**
-	 * The graphics context.
+	 * The viewport, which is only changed and read on the event dispatch thread.
 	 */
 	protected ZoomGraphics zoomGraphics = new ZoomGraphics();
 
@@ -24,7 +23,7 @@ public abstract class ZoomView extends BufferedImagePanel {
 
 	public ZoomView() {
 
-		MouseListener l = new MouseAdapter() {
+		MouseAdapter l = new MouseAdapter() {
 
 			protected int prevX = 0;
 
@@ -37,6 +36,7 @@ public abstract class ZoomView extends BufferedImagePanel {
 					else if (e.getButton() == MouseEvent.BUTTON3 || e.getButton() == MouseEvent.BUTTON1
 							&& e.isControlDown())
 						zoomGraphics.changeScale(1 / 1.2);
+					viewChanged();
 					repaint();
 				}
 			}
@@ -47,41 +47,27 @@ public abstract class ZoomView extends BufferedImagePanel {
 				mouseDragged = false;
 			}
 
-			public void mouseReleased(MouseEvent e) {
-				if (mouseDragged) {
-					double deltaX = (prevX - e.getX()) / zoomGraphics.getScale();
-					double deltaY = (prevY - e.getY()) / zoomGraphics.getScale();
-					zoomGraphics.moveBy(deltaX, deltaY);
-					repaint();
-				}
-			}
-		};
-		addMouseListener(l);
-		MouseMotionListener m = new MouseMotionAdapter() {
-			public void mouseDragged(MouseEvent e) {
+			public void mouseDragged(MouseEvent e) { // pan while dragging
 				mouseDragged = true;
+				double deltaX = (prevX - e.getX()) / zoomGraphics.getScale();
+				double deltaY = (prevY - e.getY()) / zoomGraphics.getScale();
+				zoomGraphics.moveBy(deltaX, deltaY);
+				prevX = e.getX();
+				prevY = e.getY();
+				viewChanged();
+				repaint();
 			}
 		};
-		addMouseMotionListener(m);
-
-	}
+		addMouseListener(l);
+		addMouseMotionListener(l);
 
-	/**
-	 * Invoked by Swing to draw components. Applications should not invoke this method directly, but should instead use
-	 * the repaint method to schedule the component for redrawing.
-	 * 
-	 * @param g
-	 *            the Graphics context in which to paint.
-	 */
-	public void draw(Graphics g) {
-		zoomGraphics.set(g, getWidth() - 1, getHeight() - 1);
-		draw();
 	}
 
 	/**
-	 * Invoked by Swing to draw components. Applications should not invoke this method directly, but should instead use
-	 * the repaint method to schedule the component for redrawing.
+	 * Invoked on the event dispatch thread after the viewport (i.e., {@code zoomGraphics}) changes and before the
+	 * drawing is requested. Since {@code draw(Graphics)} runs on the drawing thread, implementations publish a copy of
+	 * the viewport (e.g., through a volatile field) for it to draw with.
 	 */
-	public abstract void draw();
+	protected abstract void viewChanged();
 
 }
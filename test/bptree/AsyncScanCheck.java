@@ -0,0 +1,137 @@
+package bptree;
+
+/**
+ * The {@code AsyncScanCheck} class checks that the scans of an {@code AsyncBPlusTree} over a
+ * {@code BufferedBPlusTree} see the changes that are still pending as messages: after random replacements and
+ * deletions, a scan (delivered in small requests) must return exactly the entries of a {@code java.util.TreeMap}
+ * that received the same changes. It also checks that no stage depending on the {@code CompletableFuture}s of the
+ * changes runs on the event loop thread.
+ */
+public class AsyncScanCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a scan.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		long scanned = 0;
+		for (int capacity : new int[] { 4, 64, 1024 })
+			scanned += run(8, capacity, capacity);
+		System.out.println("AsyncScanCheck: OK (" + scanned + " entries scanned)");
+	}
+
+	/**
+	 * Applies random replacements and deletions through an {@code AsyncBPlusTree} and compares scans of its
+	 * {@code BufferedBPlusTree} with the model.
+	 * 
+	 * @param degree
+	 *            the degree of the {@code BufferedBPlusTree}.
+	 * @param capacity
+	 *            the capacity of its {@code MessageBuffer}s.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of entries scanned.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a scan.
+	 */
+	static long run(int degree, int capacity, long seed) throws InterruptedException {
+		java.util.Random random = new java.util.Random(seed);
+		BufferedBPlusTree<Integer, Integer> tree = new BufferedBPlusTree<Integer, Integer>(degree, capacity);
+		java.util.TreeMap<Integer, Integer> model = new java.util.TreeMap<Integer, Integer>();
+		String where = "capacity " + capacity + ": ";
+		long scanned = 0;
+		java.util.concurrent.atomic.AtomicLong onLoop = new java.util.concurrent.atomic.AtomicLong();
+		try (AsyncBPlusTree<Integer, Integer> async = new AsyncBPlusTree<Integer, Integer>(tree)) {
+			for (int round = 0; round < 5; round++) {
+				java.util.List<java.util.concurrent.CompletableFuture<Integer>> results;
+				results = new java.util.ArrayList<java.util.concurrent.CompletableFuture<Integer>>();
+				for (int i = 0; i < 2000; i++) {
+					Integer key = random.nextInt(3000);
+					if (random.nextInt(4) == 0) {
+						results.add(async.deleteAsync(key));
+						model.remove(key);
+					} else {
+						results.add(async.putAsync(key, i));
+						model.put(key, i);
+					}
+					results.set(i, results.get(i).whenComplete((v, t) -> { // joined below
+						if (Thread.currentThread() == async.loop)
+							onLoop.incrementAndGet();
+					}));
+				}
+				for (java.util.concurrent.CompletableFuture<Integer> r : results)
+					r.join();
+				if (onLoop.get() > 0)
+					throw new AssertionError(where + onLoop.get() + " dependent stages ran on the event loop thread");
+				Integer from = random.nextInt(1000), to = from + random.nextInt(2000);
+				java.util.List<java.util.Map.Entry<Integer, Integer>> all = scan(async, null, null);
+				java.util.List<java.util.Map.Entry<Integer, Integer>> part = scan(async, from, to);
+				if (!all.equals(new java.util.ArrayList<java.util.Map.Entry<Integer, Integer>>(model.entrySet())))
+					throw new AssertionError(where + "scanned " + all.size() + " entries instead of " + model.size());
+				if (!part.equals(new java.util.ArrayList<java.util.Map.Entry<Integer, Integer>>(
+						model.subMap(from, to).entrySet())))
+					throw new AssertionError(where + "scanned " + part.size() + " entries from " + from + " to " + to);
+				scanned += all.size() + part.size();
+			}
+		}
+		return scanned;
+	}
+
+	/**
+	 * Scans the specified range of the specified {@code AsyncBPlusTree}, requesting a few entries at a time.
+	 * 
+	 * @param async
+	 *            an {@code AsyncBPlusTree}.
+	 * @param fromKey
+	 *            the lowest key of the range (inclusive); {@code null} if the range has no lower bound.
+	 * @param toKey
+	 *            the highest key of the range (exclusive); {@code null} if the range has no upper bound.
+	 * @return the entries in the range.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the scan.
+	 */
+	static java.util.List<java.util.Map.Entry<Integer, Integer>> scan(AsyncBPlusTree<Integer, Integer> async,
+			Integer fromKey, Integer toKey) throws InterruptedException {
+		java.util.List<java.util.Map.Entry<Integer, Integer>> entries = java.util.Collections
+				.synchronizedList(new java.util.ArrayList<java.util.Map.Entry<Integer, Integer>>());
+		java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(1);
+		Throwable[] failure = new Throwable[1];
+		async.scanAsync(fromKey, toKey).subscribe(new java.util.concurrent.Flow.Subscriber<
+				java.util.Map.Entry<Integer, Integer>>() {
+
+			java.util.concurrent.Flow.Subscription subscription;
+
+			@Override
+			public void onSubscribe(java.util.concurrent.Flow.Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(5);
+			}
+
+			@Override
+			public void onNext(java.util.Map.Entry<Integer, Integer> entry) {
+				if (entries.add(entry) && entries.size() % 5 == 0)
+					subscription.request(5);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				failure[0] = throwable;
+				done.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+				done.countDown();
+			}
+		});
+		done.await();
+		if (failure[0] != null)
+			throw new AssertionError("the scan failed", failure[0]);
+		return entries;
+	}
+
+}
@@ -0,0 +1,357 @@
+package bptree;
+
+/**
+ * The {@code ByteKeyCheck} class checks the encoding of {@code ByteKey}s: {@code int}s and {@code long}s (including
+ * their extremes) must sort numerically, {@code String}s and {@code byte[]}s (including embedded 0x00 bytes, 0xFF
+ * bytes and the escape sequence itself) must sort in unsigned lexicographic order with a component before every
+ * longer one it is a prefix of, {@code compareTo} must agree with the component-wise order of random tuples, every
+ * {@code ByteKey} must decode to its components with a {@code Reader}, {@code prefixEnd} must bound exactly the
+ * {@code ByteKey}s that start with a prefix (also with trailing 0xFF bytes), and prefix and time-window scans of a
+ * {@code BPlusTree} must return exactly the matching entries of a model.
+ */
+public class ByteKeyCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		java.util.Random random = new java.util.Random(44);
+		long comparisons = numbers(random) + components(random) + tuples(random, 200000);
+		prefixEnds(random);
+		long scanned = scans(random);
+		System.out.println("ByteKeyCheck: OK (" + comparisons + " comparisons, " + scanned + " entries scanned)");
+	}
+
+	/**
+	 * Checks that {@code int} and {@code long} components sort numerically and decode to themselves.
+	 * 
+	 * @param random
+	 *            a source of random numbers.
+	 * @return the number of comparisons.
+	 */
+	static long numbers(java.util.Random random) {
+		java.util.List<Long> longs = new java.util.ArrayList<Long>(java.util.List.of(Long.MIN_VALUE, Long.MIN_VALUE + 1,
+				(long) Integer.MIN_VALUE - 1, (long) Integer.MIN_VALUE, -256L, -255L, -1L, 0L, 1L, 255L, 256L,
+				(long) Integer.MAX_VALUE, (long) Integer.MAX_VALUE + 1, Long.MAX_VALUE - 1, Long.MAX_VALUE));
+		for (int i = 0; i < 100; i++)
+			longs.add(random.nextInt(3) == 0 ? random.nextInt() : random.nextLong());
+		long comparisons = 0;
+		for (long a : longs)
+			for (long b : longs) {
+				check(Long.compare(a, b), ByteKey.builder().add(a).build(), ByteKey.builder().add(b).build(),
+						"longs " + a + " and " + b);
+				int x = (int) a, y = (int) b;
+				check(Integer.compare(x, y), ByteKey.builder().add(x).build(), ByteKey.builder().add(y).build(),
+						"ints " + x + " and " + y);
+				comparisons += 2;
+			}
+		for (long a : longs) {
+			ByteKey.Reader r = ByteKey.builder().add(a).add((int) a).build().reader();
+			long l = r.readLong();
+			int i = r.readInt();
+			if (l != a || i != (int) a || r.hasMore())
+				throw new AssertionError(a + " decodes to " + l + " and " + i);
+		}
+		ByteKey minInt = ByteKey.builder().add(Integer.MIN_VALUE).build();
+		ByteKey minusOne = ByteKey.builder().add(-1L).build();
+		if (!minInt.equals(new ByteKey(new byte[] { 0, 0, 0, 0 }))
+				|| !minusOne.equals(new ByteKey(new byte[] { 0x7F, -1, -1, -1, -1, -1, -1, -1 })))
+			throw new AssertionError("the sign bit is not flipped");
+		return comparisons;
+	}
+
+	/**
+	 * Checks that {@code String} and {@code byte[]} components with embedded 0x00 and 0xFF bytes sort in unsigned
+	 * lexicographic order, that a component sorts before every longer one it is a prefix of (regardless of the
+	 * components that follow), and that they decode to themselves.
+	 * 
+	 * @param random
+	 *            a source of random numbers.
+	 * @return the number of comparisons.
+	 */
+	static long components(java.util.Random random) {
+		java.util.List<byte[]> values = new java.util.ArrayList<byte[]>();
+		for (String s : new String[] { "", "\0", "\0\0", "a", "a\0", "a\0b", "a\0\0", "a\1", "ab", "abc", "b",
+				"\u00e9", "\uffff", "\ud83d\ude00" })
+			values.add(s.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+		for (byte[] b : new byte[][] { { -1 }, { 0, -1 }, { 0, -1, -1 }, { 0, 1 }, { 0, 1, 0 }, { 1, 0, -1 }, { -1, 0 },
+				{ -1, -1 } }) // 0xFF bytes, the escape 0x00 0xFF and the terminator 0x00 0x01 as data
+			values.add(b);
+		for (int i = 0; i < 60; i++) {
+			byte[] b = new byte[random.nextInt(5)];
+			for (int j = 0; j < b.length; j++)
+				b[j] = (byte) new int[] { 0, 1, 0x7F, 0x80, 0xFE, 0xFF }[random.nextInt(6)];
+			values.add(b);
+		}
+		long comparisons = 0;
+		for (byte[] a : values)
+			for (byte[] b : values) {
+				int expected = java.util.Arrays.compareUnsigned(a, b);
+				String where = "components " + java.util.Arrays.toString(a) + " and " + java.util.Arrays.toString(b);
+				check(expected, ByteKey.builder().add(a).build(), ByteKey.builder().add(b).build(), where);
+				check(expected != 0 ? expected : 1, ByteKey.builder().add(a).add(Integer.MAX_VALUE).build(),
+						ByteKey.builder().add(b).add(Integer.MIN_VALUE).build(), where + " followed by ints");
+				check(expected != 0 ? expected : 1, ByteKey.builder().add(a).add(new byte[] { -1 }).build(),
+						ByteKey.builder().add(b).build(), where + " (the first followed by a 0xFF byte)");
+				comparisons += 3;
+			}
+		for (byte[] a : values) {
+			ByteKey.Reader r = ByteKey.builder().add(a).add(a).add(7).build().reader();
+			if (!java.util.Arrays.equals(r.readBytes(), a) || !java.util.Arrays.equals(r.readBytes(), a)
+					|| r.readInt() != 7 || r.hasMore())
+				throw new AssertionError(java.util.Arrays.toString(a) + " does not decode to itself");
+			String s = new String(a, java.nio.charset.StandardCharsets.UTF_8);
+			if (java.util.Arrays.equals(s.getBytes(java.nio.charset.StandardCharsets.UTF_8), a)
+					&& !ByteKey.builder().add(s).build().reader().readString().equals(s))
+				throw new AssertionError("\"" + s + "\" does not decode to itself");
+		}
+		ByteKey ab = ByteKey.builder().add("ab").build(), abc = ByteKey.builder().add("abc").build();
+		if (abc.startsWith(ab) || ab.compareTo(abc) >= 0)
+			throw new AssertionError("\"ab\" must sort before \"abc\" without being a prefix of its encoding");
+		return comparisons;
+	}
+
+	/**
+	 * Checks that {@code compareTo} agrees with the component-wise order of random (int, String, long, byte[]) tuples
+	 * and their leading components, and that they decode to themselves.
+	 * 
+	 * @param random
+	 *            a source of random numbers.
+	 * @param n
+	 *            the number of comparisons.
+	 * @return the number of comparisons.
+	 */
+	static long tuples(java.util.Random random, int n) {
+		Object[][] tuples = new Object[1000][];
+		ByteKey[] keys = new ByteKey[tuples.length];
+		for (int i = 0; i < tuples.length; i++) {
+			Object[] t = tuples[i] = new Object[random.nextInt(5)];
+			ByteKey.Builder b = ByteKey.builder();
+			for (int c = 0; c < t.length; c++)
+				switch (c) {
+				case 0:
+					int[] ints = { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE };
+					b.add((int) (t[c] = ints[random.nextInt(ints.length)]));
+					break;
+				case 1:
+					b.add((String) (t[c] = new String[] { "", "\0", "a", "a\0", "ab", "b" }[random.nextInt(6)]));
+					break;
+				case 2:
+					b.add((long) (t[c] = (long) random.nextInt(3) - 1));
+					break;
+				default:
+					byte[] x = new byte[random.nextInt(3)];
+					for (int j = 0; j < x.length; j++)
+						x[j] = (byte) new int[] { 0, 1, 0xFF }[random.nextInt(3)];
+					b.add((byte[]) (t[c] = x));
+				}
+			keys[i] = b.build();
+			ByteKey.Reader r = keys[i].reader();
+			if (t.length > 0 && r.readInt() != (int) t[0] || t.length > 1 && !r.readString().equals(t[1])
+					|| t.length > 2 && r.readLong() != (long) t[2]
+					|| t.length > 3 && !java.util.Arrays.equals(r.readBytes(), (byte[]) t[3]) || r.hasMore())
+				throw new AssertionError(java.util.Arrays.deepToString(t) + " does not decode to itself");
+		}
+		for (int i = 0; i < n; i++) {
+			int a = random.nextInt(tuples.length), b = random.nextInt(tuples.length);
+			check(compare(tuples[a], tuples[b]), keys[a], keys[b], "tuples " + java.util.Arrays.deepToString(tuples[a])
+					+ " and " + java.util.Arrays.deepToString(tuples[b]));
+			if (keys[a].startsWith(keys[b]) != isPrefix(tuples[b], tuples[a]))
+				throw new AssertionError(java.util.Arrays.deepToString(tuples[b]) + " is "
+						+ (keys[a].startsWith(keys[b]) ? "" : "not ") + "a prefix of the encoding of "
+						+ java.util.Arrays.deepToString(tuples[a]));
+		}
+		return n;
+	}
+
+	/**
+	 * Compares the specified (int, String, long, byte[]) tuples component by component.
+	 * 
+	 * @param a
+	 *            a tuple.
+	 * @param b
+	 *            a tuple.
+	 * @return a negative integer, zero, or a positive integer as the first tuple is less than, equal to, or greater
+	 *         than the second (a tuple is less than every longer tuple that it is a prefix of).
+	 */
+	static int compare(Object[] a, Object[] b) {
+		for (int c = 0; c < Math.min(a.length, b.length); c++) {
+			int r;
+			if (c == 0)
+				r = Integer.compare((int) a[c], (int) b[c]);
+			else if (c == 1)
+				r = java.util.Arrays.compareUnsigned(((String) a[c]).getBytes(java.nio.charset.StandardCharsets.UTF_8),
+						((String) b[c]).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+			else if (c == 2)
+				r = Long.compare((long) a[c], (long) b[c]);
+			else
+				r = java.util.Arrays.compareUnsigned((byte[]) a[c], (byte[]) b[c]);
+			if (r != 0)
+				return r;
+		}
+		return Integer.compare(a.length, b.length);
+	}
+
+	/**
+	 * Determines whether or not the first tuple consists of the leading components of the second.
+	 * 
+	 * @param prefix
+	 *            a tuple.
+	 * @param t
+	 *            a tuple.
+	 * @return {@code true} if the first tuple consists of the leading components of the second; {@code false}
+	 *         otherwise.
+	 */
+	static boolean isPrefix(Object[] prefix, Object[] t) {
+		return prefix.length <= t.length && compare(prefix, java.util.Arrays.copyOf(t, prefix.length)) == 0;
+	}
+
+	/**
+	 * Checks {@code prefixEnd} on encodings that end with 0xFF bytes or consist of them, and that a random
+	 * {@code ByteKey} starts with another exactly if it lies between that {@code ByteKey} (inclusive) and its
+	 * {@code prefixEnd} (exclusive).
+	 * 
+	 * @param random
+	 *            a source of random numbers.
+	 */
+	static void prefixEnds(java.util.Random random) {
+		byte[][][] cases = { { { 1, 2, -1, -1 }, { 1, 3 } }, { { 1, -2 }, { 1, -1 } }, { { 1, -2, -1 }, { 1, -1 } },
+				{ { 0x7F, -1 }, { -128 } }, { { 0 }, { 1 } }, { { -1 }, null }, { { -1, -1, -1 }, null },
+				{ {}, null } }; // encodings and their prefix ends (null if there is none)
+		for (byte[][] c : cases) {
+			ByteKey end = new ByteKey(c[0]).prefixEnd();
+			if (c[1] == null ? end != null : end == null || !java.util.Arrays.equals(end.bytes(), c[1]))
+				throw new AssertionError("the prefix end of " + new ByteKey(c[0]) + " is " + end + " instead of "
+						+ (c[1] == null ? null : new ByteKey(c[1])));
+		}
+		for (int i = 0; i < 200000; i++) {
+			ByteKey prefix = randomBytes(random, 3), key = randomBytes(random, 5);
+			ByteKey end = prefix.prefixEnd();
+			boolean inRange = key.compareTo(prefix) >= 0 && (end == null || key.compareTo(end) < 0);
+			if (key.startsWith(prefix) != inRange)
+				throw new AssertionError(
+						key + (inRange ? " lies in [" : " lies outside [") + prefix + ", " + end + ")");
+		}
+	}
+
+	/**
+	 * Returns a {@code ByteKey} of random bytes (mostly 0x00, 0x01, 0xFE and 0xFF).
+	 * 
+	 * @param random
+	 *            a source of random numbers.
+	 * @param maxLength
+	 *            the maximum length.
+	 * @return a {@code ByteKey} of random bytes.
+	 */
+	static ByteKey randomBytes(java.util.Random random, int maxLength) {
+		byte[] b = new byte[random.nextInt(maxLength + 1)];
+		for (int i = 0; i < b.length; i++)
+			b[i] = (byte) new int[] { 0, 1, 0xFE, 0xFF, 0xFF }[random.nextInt(5)];
+		return new ByteKey(b);
+	}
+
+	/**
+	 * Checks prefix scans (by tenant and by tenant and timestamp) and time-window scans of a {@code BPlusTree} of
+	 * (tenant, timestamp, id) keys against a model.
+	 * 
+	 * @param random
+	 *            a source of random numbers.
+	 * @return the number of entries scanned.
+	 */
+	static long scans(java.util.Random random) {
+		int[] tenants = { Integer.MIN_VALUE, -1, 0, 1, 0xFF, Integer.MAX_VALUE };
+		BPlusTree<ByteKey, Long> tree = new BPlusTree<ByteKey, Long>(8);
+		java.util.List<long[]> rows = new java.util.ArrayList<long[]>(); // tenant, timestamp, id
+		for (long id = 0; id < 20000; id++) {
+			int tenant = tenants[random.nextInt(tenants.length)];
+			long timestamp = random.nextInt(2000) - 1000;
+			if (random.nextInt(100) == 0)
+				timestamp = random.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE;
+			tree.insert(ByteKey.builder().add(tenant).add(timestamp).add(id).build(), id);
+			rows.add(new long[] { tenant, timestamp, id });
+		}
+		long scanned = 0;
+		for (int i = 0; i < 300; i++) {
+			int tenant = tenants[random.nextInt(tenants.length)];
+			long from = random.nextInt(2200) - 1100, to = from + random.nextInt(300);
+			if (random.nextInt(10) == 0)
+				from = Long.MIN_VALUE;
+			if (random.nextInt(10) == 0)
+				to = Long.MAX_VALUE;
+			long f = from, t = to;
+			java.util.List<Long> ids = new java.util.ArrayList<Long>();
+			java.util.function.BiConsumer<ByteKey, Long> collect = (k, v) -> {
+				ByteKey.Reader r = k.reader();
+				if (r.readInt() != tenant)
+					throw new AssertionError(k + " does not belong to tenant " + tenant);
+				r.readLong();
+				if (r.readLong() != v)
+					throw new AssertionError(k + " is mapped to " + v);
+				ids.add(v);
+			};
+			ByteKey.Builder b = ByteKey.builder().add(tenant);
+			scanned += ByteKey.scanPrefix(tree, b.build(), collect);
+			compare("tenant " + tenant, ids, rows, r -> r[0] == tenant);
+			ids.clear();
+			scanned += ByteKey.scanPrefix(tree, b.add(from).build(), collect);
+			compare("tenant " + tenant + " at " + from, ids, rows, r -> r[0] == tenant && r[1] == f);
+			ids.clear();
+			scanned += tree.scan(ByteKey.builder().add(tenant).add(from).build(),
+					ByteKey.builder().add(tenant).add(to).build(), collect); // the time window
+			compare("tenant " + tenant + " from " + from + " to " + to, ids, rows,
+					r -> r[0] == tenant && r[1] >= f && r[1] < t);
+			ids.clear();
+		}
+		return scanned;
+	}
+
+	/**
+	 * Compares the IDs of the scanned rows with those of the matching rows of the model, which must be in key order.
+	 * 
+	 * @param where
+	 *            a description of the scan.
+	 * @param ids
+	 *            the IDs of the scanned rows.
+	 * @param rows
+	 *            the (tenant, timestamp, id) rows of the model.
+	 * @param filter
+	 *            the rows that match the scan.
+	 */
+	static void compare(String where, java.util.List<Long> ids, java.util.List<long[]> rows,
+			java.util.function.Predicate<long[]> filter) {
+		java.util.List<long[]> matching = new java.util.ArrayList<long[]>();
+		for (long[] r : rows)
+			if (filter.test(r))
+				matching.add(r);
+		matching.sort(java.util.Comparator.<long[]> comparingLong(r -> r[1]).thenComparingLong(r -> r[2]));
+		java.util.List<Long> expected = new java.util.ArrayList<Long>();
+		for (long[] r : matching)
+			expected.add(r[2]);
+		if (!ids.equals(expected))
+			throw new AssertionError(where + ": " + ids.size() + " rows scanned instead of " + expected.size());
+	}
+
+	/**
+	 * Checks that the specified {@code ByteKey}s compare like the values they encode.
+	 * 
+	 * @param expected
+	 *            the result of comparing the values.
+	 * @param a
+	 *            the {@code ByteKey} of the first value.
+	 * @param b
+	 *            the {@code ByteKey} of the second value.
+	 * @param where
+	 *            a description of the values.
+	 */
+	static void check(int expected, ByteKey a, ByteKey b, String where) {
+		if (Integer.signum(a.compareTo(b)) != Integer.signum(expected))
+			throw new AssertionError(where + ": " + a + " compares to " + b + " as " + a.compareTo(b) + " instead of "
+					+ expected);
+		if ((expected == 0) != a.equals(b) || expected == 0 && a.hashCode() != b.hashCode())
+			throw new AssertionError(where + ": " + a + " and " + b + " are " + (a.equals(b) ? "" : "not ") + "equal");
+	}
+
+}
@@ -0,0 +1,83 @@
+package bptree;
+
+/**
+ * The {@code DeleteCheck} class checks deletions (which merge or redistribute {@code Node}s with too few entries)
+ * against a {@code java.util.TreeMap} on random workloads of distinct keys: after every batch of insertions and
+ * deletions, the structure of the {@code BPlusTree} is verified and its entries are compared with those of the
+ * {@code TreeMap}.
+ */
+public class DeleteCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	@SuppressWarnings("deprecation")
+	public static void main(String[] args) {
+		long operations = 0;
+		for (int degree : new int[] { 3, 4, 5, 6, 7, 8, 16, 64 })
+			for (int seed = 0; seed < 4; seed++) {
+				java.util.Random random = new java.util.Random(seed);
+				BPlusTree<Integer, Integer> tree = new BPlusTree<Integer, Integer>(degree);
+				if (seed % 2 == 1)
+					tree.enableCounts();
+				java.util.TreeMap<Integer, Integer> model = new java.util.TreeMap<Integer, Integer>();
+				int range = 20 * degree * degree;
+				for (int i = 0; i < 20000; i++, operations++) {
+					Integer key = random.nextInt(range);
+					boolean growing = i % 5000 < 3000; // alternate between growing and shrinking the tree
+					if (random.nextInt(10) < (growing ? 7 : 3)) {
+						if (!model.containsKey(key)) {
+							tree.insert(key, -key);
+							model.put(key, -key);
+						}
+					} else {
+						if (random.nextBoolean())
+							tree.delete(key, random.nextBoolean() ? null : -key);
+						else
+							tree.delete_entry(null, key, -key);
+						model.remove(key);
+					}
+					if (i % 97 == 0)
+						compare(tree, model);
+				}
+				while (!model.isEmpty()) { // delete everything down to an empty tree
+					Integer key = model.pollFirstEntry().getKey();
+					tree.delete(key, null);
+					operations++;
+					if (model.size() % 31 == 0)
+						compare(tree, model);
+				}
+				if (tree.root() != null)
+					throw new AssertionError("degree " + degree + ": the tree is not empty");
+			}
+		System.out.println("DeleteCheck: OK (" + operations + " operations)");
+	}
+
+	/**
+	 * Verifies the structure of the specified {@code BPlusTree} and compares its entries with those of the specified
+	 * {@code TreeMap}.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param model
+	 *            the expected entries.
+	 */
+	protected static void compare(BPlusTree<Integer, Integer> tree, java.util.TreeMap<Integer, Integer> model) {
+		long size = Invariants.check(tree);
+		if (size != model.size())
+			throw new AssertionError("degree " + tree.degree() + ": " + size + " entries instead of " + model.size());
+		java.util.Iterator<java.util.Map.Entry<Integer, Integer>> expected = model.entrySet().iterator();
+		tree.scan(null, null, (k, v) -> {
+			java.util.Map.Entry<Integer, Integer> e = expected.next();
+			if (!e.getKey().equals(k) || !e.getValue().equals(v))
+				throw new AssertionError("degree " + tree.degree() + ": " + k + "=" + v + " instead of " + e);
+		});
+		Integer probe = model.isEmpty() ? null : model.lastKey();
+		if (probe != null && !Integer.valueOf(-probe).equals(tree.get(probe)))
+			throw new AssertionError("degree " + tree.degree() + ": " + probe + " is not found");
+	}
+
+}
@@ -0,0 +1,226 @@
+package bptree;
+
+/**
+ * The {@code DuplicateKeyCheck} class checks {@code BPlusTree}s with many entries per key, whose runs of equal keys
+ * span several {@code LeafNode}s, against a model that keeps the values of each key. {@code get} and {@code put} must
+ * find the first entry with a key wherever its run starts, {@code delete(key, null)} must delete that entry, and
+ * {@code delete(key, value)} must find the entry with the value anywhere in the run. The check is repeated with the
+ * optional features that descend the {@code BPlusTree} on their own (subtree counts and aggregates, {@code LeafNode}
+ * filters, the learned index, the lookup cache and append optimization with blocked keys), and with a
+ * {@code BufferedBPlusTree}, whose lookups replay the pending messages for the key.
+ */
+public class DuplicateKeyCheck {
+
+	/**
+	 * The names of the configurations checked.
+	 */
+	static final String[] CONFIGURATIONS = { "plain", "counts", "filters", "learned", "cache", "append", "buffered" };
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		long operations = 0;
+		for (String configuration : CONFIGURATIONS)
+			for (int degree : new int[] { 3, 4, 5, 6, 7, 8, 64 })
+				for (int keys : new int[] { 30, 300 })
+					operations += run(configuration, degree, keys, degree * 31 + keys);
+		System.out.println("DuplicateKeyCheck: OK (" + operations + " operations)");
+	}
+
+	/**
+	 * Creates a {@code BPlusTree} in the specified configuration.
+	 * 
+	 * @param configuration
+	 *            the name of a configuration.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @return a {@code BPlusTree} in the specified configuration.
+	 */
+	static BPlusTree<Integer, Long> create(String configuration, int degree) {
+		BPlusTree<Integer, Long> tree = configuration.equals("buffered")
+				? new BufferedBPlusTree<Integer, Long>(degree, 2 * degree)
+				: new BPlusTree<Integer, Long>(degree);
+		switch (configuration) {
+		case "counts":
+			tree.enableCounts();
+			tree.enableAggregates(Monoid.of(0L, Long::sum));
+			break;
+		case "filters":
+			tree.enableLeafFilters(8);
+			break;
+		case "learned":
+			tree.enableLearnedIndex(4);
+			break;
+		case "cache":
+			tree.enableLookupCache(16);
+			break;
+		case "append":
+			tree.enableAppendOptimization(0.9);
+			tree.enableBlockedKeys();
+			break;
+		default:
+			break;
+		}
+		return tree;
+	}
+
+	/**
+	 * Runs random insertions, replacements and deletions of entries with the specified number of distinct keys.
+	 * 
+	 * @param configuration
+	 *            the name of a configuration.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param keys
+	 *            the number of distinct keys.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of operations run.
+	 */
+	static long run(String configuration, int degree, int keys, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		BPlusTree<Integer, Long> tree = create(configuration, degree);
+		java.util.TreeMap<Integer, java.util.List<Long>> model = new java.util.TreeMap<Integer, java.util.List<Long>>();
+		String where = configuration + ", degree " + degree + ", " + keys + " keys: ";
+		long id = 0, size = 0, operations = 0;
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < 2000; i++, operations++) { // insert enough entries for runs to span leaf nodes
+				Integer key = random.nextInt(keys);
+				tree.insert(key, ++id);
+				model.computeIfAbsent(key, k -> new java.util.ArrayList<Long>()).add(id);
+				size++;
+			}
+			compare(where, tree, model, size);
+			for (int i = 0; i < 6000 && size > 0; i++, operations++) {
+				Integer key = random.nextInt(keys);
+				java.util.List<Long> values = model.get(key);
+				Long first = tree.get(key);
+				if ((first == null) != (values == null) || first != null && !values.contains(first))
+					throw new AssertionError(where + "get(" + key + ") = " + first + " instead of one of " + values);
+				switch (random.nextInt(4)) {
+				case 0: { // delete a specific entry, which may be anywhere in the run of the key
+					if (values == null)
+						break;
+					Long value = values.get(random.nextInt(values.size()));
+					tree.delete(key, value);
+					remove(model, key, value);
+					size--;
+					break;
+				}
+				case 1: // delete the first entry, which is the one that get returned
+					tree.delete(key, null);
+					if (first != null) {
+						remove(model, key, first);
+						size--;
+					}
+					break;
+				case 2: { // replace the value of the first entry
+					Long previous = tree.put(key, ++id);
+					if (!java.util.Objects.equals(previous, first))
+						throw new AssertionError(where + "put(" + key + ") replaced " + previous + ", not " + first);
+					if (first != null)
+						values.set(values.indexOf(first), id);
+					else {
+						model.computeIfAbsent(key, k -> new java.util.ArrayList<Long>()).add(id);
+						size++;
+					}
+					break;
+				}
+				default: // delete a missing entry
+					tree.delete(key, -1L);
+					break;
+				}
+				if (i % 50 == 0)
+					compare(where, tree, model, size);
+			}
+			compare(where, tree, model, size);
+		}
+		for (java.util.Map.Entry<Integer, java.util.List<Long>> e : model.entrySet()) // delete every entry by value
+			for (Long value : e.getValue()) {
+				tree.delete(e.getKey(), value);
+				operations++;
+			}
+		tree.flush();
+		if (tree.root() != null)
+			throw new AssertionError(where + tree.size() + " entries left after deleting every entry");
+		return operations;
+	}
+
+	/**
+	 * Removes the specified value of the specified key from the specified model.
+	 * 
+	 * @param model
+	 *            the values of each key.
+	 * @param key
+	 *            a key.
+	 * @param value
+	 *            a value of the key.
+	 */
+	static void remove(java.util.TreeMap<Integer, java.util.List<Long>> model, Integer key, Long value) {
+		java.util.List<Long> values = model.get(key);
+		values.remove(value);
+		if (values.isEmpty())
+			model.remove(key);
+	}
+
+	/**
+	 * Verifies the structure of the specified {@code BPlusTree} and compares it with the specified model: every key
+	 * must have the same values, a scan starting at a key must see all of its entries, and the subtree counts and
+	 * aggregates (if maintained) must agree.
+	 * 
+	 * @param where
+	 *            a description of the configuration.
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param model
+	 *            the values of each key.
+	 * @param size
+	 *            the number of entries in the model.
+	 */
+	static void compare(String where, BPlusTree<Integer, Long> tree,
+			java.util.TreeMap<Integer, java.util.List<Long>> model, long size) {
+		long entries;
+		tree.flush();
+		try {
+			entries = Invariants.check(tree);
+		} catch (AssertionError e) {
+			throw new AssertionError(where + e.getMessage(), e);
+		}
+		if (entries != size)
+			throw new AssertionError(where + entries + " entries instead of " + size);
+		java.util.TreeMap<Integer, java.util.List<Long>> found = new java.util.TreeMap<Integer, java.util.List<Long>>();
+		tree.scan(null, null, (k, v) -> found.computeIfAbsent(k, x -> new java.util.ArrayList<Long>()).add(v));
+		for (java.util.Map.Entry<Integer, java.util.List<Long>> e : model.entrySet()) {
+			Integer key = e.getKey();
+			java.util.List<Long> expected = new java.util.ArrayList<Long>(e.getValue());
+			java.util.List<Long> values = found.remove(key);
+			java.util.Collections.sort(expected);
+			if (values != null)
+				java.util.Collections.sort(values);
+			if (!expected.equals(values))
+				throw new AssertionError(where + "key " + key + " has " + values + " instead of " + expected);
+			long[] scanned = new long[2];
+			tree.scan(key, key + 1, (k, v) -> {
+				scanned[0]++;
+				scanned[1] += v;
+			});
+			if (scanned[0] != expected.size())
+				throw new AssertionError(where + "a scan from " + key + " saw " + scanned[0] + " of "
+						+ expected.size() + " entries");
+			if (tree.hasCounts()) {
+				if (tree.count(key, key + 1) != expected.size())
+					throw new AssertionError(where + "count(" + key + ") = " + tree.count(key, key + 1));
+				Long sum = tree.aggregate(key, key + 1);
+				if (sum != scanned[1])
+					throw new AssertionError(where + "aggregate(" + key + ") = " + sum + " instead of " + scanned[1]);
+			}
+		}
+		if (!found.isEmpty())
+			throw new AssertionError(where + "unexpected keys " + found.keySet());
+	}
+
+}
@@ -0,0 +1,149 @@
+package bptree;
+
+/**
+ * The {@code FreezeCheck} class checks {@code BPlusTree.freeze} and {@code FrozenBPlusTree} against the source
+ * {@code BPlusTree}: for {@code Long} and {@code Integer} keys (which the {@code FrozenBPlusTree} searches as
+ * {@code long}s, including their extremes) and {@code String} keys, with and without duplicates, on the empty
+ * {@code BPlusTree} and on sizes around every power of two up to 4096 (where the Eytzinger tree is complete or has a
+ * single node on its last level), {@code get}, {@code rank} and {@code scan} must agree with the source for every
+ * key, for keys between, before and after them, and for random ranges. The position found by the branch-free
+ * descent and the recovery from the trailing one bits is also compared with that of a descent that records its last
+ * left turn.
+ */
+public class FreezeCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		java.util.Random random = new java.util.Random(48);
+		java.util.List<Integer> sizes = new java.util.ArrayList<Integer>(java.util.List.of(0, 1, 2, 3));
+		for (int p = 4; p <= 4096; p *= 2)
+			sizes.addAll(java.util.List.of(p - 1, p, p + 1));
+		sizes.add(10000);
+		long lookups = 0;
+		for (int size : sizes)
+			for (boolean duplicates : new boolean[] { false, true }) {
+				int degree = 3 + random.nextInt(62);
+				lookups += run("Long", size, duplicates, degree, random, r -> {
+					long x = r.nextInt(8) == 0 ? r.nextLong() : r.nextInt(100000) - 50000L;
+					return r.nextInt(50) == 0 ? (r.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE) : x;
+				}, k -> new Long[] { k == Long.MIN_VALUE ? k : k - 1, k == Long.MAX_VALUE ? k : k + 1 },
+						new Long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0L });
+				lookups += run("Integer", size, duplicates, degree, random, r -> {
+					int x = r.nextInt(8) == 0 ? r.nextInt() : r.nextInt(100000) - 50000;
+					return r.nextInt(50) == 0 ? (r.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE) : x;
+				}, k -> new Integer[] { k == Integer.MIN_VALUE ? k : k - 1, k == Integer.MAX_VALUE ? k : k + 1 },
+						new Integer[] { Integer.MIN_VALUE, Integer.MAX_VALUE, 0 });
+				lookups += run("String", size, duplicates, degree, random, r -> "k" + r.nextInt(100000),
+						k -> new String[] { k.substring(0, k.length() - 1), k + "\0" }, new String[] { "", "l", "k" });
+			}
+		System.out.println("FreezeCheck: OK (" + sizes.size() * 6 + " frozen trees, " + lookups + " lookups)");
+	}
+
+	/**
+	 * Freezes a {@code BPlusTree} with random keys and compares the {@code FrozenBPlusTree} with it.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param type
+	 *            the name of the type of keys.
+	 * @param size
+	 *            the number of entries.
+	 * @param duplicates
+	 *            {@code true} to draw the keys from a small pool so that most of them have duplicates.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param random
+	 *            a source of random numbers.
+	 * @param keys
+	 *            the function that returns random keys.
+	 * @param neighbors
+	 *            the function that returns keys just below and just above a key.
+	 * @param extremes
+	 *            other keys to look up.
+	 * @return the number of lookups.
+	 */
+	static <K extends Comparable<K>> long run(String type, int size, boolean duplicates, int degree,
+			java.util.Random random, java.util.function.Function<java.util.Random, K> keys,
+			java.util.function.Function<K, K[]> neighbors, K[] extremes) {
+		String where = type + " keys, " + size + " entries" + (duplicates ? " with duplicates" : "") + ", degree "
+				+ degree + ": ";
+		java.util.List<K> pool = new java.util.ArrayList<K>();
+		for (int i = 0; i < Math.max(1, size / 8); i++)
+			pool.add(keys.apply(random));
+		BPlusTree<K, Long> tree = new BPlusTree<K, Long>(degree);
+		tree.enableCounts();
+		for (long id = 0; id < size; id++)
+			tree.insert(duplicates ? pool.get(random.nextInt(pool.size())) : keys.apply(random), id);
+		FrozenBPlusTree<K, Long> frozen = tree.freeze();
+		if (frozen.size() != size)
+			throw new AssertionError(where + frozen.size() + " entries frozen");
+		if ((frozen.longs != null) != (size > 0 && !type.equals("String")))
+			throw new AssertionError(where + "keys are " + (frozen.longs != null ? "" : "not ") + "stored as longs");
+		int[] index = { 0 };
+		tree.scan(null, null, (k, v) -> {
+			if (!frozen.key(index[0]).equals(k) || !frozen.value(index[0]).equals(v))
+				throw new AssertionError(where + "entry " + index[0] + " is " + frozen.key(index[0]) + "="
+						+ frozen.value(index[0]) + " instead of " + k + "=" + v);
+			index[0]++;
+		});
+		java.util.List<K> queries = new java.util.ArrayList<K>(java.util.List.of(extremes));
+		for (int i = 0; i < size; i++) {
+			queries.add(frozen.key(i));
+			queries.addAll(java.util.List.of(neighbors.apply(frozen.key(i))));
+		}
+		for (int i = 0; i < 100; i++)
+			queries.add(keys.apply(random));
+		for (K key : queries) {
+			if (!java.util.Objects.equals(frozen.get(key), tree.get(key)))
+				throw new AssertionError(
+						where + "get(" + key + ") = " + frozen.get(key) + " instead of " + tree.get(key));
+			if (frozen.rank(key) != tree.rank(key))
+				throw new AssertionError(
+						where + "rank(" + key + ") = " + frozen.rank(key) + " instead of " + tree.rank(key));
+			if (frozen.position(key) != position(frozen, key))
+				throw new AssertionError(where + "position(" + key + ") = " + frozen.position(key) + " instead of "
+						+ position(frozen, key));
+		}
+		for (int i = 0; i < 100; i++) {
+			K from = random.nextInt(8) == 0 ? null : queries.get(random.nextInt(queries.size()));
+			K to = random.nextInt(8) == 0 ? null : queries.get(random.nextInt(queries.size()));
+			java.util.List<String> expected = new java.util.ArrayList<String>();
+			java.util.List<String> found = new java.util.ArrayList<String>();
+			long n = tree.scan(from, to, (k, v) -> expected.add(k + "=" + v));
+			if (frozen.scan(from, to, (k, v) -> found.add(k + "=" + v)) != n || !found.equals(expected))
+				throw new AssertionError(
+						where + "scan(" + from + ", " + to + ") = " + found + " instead of " + expected);
+		}
+		return queries.size() * 3L + 100;
+	}
+
+	/**
+	 * Returns the position in the Eytzinger order of the first key that is greater than or equal to the specified key
+	 * by a descent that records the last position at which it went left.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param frozen
+	 *            a {@code FrozenBPlusTree}.
+	 * @param key
+	 *            a key.
+	 * @return the position of the first key that is greater than or equal to the specified key; 0 if there is no such
+	 *         key.
+	 */
+	static <K extends Comparable<K>> int position(FrozenBPlusTree<K, ?> frozen, K key) {
+		int position = 0;
+		for (int k = 1; k <= frozen.size();)
+			if (frozen.key(frozen.ranks[k]).compareTo(key) >= 0) {
+				position = k;
+				k = 2 * k;
+			} else
+				k = 2 * k + 1;
+		return position;
+	}
+
+}
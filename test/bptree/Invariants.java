@@ -0,0 +1,97 @@
+package bptree;
+
+/**
+ * The {@code Invariants} class verifies the structure of {@code BPlusTree}s for the randomized checks: the keys of
+ * every {@code Node} are in increasing order, child i of a {@code NonLeafNode} only holds keys between key(i - 1) and
+ * key(i) (both inclusive since duplicate keys may span splits), every {@code Node} other than the root has enough
+ * entries (unless a {@code SplitPolicy} other than the {@code MidpointSplitPolicy} may leave it less full), all
+ * {@code LeafNode}s are at the same depth and chained in key order, and the subtree counts (if maintained) are exact.
+ */
+public class Invariants {
+
+	/**
+	 * Verifies the structure of the specified {@code BPlusTree}.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param <V>
+	 *            the type of values
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @return the number of entries in the {@code BPlusTree}.
+	 * @throws AssertionError
+	 *             if the {@code BPlusTree} is malformed.
+	 */
+	public static <K extends Comparable<K>, V> long check(BPlusTree<K, V> tree) {
+		java.util.List<LeafNode<K, V>> leaves = new java.util.ArrayList<LeafNode<K, V>>();
+		long size = tree.root() == null ? 0 : check(tree, tree.root(), null, null, 0, new int[] { -1 }, leaves);
+		LeafNode<K, V> leaf = tree.firstLeaf();
+		for (LeafNode<K, V> l : leaves) {
+			if (leaf != l)
+				throw new AssertionError("leaf nodes are not chained in key order");
+			leaf = leaf.successor();
+		}
+		if (leaf != null)
+			throw new AssertionError("the last leaf node has a successor");
+		return size;
+	}
+
+	/**
+	 * Verifies the specified subtree.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param <V>
+	 *            the type of values
+	 * @param tree
+	 *            the {@code BPlusTree}.
+	 * @param node
+	 *            the root of a subtree.
+	 * @param low
+	 *            the lowest key that the subtree may hold; {@code null} if there is no lower bound.
+	 * @param high
+	 *            the highest key that the subtree may hold; {@code null} if there is no upper bound.
+	 * @param depth
+	 *            the depth of the subtree.
+	 * @param leafDepth
+	 *            the depth of the {@code LeafNode}s (-1 until the first {@code LeafNode} is visited).
+	 * @param leaves
+	 *            the list to which the {@code LeafNode}s are added in key order.
+	 * @return the number of entries in the subtree.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <K extends Comparable<K>, V> long check(BPlusTree<K, V> tree, Node<K> node, K low, K high,
+			int depth, int[] leafDepth, java.util.List<LeafNode<K, V>> leaves) {
+		boolean balanced = tree.splitPolicy().getClass() == MidpointSplitPolicy.class;
+		if (balanced && node != tree.root() && tree.tooFewEntries(node))
+			throw new AssertionError("too few entries: " + node.numberOfKeys());
+		for (int i = 0; i < node.numberOfKeys(); i++) {
+			K key = node.key(i);
+			if (i > 0 && node.key(i - 1).compareTo(key) > 0)
+				throw new AssertionError("keys out of order: " + node.key(i - 1) + " > " + key);
+			if (low != null && key.compareTo(low) < 0 || high != null && key.compareTo(high) > 0)
+				throw new AssertionError("key " + key + " outside [" + low + ", " + high + "]");
+		}
+		if (node instanceof LeafNode) {
+			if (leafDepth[0] < 0)
+				leafDepth[0] = depth;
+			else if (leafDepth[0] != depth)
+				throw new AssertionError("leaf nodes at depths " + leafDepth[0] + " and " + depth);
+			leaves.add((LeafNode<K, V>) node);
+			return node.numberOfKeys();
+		}
+		NonLeafNode<K> n = (NonLeafNode<K>) node;
+		long size = 0;
+		for (int i = 0; i <= n.numberOfKeys(); i++) {
+			if (n.child(i) == null)
+				throw new AssertionError("missing child " + i);
+			long s = check(tree, n.child(i), i == 0 ? low : n.key(i - 1), i == n.numberOfKeys() ? high : n.key(i),
+					depth + 1, leafDepth, leaves);
+			if (tree.hasCounts() && n.count(i) != s)
+				throw new AssertionError("count " + n.count(i) + " of a subtree with " + s + " entries");
+			size += s;
+		}
+		return size;
+	}
+
+}
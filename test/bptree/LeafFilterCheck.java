@@ -0,0 +1,109 @@
+package bptree;
+
+/**
+ * The {@code LeafFilterCheck} class checks that the Bloom filters of {@code LeafNode}s never reject a key that is
+ * present, for key types whose {@code hashCode} is consistent with {@code compareTo} ({@code Long}, {@code String} and
+ * {@code ByteKey}): random insertions and deletions split, merge and redistribute {@code LeafNode}s (rebuilding their
+ * filters), and {@code get} must find every key of a {@code java.util.TreeMap} that received the same changes and no
+ * other key. The filters are enabled on an empty {@code BPlusTree} and on a populated one, and are also checked on a
+ * copy.
+ */
+public class LeafFilterCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		long lookups = 0, negatives = 0;
+		for (int degree : new int[] { 4, 8, 64 })
+			for (boolean late : new boolean[] { false, true }) {
+				long[] r = run("Long", degree, late, k -> k);
+				lookups += r[0];
+				negatives += r[1];
+				r = run("String", degree, late, k -> "key-" + k);
+				lookups += r[0];
+				negatives += r[1];
+				r = run("ByteKey", degree, late, k -> ByteKey.builder().add((int) (k % 7)).add("k" + k).add(k).build());
+				lookups += r[0];
+				negatives += r[1];
+			}
+		System.out.println("LeafFilterCheck: OK (" + lookups + " lookups, " + negatives + " rejected by filters)");
+	}
+
+	/**
+	 * Applies random insertions and deletions to a {@code BPlusTree} with {@code LeafNode} filters and compares its
+	 * lookups with the model.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param type
+	 *            the name of the type of keys.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param late
+	 *            {@code true} to enable the filters once the {@code BPlusTree} is populated; {@code false} to enable
+	 *            them on the empty {@code BPlusTree}.
+	 * @param keys
+	 *            the function that maps numbers to keys.
+	 * @return the number of lookups and the number of lookups answered by a filter.
+	 */
+	static <K extends Comparable<K>> long[] run(String type, int degree, boolean late,
+			java.util.function.LongFunction<K> keys) {
+		java.util.Random random = new java.util.Random(degree * 2 + (late ? 1 : 0));
+		String where = type + " keys, degree " + degree + (late ? ", filters enabled late: " : ": ");
+		BPlusTree<K, Long> tree = new BPlusTree<K, Long>(degree);
+		LeafFilters<K> filters = late ? null : tree.enableLeafFilters(10);
+		java.util.TreeMap<K, Long> model = new java.util.TreeMap<K, Long>();
+		long lookups = 0;
+		for (int i = 0; i < 20000; i++) {
+			long n = random.nextInt(4000);
+			K key = keys.apply(n);
+			boolean growing = i % 5000 < 3000; // alternate between growing and shrinking the tree
+			if (random.nextInt(10) < (growing ? 7 : 3)) {
+				if (!model.containsKey(key)) {
+					tree.insert(key, n);
+					model.put(key, n);
+				}
+			} else if (model.remove(key) != null)
+				tree.delete(key, null);
+			if (late && i == 2500)
+				filters = tree.enableLeafFilters(10);
+			if (i % 997 == 0)
+				lookups += compare(where, tree, model, keys);
+		}
+		lookups += compare(where + "copy: ", new BPlusTree<K, Long>(tree), model, keys);
+		if (filters.negatives() == 0)
+			throw new AssertionError(where + "no lookup was answered by a filter");
+		return new long[] { lookups, filters.negatives() };
+	}
+
+	/**
+	 * Looks up every key in the range of the model in the specified {@code BPlusTree}.
+	 * 
+	 * @param <K>
+	 *            the type of keys
+	 * @param where
+	 *            a description of the configuration.
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @param model
+	 *            the expected entries.
+	 * @param keys
+	 *            the function that maps numbers to keys.
+	 * @return the number of lookups.
+	 */
+	static <K extends Comparable<K>> long compare(String where, BPlusTree<K, Long> tree,
+			java.util.TreeMap<K, Long> model, java.util.function.LongFunction<K> keys) {
+		for (long n = 0; n < 4000; n++) {
+			K key = keys.apply(n);
+			Long expected = model.get(key), found = tree.get(key);
+			if (expected == null ? found != null : !expected.equals(found))
+				throw new AssertionError(where + key + " maps to " + found + " instead of " + expected);
+		}
+		return 4000;
+	}
+
+}
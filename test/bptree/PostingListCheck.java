@@ -0,0 +1,228 @@
+package bptree;
+
+/**
+ * The {@code PostingListCheck} class checks {@code PostingBPlusTree} and {@code PostingList} against a
+ * {@code java.util.HashMap} of {@code java.util.TreeSet}s: random additions and removals of row IDs on keys of very
+ * different popularity must leave every {@code PostingList} sorted and equal to the model, keep the sizes exact and
+ * delete the keys whose last row ID is removed, and intersections of several keys must equal the intersections of the
+ * model. Since popular keys hold more than 32 times as many row IDs as rare ones, both the galloping and the merging
+ * branch of {@code PostingList.intersect} are exercised; the galloping branch is also checked directly on lists whose
+ * row IDs lie before, between and after those of the longer list.
+ */
+public class PostingListCheck {
+
+	/**
+	 * The number of keys.
+	 */
+	static final int KEYS = 200;
+
+	/**
+	 * The number of distinct row IDs.
+	 */
+	static final int IDS = 20000;
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		long[] counts = new long[3]; // operations, galloping intersections, merging intersections
+		for (int degree : new int[] { 3, 8, 64 }) {
+			long[] c = run(degree, 100000, degree);
+			for (int i = 0; i < counts.length; i++)
+				counts[i] += c[i];
+		}
+		if (counts[1] == 0 || counts[2] == 0)
+			throw new AssertionError("galloping intersections: " + counts[1] + ", merging ones: " + counts[2]);
+		long galloped = gallop(1000, 7);
+		System.out.println("PostingListCheck: OK (" + counts[0] + " operations, " + (counts[1] + galloped)
+				+ " galloping and " + counts[2] + " merging intersections)");
+	}
+
+	/**
+	 * Applies random additions and removals to a {@code PostingBPlusTree} and compares it with the model
+	 * periodically.
+	 * 
+	 * @param degree
+	 *            the degree of the underlying {@code BPlusTree}.
+	 * @param operations
+	 *            the number of additions and removals.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of operations, galloping intersections and merging intersections.
+	 */
+	static long[] run(int degree, int operations, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		String where = "degree " + degree + ": ";
+		PostingBPlusTree<Integer> tree = new PostingBPlusTree<Integer>(degree);
+		java.util.HashMap<Integer, java.util.TreeSet<Long>> model;
+		model = new java.util.HashMap<Integer, java.util.TreeSet<Long>>();
+		long[] counts = new long[3];
+		for (int i = 0; i < operations; i++) {
+			Integer key = random.nextInt(random.nextInt(KEYS) + 1); // low keys are much more popular
+			java.util.TreeSet<Long> ids = model.get(key);
+			boolean growing = i % 40000 < 30000; // alternate between growing and shrinking the lists
+			if (random.nextInt(10) < (growing ? 7 : 3)) {
+				long id = random.nextInt(IDS);
+				if (ids == null)
+					model.put(key, ids = new java.util.TreeSet<Long>());
+				boolean added = ids.add(id);
+				if (tree.add(key, id) != added)
+					throw new AssertionError(where + "adding " + id + " to " + key + " returned " + !added);
+			} else {
+				long id = random.nextInt(IDS);
+				if (ids != null && random.nextBoolean()) { // a row ID that is present
+					Long present = ids.ceiling(id);
+					id = present == null ? ids.first() : present;
+				}
+				boolean removed = ids != null && ids.remove(id);
+				if (removed && ids.isEmpty())
+					model.remove(key);
+				if (tree.remove(key, id) != removed)
+					throw new AssertionError(where + "removing " + id + " from " + key + " returned " + !removed);
+			}
+			counts[0]++;
+			if (i % 10007 == 0 || i == operations - 1) {
+				compare(where, tree, model, random);
+				intersect(where, tree, model, random, counts);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Compares the specified {@code PostingBPlusTree} with the model.
+	 * 
+	 * @param where
+	 *            a description of the configuration.
+	 * @param tree
+	 *            a {@code PostingBPlusTree}.
+	 * @param model
+	 *            the expected row IDs of each key.
+	 * @param random
+	 *            a source of random numbers.
+	 */
+	static void compare(String where, PostingBPlusTree<Integer> tree,
+			java.util.HashMap<Integer, java.util.TreeSet<Long>> model, java.util.Random random) {
+		if (Invariants.check(tree.tree()) != model.size())
+			throw new AssertionError(where + tree.tree().size() + " keys instead of " + model.size());
+		long size = 0;
+		for (Integer key = 0; key < KEYS; key++) {
+			java.util.TreeSet<Long> expected = model.getOrDefault(key, new java.util.TreeSet<Long>());
+			PostingList list = tree.getAll(key);
+			if (!java.util.Arrays.equals(list.toArray(), toArray(expected)))
+				throw new AssertionError(where + key + " has " + list + " instead of " + expected);
+			if (list.size() != expected.size())
+				throw new AssertionError(where + key + " has " + list.size() + " row IDs instead of " + expected.size()
+						+ " (" + list + ")");
+			for (int i = 0; i < 20; i++) {
+				long id = random.nextInt(IDS);
+				if (list.contains(id) != expected.contains(id))
+					throw new AssertionError(where + key + (expected.contains(id) ? " lacks " : " contains ") + id);
+			}
+			size += expected.size();
+		}
+		if (tree.size() != size)
+			throw new AssertionError(where + tree.size() + " row IDs instead of " + size);
+	}
+
+	/**
+	 * Intersects the row IDs of random keys in the specified {@code PostingBPlusTree} and compares the results with
+	 * the model.
+	 * 
+	 * @param where
+	 *            a description of the configuration.
+	 * @param tree
+	 *            a {@code PostingBPlusTree}.
+	 * @param model
+	 *            the expected row IDs of each key.
+	 * @param random
+	 *            a source of random numbers.
+	 * @param counts
+	 *            the numbers of operations, galloping intersections and merging intersections (updated).
+	 */
+	static void intersect(String where, PostingBPlusTree<Integer> tree,
+			java.util.HashMap<Integer, java.util.TreeSet<Long>> model, java.util.Random random, long[] counts) {
+		for (int i = 0; i < 200; i++) {
+			Integer[] keys = new Integer[1 + random.nextInt(3)];
+			for (int j = 0; j < keys.length; j++)
+				keys[j] = random.nextInt(random.nextInt(KEYS) + 1);
+			java.util.TreeSet<Long> expected = new java.util.TreeSet<Long>(
+					model.getOrDefault(keys[0], new java.util.TreeSet<Long>()));
+			for (int j = 1; j < keys.length; j++)
+				expected.retainAll(model.getOrDefault(keys[j], new java.util.TreeSet<Long>()));
+			PostingList found = tree.intersect(keys);
+			if (!java.util.Arrays.equals(found.toArray(), toArray(expected)))
+				throw new AssertionError(where + "the intersection of " + java.util.Arrays.toString(keys) + " is "
+						+ found + " instead of " + expected);
+			if (keys.length == 2) {
+				int a = tree.getAll(keys[0]).size(), b = tree.getAll(keys[1]).size();
+				if (a > 0 && b > 0)
+					counts[(long) Math.min(a, b) * 32 < Math.max(a, b) ? 1 : 2]++;
+			}
+		}
+	}
+
+	/**
+	 * Intersects short random {@code PostingList}s with long ones, so that every intersection gallops, and compares
+	 * the results with the model.
+	 * 
+	 * @param rounds
+	 *            the number of intersections.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of intersections.
+	 */
+	static long gallop(int rounds, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		for (int r = 0; r < rounds; r++) {
+			java.util.TreeSet<Long> longer = new java.util.TreeSet<Long>(), shorter = new java.util.TreeSet<Long>();
+			int n = 33 + random.nextInt(5000);
+			int gap = 1 + random.nextInt(10); // the largest gap between consecutive row IDs of the longer list
+			for (long id = 100; longer.size() < n; id += 1 + random.nextInt(gap))
+				longer.add(id);
+			int m = random.nextInt(Math.max(1, n / 32)); // a.size * 32 < b.size
+			Long[] candidates = longer.toArray(new Long[0]);
+			while (shorter.size() < m)
+				switch (random.nextInt(4)) {
+				case 0: // present in the longer list
+					shorter.add(candidates[random.nextInt(n)]);
+					break;
+				case 1: // before the longer list
+					shorter.add((long) random.nextInt(100));
+					break;
+				case 2: // after the longer list
+					shorter.add(longer.last() + 1 + random.nextInt(100));
+					break;
+				default: // probably between row IDs of the longer list
+					shorter.add(candidates[random.nextInt(n)] + 1);
+				}
+			java.util.TreeSet<Long> expected = new java.util.TreeSet<Long>(shorter);
+			expected.retainAll(longer);
+			PostingList a = new PostingList(toArray(shorter), m), b = new PostingList(toArray(longer), n);
+			for (PostingList found : new PostingList[] { PostingList.intersect(a, b), PostingList.intersect(b, a) })
+				if (!java.util.Arrays.equals(found.toArray(), toArray(expected)))
+					throw new AssertionError("galloping: the intersection of " + a + " and " + n + " row IDs is "
+							+ found + " instead of " + expected);
+		}
+		return rounds;
+	}
+
+	/**
+	 * Returns the row IDs in the specified set.
+	 * 
+	 * @param ids
+	 *            row IDs.
+	 * @return a new array containing the row IDs in increasing order.
+	 */
+	static long[] toArray(java.util.SortedSet<Long> ids) {
+		long[] a = new long[ids.size()];
+		int i = 0;
+		for (Long id : ids)
+			a[i++] = id;
+		return a;
+	}
+
+}
@@ -0,0 +1,174 @@
+package bptree;
+
+/**
+ * The {@code RankCheck} class checks the order statistics that subtree counts provide ({@code rank}, {@code count},
+ * {@code select} and {@code page}) against a {@code java.util.TreeMap} from keys to their values: random insertions
+ * and deletions of entries with many duplicate keys (whose runs span {@code LeafNode}s) are applied to
+ * {@code BPlusTree}s whose counts are enabled when empty, enabled once populated, disabled and enabled again, and to a
+ * {@code BufferedBPlusTree} (whose pending messages must be applied first), and every key, position and page must
+ * agree with the model, including positions and offsets outside the entries.
+ */
+public class RankCheck {
+
+	/**
+	 * The configurations that are checked.
+	 */
+	static final String[] CONFIGURATIONS = { "early", "late", "toggled", "buffered" };
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		long queries = 0;
+		for (String configuration : CONFIGURATIONS)
+			for (int degree : new int[] { 3, 4, 8, 64 })
+				for (int keys : new int[] { 10, 1000 })
+					queries += run(configuration, degree, keys, degree * 31 + keys);
+		System.out.println("RankCheck: OK (" + queries + " queries)");
+	}
+
+	/**
+	 * Applies random insertions and deletions to a {@code BPlusTree} in the specified configuration and compares its
+	 * order statistics with the model periodically.
+	 * 
+	 * @param configuration
+	 *            the name of a configuration.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param keys
+	 *            the number of distinct keys.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of queries compared with the model.
+	 */
+	static long run(String configuration, int degree, int keys, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		BPlusTree<Integer, Long> tree = configuration.equals("buffered")
+				? new BufferedBPlusTree<Integer, Long>(degree, 2 * degree)
+				: new BPlusTree<Integer, Long>(degree);
+		if (!configuration.equals("late"))
+			tree.enableCounts();
+		java.util.TreeMap<Integer, java.util.List<Long>> model = new java.util.TreeMap<Integer, java.util.List<Long>>();
+		String where = configuration + ", degree " + degree + ", " + keys + " keys: ";
+		long queries = 0;
+		for (long id = 0; id < 12000; id++) {
+			Integer key = random.nextInt(keys);
+			java.util.List<Long> values = model.get(key);
+			boolean growing = id % 6000 < 4000; // alternate between growing and shrinking the tree
+			if (values == null || random.nextInt(10) < (growing ? 7 : 3)) {
+				tree.insert(key, id);
+				model.computeIfAbsent(key, k -> new java.util.ArrayList<Long>()).add(id);
+			} else { // delete a specific entry, which may be anywhere in the run of the key
+				Long value = values.get(random.nextInt(values.size()));
+				tree.delete(key, value);
+				DuplicateKeyCheck.remove(model, key, value);
+			}
+			if (configuration.equals("late") && id == 3000)
+				tree.enableCounts();
+			if (configuration.equals("toggled") && id % 2500 == 1000) {
+				tree.disableCounts();
+				tree.insert(keys, -1L); // changes while counts are not maintained
+				tree.delete(keys, -1L);
+				tree.enableCounts();
+			}
+			if (tree.hasCounts() && id % 599 == 0)
+				queries += compare(where, tree, model, keys, random);
+		}
+		return queries + compare(where, tree, model, keys, random);
+	}
+
+	/**
+	 * Compares {@code rank}, {@code count}, {@code select} and {@code page} of the specified {@code BPlusTree} with
+	 * the model.
+	 * 
+	 * @param where
+	 *            a description of the configuration.
+	 * @param tree
+	 *            a {@code BPlusTree} with subtree counts.
+	 * @param model
+	 *            the values of each key.
+	 * @param keys
+	 *            the number of distinct keys.
+	 * @param random
+	 *            a source of random numbers.
+	 * @return the number of queries.
+	 */
+	static long compare(String where, BPlusTree<Integer, Long> tree,
+			java.util.TreeMap<Integer, java.util.List<Long>> model, int keys, java.util.Random random) {
+		java.util.List<Integer> order = new java.util.ArrayList<Integer>(); // the key at each position
+		for (java.util.Map.Entry<Integer, java.util.List<Long>> e : model.entrySet())
+			for (int i = 0; i < e.getValue().size(); i++)
+				order.add(e.getKey());
+		java.util.List<Integer> scannedKeys = new java.util.ArrayList<Integer>();
+		java.util.List<Long> values = new java.util.ArrayList<Long>(); // the value at each position in the tree
+		tree.scan(null, null, (k, v) -> {
+			scannedKeys.add(k);
+			values.add(v);
+		});
+		if (!scannedKeys.equals(order))
+			throw new AssertionError(where + scannedKeys.size() + " entries scanned instead of " + order.size());
+		int position = 0;
+		for (java.util.Map.Entry<Integer, java.util.List<Long>> e : model.entrySet()) {
+			java.util.List<Long> expected = new java.util.ArrayList<Long>(e.getValue());
+			java.util.List<Long> found = new java.util.ArrayList<Long>(
+					values.subList(position, position += expected.size()));
+			java.util.Collections.sort(expected);
+			java.util.Collections.sort(found);
+			if (!found.equals(expected))
+				throw new AssertionError(where + "key " + e.getKey() + " has " + found + " instead of " + expected);
+		}
+		int size = order.size();
+		if (tree.size() != size)
+			throw new AssertionError(where + tree.size() + " entries instead of " + size);
+		long queries = 1;
+		long[] ranks = new long[keys + 3]; // the number of entries whose keys are smaller than each key from -1
+		for (Integer key = -1; key <= keys + 1; key++) {
+			if (key >= 0)
+				ranks[key + 1] = ranks[key] + model.getOrDefault(key - 1, java.util.List.of()).size();
+			if (tree.rank(key) != ranks[key + 1])
+				throw new AssertionError(
+						where + "rank(" + key + ") = " + tree.rank(key) + " instead of " + ranks[key + 1]);
+			queries++;
+		}
+		for (int i = 0; i < 50; i++) {
+			Integer from = random.nextInt(keys + 3) - 1, to = random.nextInt(keys + 3) - 1;
+			long expected = Math.max(0, ranks[to + 1] - ranks[from + 1]);
+			if (tree.count(from, to) != expected)
+				throw new AssertionError(where + "count(" + from + ", " + to + ") = " + tree.count(from, to)
+						+ " instead of " + expected);
+			queries++;
+		}
+		for (int k = 0; k < order.size(); k++)
+			if (!tree.select(k).equals(order.get(k)))
+				throw new AssertionError(
+						where + "select(" + k + ") = " + tree.select(k) + " instead of " + order.get(k));
+		queries += order.size();
+		for (long k : new long[] { -1, size, size + 1, Long.MIN_VALUE, Long.MAX_VALUE })
+			try {
+				throw new AssertionError(where + "select(" + k + ") = " + tree.select(k) + " of " + size + " entries");
+			} catch (IndexOutOfBoundsException e) {
+				queries++;
+			}
+		for (int i = 0; i < 50; i++) {
+			long offset = i < 5 ? new long[] { 0, size - 1, size, size + 7, -1 }[i] : random.nextInt(size + 2);
+			int limit = random.nextInt(4) == 0 ? 0 : random.nextInt(200);
+			java.util.List<Integer> pageKeys = new java.util.ArrayList<Integer>();
+			java.util.List<Long> pageValues = new java.util.ArrayList<Long>();
+			int n = tree.page(offset, limit, (k, v) -> {
+				pageKeys.add(k);
+				pageValues.add(v);
+			});
+			int from = (int) Math.max(0, Math.min(offset, size)), to = offset < 0 ? 0 : Math.min(size, from + limit);
+			if (n != to - from || !pageKeys.equals(order.subList(from, to))
+					|| !pageValues.equals(values.subList(from, to)))
+				throw new AssertionError(where + "page(" + offset + ", " + limit + ") = " + pageKeys + " " + pageValues
+						+ " instead of " + order.subList(from, to) + " " + values.subList(from, to));
+			queries++;
+		}
+		return queries;
+	}
+
+}
@@ -0,0 +1,215 @@
+package bptree;
+
+/**
+ * The {@code ReplicationCheck} class checks that a follower {@code BPlusTree} fed by a {@code ReplicaApplier} ends up
+ * with the same entries as its leader when the leader holds runs of duplicate keys that span {@code LeafNode}s and
+ * deletes specific entries in them, and that a follower which lacks an entry that the leader deletes stops the
+ * {@code ReplicaApplier} with an {@code IllegalStateException}. It also reads followers whose lookups change their
+ * state (with a {@code LookupCache}, {@code LeafFilters} or pending messages) from several threads while changes are
+ * applied.
+ */
+public class ReplicationCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 * @throws java.io.IOException
+	 *             if the change log cannot be written or read.
+	 */
+	public static void main(String[] args) throws java.io.IOException {
+		long changes = 0;
+		for (int degree : new int[] { 3, 4, 8, 64 })
+			for (int keys : new int[] { 20, 2000 })
+				changes += run(degree, keys, degree * 13 + keys);
+		long reads = 0;
+		for (String configuration : new String[] { "cache", "filters", "buffered" })
+			reads += readConcurrently(configuration, 8);
+		System.out.println("ReplicationCheck: OK (" + changes + " changes replicated, " + reads + " concurrent reads)");
+	}
+
+	/**
+	 * Replicates random insertions, replacements and deletions of a leader to a follower, and then applies them
+	 * without the insertion of an entry that the leader later deletes.
+	 * 
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}s.
+	 * @param keys
+	 *            the number of distinct keys.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of changes in the change log.
+	 * @throws java.io.IOException
+	 *             if the change log cannot be written or read.
+	 */
+	static long run(int degree, int keys, long seed) throws java.io.IOException {
+		java.util.Random random = new java.util.Random(seed);
+		String where = "degree " + degree + ", " + keys + " keys: ";
+		BPlusTree<Integer, Long> leader = new BPlusTree<Integer, Long>(degree);
+		java.io.ByteArrayOutputStream log = new java.io.ByteArrayOutputStream();
+		ChangeLogWriter<Integer, Long> writer = new ChangeLogWriter<Integer, Long>(log, ChangeCodec.INTEGER,
+				ChangeCodec.LONG, 64, 0);
+		leader.addListener(writer);
+		java.util.List<Integer> inserted = new java.util.ArrayList<Integer>();
+		for (long id = 0; id < 20000; id++) {
+			Integer key = random.nextInt(keys);
+			int operation = random.nextInt(10);
+			if (operation < 6 || inserted.isEmpty()) {
+				leader.insert(key, id);
+				inserted.add(key);
+			} else if (operation < 8) // delete some entry of a key that was inserted, or nothing
+				leader.delete(inserted.get(random.nextInt(inserted.size())), random.nextBoolean() ? null : id % 50);
+			else
+				leader.put(key, id);
+		}
+		leader.removeListener(writer);
+		writer.close();
+		byte[] bytes = log.toByteArray();
+		long changes = writer.nextSequence();
+
+		BPlusTree<Integer, Long> follower = new BPlusTree<Integer, Long>(degree);
+		ReplicaApplier<Integer, Long> applier = new ReplicaApplier<Integer, Long>(follower, reader(bytes), 256);
+		applier.run();
+		if (applier.failure() != null)
+			throw new AssertionError(where + "the follower failed", applier.failure());
+		if (applier.appliedSequence() != changes - 1)
+			throw new AssertionError(where + "applied up to " + applier.appliedSequence() + " of " + changes);
+		java.util.TreeMap<Integer, java.util.List<Long>> expected = entries(leader), found = entries(follower);
+		if (!found.equals(expected))
+			throw new AssertionError(where + "the follower has " + Invariants.check(follower) + " entries, the leader "
+					+ Invariants.check(leader));
+
+		ChangeLogReader<Integer, Long> r = reader(bytes);
+		ChangeBatch<Integer, Long> all = r.next();
+		for (ChangeBatch<Integer, Long> b = r.next(); b != null; b = r.next())
+			all.addAll(b);
+		int d = 0; // the first deletion and the insertion of the entry that it deletes
+		while (!all.isDelete(d))
+			d++;
+		int i = d - 1;
+		while (all.isDelete(i) || !all.key(i).equals(all.key(d)) || !all.value(i).equals(all.value(d)))
+			i--;
+		ChangeBatch<Integer, Long> lossy = new ChangeBatch<Integer, Long>(0, all.size());
+		for (int j = 0; j < all.size(); j++)
+			if (j != i) // the follower loses the insertion
+				lossy.add(all.isDelete(j), all.key(j), all.value(j));
+		try {
+			new ReplicaApplier<Integer, Long>(new BPlusTree<Integer, Long>(degree), null).apply(lossy);
+			throw new AssertionError(where + "a follower without " + all.key(d) + "=" + all.value(d) + " did not fail");
+		} catch (IllegalStateException e) { // expected
+		}
+		return changes;
+	}
+
+	/**
+	 * Replicates random insertions and deletions to a follower in the specified configuration while several threads
+	 * look up keys through the {@code ReplicaApplier}, and then compares the follower with the leader.
+	 * 
+	 * @param configuration
+	 *            "cache", "filters" or "buffered".
+	 * @param readers
+	 *            the number of reading threads.
+	 * @return the number of lookups.
+	 * @throws java.io.IOException
+	 *             if the change log cannot be written or read.
+	 */
+	static long readConcurrently(String configuration, int readers) throws java.io.IOException {
+		java.util.Random random = new java.util.Random(readers);
+		BPlusTree<Integer, Long> leader = new BPlusTree<Integer, Long>(8);
+		java.io.ByteArrayOutputStream log = new java.io.ByteArrayOutputStream();
+		ChangeLogWriter<Integer, Long> writer = new ChangeLogWriter<Integer, Long>(log, ChangeCodec.INTEGER,
+				ChangeCodec.LONG, 64, 0);
+		leader.addListener(writer);
+		for (long id = 0; id < 50000; id++) {
+			Integer key = random.nextInt(5000);
+			if (leader.get(key) == null)
+				leader.insert(key, id);
+			else
+				leader.delete(key, null);
+		}
+		leader.removeListener(writer);
+		writer.close();
+		BPlusTree<Integer, Long> follower = configuration.equals("buffered")
+				? new BufferedBPlusTree<Integer, Long>(8, 64)
+				: new BPlusTree<Integer, Long>(8);
+		if (configuration.equals("cache"))
+			follower.enableLookupCache(1000);
+		else if (configuration.equals("filters"))
+			follower.enableLeafFilters(10);
+		ReplicaApplier<Integer, Long> applier = new ReplicaApplier<Integer, Long>(follower, reader(log.toByteArray()),
+				256);
+		Thread applying = new Thread(applier);
+		java.util.List<Throwable> failures;
+		failures = java.util.Collections.synchronizedList(new java.util.ArrayList<Throwable>());
+		java.util.concurrent.atomic.AtomicLong lookups = new java.util.concurrent.atomic.AtomicLong();
+		Thread[] threads = new Thread[readers];
+		for (int t = 0; t < readers; t++) {
+			java.util.Random r = new java.util.Random(t);
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < 20000 || applying.isAlive(); i++) {
+						applier.get(r.nextInt(5000));
+						lookups.incrementAndGet();
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			});
+		}
+		applying.start();
+		for (Thread t : threads)
+			t.start();
+		try {
+			applying.join();
+			for (Thread t : threads)
+				t.join();
+		} catch (InterruptedException e) {
+			throw new AssertionError(e);
+		}
+		String where = configuration + " follower read by " + readers + " threads: ";
+		if (!failures.isEmpty())
+			throw new AssertionError(where + failures.size() + " lookups failed", failures.get(0));
+		if (applier.failure() != null)
+			throw new AssertionError(where + "the follower failed", applier.failure());
+		LookupCache<Integer, Long> cache = follower.lookupCache();
+		if (cache != null && cache.size() > cache.maximumSize())
+			throw new AssertionError(where + "the lookup cache holds " + cache.size() + " entries");
+		if (!entries(follower).equals(entries(leader)))
+			throw new AssertionError(where + "the follower differs from the leader");
+		for (Integer key = 0; key < 5000; key++)
+			if (!java.util.Objects.equals(follower.get(key), leader.get(key)))
+				throw new AssertionError(
+						where + key + " maps to " + follower.get(key) + " instead of " + leader.get(key));
+		return lookups.get();
+	}
+
+	/**
+	 * Creates a {@code ChangeLogReader} of the specified change log.
+	 * 
+	 * @param bytes
+	 *            a change log.
+	 * @return a {@code ChangeLogReader} of the change log.
+	 */
+	static ChangeLogReader<Integer, Long> reader(byte[] bytes) {
+		return new ChangeLogReader<Integer, Long>(new java.io.ByteArrayInputStream(bytes), ChangeCodec.INTEGER,
+				ChangeCodec.LONG);
+	}
+
+	/**
+	 * Returns the sorted values of each key in the specified {@code BPlusTree}.
+	 * 
+	 * @param tree
+	 *            a {@code BPlusTree}.
+	 * @return the sorted values of each key.
+	 */
+	static java.util.TreeMap<Integer, java.util.List<Long>> entries(BPlusTree<Integer, Long> tree) {
+		java.util.TreeMap<Integer, java.util.List<Long>> entries;
+		entries = new java.util.TreeMap<Integer, java.util.List<Long>>();
+		tree.scan(null, null, (k, v) -> entries.computeIfAbsent(k, x -> new java.util.ArrayList<Long>()).add(v));
+		for (java.util.List<Long> values : entries.values())
+			java.util.Collections.sort(values);
+		return entries;
+	}
+
+}
@@ -0,0 +1,195 @@
+package bptree;
+
+/**
+ * The {@code SplitJoinCheck} class checks {@code BPlusTree.splitOff} and {@code BPlusTree.join}, which move
+ * {@code LeafNode}s between {@code BPlusTree}s, on {@code BPlusTree}s with many entries per key: both parts of a split
+ * and the rejoined {@code BPlusTree} must be well formed and hold exactly the expected entries, and must keep working
+ * under further insertions and deletions. It then checks that rebalancing a {@code ShardedBPlusTree} whose shards hold
+ * runs of duplicate keys moves every entry exactly once, and that range scans, which read the shards in chunks, pass
+ * every entry in the range exactly once and in key order, also while boundaries move during the scan.
+ */
+public class SplitJoinCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		long splits = 0;
+		for (String configuration : DuplicateKeyCheck.CONFIGURATIONS)
+			for (int degree : new int[] { 3, 4, 5, 8, 64 })
+				for (int keys : new int[] { 30, 3000 })
+					splits += run(configuration, degree, keys, degree * 17 + keys);
+		long moved = 0;
+		for (int degree : new int[] { 3, 8, 64 })
+			moved += rebalance(degree, degree);
+		System.out.println("SplitJoinCheck: OK (" + splits + " splits, " + moved + " entries moved between shards)");
+	}
+
+	/**
+	 * Repeatedly splits a {@code BPlusTree} at a random key, verifies both parts, joins them back in a random order
+	 * and applies random insertions and deletions to the result.
+	 * 
+	 * @param configuration
+	 *            the name of a configuration of {@code DuplicateKeyCheck}.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param keys
+	 *            the number of distinct keys.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of splits.
+	 */
+	static long run(String configuration, int degree, int keys, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		BPlusTree<Integer, Long> tree = DuplicateKeyCheck.create(configuration, degree);
+		java.util.TreeMap<Integer, java.util.List<Long>> model = new java.util.TreeMap<Integer, java.util.List<Long>>();
+		String where = configuration + ", degree " + degree + ", " + keys + " keys: ";
+		long id = 0, size = 0, splits = 0;
+		for (; size < 3000; size++) {
+			Integer key = random.nextInt(keys);
+			tree.insert(key, ++id);
+			model.computeIfAbsent(key, k -> new java.util.ArrayList<Long>()).add(id);
+		}
+		for (int round = 0; round < 20; round++, splits++) {
+			int key = random.nextInt(keys + 2) - 1; // sometimes below or above all keys
+			BPlusTree<Integer, Long> high = tree.splitOff(key);
+			java.util.TreeMap<Integer, java.util.List<Long>> lower, upper;
+			lower = new java.util.TreeMap<Integer, java.util.List<Long>>(model.headMap(key));
+			upper = new java.util.TreeMap<Integer, java.util.List<Long>>(model.tailMap(key));
+			DuplicateKeyCheck.compare(where + "below " + key + ": ", tree, lower, sizeOf(lower));
+			DuplicateKeyCheck.compare(where + "from " + key + ": ", high, upper, sizeOf(upper));
+			if (lower.size() > 1 && !upper.isEmpty()) { // a tree with the first lower key and the last upper key
+				BPlusTree<Integer, Long> other = new BPlusTree<Integer, Long>(degree);
+				other.insert(lower.firstKey(), 0L);
+				other.insert(upper.lastKey(), 0L);
+				try {
+					tree.join(other);
+					throw new AssertionError(where + "joined a tree whose keys interleave");
+				} catch (IllegalArgumentException e) { // expected
+				}
+			}
+			if (random.nextBoolean())
+				tree.join(high);
+			else { // prepend the lower part to the upper part and move everything back
+				high.join(tree);
+				if (tree.root() != null)
+					throw new AssertionError(where + "the joined tree is not empty");
+				tree.join(high);
+			}
+			if (high.root() != null)
+				throw new AssertionError(where + "the joined tree is not empty");
+			DuplicateKeyCheck.compare(where + "rejoined at " + key + ": ", tree, model, size);
+			for (int i = 0; i < 100; i++) { // the rebuilt tree must keep working
+				Integer k = random.nextInt(keys);
+				java.util.List<Long> values = model.get(k);
+				if (values != null && random.nextBoolean()) {
+					Long value = values.get(random.nextInt(values.size()));
+					tree.delete(k, value);
+					DuplicateKeyCheck.remove(model, k, value);
+					size--;
+				} else {
+					tree.insert(k, ++id);
+					model.computeIfAbsent(k, x -> new java.util.ArrayList<Long>()).add(id);
+					size++;
+				}
+			}
+			DuplicateKeyCheck.compare(where + "after updates: ", tree, model, size);
+		}
+		return splits;
+	}
+
+	/**
+	 * Returns the number of entries in the specified model.
+	 * 
+	 * @param model
+	 *            the values of each key.
+	 * @return the number of entries in the model.
+	 */
+	static long sizeOf(java.util.TreeMap<Integer, java.util.List<Long>> model) {
+		long size = 0;
+		for (java.util.List<Long> values : model.values())
+			size += values.size();
+		return size;
+	}
+
+	/**
+	 * Fills the first of four shards with runs of duplicate keys, rebalances the {@code ShardedBPlusTree} and compares
+	 * its entries with those inserted.
+	 * 
+	 * @param degree
+	 *            the degree of the shards.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @return the number of entries moved between shards.
+	 */
+	static long rebalance(int degree, long seed) {
+		java.util.Random random = new java.util.Random(seed);
+		ShardedBPlusTree<Integer, Long> tree = new ShardedBPlusTree<Integer, Long>(degree,
+				new Integer[] { 1000, 2000, 3000 });
+		java.util.TreeMap<Integer, java.util.List<Long>> model = new java.util.TreeMap<Integer, java.util.List<Long>>();
+		String where = "shards of degree " + degree + ": ";
+		long moved = 0;
+		try {
+			for (long id = 0; id < 40000; id++) {
+				Integer key = random.nextInt(10) == 0 ? random.nextInt(4000) : random.nextInt(50); // skewed to shard 0
+				tree.insert(key, id);
+				model.computeIfAbsent(key, k -> new java.util.ArrayList<Long>()).add(id);
+			}
+			long[] rebalanced = new long[1];
+			java.util.List<Integer> keys = new java.util.ArrayList<Integer>();
+			long count = tree.scan(null, null, (k, v) -> {
+				if (keys.isEmpty()) // move boundaries while the scan is in the middle of the first shard
+					rebalanced[0] = tree.rebalance(1.2);
+				keys.add(k);
+			});
+			moved = rebalanced[0];
+			if (count != 40000 || keys.size() != 40000)
+				throw new AssertionError(where + count + " entries scanned instead of 40000 while moving " + moved);
+			for (int i = 1; i < keys.size(); i++)
+				if (keys.get(i - 1) > keys.get(i))
+					throw new AssertionError(where + keys.get(i) + " scanned after " + keys.get(i - 1));
+			if (moved == 0)
+				throw new AssertionError(where + "nothing moved from " + java.util.Arrays.toString(tree.shardSizes()));
+			java.util.TreeMap<Integer, java.util.List<Long>> found;
+			found = new java.util.TreeMap<Integer, java.util.List<Long>>();
+			count = tree.scan(null, null,
+					(k, v) -> found.computeIfAbsent(k, x -> new java.util.ArrayList<Long>()).add(v));
+			if (count != 40000)
+				throw new AssertionError(where + count + " entries scanned instead of 40000 after moving " + moved);
+			for (java.util.List<Long> values : found.values())
+				java.util.Collections.sort(values);
+			if (!found.equals(model))
+				throw new AssertionError(where + "the entries differ after moving " + moved);
+			for (Integer key : model.keySet())
+				if (tree.get(key) == null)
+					throw new AssertionError(where + key + " is not found after moving " + moved);
+			for (int i = 0; i < 100; i++) {
+				Integer from = random.nextInt(10) == 0 ? null : random.nextInt(4000);
+				Integer to = random.nextInt(10) == 0 ? null : random.nextInt(4000);
+				java.util.SortedMap<Integer, java.util.List<Long>> range = from == null
+						? (to == null ? model : model.headMap(to))
+						: (to == null ? model.tailMap(from) : from < to ? model.subMap(from, to) : model.headMap(0));
+				java.util.TreeMap<Integer, java.util.List<Long>> scanned;
+				scanned = new java.util.TreeMap<Integer, java.util.List<Long>>();
+				Integer[] last = new Integer[1];
+				tree.scan(from, to, (k, v) -> {
+					if (last[0] != null && last[0] > k)
+						throw new AssertionError(where + k + " scanned after " + last[0]);
+					last[0] = k;
+					scanned.computeIfAbsent(k, x -> new java.util.ArrayList<Long>()).add(v);
+				});
+				for (java.util.List<Long> values : scanned.values())
+					java.util.Collections.sort(values);
+				if (!scanned.equals(range))
+					throw new AssertionError(where + "the entries in [" + from + ", " + to + ") differ");
+			}
+		} finally {
+			tree.close();
+		}
+		return moved;
+	}
+
+}
@@ -0,0 +1,148 @@
+package bptree;
+
+/**
+ * The {@code SpliteratorCheck} class checks {@code BPlusTree.entryStream} and {@code EntrySpliterator} against
+ * {@code BPlusTree.scan}: on {@code BPlusTree}s with and without subtree counts and with and without duplicate keys,
+ * parallel streams over bounded and unbounded ranges must return exactly the entries of the scan in key order, random
+ * interleavings of {@code tryAdvance}, {@code trySplit} (also while a {@code LeafNode} is partly consumed) and
+ * {@code forEachRemaining} must cover every entry once and in order, and a {@code SIZED} {@code EntrySpliterator}
+ * (counts over an unbounded range) and every {@code EntrySpliterator} split off from it must report the exact number
+ * of entries that it then traverses.
+ */
+public class SpliteratorCheck {
+
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args
+	 *            ignored.
+	 */
+	public static void main(String[] args) {
+		long[] counts = new long[3]; // ranges, exact sizes checked, splits of partly consumed leaf nodes
+		for (boolean counted : new boolean[] { false, true })
+			for (int degree : new int[] { 3, 4, 8, 64 })
+				for (int keys : new int[] { 20, 1000000 })
+					for (int size : new int[] { 0, 1, degree - 1, 20000 })
+						run(counted, degree, keys, size, degree * 7 + keys + size, counts);
+		if (counts[1] == 0 || counts[2] == 0)
+			throw new AssertionError(counts[1] + " exact sizes checked, " + counts[2] + " partly consumed leaf nodes");
+		System.out.println("SpliteratorCheck: OK (" + counts[0] + " ranges, " + counts[1] + " exact sizes, "
+				+ counts[2] + " splits of partly consumed leaf nodes)");
+	}
+
+	/**
+	 * Fills a {@code BPlusTree} with random entries and compares streams and split traversals of random ranges with
+	 * scans.
+	 * 
+	 * @param counted
+	 *            {@code true} to enable subtree counts.
+	 * @param degree
+	 *            the degree of the {@code BPlusTree}.
+	 * @param keys
+	 *            the number of distinct keys from which the keys are drawn.
+	 * @param size
+	 *            the number of entries.
+	 * @param seed
+	 *            the seed of the random numbers.
+	 * @param counts
+	 *            the numbers of ranges, exact sizes checked and splits of partly consumed {@code LeafNode}s
+	 *            (updated).
+	 */
+	static void run(boolean counted, int degree, int keys, int size, long seed, long[] counts) {
+		java.util.Random random = new java.util.Random(seed);
+		String where = (counted ? "counts, " : "") + "degree " + degree + ", " + size + " entries with " + keys
+				+ " keys: ";
+		BPlusTree<Integer, Long> tree = new BPlusTree<Integer, Long>(degree);
+		if (counted)
+			tree.enableCounts();
+		for (long id = 0; id < size; id++)
+			tree.insert(random.nextInt(keys), id);
+		for (int i = 0; i < 40; i++) {
+			Integer from = i % 4 == 0 || i % 4 == 1 ? null : random.nextInt(keys + 2) - 1;
+			Integer to = i % 4 == 0 || i % 4 == 2 ? null : random.nextInt(keys + 2) - 1;
+			String range = where + "[" + from + ", " + to + "): ";
+			java.util.List<java.util.Map.Entry<Integer, Long>> expected;
+			expected = new java.util.ArrayList<java.util.Map.Entry<Integer, Long>>();
+			tree.scan(from, to,
+					(k, v) -> expected.add(new java.util.AbstractMap.SimpleImmutableEntry<Integer, Long>(k, v)));
+			java.util.List<java.util.Map.Entry<Integer, Long>> found;
+			found = tree.entryStream(from, to).parallel().collect(java.util.stream.Collectors.toList());
+			if (!found.equals(expected))
+				throw new AssertionError(range + "the parallel stream returned " + found.size() + " of "
+						+ expected.size() + " entries or not in order");
+			if (tree.entryStream(from, to).parallel().count() != expected.size())
+				throw new AssertionError(range + "the parallel stream counted "
+						+ tree.entryStream(from, to).parallel().count()
+						+ " instead of " + expected.size() + " entries");
+			EntrySpliterator<Integer, Long> s = tree.spliterator(from, to);
+			boolean sized = counted && from == null && to == null;
+			if (s.hasCharacteristics(java.util.Spliterator.SIZED) != sized
+					|| s.hasCharacteristics(java.util.Spliterator.SUBSIZED) != sized
+					|| !s.hasCharacteristics(java.util.Spliterator.ORDERED | java.util.Spliterator.SORTED
+							| java.util.Spliterator.NONNULL))
+				throw new AssertionError(range + "characteristics " + Integer.toHexString(s.characteristics()));
+			found.clear();
+			traverse(range, s, found, random, 0, counts);
+			if (!found.equals(expected))
+				throw new AssertionError(range + "split traversal returned " + found.size() + " of " + expected.size()
+						+ " entries or not in order");
+			counts[0]++;
+		}
+	}
+
+	/**
+	 * Traverses the specified {@code EntrySpliterator} by a random interleaving of {@code tryAdvance},
+	 * {@code trySplit} and {@code forEachRemaining}, adding its entries to the specified list, and checks the sizes
+	 * that it reports if it is {@code SIZED}.
+	 * 
+	 * @param where
+	 *            a description of the configuration.
+	 * @param s
+	 *            an {@code EntrySpliterator}.
+	 * @param entries
+	 *            the list to which the entries are added.
+	 * @param random
+	 *            a source of random numbers.
+	 * @param depth
+	 *            the number of splits that led to the {@code EntrySpliterator}.
+	 * @param counts
+	 *            the numbers of ranges, exact sizes checked and splits of partly consumed {@code LeafNode}s
+	 *            (updated).
+	 */
+	static void traverse(String where, EntrySpliterator<Integer, Long> s,
+			java.util.List<java.util.Map.Entry<Integer, Long>> entries, java.util.Random random, int depth,
+			long[] counts) {
+		boolean sized = s.hasCharacteristics(java.util.Spliterator.SIZED);
+		long size = s.getExactSizeIfKnown();
+		if (sized != (size >= 0))
+			throw new AssertionError(where + "getExactSizeIfKnown() = " + size);
+		int start = entries.size();
+		for (int advances = random.nextInt(4); advances > 0; advances--) // possibly stop in the middle of a leaf
+			if (!s.tryAdvance(entries::add))
+				break;
+		if (sized && s.estimateSize() != size - (entries.size() - start))
+			throw new AssertionError(where + s.estimateSize() + " entries estimated after advancing "
+					+ (entries.size() - start) + " of " + size);
+		long before = s.estimateSize();
+		boolean partly = s.leaf != null && s.index > 0 && s.index < s.leaf.numberOfKeys();
+		EntrySpliterator<Integer, Long> prefix = depth < 12 ? s.trySplit() : null;
+		if (prefix != null) {
+			if (partly)
+				counts[2]++;
+			if (sized && (!prefix.hasCharacteristics(java.util.Spliterator.SUBSIZED)
+					|| prefix.estimateSize() + s.estimateSize() != before))
+				throw new AssertionError(where + "split " + before + " entries into " + prefix.estimateSize() + " and "
+						+ s.estimateSize());
+			traverse(where, prefix, entries, random, depth + 1, counts);
+			traverse(where, s, entries, random, depth + 1, counts);
+		} else
+			s.forEachRemaining(entries::add);
+		if (sized && entries.size() - start != size)
+			throw new AssertionError(where + (entries.size() - start) + " entries traversed instead of " + size);
+		if (s.tryAdvance(entries::add))
+			throw new AssertionError(where + "an entry after the end");
+		if (sized)
+			counts[1]++;
+	}
+
+}